@@ -0,0 +1,34 @@
+import net.ltgt.gradle.errorprone.errorprone
+
+plugins { id("com.ibm.wala.gradle.java") }
+
+val coreTestDataJar: Configuration by configurations.creating { isCanBeConsumed = false }
+
+val coreTestResources: Configuration by configurations.creating { isCanBeConsumed = false }
+
+dependencies {
+  implementation(libs.jmh.core)
+  implementation(projects.core)
+  implementation(projects.shrike)
+  implementation(projects.util)
+  annotationProcessor(libs.jmh.generator.annprocess)
+  // the analysis scope of the test data, so that the benchmarks run offline
+  coreTestDataJar(project(mapOf("path" to ":core", "configuration" to "collectTestDataJar")))
+  coreTestResources(project(mapOf("path" to ":core", "configuration" to "testResources")))
+}
+
+tasks.withType<JavaCompile>().configureEach {
+  // JMH generates the benchmark harness classes
+  options.errorprone.disableWarningsInGeneratedCode = true
+}
+
+// Run with, e.g., `./gradlew :benchmarks:jmh -PjmhArgs="IntSet -p implementation=sparse"`; the
+// arguments are those of the JMH command line runner.
+val jmh by
+    tasks.registering(JavaExec::class) {
+      group = "benchmark"
+      description = "Runs the JMH benchmarks."
+      classpath(sourceSets.main.map { it.runtimeClasspath }, coreTestDataJar, coreTestResources)
+      mainClass = "org.openjdk.jmh.Main"
+      args(providers.gradleProperty("jmhArgs").map { it.split(' ') }.getOrElse(emptyList()))
+    }
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.shrike.shrikeCT.ClassReader;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the throughput of Shrike class file parsing from heap byte arrays and from read-only
+ * views of a memory-mapped file, over all class files of the JDK's {@code java.base} module.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClassReaderBenchmark {
+
+  /** the class files of java.base, on the heap */
+  private List<byte[]> arrays;
+
+  /** the same class files, as views of a memory-mapped file */
+  private List<ByteBuffer> buffers;
+
+  @Setup
+  public void setup() throws IOException {
+    arrays = new ArrayList<>();
+    FileSystem jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+    try (Stream<Path> paths = Files.walk(jrt.getPath("modules", "java.base"))) {
+      List<Path> classFiles =
+          paths.filter(p -> p.toString().endsWith(".class")).collect(Collectors.toList());
+      for (Path p : classFiles) {
+        arrays.add(Files.readAllBytes(p));
+      }
+    }
+
+    File tmp = File.createTempFile("wala", ".classes");
+    tmp.deleteOnExit();
+    try (FileChannel channel =
+        FileChannel.open(tmp.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      for (byte[] a : arrays) {
+        channel.write(ByteBuffer.wrap(a));
+      }
+      ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      buffers = new ArrayList<>();
+      int offset = 0;
+      for (byte[] a : arrays) {
+        ByteBuffer b = mapped.duplicate();
+        b.position(offset);
+        b.limit(offset + a.length);
+        buffers.add(b.slice());
+        offset += a.length;
+      }
+    }
+  }
+
+  @Benchmark
+  public void parseFromArray(Blackhole bh) throws InvalidClassFileException {
+    for (byte[] a : arrays) {
+      parse(new ClassReader(a), bh);
+    }
+  }
+
+  @Benchmark
+  public void parseFromMappedBuffer(Blackhole bh) throws InvalidClassFileException {
+    for (ByteBuffer b : buffers) {
+      parse(new ClassReader(b), bh);
+    }
+  }
+
+  /** Read the parts of a class file a class hierarchy is built from. */
+  private static void parse(ClassReader r, Blackhole bh) throws InvalidClassFileException {
+    bh.consume(r.getName());
+    bh.consume(r.getSuperName());
+    bh.consume(r.getInterfaceNames());
+    for (int i = 0; i < r.getMethodCount(); i++) {
+      bh.consume(r.getMethodName(i));
+      bh.consume(r.getMethodType(i));
+    }
+    for (int i = 0; i < r.getFieldCount(); i++) {
+      bh.consume(r.getFieldName(i));
+      bh.consume(r.getFieldType(i));
+    }
+  }
+}
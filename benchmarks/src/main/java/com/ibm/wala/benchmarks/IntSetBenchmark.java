@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.benchmarks;
+
+import com.ibm.wala.util.debug.Assertions;
+import com.ibm.wala.util.intset.BimodalMutableIntSetFactory;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableIntSetFactory;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
+import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
+import com.ibm.wala.util.intset.RoaringMutableIntSetFactory;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the {@link MutableIntSet} operations points-to propagation relies on, for each of the
+ * mutable int set implementations.
+ *
+ * <p>The sets resemble points-to sets: most are small, a few are large, and their elements are
+ * clustered, as instance keys allocated in the same method are numbered close to each other.
+ *
+ * <p>{@link #footprint(Footprint)} reports the heap retained by the sets, as the {@code bytes}
+ * counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class IntSetBenchmark {
+
+  private static final int N_SETS = 1000;
+
+  /** elements are drawn from [0, UNIVERSE) */
+  private static final int UNIVERSE = 100000;
+
+  private static final int FOOTPRINT_COPIES = 20;
+
+  @Param({"sharedBitVector", "sparse", "bimodal", "roaring"})
+  public String implementation;
+
+  private MutableIntSetFactory<?> factory;
+
+  /** the elements of each set, in random order */
+  private int[][] elements;
+
+  private MutableIntSet[] sets;
+
+  @Setup
+  public void setup() {
+    switch (implementation) {
+      case "sharedBitVector":
+        factory = new MutableSharedBitVectorIntSetFactory();
+        break;
+      case "sparse":
+        factory = new MutableSparseIntSetFactory();
+        break;
+      case "bimodal":
+        factory = new BimodalMutableIntSetFactory();
+        break;
+      case "roaring":
+        factory = new RoaringMutableIntSetFactory();
+        break;
+      default:
+        Assertions.UNREACHABLE(implementation);
+    }
+    Random r = new Random(42);
+    elements = new int[N_SETS][];
+    sets = new MutableIntSet[N_SETS];
+    for (int i = 0; i < N_SETS; i++) {
+      int size = r.nextInt(10) == 0 ? 100 + r.nextInt(1000) : 1 + r.nextInt(8);
+      int base = r.nextInt(UNIVERSE - 2000);
+      elements[i] = new int[size];
+      for (int j = 0; j < size; j++) {
+        elements[i][j] = base + r.nextInt(2000);
+      }
+      sets[i] = factory.make();
+      for (int x : elements[i]) {
+        sets[i].add(x);
+      }
+    }
+  }
+
+  @Benchmark
+  public void add(Blackhole bh) {
+    for (int[] e : elements) {
+      MutableIntSet s = factory.make();
+      for (int x : e) {
+        s.add(x);
+      }
+      bh.consume(s);
+    }
+  }
+
+  /** The heap retained by one copy of the sets, as measured by {@link #footprint(Footprint)}. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Footprint {
+    public long bytes;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SingleShotTime)
+  public MutableIntSet[][] footprint(Footprint footprint) {
+    long before = usedHeap();
+    // enough copies for the heap to grow well beyond the granularity of the measurement
+    MutableIntSet[][] result = new MutableIntSet[FOOTPRINT_COPIES][N_SETS];
+    for (MutableIntSet[] copy : result) {
+      for (int i = 0; i < N_SETS; i++) {
+        copy[i] = factory.make();
+        for (int x : elements[i]) {
+          copy[i].add(x);
+        }
+      }
+    }
+    footprint.bytes = (usedHeap() - before) / FOOTPRINT_COPIES;
+    return result;
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  @Benchmark
+  public IntSet addAll() {
+    MutableIntSet result = factory.make();
+    for (MutableIntSet s : sets) {
+      result.addAll(s);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public void contains(Blackhole bh) {
+    for (int i = 0; i < N_SETS; i++) {
+      MutableIntSet s = sets[i];
+      for (int x : elements[(i + 1) % N_SETS]) {
+        bh.consume(s.contains(x));
+      }
+    }
+  }
+
+  @Benchmark
+  public void intersection(Blackhole bh) {
+    for (int i = 0; i < N_SETS; i++) {
+      bh.consume(sets[i].intersection(sets[(i + 1) % N_SETS]));
+    }
+  }
+
+  @Benchmark
+  public void foreach(Blackhole bh) {
+    for (MutableIntSet s : sets) {
+      s.foreach(bh::consume);
+    }
+  }
+}
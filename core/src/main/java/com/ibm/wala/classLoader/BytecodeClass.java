@@ -306,6 +306,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
 
   @Override
   public Collection<IField> getDeclaredInstanceFields() {
+    computeFieldsIfNeeded();
     if (instanceFields == null) {
       return Collections.emptySet();
     } else {
@@ -315,6 +316,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
 
   @Override
   public Collection<IField> getDeclaredStaticFields() {
+    computeFieldsIfNeeded();
     return Collections.unmodifiableList(Arrays.asList(staticFields));
   }
 
@@ -489,6 +491,7 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
   }
 
   protected List<IField> findDeclaredField(Atom name) {
+    computeFieldsIfNeeded();
 
     List<IField> result = new ArrayList<>(1);
 
@@ -531,6 +534,12 @@ public abstract class BytecodeClass<T extends IClassLoader> implements IClass {
     L.add(f);
   }
 
+  /**
+   * set up the {@link #instanceFields} and {@link #staticFields} arrays, for subclasses that do not
+   * do so when they are created
+   */
+  protected void computeFieldsIfNeeded() {}
+
   /** set up the methodMap mapping */
   protected void computeMethodMapIfNeeded() throws InvalidClassFileException {
     if (methodMap == null) {
@@ -13,6 +13,8 @@ package com.ibm.wala.classLoader;
 import com.ibm.wala.core.util.warnings.Warning;
 import com.ibm.wala.core.util.warnings.Warnings;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchySnapshot;
+import com.ibm.wala.ipa.cha.ClassHierarchySnapshot.ClassHeader;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.util.collections.HashMapFactory;
@@ -20,6 +22,7 @@ import com.ibm.wala.util.config.SetOfClasses;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.util.HashMap;
+import java.util.List;
 
 /** An implementation of the class loader factory that produces ClassLoaderImpls */
 public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
@@ -33,11 +36,46 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
   /** A Mapping from ClassLoaderReference to IClassLoader */
   private final HashMap<ClassLoaderReference, IClassLoader> map = HashMapFactory.make(3);
 
+  /** number of threads each {@link ClassLoaderImpl} uses to parse class files */
+  private final int nThreads;
+
+  /** if non-null, a snapshot from which {@link ClassLoaderImpl}s create their classes */
+  private final ClassHierarchySnapshot snapshot;
+
   /**
    * @param exclusions A set of classes that class loaders should pretend don't exist.
    */
   public ClassLoaderFactoryImpl(SetOfClasses exclusions) {
+    this(exclusions, 1);
+  }
+
+  /**
+   * @param exclusions A set of classes that class loaders should pretend don't exist.
+   * @param nThreads number of threads each class loader uses to parse class files
+   * @throws IllegalArgumentException if nThreads &lt; 1
+   */
+  public ClassLoaderFactoryImpl(SetOfClasses exclusions, int nThreads) {
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + nThreads);
+    }
+    this.exclusions = exclusions;
+    this.nThreads = nThreads;
+    this.snapshot = null;
+  }
+
+  /**
+   * @param exclusions A set of classes that class loaders should pretend don't exist.
+   * @param snapshot a snapshot of a class hierarchy for the same scope, from which class loaders
+   *     create their classes without parsing class files
+   * @throws IllegalArgumentException if snapshot is null
+   */
+  public ClassLoaderFactoryImpl(SetOfClasses exclusions, ClassHierarchySnapshot snapshot) {
+    if (snapshot == null) {
+      throw new IllegalArgumentException("snapshot is null");
+    }
     this.exclusions = exclusions;
+    this.nThreads = 1;
+    this.snapshot = snapshot;
   }
 
   /**
@@ -130,6 +168,15 @@ public class ClassLoaderFactoryImpl implements ClassLoaderFactory {
                   classLoaderReference, scope.getArrayClassLoader(), parent, exclusions, cha);
         }
       }
+    if (cl instanceof ClassLoaderImpl) {
+      ((ClassLoaderImpl) cl).setNumberOfThreads(nThreads);
+    }
+    if (snapshot != null && cl.getClass() == ClassLoaderImpl.class) {
+      List<ClassHeader> classes = snapshot.getClasses(classLoaderReference);
+      if (classes != null) {
+        ((ClassLoaderImpl) cl).setSnapshot(classes);
+      }
+    }
     cl.init(scope.getModules(classLoaderReference));
     return cl;
   }
@@ -16,6 +16,8 @@ import com.ibm.wala.core.util.shrike.ShrikeClassReaderHandle;
 import com.ibm.wala.core.util.strings.Atom;
 import com.ibm.wala.core.util.warnings.Warning;
 import com.ibm.wala.core.util.warnings.Warnings;
+import com.ibm.wala.ipa.cha.ClassHierarchySnapshot;
+import com.ibm.wala.ipa.cha.ClassHierarchySnapshot.ClassHeader;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.shrike.shrikeCT.ClassReader;
 import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
@@ -35,15 +37,18 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
+import java.util.stream.IntStream;
 
 /** A class loader that reads class definitions from a set of Modules. */
 public class ClassLoaderImpl implements IClassLoader {
@@ -72,6 +77,18 @@ public class ClassLoaderImpl implements IClassLoader {
   /** an object to delegate to for loading of array classes */
   private final ArrayClassLoader arrayClassLoader;
 
+  /** number of threads used to parse class files in {@link #init(List)} */
+  private int nThreads = 1;
+
+  /**
+   * headers of the classes to load, from a snapshot of an earlier run; if non-null, {@link
+   * #init(List)} creates the classes from these rather than parsing class files
+   */
+  private List<ClassHeader> snapshot;
+
+  /** did {@link #init(List)} create the classes from {@link #snapshot}? */
+  private boolean initializedFromSnapshot;
+
   /**
    * @param loader class loader reference identifying this loader
    * @param parent parent loader for delegation
@@ -100,6 +117,36 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * Set the number of threads used to parse class files when this loader is initialized. Classes
+   * are loaded in the same order, and with the same result, whatever the number of threads.
+   *
+   * @throws IllegalArgumentException if nThreads &lt; 1
+   */
+  public void setNumberOfThreads(int nThreads) {
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + nThreads);
+    }
+    this.nThreads = nThreads;
+  }
+
+  /**
+   * Create the classes of this loader from the headers recorded in a {@link ClassHierarchySnapshot}
+   * when it is initialized, instead of parsing their class files. The snapshot must have been taken
+   * of a loader with the same modules and exclusions.
+   */
+  public void setSnapshot(List<ClassHeader> classes) {
+    this.snapshot = classes;
+  }
+
+  /**
+   * @return true if {@link #init(List)} created the classes of this loader from a snapshot, or
+   *     false if it parsed their class files, e.g. because the snapshot did not match the modules
+   */
+  public boolean isInitializedFromSnapshot() {
+    return initializedFromSnapshot;
+  }
+
   /**
    * Return the Set of (ModuleEntry) source files found in a module.
    *
@@ -209,6 +256,8 @@ public class ClassLoaderImpl implements IClassLoader {
   @SuppressWarnings("unused")
   private void loadAllClasses(
       Collection<ModuleEntry> moduleEntries, Map<String, Object> fileContents, boolean isJMODType) {
+    List<ModuleEntry> entries = new ArrayList<>(moduleEntries.size());
+    List<String> classNames = new ArrayList<>(moduleEntries.size());
     for (ModuleEntry entry : moduleEntries) {
       // java11 support for jmod files
       if (!entry.isClassFile()
@@ -234,10 +283,20 @@ public class ClassLoaderImpl implements IClassLoader {
         }
         continue;
       }
+      entries.add(entry);
+      classNames.add('L' + className);
+    }
 
-      ShrikeClassReaderHandle entryReader = new ShrikeClassReaderHandle(entry);
+    // parsing class files is independent per class, so it may be done up front on several
+    // threads; deciding which classes to keep is done below, in the original order
+    Object[] parsed = null;
+    if (nThreads > 1 && entries.size() > 1) {
+      parsed = parseAllClasses(entries, fileContents);
+    }
 
-      className = 'L' + className;
+    for (int i = 0; i < entries.size(); i++) {
+      ModuleEntry entry = entries.get(i);
+      String className = classNames.get(i);
       if (DEBUG_LEVEL > 0) {
         System.err.println("Load class " + className);
       }
@@ -248,20 +307,16 @@ public class ClassLoaderImpl implements IClassLoader {
         } else if (parent != null && parent.lookupClass(T) != null) {
           Warnings.add(MultipleImplementationsWarning.create(className));
         } else {
-          // try to read from memory
-          ShrikeClassReaderHandle reader = entryReader;
-          if (fileContents != null) {
-            final Object contents = fileContents.get(entry.getName());
-            if (contents != null) {
-              // reader that uses the in-memory bytes
-              reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
-            }
+          ShrikeClass klass;
+          if (parsed == null) {
+            klass = parseClass(entry, fileContents);
+          } else if (parsed[i] instanceof InvalidClassFileException) {
+            throw (InvalidClassFileException) parsed[i];
+          } else {
+            klass = (ShrikeClass) parsed[i];
           }
-          ShrikeClass tmpKlass = new ShrikeClass(reader, this, cha);
-          if (tmpKlass.getReference().getName().equals(T)) {
-            // always used the reader based on the entry after this point,
-            // so we can null out and re-read class file contents
-            loadedClasses.put(T, new ShrikeClass(entryReader, this, cha));
+          if (klass.getReference().getName().equals(T)) {
+            loadedClasses.put(T, klass);
             if (DEBUG_LEVEL > 1) {
               System.err.println("put " + T + ' ');
             }
@@ -278,6 +333,56 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * Parse the class file of a module entry, from its in-memory contents if there are any.
+   *
+   * @return the class, whose reader reads the class file from the entry after this point
+   */
+  private ShrikeClass parseClass(ModuleEntry entry, Map<String, Object> fileContents)
+      throws InvalidClassFileException {
+    if (fileContents != null) {
+      final Object contents = fileContents.get(entry.getName());
+      if (contents != null) {
+        // reader that uses the in-memory bytes
+        ShrikeClassReaderHandle reader = new ByteArrayReaderHandle(entry, (byte[]) contents);
+        ShrikeClass klass = new ShrikeClass(reader, this, cha);
+        // drop the in-memory bytes, so the class file is re-read from the entry after this point
+        reader.clear();
+        return klass;
+      }
+    }
+    return new ShrikeClass(new ShrikeClassReaderHandle(entry), this, cha);
+  }
+
+  /**
+   * Parse the class files of the given entries on {@link #nThreads} threads.
+   *
+   * @return for each entry, in order, either its {@link ShrikeClass} or the {@link
+   *     InvalidClassFileException} thrown while parsing it
+   */
+  private Object[] parseAllClasses(List<ModuleEntry> entries, Map<String, Object> fileContents) {
+    Object[] result = new Object[entries.size()];
+    ForkJoinPool pool = new ForkJoinPool(nThreads);
+    try {
+      pool.submit(
+              () ->
+                  IntStream.range(0, entries.size())
+                      .parallel()
+                      .forEach(
+                          i -> {
+                            try {
+                              result[i] = parseClass(entries.get(i), fileContents);
+                            } catch (InvalidClassFileException e) {
+                              result[i] = e;
+                            }
+                          }))
+          .join();
+    } finally {
+      pool.shutdown();
+    }
+    return result;
+  }
+
   @SuppressWarnings("unused")
   private Map<String, Object> getAllClassAndSourceFileContents(
       byte[] jarFileContents, String fileName, Map<String, Map<String, Long>> entrySizes) {
@@ -455,6 +560,11 @@ public class ClassLoaderImpl implements IClassLoader {
       throw new IllegalArgumentException("modules is null");
     }
 
+    if (snapshot != null && initFromSnapshot(modules)) {
+      initializedFromSnapshot = true;
+      return;
+    }
+
     // module are loaded according to the given order (same as in Java VM)
     Set<ModuleEntry> classModuleEntries = HashSetFactory.make();
     Set<ModuleEntry> sourceModuleEntries = HashSetFactory.make();
@@ -509,6 +619,48 @@ public class ClassLoaderImpl implements IClassLoader {
     }
   }
 
+  /**
+   * Set up the classes of this loader from {@link #snapshot}.
+   *
+   * @return false if some class file recorded in the snapshot was not found in the modules, in
+   *     which case nothing has been loaded
+   */
+  private boolean initFromSnapshot(List<Module> modules) throws IOException {
+    List<Map<String, ModuleEntry>> entries = new ArrayList<>(modules.size());
+    for (Module archive : modules) {
+      Map<String, ModuleEntry> m = HashMapFactory.make();
+      for (ModuleEntry entry : getClassFiles(archive)) {
+        m.put(ClassHierarchySnapshot.getEntryKey(entry), entry);
+      }
+      entries.add(m);
+    }
+    for (ClassHeader header : snapshot) {
+      ModuleEntry entry =
+          header.getModuleIndex() < entries.size()
+              ? entries.get(header.getModuleIndex()).get(header.getEntryKey())
+              : null;
+      if (entry == null) {
+        loadedClasses.clear();
+        return false;
+      }
+      TypeName T = TypeName.findOrCreate(header.getName());
+      loadedClasses.put(
+          T,
+          new ShrikeClass(
+              new ShrikeClassReaderHandle(entry),
+              this,
+              cha,
+              T,
+              header.getModifiers(),
+              header.getSuperName(),
+              header.getInterfaceNames()));
+    }
+    for (Module archive : modules) {
+      loadAllSources(getSourceFiles(archive));
+    }
+    return true;
+  }
+
   @SuppressWarnings("unused")
   private Map<String, Map<String, Long>> getEntrySizes(Module module, String name) {
     Map<String, Map<String, Long>> result = HashMapFactory.make();
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.classLoader;
+
+import com.ibm.wala.core.util.io.FileSuffixes;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.debug.Assertions;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.zip.ZipEntry;
+
+/**
+ * A module which is a wrapper around a Jar file, whose class files are read from memory-mapped
+ * storage rather than unzipped on each read.
+ *
+ * <p>The first time a class file is asked for, all class files of the jar are extracted, once, into
+ * an uncompressed archive in a temporary file, which is then memory-mapped. Class files are then
+ * handed out as read-only views of the mapping; the heap holds no copy of them, and re-reading a
+ * class file whose reader has been garbage collected costs no I/O or decompression.
+ *
+ * @see com.ibm.wala.core.util.shrike.ShrikeClassReaderHandle
+ */
+public class MappedJarFileModule extends JarFileModule {
+
+  /** the mapped archive of class files; null until it has been built */
+  private volatile ByteBuffer archive;
+
+  /**
+   * for each class file in {@link #archive}, its offset in the high 32 bits and its length in the
+   * low 32 bits
+   */
+  private Map<String, Long> index;
+
+  public MappedJarFileModule(JarFile f) {
+    super(f);
+  }
+
+  /**
+   * @return a read-only view of the contents of a class file of this jar, or null if the entry is
+   *     not a class file of this jar
+   */
+  public ByteBuffer getByteBuffer(String entryName) {
+    if (entryName == null) {
+      throw new IllegalArgumentException("entryName is null");
+    }
+    ByteBuffer a = getArchive();
+    Long location = index.get(entryName);
+    if (location == null) {
+      return null;
+    }
+    int offset = (int) (location >>> 32);
+    int length = (int) (long) location;
+    ByteBuffer result = a.duplicate();
+    result.position(offset);
+    result.limit(offset + length);
+    return result.slice();
+  }
+
+  @Override
+  public byte[] getContents(ZipEntry entry) {
+    ByteBuffer b = getByteBuffer(entry.getName());
+    if (b == null) {
+      return super.getContents(entry);
+    }
+    byte[] result = new byte[b.remaining()];
+    b.get(result);
+    return result;
+  }
+
+  private ByteBuffer getArchive() {
+    ByteBuffer result = archive;
+    if (result == null) {
+      synchronized (this) {
+        result = archive;
+        if (result == null) {
+          try {
+            result = buildArchive();
+          } catch (IOException e) {
+            e.printStackTrace();
+            Assertions.UNREACHABLE();
+          }
+          archive = result;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Extract the class files of the jar into a temporary file, fill in {@link #index}, and map the
+   * file.
+   */
+  private ByteBuffer buildArchive() throws IOException {
+    File tmp = File.createTempFile("wala", ".classes");
+    tmp.deleteOnExit();
+    Map<String, Long> index = HashMapFactory.make();
+    try (FileChannel channel =
+        FileChannel.open(tmp.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      OutputStream out = Channels.newOutputStream(channel);
+      JarFile file = getJarFile();
+      for (Enumeration<JarEntry> e = file.entries(); e.hasMoreElements(); ) {
+        JarEntry entry = e.nextElement();
+        if (!FileSuffixes.isClassFile(entry.getName())) {
+          continue;
+        }
+        long offset = channel.position();
+        try (InputStream s = file.getInputStream(entry)) {
+          s.transferTo(out);
+        }
+        long length = channel.position() - offset;
+        if (channel.position() > Integer.MAX_VALUE) {
+          // too big for a single mapping; the remaining class files are read from the jar
+          channel.truncate(offset);
+          break;
+        }
+        index.put(entry.getName(), (offset << 32) | length);
+      }
+      MappedByteBuffer result = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      this.index = index;
+      return result.asReadOnlyBuffer();
+    } finally {
+      // the mapping stays valid once the file is gone, on platforms that allow removing it;
+      // elsewhere, it is removed on exit
+      tmp.delete();
+    }
+  }
+}
@@ -47,6 +47,9 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
   /** The Shrike object that knows how to read the class file */
   private final ShrikeClassReaderHandle reader;
 
+  /** have the declared fields been read from the class file? */
+  private volatile boolean fieldsComputed;
+
   /**
    * @throws IllegalArgumentException if reader is null
    */
@@ -65,6 +68,61 @@ public final class ShrikeClass extends JVMClass<IClassLoader> {
     computeModifiers();
     computeInterfaceNames();
     computeFields();
+    fieldsComputed = true;
+  }
+
+  /**
+   * Create a class from header information recorded earlier, e.g. by a {@link
+   * com.ibm.wala.ipa.cha.ClassHierarchySnapshot}, without reading the class file. The fields and
+   * methods of the class are read from the class file when first asked for.
+   *
+   * @param name the name of the class
+   * @param modifiers the access flags of the class
+   * @param superName the name of the superclass, or null if none
+   * @param interfaceNames the names of the interfaces directly implemented by the class
+   * @throws IllegalArgumentException if reader, name or interfaceNames is null
+   */
+  public ShrikeClass(
+      ShrikeClassReaderHandle reader,
+      IClassLoader loader,
+      IClassHierarchy cha,
+      TypeName name,
+      int modifiers,
+      ImmutableByteArray superName,
+      ImmutableByteArray[] interfaceNames) {
+    super(loader, cha);
+    if (reader == null) {
+      throw new IllegalArgumentException("reader is null");
+    }
+    if (name == null) {
+      throw new IllegalArgumentException("name is null");
+    }
+    if (interfaceNames == null) {
+      throw new IllegalArgumentException("interfaceNames is null");
+    }
+    this.reader = reader;
+    this.typeReference = TypeReference.findOrCreate(loader.getReference(), name);
+    this.hashCode = 2161 * getReference().hashCode();
+    this.modifiers = modifiers;
+    this.superName = superName;
+    this.interfaceNames = interfaceNames;
+  }
+
+  @Override
+  protected void computeFieldsIfNeeded() {
+    if (!fieldsComputed) {
+      synchronized (this) {
+        if (!fieldsComputed) {
+          try {
+            computeFields();
+          } catch (InvalidClassFileException e) {
+            e.printStackTrace();
+            Assertions.UNREACHABLE();
+          }
+          fieldsComputed = true;
+        }
+      }
+    }
   }
 
   /**
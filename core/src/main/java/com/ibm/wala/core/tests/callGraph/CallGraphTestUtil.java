@@ -15,6 +15,7 @@ import com.ibm.wala.core.util.config.AnalysisScopeReader;
 import com.ibm.wala.core.util.io.FileProvider;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
@@ -22,12 +23,21 @@ import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.Util;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
 import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
 import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.perf.StopwatchGC;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 /** Utilities for call graph tests */
 public class CallGraphTestUtil {
@@ -208,4 +218,43 @@ public class CallGraphTestUtil {
     }
     return Pair.make(cg, builder.getPointerAnalysis());
   }
+
+  /**
+   * @return the names of the nodes of a call graph, to compare call graphs built by different
+   *     builders for the same program
+   */
+  public static Set<String> nodeNames(CallGraph cg) {
+    Set<String> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      result.add(n.toString());
+    }
+    return result;
+  }
+
+  /**
+   * @return the names of the instance keys in the points-to set of each pointer key, by the name of
+   *     the pointer key, to compare pointer analyses computed by different builders for the same
+   *     program. Distinct pointer keys may print alike, e.g. the fields of objects allocated at two
+   *     sites of the same type in one method, so each name maps to the sorted list of the points-to
+   *     sets of all its keys.
+   */
+  public static Map<String, List<Set<String>>> pointsToSets(PointerAnalysis<InstanceKey> pa) {
+    Map<String, List<Set<String>>> result = HashMapFactory.make();
+    for (PointerKey k : pa.getPointerKeys()) {
+      // value numbers in the synthetic fake root methods depend on the order in which nodes are
+      // discovered, so they cannot be compared by name
+      if (k.toString().contains("FakeRootClass")) {
+        continue;
+      }
+      Set<String> ptsTo = new TreeSet<>();
+      for (InstanceKey ik : pa.getPointsToSet(k)) {
+        ptsTo.add(ik.toString());
+      }
+      result.computeIfAbsent(k.toString(), x -> new ArrayList<>()).add(ptsTo);
+    }
+    for (List<Set<String>> sets : result.values()) {
+      sets.sort(Comparator.comparing(Object::toString));
+    }
+    return result;
+  }
 }
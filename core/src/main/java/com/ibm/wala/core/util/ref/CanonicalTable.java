@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.util.ref;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A dictionary of canonical objects, such as the one behind {@link
+ * com.ibm.wala.types.TypeReference#findOrCreate}, which maps a key to the single object made for
+ * it.
+ *
+ * <p>A value added outside any {@link InterningSession} is held strongly, forever. A value added
+ * while a session is active on the current thread is held weakly by the table, and strongly by the
+ * session until the session is closed; after that, it is dropped from the table once nothing else
+ * refers to it.
+ * Since a value is only dropped when it is unreachable, there is never more than one live value
+ * for a key, so values may still be compared with ==.
+ *
+ * <p>A reclaimed value is removed from its table the next time any table is used, which in turn
+ * releases its key, and so possibly the values the key refers to.
+ *
+ * <p>Lookups take no lock, and the table may be used by several threads at once.
+ */
+public final class CanonicalTable<K, V> {
+
+  /** maps a key to its value, or to a {@link WeakEntry} for it */
+  private final ConcurrentHashMap<K, Object> map = new ConcurrentHashMap<>();
+
+  /** weak entries of all tables whose values have been reclaimed */
+  private static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+  /**
+   * @return the canonical value for key, or null if there is none
+   */
+  public @Nullable V get(K key) {
+    expungeStaleEntries();
+    Object entry = map.get(key);
+    return entry == null ? null : value(entry);
+  }
+
+  /**
+   * Make value the canonical value for key, unless the table already holds one.
+   *
+   * @return the canonical value for key
+   * @throws IllegalArgumentException if value == null
+   */
+  public V putIfAbsent(K key, V value) throws IllegalArgumentException {
+    if (value == null) {
+      throw new IllegalArgumentException("value == null");
+    }
+    expungeStaleEntries();
+    InterningSession session = InterningSession.getActive();
+    Object entry = session == null ? value : new WeakEntry<>(this, key, value);
+    while (true) {
+      Object old = map.putIfAbsent(key, entry);
+      if (old == null) {
+        if (session != null) {
+          session.root(value);
+        }
+        return value;
+      }
+      V canonical = value(old);
+      if (canonical != null) {
+        return canonical;
+      }
+      // reclaimed, but not yet expunged
+      map.remove(key, old);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private @Nullable V value(Object entry) {
+    return entry instanceof WeakEntry ? ((WeakEntry<K, V>) entry).get() : (V) entry;
+  }
+
+  private static void expungeStaleEntries() {
+    for (Reference<?> r = queue.poll(); r != null; r = queue.poll()) {
+      WeakEntry<?, ?> e = (WeakEntry<?, ?>) r;
+      e.table.map.remove(e.key, e);
+    }
+  }
+
+  /**
+   * @return the number of keys in the table
+   */
+  public int size() {
+    expungeStaleEntries();
+    return map.size();
+  }
+
+  /** A weak reference to a value added during a session, which remembers its table and key. */
+  private static final class WeakEntry<K, V> extends WeakReference<V> {
+
+    private final CanonicalTable<K, V> table;
+
+    private final K key;
+
+    WeakEntry(CanonicalTable<K, V> table, K key, V value) {
+      super(value, queue);
+      this.table = table;
+      this.key = key;
+    }
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.util.ref;
+
+import java.util.ArrayList;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A scope for the canonical {@link com.ibm.wala.core.util.strings.Atom}s, {@link
+ * com.ibm.wala.types.TypeName}s, {@link com.ibm.wala.types.TypeReference}s and member references
+ * created while analyzing one program. Without a session, those dictionaries only ever grow; a
+ * process that analyzes many programs should analyze each one in a session of its own:
+ *
+ * <pre>
+ * try (InterningSession session = InterningSession.open()) {
+ *   // build the class hierarchy, call graph, ... for one AnalysisScope
+ * }
+ * </pre>
+ *
+ * Objects first created while the session is active stay canonical as long as they are reachable;
+ * once the session is closed and the analysis results are dropped, they are reclaimed. Objects that
+ * existed before the session are not affected. The global {@link
+ * com.ibm.wala.core.util.warnings.Warnings} are shared by all analyses, and are not cleared.
+ *
+ * <p>A session is active on the thread that opened it, and on the threads that thread creates
+ * while the session is active, such as the workers of a {@link java.util.concurrent.ForkJoinPool}
+ * made for a parallel analysis. So several programs may be analyzed at once, on different threads,
+ * each in a session of its own. Objects first created on other threads, e.g. in the common pool,
+ * are held forever, as if no session were active.
+ *
+ * <p>Sessions nest: opening a session while another one is active on the thread makes the new one
+ * active until it is closed. Sessions may be closed in any order; a closed session is never active.
+ *
+ * @see CanonicalTable
+ */
+public final class InterningSession implements AutoCloseable {
+
+  /** the session opened last by each thread, or inherited from the thread that created it */
+  private static final InheritableThreadLocal<@Nullable InterningSession> current =
+      new InheritableThreadLocal<>();
+
+  /** the session that was active when this one was opened */
+  private final @Nullable InterningSession parent;
+
+  /** the objects created during this session; null once the session is closed */
+  private @Nullable ArrayList<Object> roots = new ArrayList<>();
+
+  private InterningSession(@Nullable InterningSession parent) {
+    this.parent = parent;
+  }
+
+  /**
+   * Open a new session, and make it the active one on this thread.
+   *
+   * @return the new session
+   */
+  public static InterningSession open() {
+    InterningSession result = new InterningSession(getActive());
+    current.set(result);
+    return result;
+  }
+
+  /**
+   * @return the session active on this thread, or null if there is none
+   */
+  public static @Nullable InterningSession getActive() {
+    return openAncestor(current.get());
+  }
+
+  /**
+   * @return s, or the nearest session it was opened in, if s is closed; null if all are closed
+   */
+  private static @Nullable InterningSession openAncestor(@Nullable InterningSession s) {
+    while (s != null && s.isClosed()) {
+      s = s.parent;
+    }
+    return s;
+  }
+
+  /** Keep o alive until this session is closed. */
+  synchronized void root(Object o) {
+    if (roots != null) {
+      roots.add(o);
+    }
+  }
+
+  /**
+   * @return the number of objects created during this session, or 0 if it is closed
+   */
+  public synchronized int size() {
+    return roots == null ? 0 : roots.size();
+  }
+
+  public synchronized boolean isClosed() {
+    return roots == null;
+  }
+
+  /**
+   * Close this session, releasing the objects created during it. If it is the active session on
+   * this thread, the nearest session it was opened in that is still open becomes the active one
+   * again. Closing a closed session does nothing.
+   */
+  @Override
+  public void close() {
+    synchronized (this) {
+      roots = null;
+    }
+    if (current.get() == this) {
+      current.set(openAncestor(parent));
+    }
+  }
+}
@@ -10,6 +10,7 @@
  */
 package com.ibm.wala.core.util.shrike;
 
+import com.ibm.wala.classLoader.MappedJarFileModule;
 import com.ibm.wala.classLoader.ModuleEntry;
 import com.ibm.wala.core.util.ref.CacheReference;
 import com.ibm.wala.shrike.shrikeCT.ClassReader;
@@ -18,6 +19,7 @@ import com.ibm.wala.util.debug.Assertions;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * A soft handle to a Shrike class reader
@@ -62,21 +64,38 @@ public class ShrikeClassReaderHandle {
           }
         }
       }
-      ByteArrayOutputStream S = new ByteArrayOutputStream();
-      try {
-        InputStream s = entry.getInputStream();
-        readBytes(s, S);
-        s.close();
-      } catch (IOException e) {
-        e.printStackTrace();
-        Assertions.UNREACHABLE();
-      }
-      result = new ClassReader(S.toByteArray());
+      ByteBuffer mapped = getMappedContents();
+      result = mapped != null ? new ClassReader(mapped) : new ClassReader(readContents());
       reader = CacheReference.make(result);
     }
     return result;
   }
 
+  /**
+   * @return a view of the contents of the class file in a memory-mapped module, or null if the
+   *     class file is not in such a module
+   */
+  private ByteBuffer getMappedContents() {
+    if (entry.getContainer() instanceof MappedJarFileModule) {
+      return ((MappedJarFileModule) entry.getContainer()).getByteBuffer(entry.getName());
+    }
+    return null;
+  }
+
+  /** Read the contents of the class file */
+  private byte[] readContents() {
+    ByteArrayOutputStream S = new ByteArrayOutputStream();
+    try {
+      InputStream s = entry.getInputStream();
+      readBytes(s, S);
+      s.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+      Assertions.UNREACHABLE();
+    }
+    return S.toByteArray();
+  }
+
   /** Read is into bytes */
   private static void readBytes(InputStream is, ByteArrayOutputStream bytes) throws IOException {
     int n = 0;
@@ -10,10 +10,10 @@
  */
 package com.ibm.wala.core.util.strings;
 
-import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.core.util.ref.CanonicalTable;
 import java.io.Serializable;
+import java.io.UTFDataFormatException;
 import java.util.Arrays;
-import java.util.HashMap;
 
 /**
  * An utf8-encoded byte string.
@@ -23,24 +23,72 @@ import java.util.HashMap;
  *
  * <p>Atoms are used to represent names, descriptors, and string literals appearing in a class's
  * constant pool.
+ *
+ * <p>Atoms may be created by several threads at once: looking up an existing Atom takes no lock,
+ * and creating one only locks a single bin of the dictionary. In compact storage mode (see {@link
+ * #setCompactStorage(boolean)}), the bytes of short Atoms are packed into large shared slabs
+ * rather than each getting an array of its own.
  */
 public final class Atom implements Serializable {
 
   /* Serial version */
-  private static final long serialVersionUID = -3256390509887654329L;
+  private static final long serialVersionUID = -3256390509887654331L;
 
   /**
    * Used to canonicalize Atoms, a mapping from AtomKey -&gt; Atom. AtomKeys are not canonical, but
    * Atoms are.
    */
-  private static final HashMap<AtomKey, Atom> dictionary = HashMapFactory.make();
+  private static final CanonicalTable<AtomKey, Atom> dictionary = new CanonicalTable<>();
+
+  /** Atoms longer than this get an array of their own, even in compact storage mode */
+  private static final int MAX_COMPACT_LENGTH = 256;
+
+  /** size of each slab holding the bytes of Atoms in compact storage */
+  private static final int SLAB_SIZE = 1 << 16;
+
+  /** Should new Atoms store their bytes in a shared slab? */
+  private static volatile boolean compactStorage = false;
+
+  /** guards {@link #slab} and {@link #slabTop} */
+  private static final Object slabLock = new Object();
+
+  /** the slab new Atoms in compact storage are allocated in */
+  private static byte[] slab = new byte[0];
+
+  /** the first free byte of {@link #slab} */
+  private static int slabTop = 0;
 
-  /** The utf8 value this atom represents */
+  /**
+   * The utf8 value this atom represents, at val[off] .. val[off + length - 1]. In compact storage,
+   * val is a slab shared with other atoms.
+   */
   private final byte val[];
 
+  /** Offset of the value of this atom in val */
+  private final int off;
+
+  /** Number of bytes in the value of this atom */
+  private final int length;
+
   /** Cached hash code for this atom key. */
   private final int hash;
 
+  /**
+   * Turn compact storage of new Atoms on or off. In compact storage, the bytes of short Atoms are
+   * copied into large slabs shared by many Atoms, which saves an array header per Atom; the slabs
+   * are never freed. Atoms created before the call are not affected.
+   */
+  public static void setCompactStorage(boolean compact) {
+    compactStorage = compact;
+  }
+
+  /**
+   * @return true iff new Atoms are created in compact storage
+   */
+  public static boolean isCompactStorage() {
+    return compactStorage;
+  }
+
   /**
    * Find or create an atom.
    *
@@ -105,35 +153,55 @@ public final class Atom implements Serializable {
     if (off + len < 0) {
       throw new IllegalArgumentException("off + len is too big: " + off + " + " + len);
     }
-    byte val[] = new byte[len];
-    for (int i = 0; i < len; ++i) {
-      val[i] = utf8[off++];
+    Atom val = dictionary.get(new AtomKey(utf8, off, len));
+    if (val != null) {
+      return val;
     }
-    return findOrCreate(val);
+    return findOrCreate(Arrays.copyOfRange(utf8, off, off + len));
   }
 
-  public static synchronized Atom findOrCreate(byte[] bytes) {
+  public static Atom findOrCreate(byte[] bytes) {
     if (bytes == null) {
       throw new IllegalArgumentException("bytes is null");
     }
-    AtomKey key = new AtomKey(bytes);
+    AtomKey key = new AtomKey(bytes, 0, bytes.length);
     Atom val = dictionary.get(key);
     if (val != null) {
       return val;
     }
-    val = new Atom(key);
-    dictionary.put(key, val);
-    return val;
+    if (compactStorage && bytes.length <= MAX_COMPACT_LENGTH) {
+      val = makeCompact(key);
+      // the dictionary must not hold on to bytes either
+      key = new AtomKey(val.val, val.off, val.length);
+    } else {
+      val = new Atom(key);
+    }
+    // if another thread won the race, the slab space we took is wasted; that is rare and harmless
+    return dictionary.putIfAbsent(key, val);
   }
 
-  public static synchronized Atom findOrCreate(ImmutableByteArray b) {
+  /** Create an atom for key, with its bytes copied to a slab. */
+  private static Atom makeCompact(AtomKey key) {
+    synchronized (slabLock) {
+      if (slabTop + key.length > slab.length) {
+        slab = new byte[SLAB_SIZE];
+        slabTop = 0;
+      }
+      System.arraycopy(key.val, key.off, slab, slabTop, key.length);
+      Atom result = new Atom(slab, slabTop, key.length, key.hash);
+      slabTop += key.length;
+      return result;
+    }
+  }
+
+  public static Atom findOrCreate(ImmutableByteArray b) {
     if (b == null) {
       throw new IllegalArgumentException("b is null");
     }
     return findOrCreate(b.b);
   }
 
-  public static synchronized Atom findOrCreate(ImmutableByteArray b, int start, int length) {
+  public static Atom findOrCreate(ImmutableByteArray b, int start, int length) {
     if (b == null) {
       throw new IllegalArgumentException("b is null");
     }
@@ -143,33 +211,39 @@ public final class Atom implements Serializable {
   /** Return printable representation of "this" atom. Does not correctly handle UTF8 translation. */
   @Override
   public String toString() {
-    return new String(val);
+    return new String(val, off, length);
   }
 
   /** Return printable representation of "this" atom. */
-  public String toUnicodeString() throws java.io.UTFDataFormatException {
-    return UTF8Convert.fromUTF8(val);
+  public String toUnicodeString() throws UTFDataFormatException {
+    return UTF8Convert.fromUTF8(off == 0 && length == val.length ? val : getValArray());
   }
 
   /** New Atom containing first count bytes */
   public Atom left(int count) {
-    return findOrCreate(val, 0, count);
+    if (count < 0 || count > length) {
+      throw new IllegalArgumentException("illegal count " + count + ", length is " + length);
+    }
+    return findOrCreate(val, off, count);
   }
 
   /** New Atom containing last count bytes */
   public Atom right(int count) {
-    return findOrCreate(val, val.length - count, count);
+    if (count < 0 || count > length) {
+      throw new IllegalArgumentException("illegal count " + count + ", length is " + length);
+    }
+    return findOrCreate(val, off + length - count, count);
   }
 
   public boolean startsWith(Atom start) {
     assert (start != null);
 
     // can't start with something that's longer.
-    if (val.length < start.val.length) return false;
+    if (length < start.length) return false;
 
     // otherwise, we know that this length is greater than or equal to the length of start.
-    for (int i = 0; i < start.val.length; ++i) {
-      if (val[i] != start.val[i]) return false;
+    for (int i = 0; i < start.length; ++i) {
+      if (val[off + i] != start.val[start.off + i]) return false;
     }
 
     return true;
@@ -182,9 +256,9 @@ public final class Atom implements Serializable {
    * @return array descriptor - something like "[I" or "[Ljava/lang/Object;"
    */
   public Atom arrayDescriptorFromElementDescriptor() {
-    byte sig[] = new byte[1 + val.length];
+    byte sig[] = new byte[1 + length];
     sig[0] = (byte) '[';
-    for (int i = 0, n = val.length; i < n; ++i) sig[i + 1] = val[i];
+    System.arraycopy(val, off, sig, 1, length);
     return findOrCreate(sig);
   }
 
@@ -196,7 +270,7 @@ public final class Atom implements Serializable {
     if (length() == 0) {
       return false;
     }
-    return val[0] == '<';
+    return val[off] == '<';
   }
 
   /** Is "this" atom a class descriptor? */
@@ -204,7 +278,7 @@ public final class Atom implements Serializable {
     if (length() == 0) {
       return false;
     }
-    return val[0] == 'L';
+    return val[off] == 'L';
   }
 
   /** Is "this" atom an array descriptor? */
@@ -212,7 +286,7 @@ public final class Atom implements Serializable {
     if (length() == 0) {
       return false;
     }
-    return val[0] == '[';
+    return val[off] == '[';
   }
 
   /** Is "this" atom a method descriptor? */
@@ -220,17 +294,23 @@ public final class Atom implements Serializable {
     if (length() == 0) {
       return false;
     }
-    return val[0] == '(';
+    return val[off] == '(';
   }
 
   public int length() {
-    return val.length;
+    return length;
   }
 
   /** Create atom from given utf8 sequence. */
   private Atom(AtomKey key) {
-    this.val = key.val;
-    this.hash = key.hash;
+    this(key.val, key.off, key.length, key.hash);
+  }
+
+  private Atom(byte[] val, int off, int length, int hash) {
+    this.val = val;
+    this.off = off;
+    this.length = length;
+    this.hash = hash;
   }
 
   /**
@@ -240,10 +320,10 @@ public final class Atom implements Serializable {
    * @return array element descriptor - something like "I"
    */
   public Atom parseForArrayElementDescriptor() throws IllegalArgumentException {
-    if (val.length == 0) {
+    if (length == 0) {
       throw new IllegalArgumentException("empty atom is not an array");
     }
-    return findOrCreate(val, 1, val.length - 1);
+    return findOrCreate(val, off + 1, length - 1);
   }
 
   /**
@@ -254,18 +334,15 @@ public final class Atom implements Serializable {
    * @throws IllegalStateException if this Atom does not represent an array
    */
   public int parseForArrayDimensionality() throws IllegalArgumentException {
-    if (val.length == 0) {
+    if (length == 0) {
       throw new IllegalArgumentException("empty atom is not an array");
     }
-    try {
-      for (int i = 0; ; ++i) {
-        if (val[i] != '[') {
-          return i;
-        }
+    for (int i = 0; i < length; ++i) {
+      if (val[off + i] != '[') {
+        return i;
       }
-    } catch (ArrayIndexOutOfBoundsException e) {
-      throw new IllegalStateException("not an array: " + this, e);
     }
+    throw new IllegalStateException("not an array: " + this);
   }
 
   /**
@@ -274,35 +351,40 @@ public final class Atom implements Serializable {
    * @throws IllegalStateException if this Atom does not represent an array descriptor
    */
   public Atom parseForInnermostArrayElementDescriptor() throws IllegalArgumentException {
-    if (val.length == 0) {
+    if (length == 0) {
       throw new IllegalArgumentException("empty atom is not an array");
     }
-    try {
-      int i = 0;
-      while (val[i] == '[') {
-        i++;
-      }
-      return findOrCreate(val, i, val.length - i);
-    } catch (ArrayIndexOutOfBoundsException e) {
-      throw new IllegalStateException("not an array: " + this, e);
+    int i = 0;
+    while (i < length && val[off + i] == '[') {
+      i++;
+    }
+    if (i == length) {
+      throw new IllegalStateException("not an array: " + this);
     }
+    return findOrCreate(val, off + i, length - i);
   }
 
   /** key for the dictionary. */
   private static final class AtomKey {
-    /** The utf8 value this atom key represents */
+    /** The utf8 value this atom key represents, at val[off] .. val[off + length - 1] */
     private final byte val[];
 
+    private final int off;
+
+    private final int length;
+
     /** Cached hash code for this atom key. */
     private final int hash;
 
-    /** Create atom from given utf8 sequence. */
-    private AtomKey(byte utf8[]) {
+    /** Create atom key from given utf8 sequence. */
+    private AtomKey(byte utf8[], int off, int length) {
       int tmp = 99989;
-      for (int i = utf8.length; --i >= 0; ) {
+      for (int i = off + length; --i >= off; ) {
         tmp = 99991 * tmp + utf8[i];
       }
       this.val = utf8;
+      this.off = off;
+      this.length = length;
       this.hash = tmp;
     }
 
@@ -316,9 +398,9 @@ public final class Atom implements Serializable {
 
       AtomKey that = (AtomKey) other;
       if (hash != that.hash) return false;
-      if (val.length != that.val.length) return false;
-      for (int i = 0; i < val.length; i++) {
-        if (val[i] != that.val[i]) return false;
+      if (length != that.length) return false;
+      for (int i = 0; i < length; i++) {
+        if (val[off + i] != that.val[that.off + i]) return false;
       }
 
       return true;
@@ -329,7 +411,7 @@ public final class Atom implements Serializable {
      */
     @Override
     public String toString() {
-      return new String(val);
+      return new String(val, off, length);
     }
 
     @Override
@@ -355,23 +437,22 @@ public final class Atom implements Serializable {
 
   /** return an array of bytes representing the utf8 characters in this */
   public byte[] getValArray() {
-    return val.clone();
+    return Arrays.copyOfRange(val, off, off + length);
   }
 
   public byte getVal(int i) throws IllegalArgumentException {
-    try {
-      return val[i];
-    } catch (ArrayIndexOutOfBoundsException e) {
-      throw new IllegalArgumentException("Illegal index: " + i + " length is " + val.length, e);
+    if (i < 0 || i >= length) {
+      throw new IllegalArgumentException("Illegal index: " + i + " length is " + length);
     }
+    return val[off + i];
   }
 
   /**
    * @return true iff this atom contains the specified byte
    */
   public boolean contains(byte b) {
-    for (byte element : val) {
-      if (element == b) {
+    for (int i = off; i < off + length; i++) {
+      if (val[i] == b) {
         return true;
       }
     }
@@ -379,9 +460,9 @@ public final class Atom implements Serializable {
   }
 
   public int rIndex(byte b) {
-    for (int i = val.length - 1; i >= 0; --i) {
-      if (val[i] == b) {
-        return val.length - i;
+    for (int i = length - 1; i >= 0; --i) {
+      if (val[off + i] == b) {
+        return length - i;
       }
     }
     return -1;
@@ -406,8 +487,9 @@ public final class Atom implements Serializable {
       throw new IllegalArgumentException("argument may not be null!");
     }
 
-    byte[] val = Arrays.copyOf(ma.val, ma.val.length + mb.val.length);
-    System.arraycopy(mb.val, 0, val, ma.val.length, mb.val.length);
+    byte[] val = new byte[ma.length + mb.length];
+    System.arraycopy(ma.val, ma.off, val, 0, ma.length);
+    System.arraycopy(mb.val, mb.off, val, ma.length, mb.length);
 
     return findOrCreate(val);
   }
@@ -427,6 +509,30 @@ public final class Atom implements Serializable {
    * implement it, in order to make sure that all equal objects are consolidated.
    */
   private Object readResolve() {
-    return findOrCreate(this.val);
+    return findOrCreate(getValArray());
+  }
+
+  /**
+   * Special method that is called by Java serialization process. An atom in compact storage is
+   * written as a copy of its own bytes, rather than with the whole slab it lives in.
+   */
+  private Object writeReplace() {
+    return off == 0 && length == val.length ? this : new SerializedAtom(getValArray());
+  }
+
+  /** The serialized form of an atom in compact storage */
+  private static final class SerializedAtom implements Serializable {
+
+    private static final long serialVersionUID = -3256390509887654330L;
+
+    private final byte[] val;
+
+    private SerializedAtom(byte[] val) {
+      this.val = val;
+    }
+
+    private Object readResolve() {
+      return findOrCreate(val);
+    }
   }
 }
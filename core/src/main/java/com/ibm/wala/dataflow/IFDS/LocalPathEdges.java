@@ -27,6 +27,12 @@ public class LocalPathEdges {
   /** Do paranoid error checking? (slow) */
   private static final boolean PARANOID = false;
 
+  /** assumed size of an object header, for {@link #getEstimatedBytes()} */
+  static final int OBJECT_BYTES = 16;
+
+  /** assumed size of an empty {@link SparseVector}, for {@link #getEstimatedBytes()} */
+  private static final int SPARSE_VECTOR_BYTES = 64;
+
   /**
    * A map from integer (d2) -&gt; (IBinaryNonNegativeIntRelation)
    *
@@ -47,7 +53,7 @@ public class LocalPathEdges {
    * <p>TODO: more representation optimization. A special representation for triples? sparse
    * representations for CFG? exploit shorts for ints?
    */
-  private final SparseVector<IBinaryNaturalRelation> paths = new SparseVector<>(1, 1.1f);
+  private final SparseVector<IBinaryNaturalRelation> paths;
 
   /**
    * If this is non-null, it holds a redundant representation of the paths information, designed to
@@ -75,7 +81,7 @@ public class LocalPathEdges {
    * <p>for fact d1, identityPaths[d1] gives the set of block numbers N s.t. for n \in N, &lt;s_p,
    * d1&gt; -&gt; &lt;n, d1&gt; is a path edge.
    */
-  private final SparseVector<IntSet> identityPaths = new SparseVector<>(1, 1.1f);
+  private final SparseVector<IntSet> identityPaths;
 
   /**
    * a map from integer d2 -&gt; int set
@@ -83,14 +89,28 @@ public class LocalPathEdges {
    * <p>for fact d2, zeroPaths[d2] gives the set of block numbers N s.t. for n \in N, &lt;s_p, 0&gt;
    * -&gt; &lt;n, d2&gt; is a path edge.
    */
-  private final SparseVector<IntSet> zeroPaths = new SparseVector<>(1, 1.1f);
+  private final SparseVector<IntSet> zeroPaths;
 
   /**
    * @param fastMerge if true, the representation uses extra space in order to support faster merge
    *     operations
    */
   public LocalPathEdges(boolean fastMerge) {
+    paths = new SparseVector<>(1, 1.1f);
     altPaths = fastMerge ? new SparseVector<>(1, 1.1f) : null;
+    identityPaths = new SparseVector<>(1, 1.1f);
+    zeroPaths = new SparseVector<>(1, 1.1f);
+  }
+
+  /**
+   * For subclasses that keep the path edges elsewhere and override every public method; allocates
+   * none of the structures above.
+   */
+  protected LocalPathEdges() {
+    paths = null;
+    altPaths = null;
+    identityPaths = null;
+    zeroPaths = null;
   }
 
   /**
@@ -466,4 +486,61 @@ public class LocalPathEdges {
     }
     return result;
   }
+
+  /**
+   * @return the number of path edges recorded
+   */
+  public long getNumberOfPathEdges() {
+    long result = 0;
+    for (IBinaryNaturalRelation R : paths) {
+      for (int n = 0; n <= R.maxKeyValue(); n++) {
+        result += R.getRelatedCount(n);
+      }
+    }
+    for (IntSet s : identityPaths) {
+      result += s.size();
+    }
+    for (IntSet s : zeroPaths) {
+      result += s.size();
+    }
+    return result;
+  }
+
+  /**
+   * A rough estimate of the memory used to represent the path edges, for statistics. Bit vectors
+   * are counted exactly; a relation is assumed to take an int per node it might relate, and a set
+   * of ints for each node related to more than one fact.
+   *
+   * @return the estimated number of bytes
+   */
+  public long getEstimatedBytes() {
+    long result = 3 * SPARSE_VECTOR_BYTES;
+    for (IBinaryNaturalRelation R : paths) {
+      result += getEstimatedBytes(R);
+    }
+    if (altPaths != null) {
+      result += SPARSE_VECTOR_BYTES;
+      for (IBinaryNaturalRelation R : altPaths) {
+        result += getEstimatedBytes(R);
+      }
+    }
+    for (IntSet s : identityPaths) {
+      result += 3 * OBJECT_BYTES + ((BitVectorIntSet) s).getBitVector().length() / 8;
+    }
+    for (IntSet s : zeroPaths) {
+      result += 3 * OBJECT_BYTES + ((BitVectorIntSet) s).getBitVector().length() / 8;
+    }
+    return result;
+  }
+
+  private static long getEstimatedBytes(IBinaryNaturalRelation R) {
+    long result = OBJECT_BYTES + 4L * (R.maxKeyValue() + 1);
+    for (int n = 0; n <= R.maxKeyValue(); n++) {
+      int count = R.getRelatedCount(n);
+      if (count > 1) {
+        result += 8 + 2 * OBJECT_BYTES + 4L * count;
+      }
+    }
+    return result;
+  }
 }
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.IFDS;
+
+import com.ibm.wala.util.collections.LongOpenHashSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.Arrays;
+
+/**
+ * A set of path edges for a particular procedure entry s_p, in which each edge &lt;s_p, d1&gt;
+ * -&gt; &lt;n, d2&gt; is packed into one long, and the longs are kept in an open-addressing hash
+ * table: about 11 to 21 bytes per path edge, with no objects per node or per fact.
+ *
+ * <p>{@link #contains} and {@link #addPathEdge} take constant time. {@link #getInverse} tries each
+ * fact that is the source of some path edge, so it is fast as long as few facts hold at s_p, as in
+ * a slice from one set of roots, and slower when many do, as when slicing from many criteria at
+ * once. The other queries, which the solver only uses for merging or to build its result, sort the
+ * edges the first time they are used after a change, and keep the sorted copy until the next
+ * change.
+ *
+ * <p>Local block numbers must be less than 2<sup>22</sup>, and facts less than 2<sup>21</sup>.
+ * This representation does not support fast merges.
+ */
+public class PackedLocalPathEdges extends LocalPathEdges {
+
+  private static final int FACT_BITS = 21;
+
+  private static final int NODE_BITS = 64 - 2 * FACT_BITS;
+
+  private static final long FACT_MASK = (1L << FACT_BITS) - 1;
+
+  /** the edges, each packed as n, d1, d2 from the highest bits down */
+  private final LongOpenHashSet edges = new LongOpenHashSet();
+
+  /** the facts d1 of all path edges */
+  private final MutableSparseIntSet sources = MutableSparseIntSet.makeEmpty();
+
+  /** the edges in ascending order, or null if not computed since the last change */
+  private long[] sorted;
+
+  public PackedLocalPathEdges() {}
+
+  private static long pack(int d1, int n, int d2) {
+    return ((long) n << (2 * FACT_BITS)) | ((long) d1 << FACT_BITS) | d2;
+  }
+
+  private static int node(long edge) {
+    return (int) (edge >>> (2 * FACT_BITS));
+  }
+
+  private static int source(long edge) {
+    return (int) ((edge >>> FACT_BITS) & FACT_MASK);
+  }
+
+  private static int target(long edge) {
+    return (int) (edge & FACT_MASK);
+  }
+
+  private static boolean isFact(int d) {
+    return d >= 0 && d <= FACT_MASK;
+  }
+
+  /**
+   * @throws IllegalArgumentException if n or a fact is out of range
+   */
+  @Override
+  public void addPathEdge(int i, int n, int j) {
+    if (n < 0 || n >= 1 << NODE_BITS) {
+      throw new IllegalArgumentException("n out of range for packed path edges: " + n);
+    }
+    if (!isFact(i) || !isFact(j)) {
+      throw new IllegalArgumentException(
+          "fact out of range for packed path edges: " + i + ", " + j);
+    }
+    if (edges.add(pack(i, n, j))) {
+      sources.add(i);
+      sorted = null;
+    }
+  }
+
+  @Override
+  public boolean contains(int i, int n, int j) {
+    if (n < 0) {
+      throw new IllegalArgumentException("invalid n: " + n);
+    }
+    return n < 1 << NODE_BITS && isFact(i) && isFact(j) && edges.contains(pack(i, n, j));
+  }
+
+  @Override
+  public IntSet getInverse(int n, int d2) {
+    MutableSparseIntSet result = null;
+    for (IntIterator it = sources.intIterator(); it.hasNext(); ) {
+      int d1 = it.next();
+      if (contains(d1, n, d2)) {
+        if (result == null) {
+          result = MutableSparseIntSet.makeEmpty();
+        }
+        result.add(d1);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public IntSet getReachable(int n, int d1) {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    if (!sources.contains(d1)) {
+      return result;
+    }
+    long[] sorted = getSorted();
+    for (int k = lowerBound(sorted, pack(d1, n, 0)); k < sorted.length; k++) {
+      if (node(sorted[k]) != n || source(sorted[k]) != d1) {
+        break;
+      }
+      result.add(target(sorted[k]));
+    }
+    return result;
+  }
+
+  @Override
+  public IntSet getReachable(int n) {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    long[] sorted = getSorted();
+    for (int k = lowerBound(sorted, pack(0, n, 0)); k < sorted.length; k++) {
+      if (node(sorted[k]) != n) {
+        break;
+      }
+      result.add(target(sorted[k]));
+    }
+    return result;
+  }
+
+  @Override
+  public IntSet getReachedNodeNumbers() {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    for (long edge : getSorted()) {
+      result.add(node(edge));
+    }
+    return result;
+  }
+
+  @Override
+  public long getNumberOfPathEdges() {
+    return edges.size();
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    long result = 4 * OBJECT_BYTES + 8L * edges.capacity() + 4L * sources.size();
+    if (sorted != null) {
+      result += OBJECT_BYTES + 8L * sorted.length;
+    }
+    return result;
+  }
+
+  private long[] getSorted() {
+    if (sorted == null) {
+      sorted = edges.toArray();
+      Arrays.sort(sorted);
+    }
+    return sorted;
+  }
+
+  /**
+   * @return the index of the first edge in sorted that is not less than key
+   */
+  private static int lowerBound(long[] sorted, long key) {
+    int k = Arrays.binarySearch(sorted, key);
+    return k >= 0 ? k : -k - 1;
+  }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.IFDS;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link TabulationSolver} which processes path edges on several threads at once.
+ *
+ * <p>Each path edge taken from the worklist is processed as a separate task of a {@link
+ * ForkJoinPool}; the path, summary and call flow edges of each procedure are guarded by their own
+ * lock. Since a summary edge is recorded before the call flow into its procedure is read, and call
+ * flow is recorded before the summary edges are read, a summary edge is always applied at every
+ * call site, whatever the interleaving. The result is the same as that of the sequential solver.
+ *
+ * <p>This solver may only be used for a problem whose flow functions, supergraph and domain may be
+ * used by several threads at once, and which has no merge function. The worklist is unordered:
+ * {@link TabulationDomain#hasPriorityOver} is ignored. Subclasses that override the hooks such as
+ * {@link #newNormalExplodedEdge} must make them thread-safe as well, and {@link #getCurPathEdge()}
+ * and {@link #getCurSummaryEdge()} refer to the edges being processed by the calling thread.
+ *
+ * @param <T> type of node in the supergraph
+ * @param <P> type of a procedure (like a box in an RSM)
+ * @param <F> type of factoids propagated when solving this problem
+ */
+public class ParallelTabulationSolver<T, P, F> extends TabulationSolver<T, P, F> {
+
+  /** number of worker threads */
+  private final int nThreads;
+
+  /** path edges reached before the pool was started */
+  private final List<PathEdge<T>> pending = new ArrayList<>();
+
+  /** the pool running the tasks; null unless {@link #forwardTabulateSLRPs()} is running */
+  private volatile ForkJoinPool pool;
+
+  /** number of path edges that are queued or being processed */
+  private final AtomicLong inFlight = new AtomicLong();
+
+  /** the first exception thrown by a task */
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+  /** set to drop all queued path edges, after cancellation or a failure */
+  private volatile boolean stopped;
+
+  private final ThreadLocal<PathEdge<T>> curPathEdge = new ThreadLocal<>();
+
+  private final ThreadLocal<PathEdge<T>> curSummaryEdge = new ThreadLocal<>();
+
+  /**
+   * @param p a description of the dataflow problem to solve
+   * @param nThreads number of worker threads
+   * @throws IllegalArgumentException if p is null, p has a merge function, or nThreads &lt; 1
+   */
+  protected ParallelTabulationSolver(
+      TabulationProblem<T, P, F> p, IProgressMonitor monitor, int nThreads) {
+    super(p, monitor, true);
+    if (p.getMergeFunction() != null) {
+      throw new IllegalArgumentException("merge functions are not supported");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("invalid nThreads: " + nThreads);
+    }
+    this.nThreads = nThreads;
+  }
+
+  /**
+   * @param p a description of the dataflow problem to solve
+   * @param nThreads number of worker threads
+   * @throws IllegalArgumentException if p is null, p has a merge function, or nThreads &lt; 1
+   */
+  public static <T, P, F> ParallelTabulationSolver<T, P, F> make(
+      TabulationProblem<T, P, F> p, int nThreads) {
+    return new ParallelTabulationSolver<>(p, null, nThreads);
+  }
+
+  /**
+   * Does nothing: this solver computes every summary from scratch, so {@link #getSummaryCache()}
+   * stays null. Cached edges would be installed when an entry is first reached, while another
+   * thread that reaches the same entry may already be applying its summary edges at its call site.
+   */
+  @Override
+  public void setSummaryCache(SummaryCache<T, P> cache) {}
+
+  @Override
+  public synchronized void addSeed(PathEdge<T> seed) {
+    super.addSeed(seed);
+  }
+
+  @Override
+  protected void forwardTabulateSLRPs() throws CancelException {
+    boolean interrupted = false;
+    pool = new ForkJoinPool(nThreads);
+    try {
+      synchronized (pending) {
+        for (PathEdge<T> edge : pending) {
+          schedule(edge);
+        }
+        pending.clear();
+      }
+      synchronized (inFlight) {
+        while (inFlight.get() > 0) {
+          try {
+            inFlight.wait(100);
+          } catch (InterruptedException e) {
+            interrupted = true;
+            stopped = true;
+          }
+          if (MonitorUtil.isCanceled(progressMonitor)) {
+            stopped = true;
+          }
+        }
+      }
+    } finally {
+      pool.shutdownNow();
+      pool = null;
+    }
+    Throwable t = failure.get();
+    if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    } else if (t != null) {
+      throw new RuntimeException(t);
+    }
+    MonitorUtil.throwExceptionIfCanceled(progressMonitor);
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+      throw CancelException.make("interrupted");
+    }
+  }
+
+  @Override
+  protected void addToWorkList(T s_p, int i, T n, int j) {
+    PathEdge<T> edge = PathEdge.createPathEdge(s_p, i, n, j);
+    if (pool == null) {
+      synchronized (pending) {
+        pending.add(edge);
+      }
+    } else {
+      schedule(edge);
+    }
+  }
+
+  private void schedule(PathEdge<T> edge) {
+    inFlight.incrementAndGet();
+    ForkJoinTask<?> task = ForkJoinTask.adapt(() -> run(edge));
+    if (ForkJoinTask.getPool() == pool) {
+      task.fork();
+    } else {
+      pool.execute(task);
+    }
+  }
+
+  private void run(PathEdge<T> edge) {
+    try {
+      if (!stopped) {
+        processPathEdge(edge);
+      }
+    } catch (Throwable t) {
+      failure.compareAndSet(null, t);
+      stopped = true;
+    } finally {
+      setCurPathEdge(null);
+      setCurSummaryEdge(null);
+      if (inFlight.decrementAndGet() == 0) {
+        synchronized (inFlight) {
+          inFlight.notifyAll();
+        }
+      }
+    }
+  }
+
+  /** Record the path edge and queue it, atomically, so that each one is processed only once. */
+  @Override
+  protected boolean propagate(T s_p, int i, T n, int j) {
+    int number = supergraph.getLocalBlockNumber(n);
+    assert number >= 0;
+    assert j >= 0;
+    LocalPathEdges pLocal = findOrCreateLocalPathEdges(s_p);
+    synchronized (pLocal) {
+      if (pLocal.contains(i, number, j)) {
+        return false;
+      }
+      pLocal.addPathEdge(i, number, j);
+    }
+    addToWorkList(s_p, i, n, j);
+    return true;
+  }
+
+  @Override
+  protected LocalPathEdges makeLocalPathEdges() {
+    return new SynchronizedLocalPathEdges(super.makeLocalPathEdges());
+  }
+
+  @Override
+  protected LocalSummaryEdges makeLocalSummaryEdges() {
+    return new SynchronizedLocalSummaryEdges();
+  }
+
+  @Override
+  protected CallFlowEdges makeCallFlowEdges() {
+    return new SynchronizedCallFlowEdges();
+  }
+
+  @Override
+  protected PathEdge<T> getCurPathEdge() {
+    return curPathEdge.get();
+  }
+
+  @Override
+  protected void setCurPathEdge(PathEdge<T> edge) {
+    curPathEdge.set(edge);
+  }
+
+  @Override
+  protected PathEdge<T> getCurSummaryEdge() {
+    return curSummaryEdge.get();
+  }
+
+  @Override
+  protected void setCurSummaryEdge(PathEdge<T> edge) {
+    curSummaryEdge.set(edge);
+  }
+
+  /** the sets below may be views of internal state, which other threads may change */
+  private static IntSet copy(IntSet s) {
+    return s == null ? null : IntSetUtil.makeMutableCopy(s);
+  }
+
+  private static class SynchronizedLocalPathEdges extends LocalPathEdges {
+
+    private final LocalPathEdges delegate;
+
+    SynchronizedLocalPathEdges(LocalPathEdges delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void addPathEdge(int i, int n, int j) {
+      delegate.addPathEdge(i, n, j);
+    }
+
+    @Override
+    public synchronized boolean contains(int i, int n, int j) {
+      return delegate.contains(i, n, j);
+    }
+
+    @Override
+    public synchronized IntSet getInverse(int n, int d2) {
+      return copy(delegate.getInverse(n, d2));
+    }
+
+    @Override
+    public synchronized IntSet getReachable(int n, int d1) {
+      return copy(delegate.getReachable(n, d1));
+    }
+
+    @Override
+    public synchronized IntSet getReachable(int n) {
+      return copy(delegate.getReachable(n));
+    }
+
+    @Override
+    public synchronized IntSet getReachedNodeNumbers() {
+      return copy(delegate.getReachedNodeNumbers());
+    }
+
+    @Override
+    public synchronized long getNumberOfPathEdges() {
+      return delegate.getNumberOfPathEdges();
+    }
+
+    @Override
+    public synchronized long getEstimatedBytes() {
+      return delegate.getEstimatedBytes();
+    }
+  }
+
+  private static class SynchronizedLocalSummaryEdges extends LocalSummaryEdges {
+
+    @Override
+    public synchronized void insertSummaryEdge(int s_p, int x, int d1, int d2) {
+      super.insertSummaryEdge(s_p, x, d1, d2);
+    }
+
+    @Override
+    public synchronized boolean contains(int s_p, int x, int d1, int d2) {
+      return super.contains(s_p, x, d1, d2);
+    }
+
+    @Override
+    public synchronized IntSet getSummaryEdges(int s_p, int x, int d1) {
+      return copy(super.getSummaryEdges(s_p, x, d1));
+    }
+
+    @Override
+    public synchronized IntSet getInvertedSummaryEdgesForTarget(int s_p, int x, int d2) {
+      return copy(super.getInvertedSummaryEdgesForTarget(s_p, x, d2));
+    }
+  }
+
+  private static class SynchronizedCallFlowEdges extends CallFlowEdges {
+
+    @Override
+    public synchronized void addCallEdge(int c, int d1, int d2) {
+      super.addCallEdge(c, d1, d2);
+    }
+
+    @Override
+    public synchronized IntSet getCallFlowSources(int c, int d2) {
+      return copy(super.getCallFlowSources(c, d2));
+    }
+
+    @Override
+    public synchronized IntSet getCallFlowSourceNodes(int d2) {
+      return copy(super.getCallFlowSourceNodes(d2));
+    }
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.dataflow.IFDS;
+
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.MapUtil;
+import com.ibm.wala.util.collections.Pair;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Procedure summaries computed by earlier runs of a {@link TabulationSolver}, to be reused by later
+ * runs on the same family of problems: problems whose supergraphs have the same procedures, nodes
+ * and local block numbers, whose flow functions are the same, and which number facts the same way,
+ * such as the slice problems for different statements of one SDG. Only the seeds may differ.
+ *
+ * <p>For each entry &lt;s_p, d1&gt; that a run reached through a call, and whose path edges do not
+ * depend on any seed of that run, the cache keeps the path edges &lt;s_p, d1&gt; -&gt; &lt;n,
+ * d2&gt; and the summary edges from &lt;s_p, d1&gt;. When a later run reaches &lt;s_p, d1&gt;
+ * through a call, it takes these instead of exploring the procedure again; only the call sites in
+ * it are processed, to reach the callees.
+ *
+ * <p>The cache holds at most a given number of path edges; when it is full, the entries used least
+ * recently are evicted. When a procedure changes, {@link #invalidate} drops what was computed from
+ * it.
+ *
+ * @param <T> type of node in the supergraph
+ * @param <P> type of a procedure
+ * @see TabulationSolver#setSummaryCache(SummaryCache)
+ */
+public class SummaryCache<T, P> {
+
+  /** the path edges and summary edges from one entry &lt;s_p, d1&gt; */
+  static final class Entry<P> {
+
+    private final P proc;
+
+    /** each path edge &lt;s_p, d1&gt; -&gt; &lt;n, d2&gt;, packed as n in the high word, d2 low */
+    final long[] pathEdges;
+
+    /** each summary edge &lt;s_p, d1&gt; -&gt; &lt;x, d2&gt;, packed like the path edges */
+    final long[] summaryEdges;
+
+    /** the procedures called from s_p with the facts in these path edges */
+    private final Set<P> callees;
+
+    Entry(P proc, long[] pathEdges, long[] summaryEdges, Set<P> callees) {
+      this.proc = proc;
+      this.pathEdges = pathEdges;
+      this.summaryEdges = summaryEdges;
+      this.callees = callees;
+    }
+  }
+
+  private final long maxPathEdges;
+
+  /** the cached entries, from the least to the most recently used */
+  private final LinkedHashMap<Pair<T, Integer>, Entry<P>> entries =
+      new LinkedHashMap<>(16, 0.75f, true);
+
+  /** the cached entries of each procedure */
+  private final Map<P, Set<Pair<T, Integer>>> entriesOf = HashMapFactory.make();
+
+  /** for each procedure, the cached entries that call it, with their procedures */
+  private final Map<P, Map<Pair<T, Integer>, P>> callers = HashMapFactory.make();
+
+  private long nPathEdges;
+
+  private long hits;
+
+  private long misses;
+
+  private long evictions;
+
+  /**
+   * @param maxPathEdges the maximum number of path edges to keep
+   * @throws IllegalArgumentException if maxPathEdges &lt;= 0
+   */
+  public SummaryCache(long maxPathEdges) {
+    if (maxPathEdges <= 0) {
+      throw new IllegalArgumentException("invalid maxPathEdges: " + maxPathEdges);
+    }
+    this.maxPathEdges = maxPathEdges;
+  }
+
+  /**
+   * @return the cached edges from &lt;s_p, d1&gt;, or null if there are none
+   */
+  synchronized Entry<P> lookup(T s_p, int d1) {
+    Entry<P> result = entries.get(Pair.make(s_p, d1));
+    if (result == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return result;
+  }
+
+  synchronized boolean contains(T s_p, int d1) {
+    return entries.containsKey(Pair.make(s_p, d1));
+  }
+
+  /**
+   * Cache the edges from &lt;s_p, d1&gt;, evicting the entries used least recently if needed.
+   * Entries with more than {@link #getMaxPathEdges()} path edges are not cached.
+   */
+  synchronized void put(T s_p, int d1, Entry<P> entry) {
+    if (entry.pathEdges.length > maxPathEdges) {
+      return;
+    }
+    Pair<T, Integer> key = Pair.make(s_p, d1);
+    remove(key);
+    entries.put(key, entry);
+    MapUtil.findOrCreateSet(entriesOf, entry.proc).add(key);
+    for (P callee : entry.callees) {
+      MapUtil.findOrCreateMap(callers, callee).put(key, entry.proc);
+    }
+    nPathEdges += entry.pathEdges.length;
+    for (Iterator<Map.Entry<Pair<T, Integer>, Entry<P>>> it = entries.entrySet().iterator();
+        nPathEdges > maxPathEdges && it.hasNext(); ) {
+      Map.Entry<Pair<T, Integer>, Entry<P>> lru = it.next();
+      it.remove();
+      forget(lru.getKey(), lru.getValue());
+      evictions++;
+    }
+  }
+
+  private void remove(Pair<T, Integer> key) {
+    Entry<P> entry = entries.remove(key);
+    if (entry != null) {
+      forget(key, entry);
+    }
+  }
+
+  /** Update the indices after the entry for key was removed. */
+  private void forget(Pair<T, Integer> key, Entry<P> entry) {
+    nPathEdges -= entry.pathEdges.length;
+    Set<Pair<T, Integer>> s = entriesOf.get(entry.proc);
+    s.remove(key);
+    if (s.isEmpty()) {
+      entriesOf.remove(entry.proc);
+    }
+    for (P callee : entry.callees) {
+      Map<Pair<T, Integer>, P> c = callers.get(callee);
+      c.remove(key);
+      if (c.isEmpty()) {
+        callers.remove(callee);
+      }
+    }
+  }
+
+  /**
+   * Drop the summaries of a procedure that changed, and of every procedure whose cached summaries
+   * may depend on them, since they may call it.
+   */
+  public synchronized void invalidate(P proc) {
+    Set<P> done = HashSetFactory.make();
+    Deque<P> todo = new ArrayDeque<>();
+    todo.push(proc);
+    while (!todo.isEmpty()) {
+      P p = todo.pop();
+      if (done.add(p)) {
+        for (Pair<T, Integer> key :
+            new ArrayList<>(entriesOf.getOrDefault(p, Collections.emptySet()))) {
+          remove(key);
+        }
+        Map<Pair<T, Integer>, P> c = callers.get(p);
+        if (c != null) {
+          todo.addAll(c.values());
+        }
+      }
+    }
+  }
+
+  /** Drop all summaries. */
+  public synchronized void clear() {
+    entries.clear();
+    entriesOf.clear();
+    callers.clear();
+    nPathEdges = 0;
+  }
+
+  public long getMaxPathEdges() {
+    return maxPathEdges;
+  }
+
+  /**
+   * @return the number of entries &lt;s_p, d1&gt; whose edges are cached
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the number of path edges cached
+   */
+  public synchronized long getNumberOfPathEdges() {
+    return nPathEdges;
+  }
+
+  /**
+   * @return the number of times a solver took cached edges instead of exploring a procedure
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of times a solver looked for cached edges but found none
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the number of entries evicted to make room for others
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "Summary cache: "
+        + entries.size()
+        + " entries, "
+        + nPathEdges
+        + " path edges, "
+        + hits
+        + " hits, "
+        + misses
+        + " misses, "
+        + evictions
+        + " evictions";
+  }
+}
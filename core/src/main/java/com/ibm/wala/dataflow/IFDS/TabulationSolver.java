@@ -21,7 +21,9 @@ import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Heap;
 import com.ibm.wala.util.collections.Iterator2Collection;
 import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.LongOpenHashSet;
 import com.ibm.wala.util.collections.MapUtil;
+import com.ibm.wala.util.collections.Pair;
 import com.ibm.wala.util.collections.ToStringComparator;
 import com.ibm.wala.util.heapTrace.HeapTracer;
 import com.ibm.wala.util.intset.IntIterator;
@@ -29,15 +31,18 @@ import com.ibm.wala.util.intset.IntSet;
 import com.ibm.wala.util.intset.IntSetAction;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A precise interprocedural tabulation solver.
@@ -107,7 +112,7 @@ public class TabulationSolver<T, P, F> {
    * <p>Logically, this represents a set of edges (s_p,d_i) -&gt; (n, d_j). The data structure is
    * chosen to attempt to save space over representing each edge explicitly.
    */
-  private final Map<T, LocalPathEdges> pathEdges = HashMapFactory.make();
+  private final Map<T, LocalPathEdges> pathEdges;
 
   /**
    * A map from Object (entry node in supergraph) -&gt; CallFlowEdges.
@@ -115,10 +120,10 @@ public class TabulationSolver<T, P, F> {
    * <p>Logically, this represents a set of edges (c,d_i) -&gt; (s_p, d_j). The data structure is
    * chosen to attempt to save space over representing each edge explicitly.
    */
-  private final Map<T, CallFlowEdges> callFlowEdges = HashMapFactory.make();
+  private final Map<T, CallFlowEdges> callFlowEdges;
 
   /** A map from Object (procedure) -&gt; LocalSummaryEdges. */
-  protected final Map<P, LocalSummaryEdges> summaryEdges = HashMapFactory.make();
+  protected final Map<P, LocalSummaryEdges> summaryEdges;
 
   /**
    * the set of all {@link PathEdge}s that were used as seeds during the tabulation, grouped by
@@ -150,11 +155,32 @@ public class TabulationSolver<T, P, F> {
    */
   private PathEdge<T> curSummaryEdge;
 
+  /** Should path edges be represented by {@link PackedLocalPathEdges}? */
+  private boolean packedPathEdges = false;
+
+  /** summaries of earlier runs to reuse, and to add the summaries of this run to; may be null */
+  private SummaryCache<T, P> summaryCache;
+
+  /** if {@link #summaryCache} is set, the entries &lt;s_p, d1&gt; called from each entry */
+  private final Map<Pair<T, Integer>, Set<Pair<T, Integer>>> calledEntries =
+      HashMapFactory.make();
+
   /**
    * @param p a description of the dataflow problem to solve
    * @throws IllegalArgumentException if p is null
    */
   protected TabulationSolver(TabulationProblem<T, P, F> p, IProgressMonitor monitor) {
+    this(p, monitor, false);
+  }
+
+  /**
+   * @param p a description of the dataflow problem to solve
+   * @param concurrent if true, the maps from procedures and entries to their path, call flow and
+   *     summary edges may be used by several threads at once
+   * @throws IllegalArgumentException if p is null
+   */
+  protected TabulationSolver(
+      TabulationProblem<T, P, F> p, IProgressMonitor monitor, boolean concurrent) {
     if (p == null) {
       throw new IllegalArgumentException("p is null");
     }
@@ -162,6 +188,15 @@ public class TabulationSolver<T, P, F> {
     this.flowFunctionMap = p.getFunctionMap();
     this.problem = p;
     this.progressMonitor = monitor;
+    if (concurrent) {
+      this.pathEdges = new ConcurrentHashMap<>();
+      this.callFlowEdges = new ConcurrentHashMap<>();
+      this.summaryEdges = new ConcurrentHashMap<>();
+    } else {
+      this.pathEdges = HashMapFactory.make();
+      this.callFlowEdges = HashMapFactory.make();
+      this.summaryEdges = HashMapFactory.make();
+    }
   }
 
   /** Subclasses can override this to plug in a different worklist implementation. */
@@ -187,6 +222,12 @@ public class TabulationSolver<T, P, F> {
     try {
       initialize();
       forwardTabulateSLRPs();
+      if (summaryCache != null) {
+        cacheSummaries();
+      }
+      if (verbose) {
+        System.err.println(getPathEdgeStats());
+      }
       Result r = new Result();
       return r;
     } catch (CancelException | CancelRuntimeException e) {
@@ -213,8 +254,8 @@ public class TabulationSolver<T, P, F> {
 
   /** See POPL 95 paper for this algorithm, Figure 3 */
   @SuppressWarnings("unused")
-  private void forwardTabulateSLRPs() throws CancelException {
-    assert curPathEdge == null : "curPathEdge should not be non-null here";
+  protected void forwardTabulateSLRPs() throws CancelException {
+    assert getCurPathEdge() == null : "curPathEdge should not be non-null here";
     if (worklist == null) {
       worklist = makeWorklist();
     }
@@ -227,39 +268,43 @@ public class TabulationSolver<T, P, F> {
         tendToSoftCaches();
       }
 
-      final PathEdge<T> edge = popFromWorkList();
-      if (DEBUG_LEVEL > 0) {
-        System.err.println("TABULATE " + edge);
-      }
-      curPathEdge = edge;
-      int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
-      if (j == -1 && DEBUG_LEVEL > 0) {
-        System.err.println("merge -1: DROPPING");
-      }
-      if (j != -1) {
-        if (j != edge.d2) {
-          // this means that we don't want to push the edge. instead,
-          // we'll push the merged fact. a little tricky, but i think should
-          // work.
-          if (DEBUG_LEVEL > 0) {
-            System.err.println("propagating merged fact " + j);
-          }
-          propagate(edge.entry, edge.d1, edge.target, j);
+      processPathEdge(popFromWorkList());
+    }
+    setCurPathEdge(null);
+  }
+
+  /** Handle lines [11 - 37] of the algorithm for one path edge taken from the worklist. */
+  protected final void processPathEdge(final PathEdge<T> edge) {
+    if (DEBUG_LEVEL > 0) {
+      System.err.println("TABULATE " + edge);
+    }
+    setCurPathEdge(edge);
+    int j = merge(edge.entry, edge.d1, edge.target, edge.d2);
+    if (j == -1 && DEBUG_LEVEL > 0) {
+      System.err.println("merge -1: DROPPING");
+    }
+    if (j != -1) {
+      if (j != edge.d2) {
+        // this means that we don't want to push the edge. instead,
+        // we'll push the merged fact. a little tricky, but i think should
+        // work.
+        if (DEBUG_LEVEL > 0) {
+          System.err.println("propagating merged fact " + j);
+        }
+        propagate(edge.entry, edge.d1, edge.target, j);
+      } else {
+        if (supergraph.isCall(edge.target)) {
+          // [13]
+          processCall(edge);
+        } else if (supergraph.isExit(edge.target)) {
+          // [21]
+          processExit(edge);
         } else {
-          if (supergraph.isCall(edge.target)) {
-            // [13]
-            processCall(edge);
-          } else if (supergraph.isExit(edge.target)) {
-            // [21]
-            processExit(edge);
-          } else {
-            // [33]
-            processNormal(edge);
-          }
+          // [33]
+          processNormal(edge);
         }
       }
     }
-    curPathEdge = null;
   }
 
   /**
@@ -335,8 +380,8 @@ public class TabulationSolver<T, P, F> {
     if (!summaries.contains(s_p_n, x, edge.d1, edge.d2)) {
       summaries.insertSummaryEdge(s_p_n, x, edge.d1, edge.d2);
     }
-    assert curSummaryEdge == null : "curSummaryEdge should be null here";
-    curSummaryEdge = edge;
+    assert getCurSummaryEdge() == null : "curSummaryEdge should be null here";
+    setCurSummaryEdge(edge);
 
     final CallFlowEdges callFlow = findOrCreateCallFlowEdges(edge.entry);
 
@@ -352,7 +397,7 @@ public class TabulationSolver<T, P, F> {
         propagateToReturnSites(edge, supergraph.getNode(globalC), D4);
       }
     }
-    curSummaryEdge = null;
+    setCurSummaryEdge(null);
   }
 
   /**
@@ -476,8 +521,9 @@ public class TabulationSolver<T, P, F> {
                     d3 -> {
                       // set curPathEdge to be consistent with its setting in processCall() when
                       // applying a summary edge
-                      curPathEdge = PathEdge.createPathEdge(s_p, d3, c, d4);
-                      newSummaryEdge(curPathEdge, edge, retSite, d5);
+                      PathEdge<T> edgeToCallSite = PathEdge.createPathEdge(s_p, d3, c, d4);
+                      setCurPathEdge(edgeToCallSite);
+                      newSummaryEdge(edgeToCallSite, edge, retSite, d5);
                       propagate(s_p, d3, retSite, d5);
                     });
               }
@@ -615,7 +661,7 @@ public class TabulationSolver<T, P, F> {
       System.err.println(" reached: " + reached);
     }
     if (reached != null) {
-      final LocalSummaryEdges summaries = summaryEdges.get(supergraph.getProcOf(calleeEntry));
+      final P calleeProc = supergraph.getProcOf(calleeEntry);
       final CallFlowEdges callFlow = findOrCreateCallFlowEdges(calleeEntry);
       final int s_p_num = supergraph.getLocalBlockNumber(calleeEntry);
 
@@ -624,16 +670,21 @@ public class TabulationSolver<T, P, F> {
             // we get reuse if we _don't_ propagate a new fact to the callee entry
             final boolean gotReuse = !propagate(calleeEntry, d1, calleeEntry, d1);
             recordCall(edge.target, calleeEntry, d1, gotReuse);
+            if (summaryCache != null) {
+              MapUtil.findOrCreateSet(calledEntries, Pair.make(edge.entry, edge.d1))
+                  .add(Pair.make(calleeEntry, d1));
+            }
             newCallExplodedEdge(edge, calleeEntry, d1);
             // cache the fact that we've flowed <c, d2> -> <callee, d1> by a
             // call flow
             callFlow.addCallEdge(callNodeNum, edge.d2, d1);
             // handle summary edges now as well. this is different from the PoPL
-            // 95 paper.
+            // 95 paper. look them up only after recording the call flow, so that
+            // processExit() sees the call flow for any summary edge we miss here.
+            final LocalSummaryEdges summaries = summaryEdges.get(calleeProc);
             if (summaries != null) {
               // for each exit from the callee
-              P p = supergraph.getProcOf(calleeEntry);
-              T[] exits = supergraph.getExitsForProcedure(p);
+              T[] exits = supergraph.getExitsForProcedure(calleeProc);
               for (final T exit : exits) {
                 if (DEBUG_LEVEL > 0) {
                   assert supergraph.containsNode(exit);
@@ -651,15 +702,18 @@ public class TabulationSolver<T, P, F> {
                           flowFunctionMap.getReturnFlowFunction(edge.target, exit, returnSite);
                       reachedBySummary.foreach(
                           d2 -> {
-                            assert curSummaryEdge == null : "curSummaryEdge should be null here";
-                            curSummaryEdge = PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
+                            assert getCurSummaryEdge() == null
+                                : "curSummaryEdge should be null here";
+                            final PathEdge<T> summaryEdge =
+                                PathEdge.createPathEdge(calleeEntry, d1, exit, d2);
+                            setCurSummaryEdge(summaryEdge);
                             if (retf instanceof IBinaryReturnFlowFunction) {
                               final IntSet D51 =
                                   computeBinaryFlow(edge.d2, d2, (IBinaryReturnFlowFunction) retf);
                               if (D51 != null) {
                                 D51.foreach(
                                     d5 -> {
-                                      newSummaryEdge(edge, curSummaryEdge, returnSite, d5);
+                                      newSummaryEdge(edge, summaryEdge, returnSite, d5);
                                       propagate(edge.entry, edge.d1, returnSite, d5);
                                     });
                               }
@@ -668,12 +722,12 @@ public class TabulationSolver<T, P, F> {
                               if (D52 != null) {
                                 D52.foreach(
                                     d5 -> {
-                                      newSummaryEdge(edge, curSummaryEdge, returnSite, d5);
+                                      newSummaryEdge(edge, summaryEdge, returnSite, d5);
                                       propagate(edge.entry, edge.d1, returnSite, d5);
                                     });
                               }
                             }
-                            curSummaryEdge = null;
+                            setCurSummaryEdge(null);
                           });
                     }
                   }
@@ -770,11 +824,133 @@ public class TabulationSolver<T, P, F> {
       }
       pLocal.addPathEdge(i, number, j);
       addToWorkList(s_p, i, n, j);
+      if (summaryCache != null && i == j && s_p.equals(n)) {
+        installCachedEdges(s_p, i);
+      }
       return true;
     }
     return false;
   }
 
+  /**
+   * &lt;s_p, d1&gt; has just been reached. If the summary cache has the edges from it, record them
+   * instead of exploring the procedure again. Only the path edges to call sites are processed, to
+   * reach the callees.
+   */
+  private void installCachedEdges(T s_p, int d1) {
+    if (isSeeded(s_p, d1)) {
+      return;
+    }
+    SummaryCache.Entry<P> cached = summaryCache.lookup(s_p, d1);
+    if (cached == null) {
+      return;
+    }
+    P proc = supergraph.getProcOf(s_p);
+    LocalPathEdges pLocal = findOrCreateLocalPathEdges(s_p);
+    for (long edge : cached.pathEdges) {
+      int n = (int) (edge >>> 32);
+      int d2 = (int) edge;
+      if (!pLocal.contains(d1, n, d2)) {
+        pLocal.addPathEdge(d1, n, d2);
+        T node = supergraph.getLocalBlock(proc, n);
+        if (supergraph.isCall(node)) {
+          addToWorkList(s_p, d1, node, d2);
+        }
+      }
+    }
+    LocalSummaryEdges summaries = findOrCreateLocalSummaryEdges(proc);
+    int s_p_n = supergraph.getLocalBlockNumber(s_p);
+    for (long edge : cached.summaryEdges) {
+      int x = (int) (edge >>> 32);
+      int d2 = (int) edge;
+      if (!summaries.contains(s_p_n, x, d1, d2)) {
+        summaries.insertSummaryEdge(s_p_n, x, d1, d2);
+      }
+    }
+  }
+
+  /**
+   * @return true iff some seed other than the identity edge starts at &lt;s_p, d1&gt;
+   */
+  private boolean isSeeded(T s_p, int d1) {
+    Set<PathEdge<T>> pSeeds = seeds.get(supergraph.getProcOf(s_p));
+    if (pSeeds != null) {
+      for (PathEdge<T> seed : pSeeds) {
+        if (seed.d1 == d1 && seed.entry.equals(s_p) && !isIdentity(seed)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isIdentity(PathEdge<?> edge) {
+    return edge.d1 == edge.d2 && edge.entry.equals(edge.target);
+  }
+
+  /**
+   * Add the edges from each entry reached through a call to the summary cache, unless they may
+   * depend on the seeds, which may differ in the next run: that is, unless a seed starts at the
+   * entry, or the entry may call one that a seed starts at.
+   */
+  private void cacheSummaries() {
+    Map<Pair<T, Integer>, Set<Pair<T, Integer>>> callers = HashMapFactory.make();
+    for (Entry<Pair<T, Integer>, Set<Pair<T, Integer>>> e : calledEntries.entrySet()) {
+      for (Pair<T, Integer> callee : e.getValue()) {
+        MapUtil.findOrCreateSet(callers, callee).add(e.getKey());
+      }
+    }
+    Set<Pair<T, Integer>> seeded = HashSetFactory.make();
+    Deque<Pair<T, Integer>> todo = new ArrayDeque<>();
+    for (PathEdge<T> seed : allSeeds) {
+      if (!isIdentity(seed)) {
+        todo.push(Pair.make(seed.entry, seed.d1));
+      }
+    }
+    while (!todo.isEmpty()) {
+      Pair<T, Integer> key = todo.pop();
+      if (seeded.add(key)) {
+        todo.addAll(callers.getOrDefault(key, Collections.emptySet()));
+      }
+    }
+    for (Pair<T, Integer> key : callers.keySet()) {
+      if (!seeded.contains(key) && !summaryCache.contains(key.fst, key.snd)) {
+        summaryCache.put(key.fst, key.snd, makeCacheEntry(key.fst, key.snd));
+      }
+    }
+  }
+
+  private SummaryCache.Entry<P> makeCacheEntry(T s_p, int d1) {
+    P proc = supergraph.getProcOf(s_p);
+    LongOpenHashSet edges = new LongOpenHashSet();
+    LocalPathEdges lp = pathEdges.get(s_p);
+    for (IntIterator it = lp.getReachedNodeNumbers().intIterator(); it.hasNext(); ) {
+      int n = it.next();
+      IntSet reached = lp.getReachable(n, d1);
+      if (reached != null) {
+        reached.foreach(d2 -> edges.add(((long) n << 32) | d2));
+      }
+    }
+    LongOpenHashSet summaries = new LongOpenHashSet();
+    LocalSummaryEdges local = summaryEdges.get(proc);
+    if (local != null) {
+      int s_p_n = supergraph.getLocalBlockNumber(s_p);
+      for (T exit : supergraph.getExitsForProcedure(proc)) {
+        int x = supergraph.getLocalBlockNumber(exit);
+        IntSet reached = local.getSummaryEdges(s_p_n, x, d1);
+        if (reached != null) {
+          reached.foreach(d2 -> summaries.add(((long) x << 32) | d2));
+        }
+      }
+    }
+    Set<P> callees = HashSetFactory.make();
+    for (Pair<T, Integer> callee :
+        calledEntries.getOrDefault(Pair.make(s_p, d1), Collections.emptySet())) {
+      callees.add(supergraph.getProcOf(callee.fst));
+    }
+    return new SummaryCache.Entry<>(proc, edges.toArray(), summaries.toArray(), callees);
+  }
+
   public LocalPathEdges getLocalPathEdges(T s_p) {
     return pathEdges.get(s_p);
   }
@@ -825,36 +1001,149 @@ public class TabulationSolver<T, P, F> {
   protected LocalPathEdges findOrCreateLocalPathEdges(T s_p) {
     LocalPathEdges result = pathEdges.get(s_p);
     if (result == null) {
-      result = makeLocalPathEdges();
-      pathEdges.put(s_p, result);
+      result = pathEdges.computeIfAbsent(s_p, k -> makeLocalPathEdges());
     }
     return result;
   }
 
-  private LocalPathEdges makeLocalPathEdges() {
-    return problem.getMergeFunction() == null
-        ? new LocalPathEdges(false)
-        : new LocalPathEdges(true);
+  /** Subclasses can override this to plug in a different representation of path edges. */
+  protected LocalPathEdges makeLocalPathEdges() {
+    if (problem.getMergeFunction() != null) {
+      return new LocalPathEdges(true);
+    }
+    return packedPathEdges ? new PackedLocalPathEdges() : new LocalPathEdges(false);
+  }
+
+  /**
+   * Choose how to represent the path edges of procedure entries reached from now on, so call this
+   * before {@link #solve()}. The default representation keeps a bit vector over the local block
+   * numbers of a procedure for each fact, which is compact when a fact reaches most of its nodes.
+   * {@link PackedLocalPathEdges} take a fixed number of bytes per path edge, so they usually take
+   * much less memory when facts reach few nodes of large procedures, as in slicing, where a slice
+   * reaches few statements of each PDG. Problems with a merge function always use the default
+   * representation, which supports fast merges.
+   *
+   * @param packed if true, use {@link PackedLocalPathEdges}
+   */
+  public void setPackedPathEdges(boolean packed) {
+    this.packedPathEdges = packed;
+  }
+
+  public boolean isPackedPathEdges() {
+    return packedPathEdges;
+  }
+
+  /**
+   * Reuse the edges from procedure entries that earlier solvers added to a cache, and add those
+   * that this solver computes to it once it finishes. All solvers sharing a cache must solve
+   * problems of the same family, as described in {@link SummaryCache}. Call this before {@link
+   * #solve()}. Note that the hooks such as {@link #newNormalExplodedEdge} are not called for the
+   * path edges taken from the cache.
+   *
+   * @param cache the cache to use, or null to compute all summaries from scratch
+   * @throws IllegalArgumentException if the problem has a merge function
+   */
+  public void setSummaryCache(SummaryCache<T, P> cache) {
+    if (cache != null && problem.getMergeFunction() != null) {
+      throw new IllegalArgumentException("summary caching does not support merge functions");
+    }
+    this.summaryCache = cache;
+  }
+
+  public SummaryCache<T, P> getSummaryCache() {
+    return summaryCache;
+  }
+
+  /**
+   * @return the number of path edges recorded so far, and an estimate of the memory they take
+   */
+  public PathEdgeStats getPathEdgeStats() {
+    long nPathEdges = 0;
+    long estimatedBytes = 0;
+    for (LocalPathEdges lp : pathEdges.values()) {
+      nPathEdges += lp.getNumberOfPathEdges();
+      estimatedBytes += lp.getEstimatedBytes();
+    }
+    return new PathEdgeStats(pathEdges.size(), nPathEdges, estimatedBytes);
+  }
+
+  /** Path edge statistics of a solver */
+  public static class PathEdgeStats {
+
+    private final int nEntries;
+
+    private final long nPathEdges;
+
+    private final long estimatedBytes;
+
+    private PathEdgeStats(int nEntries, long nPathEdges, long estimatedBytes) {
+      this.nEntries = nEntries;
+      this.nPathEdges = nPathEdges;
+      this.estimatedBytes = estimatedBytes;
+    }
+
+    /**
+     * @return the number of procedure entries with path edges
+     */
+    public int getNEntries() {
+      return nEntries;
+    }
+
+    public long getNPathEdges() {
+      return nPathEdges;
+    }
+
+    /**
+     * @return a rough estimate of the number of bytes used to represent the path edges
+     */
+    public long getEstimatedBytes() {
+      return estimatedBytes;
+    }
+
+    public double getBytesPerPathEdge() {
+      return nPathEdges == 0 ? 0 : (double) estimatedBytes / nPathEdges;
+    }
+
+    @Override
+    public String toString() {
+      return "Path edge stats:\n  Entries: "
+          + nEntries
+          + "\n  Path edges: "
+          + nPathEdges
+          + "\n  Estimated bytes: "
+          + estimatedBytes
+          + "\n  Bytes per path edge: "
+          + String.format("%.1f", getBytesPerPathEdge())
+          + '\n';
+    }
   }
 
   protected LocalSummaryEdges findOrCreateLocalSummaryEdges(P proc) {
     LocalSummaryEdges result = summaryEdges.get(proc);
     if (result == null) {
-      result = new LocalSummaryEdges();
-      summaryEdges.put(proc, result);
+      result = summaryEdges.computeIfAbsent(proc, k -> makeLocalSummaryEdges());
     }
     return result;
   }
 
+  /** Subclasses can override this to plug in a different representation of summary edges. */
+  protected LocalSummaryEdges makeLocalSummaryEdges() {
+    return new LocalSummaryEdges();
+  }
+
   protected CallFlowEdges findOrCreateCallFlowEdges(T s_p) {
     CallFlowEdges result = callFlowEdges.get(s_p);
     if (result == null) {
-      result = new CallFlowEdges();
-      callFlowEdges.put(s_p, result);
+      result = callFlowEdges.computeIfAbsent(s_p, k -> makeCallFlowEdges());
     }
     return result;
   }
 
+  /** Subclasses can override this to plug in a different representation of call flow edges. */
+  protected CallFlowEdges makeCallFlowEdges() {
+    return new CallFlowEdges();
+  }
+
   /**
    * get the bitvector of facts that hold at the entry to a given node
    *
@@ -1019,10 +1308,18 @@ public class TabulationSolver<T, P, F> {
     return curPathEdge;
   }
 
+  protected void setCurPathEdge(PathEdge<T> edge) {
+    curPathEdge = edge;
+  }
+
   protected PathEdge<T> getCurSummaryEdge() {
     return curSummaryEdge;
   }
 
+  protected void setCurSummaryEdge(PathEdge<T> edge) {
+    curSummaryEdge = edge;
+  }
+
   /**
    * Indicates that due to a path edge &lt;s_p, d1&gt; -&gt; &lt;n, d2&gt; (the 'edge' parameter)
    * and a normal flow function application, a new path edge &lt;s_p, d1&gt; -&gt; &lt;m, d3&gt; was
@@ -158,13 +158,22 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
 
   private RefinementPolicyFactory refinementPolicyFactory;
 
+  /** results of earlier queries, or null if they should not be reused */
+  private QueryResultCache queryResultCache;
+
+  /** number of nodes traversed in all passes of the current query */
+  private long numNodesTraversedForQuery;
+
+  /** predicate satisfied by no instance key, for queries computing whole points-to sets */
+  static final Predicate<InstanceKey> WHOLE_P2SET = k -> false;
+
   public RefinementPolicy getRefinementPolicy() {
     return refinementPolicy;
   }
 
   private DemandRefinementPointsTo(
       CallGraph cg,
-      ThisFilteringHeapModel model,
+      HeapModel model,
       MemoryAccessMap fam,
       IClassHierarchy cha,
       AnalysisOptions options,
@@ -237,6 +246,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     refinementPolicy = refinementPolicyFactory.make();
     // re-init the state machine
     stateMachine = stateMachineFactory.make();
+    numNodesTraversedForQuery = 0;
   }
 
   /**
@@ -262,7 +272,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     return Pair.make(p.fst, finalP2Set);
   }
 
-  private Pair<PointsToResult, Collection<InstanceKeyAndState>> getPointsToWithStates(
+  Pair<PointsToResult, Collection<InstanceKeyAndState>> getPointsToWithStates(
       PointerKey pk, Predicate<InstanceKey> ikeyPred) {
     if (!(pk instanceof com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey)) {
       throw new IllegalArgumentException("only locals for now");
@@ -272,9 +282,29 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
       System.err.println("answering query for " + pk);
     }
     startNewQuery();
+    PointerKeyAndState queried = new PointerKeyAndState(queriedPk, stateMachine.getStartState());
+    QueryResultCache.Key key = null;
+    if (queryResultCache != null) {
+      key =
+          new QueryResultCache.Key(
+              QueryResultCache.Kind.POINTS_TO,
+              queried,
+              ikeyPred,
+              refinementPolicyFactory,
+              stateMachineFactory);
+      @SuppressWarnings("unchecked")
+      Pair<PointsToResult, Collection<InstanceKeyAndState>> cached =
+          (Pair<PointsToResult, Collection<InstanceKeyAndState>>) queryResultCache.lookup(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
     Pair<PointsToResult, Collection<InstanceKeyAndState>> p =
-        outerRefinementLoop(
-            new PointerKeyAndState(queriedPk, stateMachine.getStartState()), ikeyPred);
+        outerRefinementLoop(queried, ikeyPred);
+    if (key != null) {
+      p = Pair.make(p.fst, p.snd == null ? null : Collections.unmodifiableCollection(p.snd));
+      queryResultCache.put(key, p, p.snd == null ? 0 : p.snd.size(), numNodesTraversedForQuery);
+    }
     return p;
   }
 
@@ -282,7 +312,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
    * Unwrap a Collection of WithState<T> objects, returning a Collection containing the wrapped
    * objects
    */
-  private static <T> Collection<T> removeStates(
+  static <T> Collection<T> removeStates(
       final Collection<? extends WithState<T>> p2SetWithStates) {
     if (p2SetWithStates == null) {
       throw new IllegalArgumentException("p2SetWithStates == null");
@@ -320,6 +350,22 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
         new DemandPointerFlowGraph(cg, thisFilteringHeapModel, mam, cha));
   }
 
+  /**
+   * create another analysis runner sharing the configuration of this one, for answering queries on
+   * another thread
+   *
+   * @param flowGraph the flow graph, shared with this runner, which the new runner should use
+   * @param model the heap model the new runner should use
+   */
+  DemandRefinementPointsTo makeWorker(IFlowGraph flowGraph, HeapModel model) {
+    DemandRefinementPointsTo worker =
+        new DemandRefinementPointsTo(
+            cg, model, mam, cha, options, stateMachineFactory, flowGraph);
+    worker.setRefinementPolicyFactory(refinementPolicyFactory);
+    worker.setQueryResultCache(queryResultCache);
+    return worker;
+  }
+
   private Pair<PointsToResult, Collection<InstanceKeyAndState>> outerRefinementLoop(
       PointerKeyAndState queried, Predicate<InstanceKey> ikeyPred) {
     Collection<InstanceKeyAndState> lastP2Set = null;
@@ -353,6 +399,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
       } catch (BudgetExceededException e) {
 
       }
+      numNodesTraversedForQuery += getNumNodesTraversed();
       if (curP2Set != null) {
         if (lastP2Set == null) {
           lastP2Set = curP2Set;
@@ -518,7 +565,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
    */
   @Override
   public Collection<InstanceKey> getPointsTo(PointerKey pk) {
-    return getPointsTo(pk, k -> false).snd;
+    return getPointsTo(pk, WHOLE_P2SET).snd;
   }
 
   /**
@@ -527,7 +574,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
    *     budget
    */
   public Collection<InstanceKeyAndState> getPointsToWithStates(PointerKey pk) {
-    return getPointsToWithStates(pk, k -> false).snd;
+    return getPointsToWithStates(pk, WHOLE_P2SET).snd;
   }
 
   /**
@@ -563,6 +610,22 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     if (DEBUG) {
       System.err.println("answering flows-to query for " + ikAndState);
     }
+    QueryResultCache.Key key = null;
+    if (queryResultCache != null) {
+      key =
+          new QueryResultCache.Key(
+              QueryResultCache.Kind.FLOWS_TO,
+              ikAndState,
+              null,
+              refinementPolicyFactory,
+              stateMachineFactory);
+      @SuppressWarnings("unchecked")
+      Pair<PointsToResult, Collection<PointerKey>> cached =
+          (Pair<PointsToResult, Collection<PointerKey>>) queryResultCache.lookup(key);
+      if (cached != null) {
+        return cached;
+      }
+    }
     Collection<PointerKeyAndState> lastFlowsToSet = null;
     boolean succeeded = false;
     int numPasses = refinementPolicy.getNumPasses();
@@ -593,6 +656,7 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
       } catch (BudgetExceededException e) {
 
       }
+      numNodesTraversedForQuery += getNumNodesTraversed();
       if (curFlowsToSet != null) {
         if (lastFlowsToSet == null) {
           lastFlowsToSet = curFlowsToSet;
@@ -634,7 +698,13 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
         result = PointsToResult.BUDGETEXCEEDED;
       }
     }
-    return Pair.make(result, lastFlowsToSet == null ? null : removeStates(lastFlowsToSet));
+    Pair<PointsToResult, Collection<PointerKey>> p =
+        Pair.make(result, lastFlowsToSet == null ? null : removeStates(lastFlowsToSet));
+    if (key != null) {
+      p = Pair.make(p.fst, p.snd == null ? null : Collections.unmodifiableCollection(p.snd));
+      queryResultCache.put(key, p, p.snd == null ? 0 : p.snd.size(), numNodesTraversedForQuery);
+    }
+    return p;
   }
 
   /**
@@ -2073,6 +2143,20 @@ public class DemandRefinementPointsTo extends AbstractDemandPointsTo {
     this.refinementPolicyFactory = refinementPolicyFactory;
   }
 
+  public QueryResultCache getQueryResultCache() {
+    return queryResultCache;
+  }
+
+  /**
+   * reuse the results of earlier points-to and flows-to queries kept in {@code cache}, and keep
+   * the results of later ones there
+   *
+   * @param cache the cache, or {@code null} to compute each result afresh
+   */
+  public void setQueryResultCache(QueryResultCache cache) {
+    this.queryResultCache = cache;
+  }
+
   /** we are looking for an instance key flowing to pk that violates pred. */
   @SuppressWarnings("unused")
   private boolean doTopLevelTraversal(
@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.demandpa.alg;
+
+import com.ibm.wala.demandpa.alg.DemandRefinementPointsTo.PointsToResult;
+import com.ibm.wala.demandpa.alg.statemachine.StateMachineFactory;
+import com.ibm.wala.demandpa.flowgraph.IFlowLabel;
+import com.ibm.wala.demandpa.flowgraph.SynchronizedFlowGraph;
+import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.util.collections.Pair;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.function.Predicate;
+
+/**
+ * Answers many demand points-to queries of a {@link DemandRefinementPointsTo} at once, on several
+ * threads.
+ *
+ * <p>All queries share the flow graph of the analysis, through a {@link SynchronizedFlowGraph}, so
+ * the subgraph of each {@link com.ibm.wala.ipa.callgraph.CGNode} is built only once. Each query is
+ * answered by a separate runner with its own refinement policy, state machine and traversal budget,
+ * so the budget of the refinement policy applies to each query on its own.
+ *
+ * <p>The result of each query, a set of {@link InstanceKeyAndState}s for the queried {@link
+ * PointerKeyAndState}, is kept in a memo table and reused by later queries for the same pointer key
+ * and predicate, in the same or a later batch. A query for a pointer key which is being answered on
+ * another thread waits for that answer rather than computing it again.
+ *
+ * <p>The {@link DemandRefinementPointsTo} given to the constructor must not be used to answer
+ * queries while this object does. Its state machine and refinement policy factories are read once,
+ * when this object is created, and must make objects that do not share mutable state. The call
+ * graph must allow its IRs to be built on several threads at once.
+ */
+public class ParallelDemandPointsTo {
+
+  /** number of worker threads */
+  private final int nThreads;
+
+  private final DemandRefinementPointsTo analysis;
+
+  /** the flow graph of {@link #analysis}, shared by all runners */
+  private final SynchronizedFlowGraph flowGraph;
+
+  /** the heap model of {@link #analysis}, guarded by the lock of {@link #flowGraph} */
+  private final HeapModel heapModel;
+
+  private final StateMachineFactory<IFlowLabel> stateMachineFactory;
+
+  /** runners which are not answering a query */
+  private final ConcurrentLinkedQueue<DemandRefinementPointsTo> idleRunners =
+      new ConcurrentLinkedQueue<>();
+
+  /** results of the queries answered so far, or being answered, by queried key and predicate */
+  private final ConcurrentMap<
+          Pair<PointerKeyAndState, Predicate<InstanceKey>>,
+          FutureTask<Pair<PointsToResult, Collection<InstanceKeyAndState>>>>
+      memo = new ConcurrentHashMap<>();
+
+  /**
+   * @param analysis the analysis whose flow graph, heap model and policies should be used
+   * @param nThreads number of worker threads
+   * @throws IllegalArgumentException if analysis is null or nThreads &lt; 1
+   */
+  public ParallelDemandPointsTo(DemandRefinementPointsTo analysis, int nThreads) {
+    if (analysis == null) {
+      throw new IllegalArgumentException("analysis is null");
+    }
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("invalid nThreads: " + nThreads);
+    }
+    this.nThreads = nThreads;
+    this.flowGraph = new SynchronizedFlowGraph(analysis.g);
+    this.heapModel = new SynchronizedHeapModel(analysis.getHeapModel(), flowGraph);
+    this.stateMachineFactory = analysis.getStateMachineFactory();
+    this.analysis = analysis.makeWorker(flowGraph, heapModel);
+  }
+
+  /**
+   * compute the points-to sets of many pointer keys
+   *
+   * @return a map from each of {@code pks} to its points-to set
+   * @throws IllegalArgumentException if some key in {@code pks} is not a {@link LocalPointerKey}
+   * @see DemandRefinementPointsTo#getPointsTo(PointerKey)
+   */
+  public Map<PointerKey, Collection<InstanceKey>> getPointsTo(
+      Collection<? extends PointerKey> pks) {
+    Map<PointerKey, Collection<InstanceKey>> result = new ConcurrentHashMap<>();
+    forEachQuery(pks, DemandRefinementPointsTo.WHOLE_P2SET, (pk, p) -> result.put(pk, p.snd));
+    return result;
+  }
+
+  /**
+   * compute points-to sets for many pointer keys, aiming to satisfy some predicate
+   *
+   * @return a map from each of {@code pks} to a pair consisting of (1) a {@link PointsToResult}
+   *     indicating whether a points-to set satisfying the predicate was computed, and (2) the last
+   *     computed points-to set for the variable
+   * @throws IllegalArgumentException if some key in {@code pks} is not a {@link LocalPointerKey}
+   * @see DemandRefinementPointsTo#getPointsTo(PointerKey, Predicate)
+   */
+  public Map<PointerKey, Pair<PointsToResult, Collection<InstanceKey>>> getPointsTo(
+      Collection<? extends PointerKey> pks, Predicate<InstanceKey> ikeyPred) {
+    Map<PointerKey, Pair<PointsToResult, Collection<InstanceKey>>> result =
+        new ConcurrentHashMap<>();
+    forEachQuery(pks, ikeyPred, (pk, p) -> result.put(pk, p));
+    return result;
+  }
+
+  private interface ResultHandler {
+    void handle(PointerKey pk, Pair<PointsToResult, Collection<InstanceKey>> result);
+  }
+
+  private void forEachQuery(
+      Collection<? extends PointerKey> pks,
+      Predicate<InstanceKey> ikeyPred,
+      ResultHandler handler) {
+    if (pks == null) {
+      throw new IllegalArgumentException("pks is null");
+    }
+    for (PointerKey pk : pks) {
+      if (!(pk instanceof LocalPointerKey)) {
+        throw new IllegalArgumentException("only locals for now");
+      }
+    }
+    ForkJoinPool pool = new ForkJoinPool(nThreads);
+    try {
+      pool.submit(
+              () ->
+                  pks.parallelStream()
+                      .distinct()
+                      .forEach(
+                          pk -> {
+                            Pair<PointsToResult, Collection<InstanceKeyAndState>> p =
+                                getPointsToWithStates(pk, ikeyPred);
+                            Collection<InstanceKey> p2set =
+                                p.snd != null
+                                    ? DemandRefinementPointsTo.removeStates(p.snd)
+                                    : Collections.<InstanceKey>emptySet();
+                            handler.handle(pk, Pair.make(p.fst, p2set));
+                          }))
+          .join();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * compute the points-to set of a single pointer key, reusing the memo table. This method may be
+   * called by several threads at once.
+   *
+   * @return a pair consisting of (1) a {@link PointsToResult} indicating whether a points-to set
+   *     satisfying the predicate was computed, and (2) the last computed points-to set for the
+   *     variable, including the states, or {@code null} if no points-to set could be computed in
+   *     the budget
+   * @throws IllegalArgumentException if {@code pk} is not a {@link LocalPointerKey}
+   */
+  public Pair<PointsToResult, Collection<InstanceKeyAndState>> getPointsToWithStates(
+      PointerKey pk, Predicate<InstanceKey> ikeyPred) {
+    if (!(pk instanceof LocalPointerKey)) {
+      throw new IllegalArgumentException("only locals for now");
+    }
+    Pair<PointerKeyAndState, Predicate<InstanceKey>> key =
+        Pair.make(
+            new PointerKeyAndState(pk, stateMachineFactory.make().getStartState()), ikeyPred);
+    FutureTask<Pair<PointsToResult, Collection<InstanceKeyAndState>>> task = memo.get(key);
+    if (task == null) {
+      FutureTask<Pair<PointsToResult, Collection<InstanceKeyAndState>>> newTask =
+          new FutureTask<>(() -> answer(pk, ikeyPred));
+      task = memo.putIfAbsent(key, newTask);
+      if (task == null) {
+        task = newTask;
+        newTask.run();
+      }
+    }
+    try {
+      return task.get();
+    } catch (ExecutionException e) {
+      // don't remember failed queries
+      memo.remove(key, task);
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new RuntimeException(cause);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** answer a query on a runner which is not in use by another thread */
+  private Pair<PointsToResult, Collection<InstanceKeyAndState>> answer(
+      PointerKey pk, Predicate<InstanceKey> ikeyPred) {
+    DemandRefinementPointsTo runner = idleRunners.poll();
+    if (runner == null) {
+      runner = analysis.makeWorker(flowGraph, heapModel);
+    }
+    try {
+      return runner.getPointsToWithStates(pk, ikeyPred);
+    } finally {
+      idleRunners.add(runner);
+    }
+  }
+
+  /**
+   * @return the number of queries whose results are in the memo table
+   */
+  public int getNumberOfMemoizedQueries() {
+    return memo.size();
+  }
+
+  /** forget the results of all queries answered so far */
+  public void clearMemo() {
+    memo.clear();
+  }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.demandpa.alg;
+
+import com.ibm.wala.demandpa.alg.refinepolicy.RefinementPolicyFactory;
+import com.ibm.wala.demandpa.alg.statemachine.StateMachineFactory;
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Results of demand points-to and flows-to queries answered by a {@link DemandRefinementPointsTo},
+ * to be reused when the same query is asked again, e.g., by an IDE as the user navigates the code.
+ *
+ * <p>A result is reused only for the same queried pointer key or instance key, in the same state,
+ * with the same predicate, refinement policy factory and state machine factory. Since refinement
+ * and budgets depend on nothing else, the analysis would compute the same result again. Results
+ * that did not satisfy the predicate, or ran out of budget, are kept as well: the last points-to or
+ * flows-to set computed is returned as it was the first time.
+ *
+ * <p>The cache holds results with at most a given total size, the size of a result being the number
+ * of elements in its set plus one. When it is full, entries are evicted by the GreedyDual-Size
+ * policy, weighted by the number of nodes traversed to compute each result: among results of equal
+ * size and cost, the one used least recently goes first, while results which were expensive to
+ * compute stay longer.
+ *
+ * <p>A cache should hold the results of a single analysis, though it may be used by several threads
+ * at once, e.g., by the runners of a {@link ParallelDemandPointsTo}.
+ *
+ * @see DemandRefinementPointsTo#setQueryResultCache(QueryResultCache)
+ */
+public class QueryResultCache {
+
+  /** the kinds of queries */
+  enum Kind {
+    POINTS_TO,
+    FLOWS_TO
+  }
+
+  /** the query answered by a cached result */
+  static final class Key {
+
+    private final Kind kind;
+
+    /** the queried {@link PointerKeyAndState} or {@link InstanceKeyAndState} */
+    private final Object queried;
+
+    /** the predicate of a points-to query, or null */
+    private final Object predicate;
+
+    private final RefinementPolicyFactory refinementPolicyFactory;
+
+    private final StateMachineFactory<?> stateMachineFactory;
+
+    Key(
+        Kind kind,
+        Object queried,
+        Object predicate,
+        RefinementPolicyFactory refinementPolicyFactory,
+        StateMachineFactory<?> stateMachineFactory) {
+      this.kind = kind;
+      this.queried = queried;
+      this.predicate = predicate;
+      this.refinementPolicyFactory = refinementPolicyFactory;
+      this.stateMachineFactory = stateMachineFactory;
+    }
+
+    @Override
+    public int hashCode() {
+      final int PRIME = 31;
+      int result = kind.hashCode();
+      result = PRIME * result + queried.hashCode();
+      result = PRIME * result + (predicate == null ? 0 : predicate.hashCode());
+      result = PRIME * result + refinementPolicyFactory.hashCode();
+      result = PRIME * result + stateMachineFactory.hashCode();
+      return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) return true;
+      if (obj == null) return false;
+      if (getClass() != obj.getClass()) return false;
+      final Key other = (Key) obj;
+      return kind == other.kind
+          && queried.equals(other.queried)
+          && (predicate == null ? other.predicate == null : predicate.equals(other.predicate))
+          && refinementPolicyFactory.equals(other.refinementPolicyFactory)
+          && stateMachineFactory.equals(other.stateMachineFactory);
+    }
+  }
+
+  /** a cached result, with its GreedyDual-Size priority */
+  private static final class Entry implements Comparable<Entry> {
+
+    private final Key key;
+
+    private final Object result;
+
+    private final int size;
+
+    private final long cost;
+
+    /** the priority; entries with the lowest priority are evicted first */
+    private double priority;
+
+    /** breaks ties between equal priorities, in order of use */
+    private long lastUse;
+
+    Entry(Key key, Object result, int size, long cost) {
+      this.key = key;
+      this.result = result;
+      this.size = size;
+      this.cost = cost;
+    }
+
+    @Override
+    public int compareTo(Entry o) {
+      int c = Double.compare(priority, o.priority);
+      return c != 0 ? c : Long.compare(lastUse, o.lastUse);
+    }
+  }
+
+  private final long maxSize;
+
+  private final Map<Key, Entry> entries = HashMapFactory.make();
+
+  /** the cached entries, from the first to the last to be evicted */
+  private final TreeSet<Entry> evictionOrder = new TreeSet<>();
+
+  /** the priority of the last entry evicted, added to the priority of each entry used later */
+  private double inflation;
+
+  private long useCount;
+
+  private long totalSize;
+
+  private long hits;
+
+  private long misses;
+
+  private long evictions;
+
+  /**
+   * @param maxSize the maximum total size of the results to keep
+   * @throws IllegalArgumentException if maxSize &lt;= 0
+   */
+  public QueryResultCache(long maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException("invalid maxSize: " + maxSize);
+    }
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * @return the cached result for key, or null if there is none
+   */
+  synchronized Object lookup(Key key) {
+    Entry e = entries.get(key);
+    if (e == null) {
+      misses++;
+      return null;
+    }
+    hits++;
+    evictionOrder.remove(e);
+    use(e);
+    evictionOrder.add(e);
+    return e.result;
+  }
+
+  private void use(Entry e) {
+    e.priority = inflation + (double) e.cost / e.size;
+    e.lastUse = useCount++;
+  }
+
+  /**
+   * Cache a result, evicting other results if needed. Results larger than {@link #getMaxSize()}
+   * are not cached.
+   *
+   * @param key the query answered by the result
+   * @param result the result, which must not be modified later
+   * @param setSize the number of elements in the points-to or flows-to set of the result
+   * @param cost the number of nodes traversed to compute the result
+   */
+  synchronized void put(Key key, Object result, int setSize, long cost) {
+    int size = setSize + 1;
+    if (size > maxSize) {
+      return;
+    }
+    Entry old = entries.remove(key);
+    if (old != null) {
+      evictionOrder.remove(old);
+      totalSize -= old.size;
+    }
+    Entry e = new Entry(key, result, size, Math.max(cost, 1));
+    use(e);
+    entries.put(e.key, e);
+    evictionOrder.add(e);
+    totalSize += size;
+    while (totalSize > maxSize) {
+      Entry victim = evictionOrder.pollFirst();
+      entries.remove(victim.key);
+      totalSize -= victim.size;
+      inflation = victim.priority;
+      evictions++;
+    }
+  }
+
+  /** Drop all results. */
+  public synchronized void clear() {
+    entries.clear();
+    evictionOrder.clear();
+    totalSize = 0;
+    inflation = 0;
+  }
+
+  public long getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @return the number of results cached
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return the total size of the results cached
+   */
+  public synchronized long getTotalSize() {
+    return totalSize;
+  }
+
+  /**
+   * @return the number of queries answered from the cache
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * @return the number of queries whose result was not cached
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the fraction of queries answered from the cache, or 0 if there were none
+   */
+  public synchronized double getHitRate() {
+    long lookups = hits + misses;
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  /**
+   * @return the number of results evicted to make room for others
+   */
+  public synchronized long getEvictions() {
+    return evictions;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "Query result cache: "
+        + entries.size()
+        + " results, total size "
+        + totalSize
+        + ", "
+        + hits
+        + " hits, "
+        + misses
+        + " misses, "
+        + evictions
+        + " evictions";
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.demandpa.alg;
+
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ProgramCounter;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey.TypeFilter;
+import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import java.util.Iterator;
+
+/**
+ * A {@link HeapModel} which may be used by several threads at once. Heap models such as {@link
+ * com.ibm.wala.ipa.callgraph.propagation.cfa.ZeroXInstanceKeys} fill caches lazily, so every call
+ * holds a lock, which should be the lock of the flow graph built with the same heap model.
+ */
+class SynchronizedHeapModel implements HeapModel {
+
+  private final HeapModel delegate;
+
+  private final Object lock;
+
+  SynchronizedHeapModel(HeapModel delegate, Object lock) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("delegate null");
+    }
+    this.delegate = delegate;
+    this.lock = lock;
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return delegate.getClassHierarchy();
+  }
+
+  @Override
+  public FilteredPointerKey getFilteredPointerKeyForLocal(
+      CGNode node, int valueNumber, TypeFilter filter) {
+    synchronized (lock) {
+      return delegate.getFilteredPointerKeyForLocal(node, valueNumber, filter);
+    }
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForAllocation(CGNode node, NewSiteReference allocation) {
+    synchronized (lock) {
+      return delegate.getInstanceKeyForAllocation(node, allocation);
+    }
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForMetadataObject(Object obj, TypeReference objType) {
+    synchronized (lock) {
+      return delegate.getInstanceKeyForMetadataObject(obj, objType);
+    }
+  }
+
+  @Override
+  public <T> InstanceKey getInstanceKeyForConstant(TypeReference type, T S) {
+    synchronized (lock) {
+      return delegate.getInstanceKeyForConstant(type, S);
+    }
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForMultiNewArray(
+      CGNode node, NewSiteReference allocation, int dim) {
+    synchronized (lock) {
+      return delegate.getInstanceKeyForMultiNewArray(node, allocation, dim);
+    }
+  }
+
+  @Override
+  public InstanceKey getInstanceKeyForPEI(CGNode node, ProgramCounter instr, TypeReference type) {
+    synchronized (lock) {
+      return delegate.getInstanceKeyForPEI(node, instr, type);
+    }
+  }
+
+  @Override
+  public PointerKey getPointerKeyForArrayContents(InstanceKey I) {
+    synchronized (lock) {
+      return delegate.getPointerKeyForArrayContents(I);
+    }
+  }
+
+  @Override
+  public PointerKey getPointerKeyForExceptionalReturnValue(CGNode node) {
+    synchronized (lock) {
+      return delegate.getPointerKeyForExceptionalReturnValue(node);
+    }
+  }
+
+  @Override
+  public PointerKey getPointerKeyForInstanceField(InstanceKey I, IField field) {
+    synchronized (lock) {
+      return delegate.getPointerKeyForInstanceField(I, field);
+    }
+  }
+
+  @Override
+  public PointerKey getPointerKeyForLocal(CGNode node, int valueNumber) {
+    synchronized (lock) {
+      return delegate.getPointerKeyForLocal(node, valueNumber);
+    }
+  }
+
+  @Override
+  public PointerKey getPointerKeyForReturnValue(CGNode node) {
+    synchronized (lock) {
+      return delegate.getPointerKeyForReturnValue(node);
+    }
+  }
+
+  @Override
+  public PointerKey getPointerKeyForStaticField(IField f) {
+    synchronized (lock) {
+      return delegate.getPointerKeyForStaticField(f);
+    }
+  }
+
+  @Override
+  public Iterator<PointerKey> iteratePointerKeys() {
+    synchronized (lock) {
+      return Iterator2Collection.toList(delegate.iteratePointerKeys()).iterator();
+    }
+  }
+}
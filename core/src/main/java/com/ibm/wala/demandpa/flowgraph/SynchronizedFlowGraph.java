@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.demandpa.flowgraph;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.demandpa.flowgraph.IFlowLabel.IFlowLabelVisitor;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.StaticFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.CallerSiteContext;
+import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.Pair;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * An {@link IFlowGraph} which may be used by several threads at once, e.g., by demand points-to
+ * queries answered in parallel.
+ *
+ * <p>Each operation holds the lock of this object while it runs on the underlying graph, so that
+ * subgraphs for new {@link CGNode}s may be added while other threads read the graph. Iterators
+ * and sets are copied before the lock is released. {@link #visitSuccs} and {@link #visitPreds}
+ * copy the edges of the node, and apply the visitor without holding the lock, since visitors
+ * typically add subgraphs themselves.
+ */
+public class SynchronizedFlowGraph implements IFlowGraph {
+
+  private final IFlowGraph delegate;
+
+  public SynchronizedFlowGraph(IFlowGraph delegate) {
+    if (delegate == null) {
+      throw new IllegalArgumentException("delegate is null");
+    }
+    this.delegate = delegate;
+  }
+
+  /**
+   * @return the underlying graph, which must not be used while other threads use this one
+   */
+  public IFlowGraph getDelegate() {
+    return delegate;
+  }
+
+  private static <T> Iterator<T> copy(Iterator<? extends T> it) {
+    return Iterator2Collection.<T>toList(it).iterator();
+  }
+
+  @Override
+  public void visitSuccs(Object node, IFlowLabelVisitor v) {
+    List<Pair<IFlowLabel, Object>> succs = new ArrayList<>();
+    synchronized (this) {
+      for (IFlowLabel label : Iterator2Iterable.make(delegate.getSuccLabels(node))) {
+        for (Object succ : Iterator2Iterable.make(delegate.getSuccNodes(node, label))) {
+          succs.add(Pair.make(label, succ));
+        }
+      }
+    }
+    for (Pair<IFlowLabel, Object> p : succs) {
+      p.fst.visit(v, p.snd);
+    }
+  }
+
+  @Override
+  public void visitPreds(Object node, IFlowLabelVisitor v) {
+    List<Pair<IFlowLabel, Object>> preds = new ArrayList<>();
+    synchronized (this) {
+      for (IFlowLabel label : Iterator2Iterable.make(delegate.getPredLabels(node))) {
+        for (Object pred : Iterator2Iterable.make(delegate.getPredNodes(node, label))) {
+          preds.add(Pair.make(label, pred));
+        }
+      }
+    }
+    for (Pair<IFlowLabel, Object> p : preds) {
+      p.fst.visit(v, p.snd);
+    }
+  }
+
+  @Override
+  public synchronized void addSubgraphForNode(CGNode node) throws IllegalArgumentException {
+    delegate.addSubgraphForNode(node);
+  }
+
+  @Override
+  public synchronized boolean hasSubgraphForNode(CGNode node) {
+    return delegate.hasSubgraphForNode(node);
+  }
+
+  @Override
+  public synchronized boolean isParam(LocalPointerKey pk) {
+    return delegate.isParam(pk);
+  }
+
+  @Override
+  public synchronized Iterator<SSAAbstractInvokeInstruction> getInstrsPassingParam(
+      LocalPointerKey pk) {
+    return copy(delegate.getInstrsPassingParam(pk));
+  }
+
+  @Override
+  public synchronized SSAAbstractInvokeInstruction getInstrReturningTo(LocalPointerKey pk) {
+    return delegate.getInstrReturningTo(pk);
+  }
+
+  @Override
+  public synchronized Iterator<? extends Object> getWritesToStaticField(StaticFieldKey sfk)
+      throws IllegalArgumentException {
+    return copy(delegate.getWritesToStaticField(sfk));
+  }
+
+  @Override
+  public synchronized Iterator<? extends Object> getReadsOfStaticField(StaticFieldKey sfk)
+      throws IllegalArgumentException {
+    return copy(delegate.getReadsOfStaticField(sfk));
+  }
+
+  @Override
+  public synchronized Iterator<PointerKey> getWritesToInstanceField(PointerKey pk, IField f) {
+    return copy(delegate.getWritesToInstanceField(pk, f));
+  }
+
+  @Override
+  public synchronized Iterator<PointerKey> getReadsOfInstanceField(PointerKey pk, IField f) {
+    return copy(delegate.getReadsOfInstanceField(pk, f));
+  }
+
+  @Override
+  public synchronized Set<CallerSiteContext> getPotentialCallers(PointerKey formalPk) {
+    return HashSetFactory.make(delegate.getPotentialCallers(formalPk));
+  }
+
+  @Override
+  public synchronized Set<CGNode> getPossibleTargets(
+      CGNode caller, CallSiteReference site, LocalPointerKey actualPk) {
+    return HashSetFactory.make(delegate.getPossibleTargets(caller, site, actualPk));
+  }
+
+  @Override
+  public synchronized void removeNodeAndEdges(Object n) throws UnsupportedOperationException {
+    delegate.removeNodeAndEdges(n);
+  }
+
+  @Override
+  public synchronized Iterator<Object> iterator() {
+    return copy(delegate.iterator());
+  }
+
+  @Override
+  public synchronized Stream<Object> stream() {
+    return Iterator2Collection.toList(delegate.iterator()).stream();
+  }
+
+  @Override
+  public synchronized int getNumberOfNodes() {
+    return delegate.getNumberOfNodes();
+  }
+
+  @Override
+  public synchronized void addNode(Object n) {
+    delegate.addNode(n);
+  }
+
+  @Override
+  public synchronized void removeNode(Object n) throws UnsupportedOperationException {
+    delegate.removeNode(n);
+  }
+
+  @Override
+  public synchronized boolean containsNode(@Nullable Object n) {
+    return delegate.containsNode(n);
+  }
+
+  @Override
+  public synchronized Iterator<Object> getPredNodes(@Nullable Object n) {
+    return copy(delegate.getPredNodes(n));
+  }
+
+  @Override
+  public synchronized int getPredNodeCount(Object n) {
+    return delegate.getPredNodeCount(n);
+  }
+
+  @Override
+  public synchronized Iterator<Object> getSuccNodes(@Nullable Object n) {
+    return copy(delegate.getSuccNodes(n));
+  }
+
+  @Override
+  public synchronized int getSuccNodeCount(Object n) {
+    return delegate.getSuccNodeCount(n);
+  }
+
+  @Override
+  public synchronized void addEdge(Object src, Object dst) {
+    delegate.addEdge(src, dst);
+  }
+
+  @Override
+  public synchronized void removeEdge(Object src, Object dst)
+      throws UnsupportedOperationException {
+    delegate.removeEdge(src, dst);
+  }
+
+  @Override
+  public synchronized void removeAllIncidentEdges(Object node)
+      throws UnsupportedOperationException {
+    delegate.removeAllIncidentEdges(node);
+  }
+
+  @Override
+  public synchronized void removeIncomingEdges(Object node) throws UnsupportedOperationException {
+    delegate.removeIncomingEdges(node);
+  }
+
+  @Override
+  public synchronized void removeOutgoingEdges(Object node) throws UnsupportedOperationException {
+    delegate.removeOutgoingEdges(node);
+  }
+
+  @Override
+  public synchronized boolean hasEdge(@Nullable Object src, @Nullable Object dst) {
+    return delegate.hasEdge(src, dst);
+  }
+
+  @Override
+  public synchronized @Nullable IFlowLabel getDefaultLabel() {
+    return delegate.getDefaultLabel();
+  }
+
+  @Override
+  public synchronized Iterator<Object> getPredNodes(Object N, IFlowLabel label) {
+    return copy(delegate.getPredNodes(N, label));
+  }
+
+  @Override
+  public synchronized Iterator<Object> getPredNodes(Object N, Predicate<IFlowLabel> pred) {
+    return copy(delegate.getPredNodes(N, pred));
+  }
+
+  @Override
+  public synchronized Iterator<? extends IFlowLabel> getPredLabels(Object N) {
+    return copy(delegate.getPredLabels(N));
+  }
+
+  @Override
+  public synchronized int getPredNodeCount(Object N, IFlowLabel label) {
+    return delegate.getPredNodeCount(N, label);
+  }
+
+  @Override
+  public synchronized Iterator<? extends Object> getSuccNodes(Object N, IFlowLabel label) {
+    return copy(delegate.getSuccNodes(N, label));
+  }
+
+  @Override
+  public synchronized Iterator<? extends IFlowLabel> getSuccLabels(Object N) {
+    return copy(delegate.getSuccLabels(N));
+  }
+
+  @Override
+  public synchronized int getSuccNodeCount(Object N, IFlowLabel label) {
+    return delegate.getSuccNodeCount(N, label);
+  }
+
+  @Override
+  public synchronized void addEdge(Object src, Object dst, IFlowLabel label) {
+    delegate.addEdge(src, dst, label);
+  }
+
+  @Override
+  public synchronized void removeEdge(Object src, Object dst, IFlowLabel label)
+      throws UnsupportedOperationException {
+    delegate.removeEdge(src, dst, label);
+  }
+
+  @Override
+  public synchronized boolean hasEdge(Object src, Object dst, IFlowLabel label) {
+    return delegate.hasEdge(src, dst, label);
+  }
+
+  @Override
+  public synchronized Set<? extends IFlowLabel> getEdgeLabels(Object src, Object dst) {
+    return HashSetFactory.make(delegate.getEdgeLabels(src, dst));
+  }
+
+  @Override
+  public synchronized String toString() {
+    return delegate.toString();
+  }
+}
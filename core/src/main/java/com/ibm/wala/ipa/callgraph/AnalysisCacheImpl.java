@@ -12,16 +12,37 @@ package com.ibm.wala.ipa.callgraph;
 
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ssa.AuxiliaryCache;
+import com.ibm.wala.ssa.ConcurrentAuxiliaryCache;
 import com.ibm.wala.ssa.DefaultIRFactory;
 import com.ibm.wala.ssa.IRFactory;
 import com.ibm.wala.ssa.SSACache;
 import com.ibm.wala.ssa.SSAOptions;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
 public class AnalysisCacheImpl extends AnalysisCache {
 
-  public AnalysisCacheImpl(IRFactory<IMethod> irFactory, SSAOptions ssaOptions) {
+  /**
+   * @param concurrent if true, IRs for different methods and contexts may be built by several
+   *     threads at once; otherwise, construction of IRs is serialized
+   */
+  public AnalysisCacheImpl(
+      IRFactory<IMethod> irFactory, SSAOptions ssaOptions, boolean concurrent) {
     super(
-        irFactory, ssaOptions, new SSACache(irFactory, new AuxiliaryCache(), new AuxiliaryCache()));
+        irFactory,
+        ssaOptions,
+        concurrent
+            ? new SSACache(
+                irFactory, new ConcurrentAuxiliaryCache(), new ConcurrentAuxiliaryCache())
+            : new SSACache(irFactory, new AuxiliaryCache(), new AuxiliaryCache()));
+  }
+
+  public AnalysisCacheImpl(IRFactory<IMethod> irFactory, SSAOptions ssaOptions) {
+    this(irFactory, ssaOptions, false);
   }
 
   public AnalysisCacheImpl(SSAOptions ssaOptions) {
@@ -35,4 +56,38 @@ public class AnalysisCacheImpl extends AnalysisCache {
   public AnalysisCacheImpl() {
     this(new DefaultIRFactory());
   }
+
+  /**
+   * Build and cache the IRs of the given methods, in the {@link
+   * com.ibm.wala.ipa.callgraph.impl.Everywhere} context, using tasks run by the given executor.
+   * This blocks until all IRs have been built. The IRs are only built concurrently if this cache
+   * was created as a concurrent one.
+   *
+   * @throws IllegalArgumentException if methods or executor is null
+   */
+  public void prewarm(Collection<? extends IMethod> methods, Executor executor) {
+    if (methods == null) {
+      throw new IllegalArgumentException("methods is null");
+    }
+    if (executor == null) {
+      throw new IllegalArgumentException("executor is null");
+    }
+    List<CompletableFuture<Void>> tasks = new ArrayList<>(methods.size());
+    for (IMethod m : methods) {
+      if (!m.isAbstract() && !m.isNative()) {
+        tasks.add(CompletableFuture.runAsync(() -> getIR(m), executor));
+      }
+    }
+    try {
+      CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw e;
+    }
+  }
 }
@@ -13,7 +13,10 @@ package com.ibm.wala.ipa.callgraph;
 import com.ibm.wala.analysis.reflection.ReflectionContextInterpreter;
 import com.ibm.wala.analysis.reflection.ReflectionContextSelector;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.DifferencePropagationSolver;
+import com.ibm.wala.ipa.callgraph.propagation.ParallelSolver;
 import com.ibm.wala.ipa.callgraph.propagation.ReflectionHandler;
+import com.ibm.wala.ipa.callgraph.propagation.StandardSolver;
 import com.ibm.wala.ssa.SSAOptions;
 
 /**
@@ -188,6 +191,32 @@ public class AnalysisOptions {
   /** Should call graph construction handle arrays of zero-length differently? */
   private boolean handleZeroLengthArray = true;
 
+  /**
+   * How many worker threads should the pointer analysis solver use? A value of {@code 1} (the
+   * default) selects the sequential {@link StandardSolver}; larger values select the {@link
+   * ParallelSolver}, which produces identical results.
+   */
+  private int numberOfSolverThreads = 1;
+
+  /**
+   * Should the pointer analysis solver propagate only the difference of points-to sets along
+   * assignments? If set, the {@link DifferencePropagationSolver} is used, which runs on a single
+   * thread.
+   */
+  private boolean useDifferencePropagation = false;
+
+  /**
+   * Should the pointer analysis solver detect cycles of assignments between local variables, and
+   * collapse each of them into a single points-to set?
+   */
+  private boolean useCycleElimination = false;
+
+  /**
+   * Should the pointer analysis hold the implicit equations of its constraint system, most of
+   * them assignments, outside the Java heap?
+   */
+  private boolean useOffHeapImplicitEquations = false;
+
   // SJF: I'm not sure these factories and caches belong here.
   // TODO: figure out how to clean this up.
 
@@ -406,4 +435,70 @@ public class AnalysisOptions {
   public void setHandleZeroLengthArray(boolean handleZeroLengthArray) {
     this.handleZeroLengthArray = handleZeroLengthArray;
   }
+
+  /**
+   * @return the number of worker threads used by the pointer analysis solver
+   */
+  public int getNumberOfSolverThreads() {
+    return numberOfSolverThreads;
+  }
+
+  /**
+   * Set the number of worker threads used by the pointer analysis solver. Values greater than
+   * {@code 1} enable parallel propagation of points-to sets.
+   *
+   * @throws IllegalArgumentException if numberOfSolverThreads &lt; 1
+   */
+  public void setNumberOfSolverThreads(int numberOfSolverThreads) {
+    if (numberOfSolverThreads < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + numberOfSolverThreads);
+    }
+    this.numberOfSolverThreads = numberOfSolverThreads;
+  }
+
+  /**
+   * @return true iff the pointer analysis solver should use difference propagation
+   */
+  public boolean getUseDifferencePropagation() {
+    return useDifferencePropagation;
+  }
+
+  /**
+   * Should the pointer analysis solver propagate only the difference of points-to sets along
+   * assignments? This takes precedence over {@link #setNumberOfSolverThreads(int)}.
+   */
+  public void setUseDifferencePropagation(boolean useDifferencePropagation) {
+    this.useDifferencePropagation = useDifferencePropagation;
+  }
+
+  /**
+   * @return true iff the pointer analysis solver should collapse cycles of assignments
+   */
+  public boolean getUseCycleElimination() {
+    return useCycleElimination;
+  }
+
+  /**
+   * Should the pointer analysis solver detect cycles of assignments between local variables, and
+   * collapse each of them into a single points-to set? This works with any of the solvers.
+   */
+  public void setUseCycleElimination(boolean useCycleElimination) {
+    this.useCycleElimination = useCycleElimination;
+  }
+
+  /**
+   * @return true iff the pointer analysis should hold implicit equations outside the Java heap
+   */
+  public boolean getUseOffHeapImplicitEquations() {
+    return useOffHeapImplicitEquations;
+  }
+
+  /**
+   * Should the pointer analysis hold the implicit equations of its constraint system outside the
+   * Java heap? This keeps very large constraint systems from burdening the garbage collector; the
+   * memory used is then bounded by {@code -XX:MaxDirectMemorySize} rather than the heap size.
+   */
+  public void setUseOffHeapImplicitEquations(boolean useOffHeapImplicitEquations) {
+    this.useOffHeapImplicitEquations = useOffHeapImplicitEquations;
+  }
 }
@@ -16,10 +16,20 @@ import com.ibm.wala.fixpoint.BitVectorVariable;
 import com.ibm.wala.ipa.modref.GenReach;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.graph.impl.GraphInverter;
+import com.ibm.wala.util.graph.traverse.SCCIterator;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
 import com.ibm.wala.util.intset.OrdinalSet;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 
 /**
@@ -53,6 +63,104 @@ public class CallGraphTransitiveClosure {
     }
   }
 
+  /**
+   * Compute the transitive closure of an analysis result over all callees, on several threads.
+   *
+   * <p>The strongly connected components of the call graph are processed bottom-up, on a {@link
+   * ForkJoinPool}: the result for a component is the union of the results of its nodes and of the
+   * components it calls, and all the components whose callees are done are processed in parallel.
+   * The nodes of a component share one result. The result is the same as that of {@link
+   * #transitiveClosure(CallGraph, Map)}.
+   *
+   * @param cg the call graph
+   * @param nodeResults analysis result for each individual node
+   * @param nThreads number of worker threads
+   * @return a map from each node to the analysis result for the node and its transitive callees
+   * @throws IllegalArgumentException if nThreads &lt; 1
+   */
+  public static <T> Map<CGNode, OrdinalSet<T>> transitiveClosure(
+      CallGraph cg, Map<CGNode, Collection<T>> nodeResults, int nThreads) {
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("invalid nThreads: " + nThreads);
+    }
+    MutableMapping<T> values = MutableMapping.make();
+    for (Collection<T> c : nodeResults.values()) {
+      for (T t : c) {
+        values.add(t);
+      }
+    }
+
+    // SCCIterator finds the components in topological order, so callers come before callees
+    List<Set<CGNode>> sccs = new ArrayList<>();
+    Map<CGNode, Integer> sccOf = HashMapFactory.make();
+    for (Set<CGNode> scc : Iterator2Iterable.make(new SCCIterator<>(cg))) {
+      for (CGNode n : scc) {
+        sccOf.put(n, sccs.size());
+      }
+      sccs.add(scc);
+    }
+
+    // group the components by height, the length of the longest path to a component without
+    // callees; each component only calls components of lower height
+    MutableSparseIntSet[] callees = new MutableSparseIntSet[sccs.size()];
+    int[] height = new int[sccs.size()];
+    List<List<Integer>> levels = new ArrayList<>();
+    for (int i = sccs.size() - 1; i >= 0; i--) {
+      callees[i] = MutableSparseIntSet.makeEmpty();
+      for (CGNode n : sccs.get(i)) {
+        for (CGNode callee : Iterator2Iterable.make(cg.getSuccNodes(n))) {
+          int j = sccOf.get(callee);
+          if (j != i) {
+            assert j > i : "components out of order";
+            callees[i].add(j);
+            height[i] = Math.max(height[i], height[j] + 1);
+          }
+        }
+      }
+      while (levels.size() <= height[i]) {
+        levels.add(new ArrayList<>());
+      }
+      levels.get(height[i]).add(i);
+    }
+
+    BitVectorIntSet[] sccResults = new BitVectorIntSet[sccs.size()];
+    ForkJoinPool pool = new ForkJoinPool(nThreads);
+    try {
+      pool.submit(
+              () -> {
+                for (List<Integer> level : levels) {
+                  level.parallelStream()
+                      .forEach(
+                          i -> {
+                            BitVectorIntSet s = new BitVectorIntSet();
+                            for (CGNode n : sccs.get(i)) {
+                              Collection<T> c = nodeResults.get(n);
+                              if (c != null) {
+                                for (T t : c) {
+                                  s.add(values.getMappedIndex(t));
+                                }
+                              }
+                            }
+                            callees[i].foreach(j -> s.addAll(sccResults[j]));
+                            sccResults[i] = s;
+                          });
+                }
+              })
+          .join();
+    } finally {
+      pool.shutdown();
+    }
+
+    Map<CGNode, OrdinalSet<T>> result = HashMapFactory.make();
+    for (int i = 0; i < sccs.size(); i++) {
+      OrdinalSet<T> s = new OrdinalSet<>(sccResults[i], values);
+      for (CGNode n : sccs.get(i)) {
+        result.put(n, s);
+      }
+    }
+    return result;
+  }
+
   /** Collect analysis result for each {@link CGNode} in a {@link Map}. */
   public static <T> Map<CGNode, Collection<T>> collectNodeResults(
       CallGraph cg, Function<CGNode, Collection<T>> nodeResultComputer) {
@@ -62,4 +170,31 @@ public class CallGraphTransitiveClosure {
     }
     return result;
   }
+
+  /**
+   * Collect analysis result for each {@link CGNode} in a {@link Map}, computing the results of
+   * several nodes at once. {@code nodeResultComputer} must be safe to call from several threads.
+   *
+   * @param nThreads number of worker threads
+   * @throws IllegalArgumentException if nThreads &lt; 1
+   */
+  public static <T> Map<CGNode, Collection<T>> collectNodeResults(
+      CallGraph cg, Function<CGNode, Collection<T>> nodeResultComputer, int nThreads) {
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("invalid nThreads: " + nThreads);
+    }
+    Map<CGNode, Collection<T>> result = new ConcurrentHashMap<>();
+    ForkJoinPool pool = new ForkJoinPool(nThreads);
+    try {
+      pool.submit(
+              () ->
+                  cg.stream()
+                      .parallel()
+                      .forEach(n -> result.put(n, nodeResultComputer.apply(n))))
+          .join();
+    } finally {
+      pool.shutdown();
+    }
+    return result;
+  }
 }
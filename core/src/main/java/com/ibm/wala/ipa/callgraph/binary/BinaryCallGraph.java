@@ -0,0 +1,539 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.binary;
+
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.ENTRYPOINTS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.NODES;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.NODES_BY_METHOD;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.NODE_BY_METHOD_SIZE;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.NODE_SIZE;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.STATIC;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.SyntheticMethod;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextItem;
+import com.ibm.wala.ipa.callgraph.ContextKey;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
+import com.ibm.wala.ipa.callgraph.impl.FakeRootClass;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.graph.impl.NodeWithNumber;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/** A {@link CallGraph} read by a {@link CallGraphReader}, whose nodes are decoded on demand. */
+class BinaryCallGraph implements CallGraph {
+
+  private final CallGraphReader reader;
+
+  private final IAnalysisCacheView cache;
+
+  private final IClassHierarchy cha;
+
+  /** the nodes decoded so far, by number */
+  private final BinaryCGNode[] nodes;
+
+  private final int nNodes;
+
+  BinaryCallGraph(CallGraphReader reader, IAnalysisCacheView cache) {
+    this.reader = reader;
+    this.cache = cache;
+    this.cha = reader.getClassHierarchy();
+    this.nodes = new BinaryCGNode[reader.count(NODES)];
+    this.nNodes = reader.count(NODES_BY_METHOD);
+  }
+
+  private int nodeField(int number, int field) {
+    return reader.getInt(reader.section(NODES) + 4 + NODE_SIZE * number + 4 * field);
+  }
+
+  @Override
+  public CGNode getNode(int number) {
+    if (number < 0 || number >= nodes.length) {
+      return null;
+    }
+    synchronized (nodes) {
+      if (nodes[number] == null && nodeField(number, 0) >= 0) {
+        nodes[number] = new BinaryCGNode(number);
+      }
+      return nodes[number];
+    }
+  }
+
+  @Override
+  public int getNumber(CGNode n) {
+    if (!containsNode(n)) {
+      throw new IllegalArgumentException("node not in this call graph: " + n);
+    }
+    return n.getGraphNodeId();
+  }
+
+  @Override
+  public int getMaxNumber() {
+    return nodes.length - 1;
+  }
+
+  @Override
+  public boolean containsNode(CGNode n) {
+    return n instanceof BinaryCGNode && ((BinaryCGNode) n).graph() == this;
+  }
+
+  @Override
+  public Stream<CGNode> stream() {
+    return IntStream.range(0, nodes.length).mapToObj(this::getNode).filter(n -> n != null);
+  }
+
+  @Override
+  public Iterator<CGNode> iterator() {
+    return stream().iterator();
+  }
+
+  @Override
+  public int getNumberOfNodes() {
+    return nNodes;
+  }
+
+  @Override
+  public Iterator<CGNode> iterateNodes(IntSet s) {
+    List<CGNode> result = new ArrayList<>();
+    for (IntIterator it = s.intIterator(); it.hasNext(); ) {
+      CGNode n = getNode(it.next());
+      if (n != null) {
+        result.add(n);
+      }
+    }
+    return result.iterator();
+  }
+
+  @Override
+  public CGNode getFakeRootNode() {
+    return getNode(reader.getInt(reader.section(ENTRYPOINTS) + 4));
+  }
+
+  @Override
+  public CGNode getFakeWorldClinitNode() {
+    return getNode(reader.getInt(reader.section(ENTRYPOINTS) + 8));
+  }
+
+  @Override
+  public Collection<CGNode> getEntrypointNodes() {
+    int base = reader.section(ENTRYPOINTS);
+    List<CGNode> result = new ArrayList<>();
+    for (int i = 0; i < reader.count(ENTRYPOINTS); i++) {
+      result.add(getNode(reader.getInt(base + 12 + 4 * i)));
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  @Override
+  public Set<CGNode> getNodes(MethodReference m) {
+    Set<CGNode> result = HashSetFactory.make();
+    int id = reader.findMember(m);
+    if (id < 0) {
+      return result;
+    }
+    int base = reader.section(NODES_BY_METHOD) + 4;
+    int low = 0;
+    int high = nNodes;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (reader.getInt(base + NODE_BY_METHOD_SIZE * mid) < id) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    for (int i = low; i < nNodes && reader.getInt(base + NODE_BY_METHOD_SIZE * i) == id; i++) {
+      result.add(getNode(reader.getInt(base + NODE_BY_METHOD_SIZE * i + 4)));
+    }
+    return result;
+  }
+
+  /**
+   * Contexts are compared by their descriptions, since that is all the file keeps of them.
+   *
+   * @see com.ibm.wala.ipa.callgraph.CallGraph#getNode(com.ibm.wala.classLoader.IMethod,
+   *     com.ibm.wala.ipa.callgraph.Context)
+   */
+  @Override
+  public CGNode getNode(IMethod method, Context C) {
+    for (CGNode n : getNodes(method.getReference())) {
+      if (n.getContext().toString().equals(C.toString())) {
+        return n;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  private BinaryCGNode node(CGNode n) {
+    if (!containsNode(n)) {
+      throw new IllegalArgumentException("node not in this call graph: " + n);
+    }
+    return (BinaryCGNode) n;
+  }
+
+  @Override
+  public Set<CGNode> getPossibleTargets(CGNode node, CallSiteReference site) {
+    Set<CGNode> result = HashSetFactory.make();
+    int[] targets = node(node).getTargets(site);
+    if (targets != null) {
+      for (int t : targets) {
+        result.add(getNode(t));
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public int getNumberOfTargets(CGNode node, CallSiteReference site) {
+    int[] targets = node(node).getTargets(site);
+    return targets == null ? 0 : targets.length;
+  }
+
+  @Override
+  public Iterator<CallSiteReference> getPossibleSites(CGNode src, CGNode target) {
+    BinaryCGNode n = node(src);
+    int t = getNumber(target);
+    List<CallSiteReference> result = new ArrayList<>();
+    for (int i = 0; i < n.getSites().length; i++) {
+      if (Arrays.binarySearch(n.getTargets()[i], t) >= 0) {
+        result.add(n.getSites()[i]);
+      }
+    }
+    return result.iterator();
+  }
+
+  @Override
+  public IntSet getSuccNodeNumbers(CGNode node) {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    for (int[] targets : node(node).getTargets()) {
+      for (int t : targets) {
+        result.add(t);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public IntSet getPredNodeNumbers(CGNode node) {
+    MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+    for (int p : node(node).getPreds()) {
+      result.add(p);
+    }
+    return result;
+  }
+
+  @Override
+  public Iterator<CGNode> getSuccNodes(CGNode n) {
+    return iterateNodes(getSuccNodeNumbers(n));
+  }
+
+  @Override
+  public int getSuccNodeCount(CGNode n) {
+    return getSuccNodeNumbers(n).size();
+  }
+
+  @Override
+  public Iterator<CGNode> getPredNodes(CGNode n) {
+    return iterateNodes(getPredNodeNumbers(n));
+  }
+
+  @Override
+  public int getPredNodeCount(CGNode n) {
+    return node(n).getPreds().length;
+  }
+
+  @Override
+  public boolean hasEdge(CGNode src, CGNode dst) {
+    return getSuccNodeNumbers(src).contains(getNumber(dst));
+  }
+
+  @Override
+  public void addNode(CGNode n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeNode(CGNode n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeNodeAndEdges(CGNode n) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void addEdge(CGNode src, CGNode dst) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeEdge(CGNode src, CGNode dst) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeAllIncidentEdges(CGNode node) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeIncomingEdges(CGNode node) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void removeOutgoingEdges(CGNode node) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String toString() {
+    return "Binary call graph with " + nNodes + " nodes";
+  }
+
+  /** A node whose method, context, call sites and edges are decoded when first asked for. */
+  private final class BinaryCGNode extends NodeWithNumber implements CGNode {
+
+    private IMethod method;
+
+    /** whether method was made up, since the class hierarchy has no method for the reference */
+    private boolean placeholder;
+
+    private Context context;
+
+    private CallSiteReference[] sites;
+
+    /** the numbers of the targets of each call site, in ascending order */
+    private int[][] targets;
+
+    private int[] preds;
+
+    private List<NewSiteReference> newSites;
+
+    BinaryCGNode(int number) {
+      setGraphNodeId(number);
+    }
+
+    BinaryCallGraph graph() {
+      return BinaryCallGraph.this;
+    }
+
+    private int field(int field) {
+      return nodeField(getGraphNodeId(), field);
+    }
+
+    @Override
+    public synchronized IMethod getMethod() {
+      if (method == null) {
+        MethodReference ref = reader.getMethod(field(0));
+        boolean isStatic = (field(2) & STATIC) != 0;
+        IClass klass = cha.lookupClass(ref.getDeclaringClass());
+        if (klass != null) {
+          IMethod m = klass.getMethod(ref.getSelector());
+          if (m != null && m.getReference().equals(ref)) {
+            method = m;
+          }
+        }
+        if (method == null) {
+          placeholder = true;
+          method =
+              new SyntheticMethod(
+                  ref,
+                  klass != null ? klass : new FakeRootClass(ref.getDeclaringClass(), cha),
+                  isStatic,
+                  false);
+        }
+      }
+      return method;
+    }
+
+    @Override
+    public synchronized Context getContext() {
+      if (context == null) {
+        String description = reader.getString(field(1));
+        context =
+            description.equals(Everywhere.EVERYWHERE.toString())
+                ? Everywhere.EVERYWHERE
+                : new BinaryContext(description);
+      }
+      return context;
+    }
+
+    @Override
+    public boolean addTarget(CallSiteReference site, CGNode target) {
+      throw new UnsupportedOperationException();
+    }
+
+    /**
+     * @return the IR of the method from the class hierarchy, or null if there is none
+     */
+    @Override
+    public synchronized IR getIR() {
+      IMethod m = getMethod();
+      return placeholder ? null : cache.getIR(m);
+    }
+
+    @Override
+    public DefUse getDU() {
+      IR ir = getIR();
+      return ir == null ? null : cache.getDefUse(ir);
+    }
+
+    private synchronized void decodeSites() {
+      if (sites != null) {
+        return;
+      }
+      int pos = reader.data(field(3));
+      int n = reader.getInt(pos);
+      pos += 4;
+      CallSiteReference[] s = new CallSiteReference[n];
+      int[][] t = new int[n][];
+      for (int i = 0; i < n; i++) {
+        int pc = reader.getInt(pos);
+        MethodReference declaredTarget = reader.getMethod(reader.getInt(pos + 4));
+        IInvokeInstruction.Dispatch dispatch =
+            IInvokeInstruction.Dispatch.values()[reader.getInt(pos + 8)];
+        s[i] = CallSiteReference.make(pc, declaredTarget, dispatch);
+        t[i] = new int[reader.getInt(pos + 12)];
+        pos += 16;
+        for (int j = 0; j < t[i].length; j++, pos += 4) {
+          t[i][j] = reader.getInt(pos);
+        }
+      }
+      targets = t;
+      sites = s;
+    }
+
+    synchronized CallSiteReference[] getSites() {
+      decodeSites();
+      return sites;
+    }
+
+    synchronized int[][] getTargets() {
+      decodeSites();
+      return targets;
+    }
+
+    /**
+     * @return the numbers of the targets of site, or null if site is not in this node
+     */
+    synchronized int[] getTargets(CallSiteReference site) {
+      decodeSites();
+      for (int i = 0; i < sites.length; i++) {
+        if (sites[i].equals(site)) {
+          return targets[i];
+        }
+      }
+      return null;
+    }
+
+    synchronized int[] getPreds() {
+      if (preds == null) {
+        int pos = reader.data(field(4));
+        int[] p = new int[reader.getInt(pos)];
+        for (int i = 0; i < p.length; i++) {
+          p[i] = reader.getInt(pos + 4 + 4 * i);
+        }
+        preds = p;
+      }
+      return preds;
+    }
+
+    @Override
+    public Iterator<CallSiteReference> iterateCallSites() {
+      return Arrays.asList(getSites()).iterator();
+    }
+
+    @Override
+    public synchronized Iterator<NewSiteReference> iterateNewSites() {
+      if (newSites == null) {
+        int pos = reader.data(field(5));
+        int n = reader.getInt(pos);
+        List<NewSiteReference> result = new ArrayList<>(n);
+        for (int i = 0; i < n; i++, pos += 12) {
+          TypeReference type = reader.getType(reader.getInt(pos + 8), reader.getInt(pos + 12));
+          result.add(NewSiteReference.make(reader.getInt(pos + 4), type));
+        }
+        newSites = Collections.unmodifiableList(result);
+      }
+      return newSites.iterator();
+    }
+
+    @Override
+    public IClassHierarchy getClassHierarchy() {
+      return cha;
+    }
+
+    @Override
+    public String toString() {
+      return "Node: " + getMethod() + " Context: " + getContext();
+    }
+  }
+
+  /** A context of which only the description is known. */
+  private static final class BinaryContext implements Context {
+
+    private final String description;
+
+    BinaryContext(String description) {
+      this.description = description;
+    }
+
+    @Override
+    public ContextItem get(ContextKey name) {
+      return null;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof BinaryContext && description.equals(((BinaryContext) obj).description);
+    }
+
+    @Override
+    public int hashCode() {
+      return description.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return description;
+    }
+  }
+}
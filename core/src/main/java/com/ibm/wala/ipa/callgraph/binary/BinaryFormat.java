@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.binary;
+
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import java.io.UTFDataFormatException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The layout of the files written by {@link CallGraphWriter}. All numbers are big-endian ints,
+ * except in points-to sets. The file starts with a header:
+ *
+ * <pre>
+ * MAGIC VERSION offset[SECTIONS]
+ * </pre>
+ *
+ * followed by the sections, each of which starts with the number of its records:
+ *
+ * <ul>
+ *   <li>{@link #STRINGS}: the offset of each string from the start of the section, then each
+ *       string as its length and its UTF-8 bytes, in ascending order, so that a string's id can be
+ *       found by binary search
+ *   <li>{@link #MEMBERS}: for each method or field reference, the ids of the strings naming its
+ *       class loader, class, name and descriptor (or field type), sorted by these ids
+ *   <li>{@link #NODES}: for each call graph node number, the member id of its method (-1 if
+ *       there is no such node), the string id of its context, its {@link #STATIC} flag, and the
+ *       offsets of its call sites, predecessors and allocation sites in the data section
+ *   <li>{@link #NODES_BY_METHOD}: (member id, node number) pairs, sorted
+ *   <li>{@link #ENTRYPOINTS}: the fake root node, the fake world clinit node (or -1), then the
+ *       entrypoints
+ *   <li>{@link #INSTANCE_KEYS}: for each instance key, the string ids of the loader and the name of
+ *       its concrete type and of its description, and the offset of its creation sites
+ *   <li>{@link #POINTER_KEYS}: (kind, a, b, offset of the points-to set) for each pointer key,
+ *       sorted by kind, a and b
+ *   <li>{@link #DATA}: the variable-sized lists the other sections refer to
+ * </ul>
+ *
+ * The data section holds the following, at offsets from its start:
+ *
+ * <ul>
+ *   <li>call sites: n, then for each site its pc, declared target, dispatch ordinal, number of
+ *       targets and the targets
+ *   <li>predecessors: n, then the node numbers, in ascending order
+ *   <li>allocation sites: n, then for each site its pc and the string ids of its type
+ *   <li>creation sites: n, then for each site the node number, pc and string ids of its type
+ *   <li>points-to sets: the number of instance keys, then the ids of the instance keys in
+ *       ascending order, each as the difference from the previous one, in a variable-length
+ *       encoding of 7 bits per byte
+ * </ul>
+ */
+final class BinaryFormat {
+
+  private BinaryFormat() {}
+
+  static final int MAGIC = 0x57434731;
+
+  static final int VERSION = 1;
+
+  static final int STRINGS = 0;
+
+  static final int MEMBERS = 1;
+
+  static final int NODES = 2;
+
+  static final int NODES_BY_METHOD = 3;
+
+  static final int ENTRYPOINTS = 4;
+
+  static final int INSTANCE_KEYS = 5;
+
+  static final int POINTER_KEYS = 6;
+
+  static final int DATA = 7;
+
+  static final int SECTIONS = 8;
+
+  static final int HEADER_SIZE = 4 * (2 + SECTIONS);
+
+  /** size in bytes of a record in each section */
+  static final int MEMBER_SIZE = 16;
+
+  static final int NODE_SIZE = 24;
+
+  static final int NODE_BY_METHOD_SIZE = 8;
+
+  static final int INSTANCE_KEY_SIZE = 16;
+
+  static final int POINTER_KEY_SIZE = 16;
+
+  /** flag of a node whose method is static */
+  static final int STATIC = 1;
+
+  /**
+   * kinds of pointer keys; a and b are the node number and value number of a local, the node
+   * number and 0 for return values, 0 and the member id for a static field, the instance key id and
+   * member id for an instance field, and the instance key id and 0 for array contents
+   */
+  static final int LOCAL = 0;
+
+  static final int RETURN_VALUE = 1;
+
+  static final int EXCEPTION_RETURN_VALUE = 2;
+
+  static final int STATIC_FIELD = 3;
+
+  static final int INSTANCE_FIELD = 4;
+
+  static final int ARRAY_CONTENTS = 5;
+
+  /**
+   * @return the strings naming the class loader and the name of a type, or empty strings for null
+   */
+  static String[] names(TypeReference t) {
+    if (t == null) {
+      return new String[] {"", ""};
+    }
+    return new String[] {
+      toUnicodeString(t.getClassLoader().getName()), t.getName().toUnicodeString()
+    };
+  }
+
+  /**
+   * @return the strings naming the class loader, class, name and descriptor of a method
+   */
+  static List<String> names(MethodReference m) {
+    String[] type = names(m.getDeclaringClass());
+    return Arrays.asList(
+        type[0], type[1], toUnicodeString(m.getName()), m.getDescriptor().toUnicodeString());
+  }
+
+  /**
+   * @return the strings naming the class loader, class, name and type of a field; the type is
+   *     assumed to be defined by the loader of the class
+   */
+  static List<String> names(FieldReference f) {
+    String[] type = names(f.getDeclaringClass());
+    return Arrays.asList(
+        type[0],
+        type[1],
+        toUnicodeString(f.getName()),
+        f.getFieldType().getName().toUnicodeString());
+  }
+
+  private static String toUnicodeString(Atom a) {
+    try {
+      return a.toUnicodeString();
+    } catch (UTFDataFormatException e) {
+      throw new IllegalArgumentException("invalid name " + a, e);
+    }
+  }
+}
@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.binary;
+
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.ARRAY_CONTENTS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.EXCEPTION_RETURN_VALUE;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.INSTANCE_FIELD;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.INSTANCE_KEYS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.INSTANCE_KEY_SIZE;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.LOCAL;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.POINTER_KEYS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.POINTER_KEY_SIZE;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.RETURN_VALUE;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.STATIC_FIELD;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.classLoader.ProgramCounter;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.AbstractPointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.ArrayContentsKey;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKeyWithFilter;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.ReturnValueKey;
+import com.ibm.wala.ipa.callgraph.propagation.StaticFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ExceptionReturnValueKey;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.LongIntMap;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.MutableIntSet;
+import com.ibm.wala.util.intset.MutableMapping;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pointer analysis read by a {@link CallGraphReader}, whose points-to sets are decoded on demand.
+ *
+ * <p>Its heap model makes the same local, return value, field and array contents pointer keys as
+ * the standard ones; the points-to sets of other pointer keys are empty. Of the instance keys, only
+ * those for allocations, including the arrays of multi-dimensional ones, can be looked up; the heap
+ * model returns null for constants, exceptions thrown by instructions and metadata objects.
+ */
+class BinaryPointerAnalysis extends AbstractPointerAnalysis {
+
+  private final CallGraphReader reader;
+
+  private final HeapModel heapModel = new HModel();
+
+  /** the index of the first instance key created at each site, packed as node number, pc */
+  private final LongIntMap allocations = new LongIntMap();
+
+  /**
+   * the indices of the other instance keys created at sites with several, e.g., for the arrays of a
+   * multi-dimensional allocation, or a key for a whole type that also stands for exceptions thrown
+   * by instructions
+   */
+  private final Map<Long, MutableIntSet> sharedAllocations = HashMapFactory.make();
+
+  BinaryPointerAnalysis(CallGraphReader reader, CallGraph cg) {
+    super(cg, makeInstanceKeys(reader));
+    this.reader = reader;
+    addAllocations();
+  }
+
+  private static MutableMapping<InstanceKey> makeInstanceKeys(CallGraphReader reader) {
+    MutableMapping<InstanceKey> result = MutableMapping.make();
+    for (int i = 0; i < reader.count(INSTANCE_KEYS); i++) {
+      result.add(new BinaryInstanceKey(reader, i));
+    }
+    return result;
+  }
+
+  private void addAllocations() {
+    for (int i = 0; i < reader.count(INSTANCE_KEYS); i++) {
+      int sites = instanceKeyField(i, 3);
+      if (sites >= 0) {
+        int pos = reader.data(sites);
+        int n = reader.getInt(pos);
+        for (int j = 0; j < n; j++, pos += 16) {
+          long site = allocation(reader.getInt(pos + 4), reader.getInt(pos + 8));
+          int first = allocations.getOrDefault(site, -1);
+          if (first < 0) {
+            allocations.put(site, i);
+          } else if (first != i) {
+            sharedAllocations.computeIfAbsent(site, k -> MutableSparseIntSet.makeEmpty()).add(i);
+          }
+        }
+      }
+    }
+  }
+
+  private static long allocation(int node, int pc) {
+    return ((long) node << 32) | (pc & 0xffffffffL);
+  }
+
+  private int instanceKeyField(int index, int field) {
+    return reader.getInt(reader.section(INSTANCE_KEYS) + 4 + INSTANCE_KEY_SIZE * index + 4 * field);
+  }
+
+  /**
+   * Of the instance keys created at site, the one with the fewest creation sites is taken, since
+   * the file does not say which of them the heap model made for the site itself.
+   *
+   * @return the index of the instance key created at site whose concrete type is named type, that
+   *     of any instance key created there if orAny and none is, or else -1
+   */
+  private int findAllocation(CGNode node, NewSiteReference site, TypeName type, boolean orAny) {
+    int n = node(node);
+    if (n < 0) {
+      return -1;
+    }
+    long key = allocation(n, site.getProgramCounter());
+    int first = allocations.getOrDefault(key, -1);
+    if (first < 0) {
+      return -1;
+    }
+    int best = hasType(first, type) ? first : -1;
+    int any = first;
+    MutableIntSet others = sharedAllocations.get(key);
+    if (others != null) {
+      for (IntIterator it = others.intIterator(); it.hasNext(); ) {
+        int i = it.next();
+        if (hasType(i, type) && (best < 0 || creationSites(i) < creationSites(best))) {
+          best = i;
+        }
+        if (creationSites(i) < creationSites(any)) {
+          any = i;
+        }
+      }
+    }
+    return best < 0 && orAny ? any : best;
+  }
+
+  private int creationSites(int index) {
+    return reader.getInt(reader.data(instanceKeyField(index, 3)));
+  }
+
+  private boolean hasType(int index, TypeName type) {
+    TypeReference t = reader.getType(instanceKeyField(index, 0), instanceKeyField(index, 1));
+    return t != null && t.getName().equals(type);
+  }
+
+  @Override
+  public IClassHierarchy getClassHierarchy() {
+    return reader.getClassHierarchy();
+  }
+
+  @Override
+  public HeapModel getHeapModel() {
+    return heapModel;
+  }
+
+  @Override
+  public boolean isFiltered(PointerKey pk) {
+    return false;
+  }
+
+  /**
+   * @return (kind, a, b) for key, or null if the file cannot have a points-to set for it
+   */
+  private int[] encode(PointerKey key) {
+    if (key instanceof LocalPointerKey) {
+      LocalPointerKey l = (LocalPointerKey) key;
+      return encode(LOCAL, node(l.getNode()), l.getValueNumber());
+    } else if (key instanceof ExceptionReturnValueKey) {
+      return encode(EXCEPTION_RETURN_VALUE, node(((ExceptionReturnValueKey) key).getNode()), 0);
+    } else if (key instanceof ReturnValueKey) {
+      return encode(RETURN_VALUE, node(((ReturnValueKey) key).getNode()), 0);
+    } else if (key instanceof StaticFieldKey) {
+      int f = reader.findMember(((StaticFieldKey) key).getField().getReference());
+      return encode(STATIC_FIELD, 0, f);
+    } else if (key instanceof InstanceFieldKey) {
+      InstanceFieldKey k = (InstanceFieldKey) key;
+      int f = reader.findMember(k.getField().getReference());
+      return encode(INSTANCE_FIELD, instanceKeys.getMappedIndex(k.getInstanceKey()), f);
+    } else if (key instanceof ArrayContentsKey) {
+      InstanceKey ik = ((ArrayContentsKey) key).getInstanceKey();
+      return encode(ARRAY_CONTENTS, instanceKeys.getMappedIndex(ik), 0);
+    }
+    return null;
+  }
+
+  private static int[] encode(int kind, int a, int b) {
+    return a < 0 || b < 0 ? null : new int[] {kind, a, b};
+  }
+
+  private int node(CGNode n) {
+    return getCallGraph().containsNode(n) ? getCallGraph().getNumber(n) : -1;
+  }
+
+  private int pointerKeyField(int index, int field) {
+    return reader.getInt(reader.section(POINTER_KEYS) + 4 + POINTER_KEY_SIZE * index + 4 * field);
+  }
+
+  /**
+   * @return the index of the pointer key record for (kind, a, b), or -1 if there is none
+   */
+  private int find(int[] key) {
+    int low = 0;
+    int high = reader.count(POINTER_KEYS) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int c = 0;
+      for (int i = 0; c == 0 && i < key.length; i++) {
+        c = Integer.compare(pointerKeyField(mid, i), key[i]);
+      }
+      if (c < 0) {
+        low = mid + 1;
+      } else if (c > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  @Override
+  public OrdinalSet<InstanceKey> getPointsToSet(PointerKey key) {
+    int[] encoded = encode(key);
+    int index = encoded == null ? -1 : find(encoded);
+    if (index < 0) {
+      return OrdinalSet.empty();
+    }
+    int[] pos = {reader.data(pointerKeyField(index, 3))};
+    int n = reader.getVarInt(pos);
+    MutableSparseIntSet s = MutableSparseIntSet.createMutableSparseIntSet(Math.max(n, 1));
+    for (int i = 0, id = 0; i < n; i++) {
+      id += reader.getVarInt(pos);
+      s.add(id);
+    }
+    return new OrdinalSet<>(s, instanceKeys);
+  }
+
+  /** Pointer keys whose fields cannot be resolved are skipped. */
+  @Override
+  public Iterable<PointerKey> getPointerKeys() {
+    List<PointerKey> result = new ArrayList<>();
+    for (int i = 0; i < reader.count(POINTER_KEYS); i++) {
+      PointerKey key = decode(i);
+      if (key != null) {
+        result.add(key);
+      }
+    }
+    return result;
+  }
+
+  private PointerKey decode(int index) {
+    int a = pointerKeyField(index, 1);
+    int b = pointerKeyField(index, 2);
+    switch (pointerKeyField(index, 0)) {
+      case LOCAL:
+        return new LocalPointerKey(getCallGraph().getNode(a), b);
+      case RETURN_VALUE:
+        return new ReturnValueKey(getCallGraph().getNode(a));
+      case EXCEPTION_RETURN_VALUE:
+        return new ExceptionReturnValueKey(getCallGraph().getNode(a));
+      case STATIC_FIELD:
+        {
+          IField f = getClassHierarchy().resolveField(reader.getField(b));
+          return f == null ? null : new StaticFieldKey(f);
+        }
+      case INSTANCE_FIELD:
+        {
+          IField f = getClassHierarchy().resolveField(reader.getField(b));
+          return f == null ? null : new InstanceFieldKey(instanceKeys.getMappedObject(a), f);
+        }
+      case ARRAY_CONTENTS:
+        return new ArrayContentsKey(instanceKeys.getMappedObject(a));
+      default:
+        throw new IllegalStateException("unknown pointer key kind at " + index);
+    }
+  }
+
+  /** An instance key whose type, description and creation sites are decoded on demand. */
+  private static final class BinaryInstanceKey implements InstanceKey {
+
+    private final CallGraphReader reader;
+
+    private final int index;
+
+    BinaryInstanceKey(CallGraphReader reader, int index) {
+      this.reader = reader;
+      this.index = index;
+    }
+
+    private int field(int field) {
+      return reader.getInt(
+          reader.section(INSTANCE_KEYS) + 4 + INSTANCE_KEY_SIZE * index + 4 * field);
+    }
+
+    /**
+     * @return the concrete type from the class hierarchy, or null if it has none
+     */
+    @Override
+    public IClass getConcreteType() {
+      TypeReference type = reader.getType(field(0), field(1));
+      return type == null ? null : reader.getClassHierarchy().lookupClass(type);
+    }
+
+    @Override
+    public Iterator<Pair<CGNode, NewSiteReference>> getCreationSites(CallGraph CG) {
+      List<Pair<CGNode, NewSiteReference>> result = new ArrayList<>();
+      if (field(3) >= 0) {
+        int pos = reader.data(field(3));
+        int n = reader.getInt(pos);
+        for (int i = 0; i < n; i++, pos += 16) {
+          CGNode node = CG.getNode(reader.getInt(pos + 4));
+          TypeReference type = reader.getType(reader.getInt(pos + 12), reader.getInt(pos + 16));
+          result.add(Pair.make(node, NewSiteReference.make(reader.getInt(pos + 8), type)));
+        }
+      }
+      return result.iterator();
+    }
+
+    @Override
+    public String toString() {
+      return reader.getString(field(2));
+    }
+  }
+
+  /** The standard pointer keys, and the instance keys for allocations. */
+  private class HModel implements HeapModel {
+
+    @Override
+    public Iterator<PointerKey> iteratePointerKeys() {
+      return getPointerKeys().iterator();
+    }
+
+    @Override
+    public IClassHierarchy getClassHierarchy() {
+      return BinaryPointerAnalysis.this.getClassHierarchy();
+    }
+
+    /**
+     * @return the instance key created at allocation, or null if there is none
+     */
+    @Override
+    public InstanceKey getInstanceKeyForAllocation(CGNode node, NewSiteReference allocation) {
+      int index = findAllocation(node, allocation, allocation.getDeclaredType().getName(), true);
+      return index < 0 ? null : instanceKeys.getMappedObject(index);
+    }
+
+    /**
+     * @return the instance key created at allocation for its arrays at depth dim + 1, or null if
+     *     there is none
+     */
+    @Override
+    public InstanceKey getInstanceKeyForMultiNewArray(
+        CGNode node, NewSiteReference allocation, int dim) {
+      TypeReference type = allocation.getDeclaredType();
+      for (int i = 0; i <= dim && type.isArrayType(); i++) {
+        type = type.getArrayElementType();
+      }
+      int index = findAllocation(node, allocation, type.getName(), false);
+      return index < 0 ? null : instanceKeys.getMappedObject(index);
+    }
+
+    /**
+     * @return null, since the file does not say which constants an instance key stands for
+     */
+    @Override
+    public <T> InstanceKey getInstanceKeyForConstant(TypeReference type, T S) {
+      return null;
+    }
+
+    /**
+     * @return null, since the file does not say which instructions an instance key stands for
+     */
+    @Override
+    public InstanceKey getInstanceKeyForPEI(CGNode node, ProgramCounter instr, TypeReference type) {
+      return null;
+    }
+
+    /**
+     * @return null, since the file does not say which objects an instance key stands for
+     */
+    @Override
+    public InstanceKey getInstanceKeyForMetadataObject(Object obj, TypeReference objType) {
+      return null;
+    }
+
+    @Override
+    public PointerKey getPointerKeyForLocal(CGNode node, int valueNumber) {
+      return new LocalPointerKey(node, valueNumber);
+    }
+
+    /** Its points-to set is that of the local, which the file holds already filtered. */
+    @Override
+    public FilteredPointerKey getFilteredPointerKeyForLocal(
+        CGNode node, int valueNumber, FilteredPointerKey.TypeFilter filter) {
+      return new LocalPointerKeyWithFilter(node, valueNumber, filter);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForReturnValue(CGNode node) {
+      return new ReturnValueKey(node);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForExceptionalReturnValue(CGNode node) {
+      return new ExceptionReturnValueKey(node);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForStaticField(IField f) {
+      return new StaticFieldKey(f);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForInstanceField(InstanceKey I, IField field) {
+      return new InstanceFieldKey(I, field);
+    }
+
+    @Override
+    public PointerKey getPointerKeyForArrayContents(InstanceKey I) {
+      return new ArrayContentsKey(I);
+    }
+  }
+}
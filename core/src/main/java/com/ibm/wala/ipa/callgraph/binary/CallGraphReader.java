@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.binary;
+
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.DATA;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.HEADER_SIZE;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.MAGIC;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.MEMBERS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.MEMBER_SIZE;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.SECTIONS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.STRINGS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.VERSION;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.names;
+
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reads a call graph and pointer analysis written by {@link CallGraphWriter}.
+ *
+ * <p>The file is mapped into memory, and nothing is decoded up front: nodes, their call sites and
+ * edges, instance keys and points-to sets are decoded when a client first asks for them, and
+ * methods and fields are resolved against the given class hierarchy at that point. Opening a
+ * large call graph is thus cheap, and clients that look at a small part of it only pay for that
+ * part.
+ *
+ * <p>A node's method is the method the class hierarchy has for its reference, and its IR comes from
+ * the given cache; if the method cannot be found, the node gets a {@link
+ * com.ibm.wala.classLoader.SyntheticMethod} with the same reference and no IR, as for fake root
+ * methods. A node's context is only known by its description; nodes whose context was {@link
+ * com.ibm.wala.ipa.callgraph.impl.Everywhere} get that context back. The instance keys only know
+ * their concrete type, description and creation sites.
+ *
+ * <p>The call graph and pointer analysis read are immutable, and may be used by several threads at
+ * once.
+ */
+public class CallGraphReader {
+
+  private final ByteBuffer buffer;
+
+  private final int[] sections = new int[SECTIONS];
+
+  private final IClassHierarchy cha;
+
+  private final BinaryCallGraph cg;
+
+  private final BinaryPointerAnalysis pa;
+
+  private CallGraphReader(ByteBuffer buffer, IClassHierarchy cha, IAnalysisCacheView cache)
+      throws IOException {
+    this.buffer = buffer;
+    this.cha = cha;
+    if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+      throw new IOException("not a call graph file");
+    }
+    if (buffer.getInt(4) != VERSION) {
+      throw new IOException("unsupported call graph file version " + buffer.getInt(4));
+    }
+    for (int i = 0; i < SECTIONS; i++) {
+      sections[i] = buffer.getInt(8 + 4 * i);
+    }
+    this.cg = new BinaryCallGraph(this, cache);
+    this.pa = new BinaryPointerAnalysis(this, cg);
+  }
+
+  /**
+   * Map a file written by {@link CallGraphWriter} into memory.
+   *
+   * @param cha the class hierarchy to resolve methods, fields and types against
+   * @param cache the cache to get the IRs of nodes from
+   * @throws IllegalArgumentException if file, cha or cache is null
+   * @throws IOException if the file cannot be read, or is not a call graph file
+   */
+  public static CallGraphReader open(Path file, IClassHierarchy cha, IAnalysisCacheView cache)
+      throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("file is null");
+    }
+    if (cha == null) {
+      throw new IllegalArgumentException("cha is null");
+    }
+    if (cache == null) {
+      throw new IllegalArgumentException("cache is null");
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new IOException("call graph file too large: " + file);
+      }
+      return new CallGraphReader(
+          channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), cha, cache);
+    }
+  }
+
+  public CallGraph getCallGraph() {
+    return cg;
+  }
+
+  /**
+   * @return the pointer analysis written with the call graph; its points-to sets are empty if none
+   *     was
+   */
+  public PointerAnalysis<InstanceKey> getPointerAnalysis() {
+    return pa;
+  }
+
+  IClassHierarchy getClassHierarchy() {
+    return cha;
+  }
+
+  /**
+   * @return the offset of a section in the file
+   */
+  int section(int section) {
+    return sections[section];
+  }
+
+  /**
+   * @return the number of records in a section
+   */
+  int count(int section) {
+    return buffer.getInt(sections[section]);
+  }
+
+  /**
+   * @return the int at an offset in the file
+   */
+  int getInt(int offset) {
+    return buffer.getInt(offset);
+  }
+
+  /**
+   * @return the offset in the file of a list in the data section
+   */
+  int data(int offset) {
+    return sections[DATA] + offset;
+  }
+
+  /**
+   * Decode a variable-length int in the data section.
+   *
+   * @param pos holds the offset in the file to read at, and is advanced past the int
+   */
+  int getVarInt(int[] pos) {
+    int result = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = buffer.get(pos[0]++);
+      result |= (b & 0x7f) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+  }
+
+  String getString(int id) {
+    int base = sections[STRINGS];
+    int offset = base + buffer.getInt(base + 4 + 4 * id);
+    byte[] bytes = new byte[buffer.getInt(offset)];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = buffer.get(offset + 4 + i);
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return the id of a string, or -1 if it is not in the file
+   */
+  int findString(String s) {
+    int low = 0;
+    int high = count(STRINGS) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int c = getString(mid).compareTo(s);
+      if (c < 0) {
+        low = mid + 1;
+      } else if (c > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  TypeReference getType(int loader, int name) {
+    String l = getString(loader);
+    if (l.isEmpty()) {
+      return null;
+    }
+    return TypeReference.findOrCreate(loader(l), getString(name));
+  }
+
+  private ClassLoaderReference loader(String name) {
+    ClassLoaderReference result = cha.getScope().getLoader(Atom.findOrCreateUnicodeAtom(name));
+    if (result == null) {
+      throw new IllegalStateException("no class loader " + name + " in the analysis scope");
+    }
+    return result;
+  }
+
+  private int member(int id, int field) {
+    return buffer.getInt(sections[MEMBERS] + 4 + MEMBER_SIZE * id + 4 * field);
+  }
+
+  MethodReference getMethod(int id) {
+    TypeReference type = getType(member(id, 0), member(id, 1));
+    return MethodReference.findOrCreate(
+        type, getString(member(id, 2)), getString(member(id, 3)));
+  }
+
+  FieldReference getField(int id) {
+    TypeReference type = getType(member(id, 0), member(id, 1));
+    TypeReference fieldType =
+        TypeReference.findOrCreate(type.getClassLoader(), getString(member(id, 3)));
+    return FieldReference.findOrCreate(
+        type, Atom.findOrCreateUnicodeAtom(getString(member(id, 2))), fieldType);
+  }
+
+  /**
+   * @return the id of a method reference, or -1 if it is not in the file
+   */
+  int findMember(MethodReference m) {
+    return findMember(names(m));
+  }
+
+  /**
+   * @return the id of a field reference, or -1 if it is not in the file
+   */
+  int findMember(FieldReference f) {
+    return findMember(names(f));
+  }
+
+  private int findMember(List<String> names) {
+    int[] key = new int[names.size()];
+    for (int i = 0; i < key.length; i++) {
+      key[i] = findString(names.get(i));
+      if (key[i] < 0) {
+        return -1;
+      }
+    }
+    int low = 0;
+    int high = count(MEMBERS) - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int c = 0;
+      for (int i = 0; c == 0 && i < key.length; i++) {
+        c = Integer.compare(member(mid, i), key[i]);
+      }
+      if (c < 0) {
+        low = mid + 1;
+      } else if (c > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+}
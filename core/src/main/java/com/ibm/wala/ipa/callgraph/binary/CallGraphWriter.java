@@ -0,0 +1,479 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.binary;
+
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.ARRAY_CONTENTS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.DATA;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.ENTRYPOINTS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.EXCEPTION_RETURN_VALUE;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.HEADER_SIZE;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.INSTANCE_FIELD;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.INSTANCE_KEYS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.LOCAL;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.MAGIC;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.MEMBERS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.NODES;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.NODES_BY_METHOD;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.POINTER_KEYS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.RETURN_VALUE;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.SECTIONS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.STATIC;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.STATIC_FIELD;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.STRINGS;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.VERSION;
+import static com.ibm.wala.ipa.callgraph.binary.BinaryFormat.names;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.propagation.ArrayContentsKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.ReturnValueKey;
+import com.ibm.wala.ipa.callgraph.propagation.StaticFieldKey;
+import com.ibm.wala.ipa.callgraph.propagation.cfa.ExceptionReturnValueKey;
+import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.OrdinalSet;
+import com.ibm.wala.util.intset.OrdinalSetMapping;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Writes a call graph and a pointer analysis over it to a compact binary file, which {@link
+ * CallGraphReader} can map into memory later, so that clients need not build them again.
+ *
+ * <p>Methods, fields and types are written as references, which the reader resolves against a
+ * class hierarchy. Contexts and instance keys are written as their string representation, their
+ * concrete type and their creation sites. Local, return value, field and array contents pointer
+ * keys are written with their points-to sets; other pointer keys are skipped. Only {@link
+ * IInvokeInstruction.Dispatch Java dispatch} codes are supported at call sites.
+ *
+ * @see BinaryFormat
+ */
+public class CallGraphWriter {
+
+  private final CallGraph cg;
+
+  private final PointerAnalysis<? extends InstanceKey> pa;
+
+  /** all strings, then the id of each one once they are sorted */
+  private final Map<String, Integer> strings = HashMapFactory.make();
+
+  /** each member as the strings naming it, then the id of each one once they are sorted */
+  private final Map<List<String>, Integer> members = HashMapFactory.make();
+
+  /** the pointer keys to write, and their encoding as (kind, a, member) */
+  private final List<Pair<PointerKey, Object[]>> pointerKeys = new ArrayList<>();
+
+  private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+  private final DataOutputStream dataOut = new DataOutputStream(data);
+
+  private CallGraphWriter(CallGraph cg, PointerAnalysis<? extends InstanceKey> pa) {
+    this.cg = cg;
+    this.pa = pa;
+  }
+
+  /**
+   * Write cg and pa to a file.
+   *
+   * @param pa a pointer analysis over cg, or null to write the call graph only
+   * @throws IllegalArgumentException if cg is null, or if a call site has an unsupported dispatch
+   *     code
+   */
+  public static void write(
+      CallGraph cg, PointerAnalysis<? extends InstanceKey> pa, Path file) throws IOException {
+    if (cg == null) {
+      throw new IllegalArgumentException("cg is null");
+    }
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file))) {
+      new CallGraphWriter(cg, pa).write(out);
+    }
+  }
+
+  private void write(OutputStream out) throws IOException {
+    collect();
+    assignIds(strings, Comparator.naturalOrder());
+    assignIds(members, Comparator.comparing(this::memberTuple, Arrays::compare));
+
+    byte[][] sections = new byte[SECTIONS][];
+    sections[STRINGS] = writeStrings();
+    sections[MEMBERS] = writeMembers();
+    sections[NODES] = writeNodes();
+    sections[NODES_BY_METHOD] = writeNodesByMethod();
+    sections[ENTRYPOINTS] = writeEntrypoints();
+    sections[INSTANCE_KEYS] = writeInstanceKeys();
+    sections[POINTER_KEYS] = writePointerKeys();
+    dataOut.flush();
+    sections[DATA] = data.toByteArray();
+
+    DataOutputStream o = new DataOutputStream(out);
+    o.writeInt(MAGIC);
+    o.writeInt(VERSION);
+    long offset = HEADER_SIZE;
+    for (byte[] section : sections) {
+      if (offset + section.length > Integer.MAX_VALUE) {
+        throw new IOException("call graph too large for the binary format");
+      }
+      o.writeInt((int) offset);
+      offset += section.length;
+    }
+    for (byte[] section : sections) {
+      o.write(section);
+    }
+    o.flush();
+  }
+
+  /** Record all strings and members, with placeholder ids. */
+  private void collect() {
+    string("");
+    for (CGNode n : cg) {
+      member(n.getMethod().getReference());
+      string(n.getContext().toString());
+      for (CallSiteReference site : Iterator2Iterable.make(n.iterateCallSites())) {
+        member(site.getDeclaredTarget());
+      }
+      for (NewSiteReference site : Iterator2Iterable.make(n.iterateNewSites())) {
+        type(site.getDeclaredType());
+      }
+    }
+    if (pa == null) {
+      return;
+    }
+    for (InstanceKey ik : instanceKeys()) {
+      if (ik != null) {
+        type(concreteType(ik));
+        string(ik.toString());
+        for (Pair<CGNode, NewSiteReference> p : Iterator2Iterable.make(ik.getCreationSites(cg))) {
+          type(p.snd.getDeclaredType());
+        }
+      }
+    }
+    OrdinalSetMapping<? extends InstanceKey> mapping = pa.getInstanceKeyMapping();
+    for (PointerKey key : pa.getPointerKeys()) {
+      Object[] encoding = null;
+      if (key instanceof LocalPointerKey) {
+        LocalPointerKey l = (LocalPointerKey) key;
+        encoding = new Object[] {LOCAL, cg.getNumber(l.getNode()), l.getValueNumber()};
+      } else if (key instanceof ExceptionReturnValueKey) {
+        encoding =
+            new Object[] {
+              EXCEPTION_RETURN_VALUE, cg.getNumber(((ExceptionReturnValueKey) key).getNode()), 0
+            };
+      } else if (key instanceof ReturnValueKey) {
+        encoding = new Object[] {RETURN_VALUE, cg.getNumber(((ReturnValueKey) key).getNode()), 0};
+      } else if (key instanceof StaticFieldKey) {
+        FieldReference f = ((StaticFieldKey) key).getField().getReference();
+        member(f);
+        encoding = new Object[] {STATIC_FIELD, 0, names(f)};
+      } else if (key instanceof InstanceFieldKey) {
+        InstanceFieldKey k = (InstanceFieldKey) key;
+        FieldReference f = k.getField().getReference();
+        member(f);
+        encoding = new Object[] {INSTANCE_FIELD, index(mapping, k.getInstanceKey()), names(f)};
+      } else if (key instanceof ArrayContentsKey) {
+        encoding =
+            new Object[] {
+              ARRAY_CONTENTS, index(mapping, ((ArrayContentsKey) key).getInstanceKey()), 0
+            };
+      }
+      if (encoding != null && (int) encoding[1] >= 0) {
+        pointerKeys.add(Pair.make(key, encoding));
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int index(OrdinalSetMapping<? extends InstanceKey> mapping, InstanceKey ik) {
+    return ((OrdinalSetMapping<InstanceKey>) mapping).getMappedIndex(ik);
+  }
+
+  private List<? extends InstanceKey> instanceKeys() {
+    OrdinalSetMapping<? extends InstanceKey> mapping = pa.getInstanceKeyMapping();
+    List<InstanceKey> result = new ArrayList<>();
+    for (int i = 0; i <= mapping.getMaximumIndex(); i++) {
+      result.add(mapping.getMappedObject(i));
+    }
+    return result;
+  }
+
+  private static TypeReference concreteType(InstanceKey ik) {
+    IClass type = ik.getConcreteType();
+    return type == null ? null : type.getReference();
+  }
+
+  private void string(String s) {
+    strings.putIfAbsent(s, -1);
+  }
+
+  private void type(TypeReference t) {
+    for (String s : names(t)) {
+      string(s);
+    }
+  }
+
+  private void member(MethodReference m) {
+    addMember(names(m));
+  }
+
+  private void member(FieldReference f) {
+    addMember(names(f));
+  }
+
+  private void addMember(List<String> key) {
+    if (members.putIfAbsent(key, -1) == null) {
+      key.forEach(this::string);
+    }
+  }
+
+  private int[] memberTuple(List<String> key) {
+    return key.stream().mapToInt(strings::get).toArray();
+  }
+
+  /** Number the keys of m in the given order. */
+  private static <K> void assignIds(Map<K, Integer> m, Comparator<? super K> order) {
+    List<K> keys = new ArrayList<>(m.keySet());
+    keys.sort(order);
+    for (int i = 0; i < keys.size(); i++) {
+      m.put(keys.get(i), i);
+    }
+  }
+
+  private int stringId(String s) {
+    return strings.get(s);
+  }
+
+  private int dataOffset() {
+    return dataOut.size();
+  }
+
+  private void writeType(DataOutputStream out, TypeReference t) throws IOException {
+    for (String s : names(t)) {
+      out.writeInt(stringId(s));
+    }
+  }
+
+  private byte[] writeStrings() throws IOException {
+    String[] sorted = new String[strings.size()];
+    strings.forEach((s, id) -> sorted[id] = s);
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(b);
+    out.writeInt(sorted.length);
+    int offset = 4 + 4 * sorted.length;
+    byte[][] bytes = new byte[sorted.length][];
+    for (int i = 0; i < sorted.length; i++) {
+      bytes[i] = sorted[i].getBytes(StandardCharsets.UTF_8);
+      out.writeInt(offset);
+      offset += 4 + bytes[i].length;
+    }
+    for (byte[] s : bytes) {
+      out.writeInt(s.length);
+      out.write(s);
+    }
+    return b.toByteArray();
+  }
+
+  private byte[] writeMembers() throws IOException {
+    List<int[]> sorted = new ArrayList<>(Collections.nCopies(members.size(), null));
+    members.forEach((key, id) -> sorted.set(id, memberTuple(key)));
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(b);
+    out.writeInt(sorted.size());
+    for (int[] tuple : sorted) {
+      for (int x : tuple) {
+        out.writeInt(x);
+      }
+    }
+    return b.toByteArray();
+  }
+
+  private byte[] writeNodes() throws IOException {
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(b);
+    out.writeInt(cg.getMaxNumber() + 1);
+    for (int i = 0; i <= cg.getMaxNumber(); i++) {
+      CGNode n = cg.getNode(i);
+      if (n == null) {
+        for (int k = 0; k < 6; k++) {
+          out.writeInt(-1);
+        }
+        continue;
+      }
+      out.writeInt(members.get(names(n.getMethod().getReference())));
+      out.writeInt(stringId(n.getContext().toString()));
+      out.writeInt(n.getMethod().isStatic() ? STATIC : 0);
+
+      out.writeInt(dataOffset());
+      List<CallSiteReference> sites = new ArrayList<>();
+      n.iterateCallSites().forEachRemaining(sites::add);
+      dataOut.writeInt(sites.size());
+      for (CallSiteReference site : sites) {
+        if (!(site.getInvocationCode() instanceof IInvokeInstruction.Dispatch)) {
+          throw new IllegalArgumentException("unsupported dispatch at " + site);
+        }
+        dataOut.writeInt(site.getProgramCounter());
+        dataOut.writeInt(members.get(names(site.getDeclaredTarget())));
+        dataOut.writeInt(((IInvokeInstruction.Dispatch) site.getInvocationCode()).ordinal());
+        TreeSet<Integer> targets = new TreeSet<>();
+        for (CGNode target : cg.getPossibleTargets(n, site)) {
+          targets.add(cg.getNumber(target));
+        }
+        dataOut.writeInt(targets.size());
+        for (int t : targets) {
+          dataOut.writeInt(t);
+        }
+      }
+
+      out.writeInt(dataOffset());
+      TreeSet<Integer> preds = new TreeSet<>();
+      cg.getPredNodes(n).forEachRemaining(p -> preds.add(cg.getNumber(p)));
+      dataOut.writeInt(preds.size());
+      for (int p : preds) {
+        dataOut.writeInt(p);
+      }
+
+      out.writeInt(dataOffset());
+      List<NewSiteReference> newSites = new ArrayList<>();
+      n.iterateNewSites().forEachRemaining(newSites::add);
+      dataOut.writeInt(newSites.size());
+      for (NewSiteReference site : newSites) {
+        dataOut.writeInt(site.getProgramCounter());
+        writeType(dataOut, site.getDeclaredType());
+      }
+    }
+    return b.toByteArray();
+  }
+
+  private byte[] writeNodesByMethod() throws IOException {
+    List<int[]> pairs = new ArrayList<>();
+    for (CGNode n : cg) {
+      pairs.add(new int[] {members.get(names(n.getMethod().getReference())), cg.getNumber(n)});
+    }
+    pairs.sort(Arrays::compare);
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(b);
+    out.writeInt(pairs.size());
+    for (int[] p : pairs) {
+      out.writeInt(p[0]);
+      out.writeInt(p[1]);
+    }
+    return b.toByteArray();
+  }
+
+  private byte[] writeEntrypoints() throws IOException {
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(b);
+    out.writeInt(cg.getEntrypointNodes().size());
+    out.writeInt(cg.getNumber(cg.getFakeRootNode()));
+    CGNode clinit = cg.getFakeWorldClinitNode();
+    out.writeInt(clinit == null ? -1 : cg.getNumber(clinit));
+    for (CGNode n : cg.getEntrypointNodes()) {
+      out.writeInt(cg.getNumber(n));
+    }
+    return b.toByteArray();
+  }
+
+  private byte[] writeInstanceKeys() throws IOException {
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(b);
+    if (pa == null) {
+      out.writeInt(0);
+      return b.toByteArray();
+    }
+    List<? extends InstanceKey> keys = instanceKeys();
+    out.writeInt(keys.size());
+    for (InstanceKey ik : keys) {
+      if (ik == null) {
+        writeType(out, null);
+        out.writeInt(stringId(""));
+        out.writeInt(-1);
+        continue;
+      }
+      writeType(out, concreteType(ik));
+      out.writeInt(stringId(ik.toString()));
+      out.writeInt(dataOffset());
+      List<Pair<CGNode, NewSiteReference>> sites = new ArrayList<>();
+      ik.getCreationSites(cg).forEachRemaining(sites::add);
+      dataOut.writeInt(sites.size());
+      for (Pair<CGNode, NewSiteReference> p : sites) {
+        dataOut.writeInt(cg.getNumber(p.fst));
+        dataOut.writeInt(p.snd.getProgramCounter());
+        writeType(dataOut, p.snd.getDeclaredType());
+      }
+    }
+    return b.toByteArray();
+  }
+
+  private byte[] writePointerKeys() throws IOException {
+    List<int[]> records = new ArrayList<>();
+    for (Pair<PointerKey, Object[]> p : pointerKeys) {
+      Object[] e = p.snd;
+      int b = e[2] instanceof List ? members.get(e[2]) : (int) e[2];
+      records.add(new int[] {(int) e[0], (int) e[1], b, dataOffset()});
+      OrdinalSet<? extends InstanceKey> pointsTo = pa.getPointsToSet(p.fst);
+      MutableSparseIntSet ids = MutableSparseIntSet.makeEmpty();
+      for (InstanceKey ik : pointsTo) {
+        ids.add(index(pa.getInstanceKeyMapping(), ik));
+      }
+      writeVarInt(ids.size());
+      int last = 0;
+      for (IntIterator it = ids.intIterator(); it.hasNext(); ) {
+        int id = it.next();
+        writeVarInt(id - last);
+        last = id;
+      }
+    }
+    records.sort(Comparator.comparing(r -> Arrays.copyOf(r, 3), Arrays::compare));
+    ByteArrayOutputStream b = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(b);
+    out.writeInt(records.size());
+    for (int[] r : records) {
+      for (int x : r) {
+        out.writeInt(x);
+      }
+    }
+    return b.toByteArray();
+  }
+
+  private void writeVarInt(int x) throws IOException {
+    while ((x & ~0x7f) != 0) {
+      dataOut.writeByte((x & 0x7f) | 0x80);
+      x >>>= 7;
+    }
+    dataOut.writeByte(x);
+  }
+}
@@ -29,7 +29,7 @@ import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.collections.FilterIterator;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.IntMapIterator;
-import com.ibm.wala.util.collections.SparseVector;
+import com.ibm.wala.util.collections.IntObjectMap;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.graph.NumberedEdgeManager;
 import com.ibm.wala.util.intset.IntIterator;
@@ -124,7 +124,7 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
      * we've discovered exactly one target for the site, or an IntSet of node numbers if we've
      * discovered more than one target for the site.
      */
-    protected final SparseVector<Object> targets = new SparseVector<>();
+    protected final IntObjectMap<Object> targets = new IntObjectMap<>();
 
     private final MutableSharedBitVectorIntSet allTargets = new MutableSharedBitVectorIntSet();
 
@@ -197,7 +197,7 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
       Object S = targets.get(pc);
       if (S == null) {
         S = tNode;
-        targets.set(pc, S);
+        targets.put(pc, S);
         getCallGraph().addEdge(this, tNode);
         return true;
       } else {
@@ -209,7 +209,7 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
             s.add(getCallGraph().getNumber((CGNode) S));
             s.add(getCallGraph().getNumber(tNode));
             getCallGraph().addEdge(this, tNode);
-            targets.set(pc, s);
+            targets.put(pc, s);
             return true;
           }
         } else {
@@ -228,8 +228,7 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
 
     public void removeTarget(CGNode target) {
       allTargets.remove(getCallGraph().getNumber(target));
-      for (IntIterator it = targets.safeIterateIndices(); it.hasNext(); ) {
-        int pc = it.next();
+      for (int pc : targets.keys()) {
         Object value = targets.get(pc);
         if (value instanceof CGNode) {
           if (value.equals(target)) {
@@ -245,7 +244,7 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
             if (s.contains(n)) {
               s.remove(n);
               int i = s.intIterator().next();
-              targets.set(pc, getCallGraph().getNode(i));
+              targets.put(pc, getCallGraph().getNode(i));
             }
           }
         }
@@ -304,6 +303,26 @@ public class ExplicitCallGraph extends BasicCallGraph<SSAContextInterpreter>
       return du;
     }
 
+    /** Forget the IR and DefUse kept for this node, so that they are computed again when needed. */
+    public void clearIR() {
+      ir = new WeakReference<>(null);
+      du = new WeakReference<>(null);
+    }
+
+    /**
+     * Make this node represent m, a new version of its method, e.g., from a class that replaced the
+     * declaring class of its method. The IR and DefUse kept for this node are forgotten.
+     *
+     * @throws IllegalArgumentException if m is not equal to the method of this node
+     */
+    public void replaceMethod(IMethod m) {
+      if (!method.equals(m)) {
+        throw new IllegalArgumentException("cannot replace " + method + " by " + m);
+      }
+      method = m;
+      clearIR();
+    }
+
     public ExplicitCallGraph getCallGraph() {
       return ExplicitCallGraph.this;
     }
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+/**
+ * Receives periodic samples of the progress of a {@link PropagationCallGraphBuilder}.
+ *
+ * @see PropagationCallGraphBuilder#setListener(CallGraphBuilderListener, long)
+ */
+public interface CallGraphBuilderListener {
+
+  /**
+   * Called on the thread building the call graph, at most once per sampling interval while the
+   * constraint system is being solved, and once more when call graph construction ends, whether it
+   * completed or not.
+   */
+  void sample(CallGraphBuilderMetrics metrics);
+}
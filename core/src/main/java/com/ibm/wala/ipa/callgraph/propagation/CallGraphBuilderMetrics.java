@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.graph.INodeWithNumber;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A sample of the progress of a {@link PropagationCallGraphBuilder}, handed to a {@link
+ * CallGraphBuilderListener}.
+ *
+ * <p>The counters are read when the sample is taken. {@link #getPointsToSetSizeHistogram()} and
+ * {@link #getIRConstructionNanos()} are computed from the live state of the builder, and so should
+ * only be called from within {@link CallGraphBuilderListener#sample(CallGraphBuilderMetrics)}.
+ */
+public class CallGraphBuilderMetrics {
+
+  private final PropagationSystem system;
+
+  private final boolean finished;
+
+  private final long elapsedMillis;
+
+  private final int numberOfEvaluations;
+
+  private final double evaluationsPerSecond;
+
+  private final int workListSize;
+
+  private final int numberOfStatements;
+
+  private final int numberOfNodes;
+
+  private final long contextSelectorNanos;
+
+  private final long contextInterpreterNanos;
+
+  private final Map<IMethod, Long> irConstructionNanos;
+
+  CallGraphBuilderMetrics(
+      PropagationSystem system,
+      boolean finished,
+      long elapsedMillis,
+      double evaluationsPerSecond,
+      int numberOfNodes,
+      long contextSelectorNanos,
+      long contextInterpreterNanos,
+      Map<IMethod, Long> irConstructionNanos) {
+    this.system = system;
+    this.finished = finished;
+    this.elapsedMillis = elapsedMillis;
+    this.numberOfEvaluations = system.getNumberOfEvaluations();
+    this.evaluationsPerSecond = evaluationsPerSecond;
+    this.workListSize = system.getWorkListSize();
+    this.numberOfStatements = system.getNumberOfStatementsCreated();
+    this.numberOfNodes = numberOfNodes;
+    this.contextSelectorNanos = contextSelectorNanos;
+    this.contextInterpreterNanos = contextInterpreterNanos;
+    this.irConstructionNanos = Collections.unmodifiableMap(irConstructionNanos);
+  }
+
+  /**
+   * @return true iff this is the last sample, taken when call graph construction ended
+   */
+  public boolean isFinished() {
+    return finished;
+  }
+
+  /**
+   * @return the time since the solver started, in milliseconds
+   */
+  public long getElapsedMillis() {
+    return elapsedMillis;
+  }
+
+  /**
+   * @return the number of statements evaluated so far
+   */
+  public int getNumberOfEvaluations() {
+    return numberOfEvaluations;
+  }
+
+  /**
+   * @return the number of statements evaluated per second since the previous sample
+   */
+  public double getEvaluationsPerSecond() {
+    return evaluationsPerSecond;
+  }
+
+  /**
+   * @return the number of statements on the work list
+   */
+  public int getWorkListSize() {
+    return workListSize;
+  }
+
+  /**
+   * @return the number of statements added to the constraint system so far
+   */
+  public int getNumberOfStatements() {
+    return numberOfStatements;
+  }
+
+  /**
+   * @return the number of nodes of the call graph
+   */
+  public int getNumberOfNodes() {
+    return numberOfNodes;
+  }
+
+  /**
+   * @return the total time spent in the {@link com.ibm.wala.ipa.callgraph.ContextSelector}, in
+   *     nanoseconds
+   */
+  public long getContextSelectorNanos() {
+    return contextSelectorNanos;
+  }
+
+  /**
+   * @return the total time spent in the {@link SSAContextInterpreter}, including IR construction,
+   *     in nanoseconds
+   */
+  public long getContextInterpreterNanos() {
+    return contextInterpreterNanos;
+  }
+
+  /**
+   * @return for each method whose IR has been asked for, the time taken by the first request, in
+   *     nanoseconds; this is when the IR is built, unless it was already in the analysis cache
+   */
+  public Map<IMethod, Long> getIRConstructionNanos() {
+    return irConstructionNanos;
+  }
+
+  /**
+   * Compute the distribution of the sizes of all points-to sets. This iterates over every variable
+   * of the constraint system.
+   *
+   * @return a histogram h, where h[0] is the number of empty points-to sets, and h[i], for i &gt;
+   *     0, the number of points-to sets whose size is at least 2<sup>i-1</sup> and less than
+   *     2<sup>i</sup>
+   */
+  public int[] getPointsToSetSizeHistogram() {
+    int[] result = new int[Integer.SIZE];
+    int max = 0;
+    for (INodeWithNumber n : Iterator2Iterable.make(system.getFixedPointSystem().getVariables())) {
+      PointsToSetVariable v = (PointsToSetVariable) n;
+      int size = v.getValue() == null ? 0 : v.getValue().size();
+      int bucket = Integer.SIZE - Integer.numberOfLeadingZeros(size);
+      result[bucket]++;
+      max = Math.max(max, bucket);
+    }
+    return Arrays.copyOf(result, max + 1);
+  }
+
+  @Override
+  public String toString() {
+    return "elapsed: "
+        + elapsedMillis
+        + " ms, evaluations: "
+        + numberOfEvaluations
+        + " ("
+        + Math.round(evaluationsPerSecond)
+        + "/s), work list: "
+        + workListSize
+        + ", statements: "
+        + numberOfStatements
+        + ", nodes: "
+        + numberOfNodes
+        + ", context selector: "
+        + contextSelectorNanos / 1000000
+        + " ms, context interpreter: "
+        + contextInterpreterNanos / 1000000
+        + " ms";
+  }
+}
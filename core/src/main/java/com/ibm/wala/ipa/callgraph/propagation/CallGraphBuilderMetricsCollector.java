@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.cfg.ControlFlowGraph;
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.fixedpoint.impl.AbstractFixedPointSolver;
+import com.ibm.wala.fixedpoint.impl.SolverListener;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.ssa.IRView;
+import com.ibm.wala.ssa.ISSABasicBlock;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.util.intset.IntSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects the {@link CallGraphBuilderMetrics} of one run of a {@link PropagationCallGraphBuilder},
+ * and hands them to a {@link CallGraphBuilderListener}.
+ *
+ * <p>The time spent in the context selector and context interpreter is measured by wrapping them,
+ * so that no timing code runs unless a listener is registered.
+ */
+class CallGraphBuilderMetricsCollector implements SolverListener {
+
+  private final PropagationCallGraphBuilder builder;
+
+  private final CallGraphBuilderListener listener;
+
+  private final long start = System.nanoTime();
+
+  private long lastSampleTime = start;
+
+  private int lastSampleEvaluations = 0;
+
+  private final LongAdder contextSelectorNanos = new LongAdder();
+
+  private final LongAdder contextInterpreterNanos = new LongAdder();
+
+  private final Map<IMethod, Long> irConstructionNanos = new ConcurrentHashMap<>();
+
+  CallGraphBuilderMetricsCollector(
+      PropagationCallGraphBuilder builder, CallGraphBuilderListener listener) {
+    this.builder = builder;
+    this.listener = listener;
+  }
+
+  @Override
+  public void sample(AbstractFixedPointSolver<?> solver) {
+    listener.sample(makeMetrics(false));
+  }
+
+  /** Hand the last sample to the listener. */
+  void finish() {
+    listener.sample(makeMetrics(true));
+  }
+
+  private CallGraphBuilderMetrics makeMetrics(boolean finished) {
+    PropagationSystem system = builder.getPropagationSystem();
+    long now = System.nanoTime();
+    int evaluations = system.getNumberOfEvaluations();
+    double seconds = (now - lastSampleTime) / 1e9;
+    double evaluationsPerSecond =
+        seconds > 0 ? (evaluations - lastSampleEvaluations) / seconds : 0.0;
+    lastSampleTime = now;
+    lastSampleEvaluations = evaluations;
+    return new CallGraphBuilderMetrics(
+        system,
+        finished,
+        TimeUnit.NANOSECONDS.toMillis(now - start),
+        evaluationsPerSecond,
+        builder.getCallGraph().getNumberOfNodes(),
+        contextSelectorNanos.sum(),
+        contextInterpreterNanos.sum(),
+        irConstructionNanos);
+  }
+
+  /**
+   * @return a context selector that behaves like the given one, and records the time spent in it
+   */
+  ContextSelector time(ContextSelector delegate) {
+    return new ContextSelector() {
+      @Override
+      public Context getCalleeTarget(
+          CGNode caller, CallSiteReference site, IMethod callee, InstanceKey[] actualParameters) {
+        long t = System.nanoTime();
+        try {
+          return delegate.getCalleeTarget(caller, site, callee, actualParameters);
+        } finally {
+          contextSelectorNanos.add(System.nanoTime() - t);
+        }
+      }
+
+      @Override
+      public IntSet getRelevantParameters(CGNode caller, CallSiteReference site) {
+        long t = System.nanoTime();
+        try {
+          return delegate.getRelevantParameters(caller, site);
+        } finally {
+          contextSelectorNanos.add(System.nanoTime() - t);
+        }
+      }
+    };
+  }
+
+  /**
+   * @return a context interpreter that behaves like the given one, and records the time spent in
+   *     it, and the time taken by the first request for the IR of each method
+   */
+  SSAContextInterpreter time(SSAContextInterpreter delegate) {
+    return new TimedContextInterpreter(delegate);
+  }
+
+  private class TimedContextInterpreter implements SSAContextInterpreter {
+
+    private final SSAContextInterpreter delegate;
+
+    TimedContextInterpreter(SSAContextInterpreter delegate) {
+      this.delegate = delegate;
+    }
+
+    private void record(long t) {
+      contextInterpreterNanos.add(System.nanoTime() - t);
+    }
+
+    private void recordIR(CGNode node, long t) {
+      long elapsed = System.nanoTime() - t;
+      contextInterpreterNanos.add(elapsed);
+      irConstructionNanos.putIfAbsent(node.getMethod(), elapsed);
+    }
+
+    @Override
+    public IR getIR(CGNode node) {
+      long t = System.nanoTime();
+      try {
+        return delegate.getIR(node);
+      } finally {
+        recordIR(node, t);
+      }
+    }
+
+    @Override
+    public IRView getIRView(CGNode node) {
+      long t = System.nanoTime();
+      try {
+        return delegate.getIRView(node);
+      } finally {
+        recordIR(node, t);
+      }
+    }
+
+    @Override
+    public DefUse getDU(CGNode node) {
+      long t = System.nanoTime();
+      try {
+        return delegate.getDU(node);
+      } finally {
+        record(t);
+      }
+    }
+
+    @Override
+    public int getNumberOfStatements(CGNode node) {
+      long t = System.nanoTime();
+      try {
+        return delegate.getNumberOfStatements(node);
+      } finally {
+        record(t);
+      }
+    }
+
+    @Override
+    public ControlFlowGraph<SSAInstruction, ISSABasicBlock> getCFG(CGNode n) {
+      long t = System.nanoTime();
+      try {
+        return delegate.getCFG(n);
+      } finally {
+        record(t);
+      }
+    }
+
+    @Override
+    public Iterator<NewSiteReference> iterateNewSites(CGNode node) {
+      long t = System.nanoTime();
+      try {
+        return delegate.iterateNewSites(node);
+      } finally {
+        record(t);
+      }
+    }
+
+    @Override
+    public Iterator<FieldReference> iterateFieldsRead(CGNode node) {
+      long t = System.nanoTime();
+      try {
+        return delegate.iterateFieldsRead(node);
+      } finally {
+        record(t);
+      }
+    }
+
+    @Override
+    public Iterator<FieldReference> iterateFieldsWritten(CGNode node) {
+      long t = System.nanoTime();
+      try {
+        return delegate.iterateFieldsWritten(node);
+      } finally {
+        record(t);
+      }
+    }
+
+    @Override
+    public boolean recordFactoryType(CGNode node, IClass klass) {
+      long t = System.nanoTime();
+      try {
+        return delegate.recordFactoryType(node, klass);
+      } finally {
+        record(t);
+      }
+    }
+
+    @Override
+    public boolean understands(CGNode node) {
+      long t = System.nanoTime();
+      try {
+        return delegate.understands(node);
+      } finally {
+        record(t);
+      }
+    }
+
+    @Override
+    public Iterator<CallSiteReference> iterateCallSites(CGNode node) {
+      long t = System.nanoTime();
+      try {
+        return delegate.iterateCallSites(node);
+      } finally {
+        record(t);
+      }
+    }
+  }
+}
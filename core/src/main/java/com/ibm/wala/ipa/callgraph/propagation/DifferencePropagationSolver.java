@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+
+/**
+ * A pointer analysis solver that uses difference propagation for assignments.
+ *
+ * <p>With the {@link StandardSolver}, every change to a variable re-evaluates each {@link
+ * AssignEquation} that uses it, unioning the entire right-hand side into the left-hand side. On a
+ * long chain of copies, the cost of propagating n instance keys one at a time is thus quadratic.
+ * This solver instead has each {@link PointsToSetVariable} record the instance keys added to it
+ * since it was last propagated, and pushes only that delta along the implicit assignment equations
+ * of the {@link PropagationGraph}. All other statements are evaluated from the work list, as
+ * before.
+ */
+public class DifferencePropagationSolver extends StandardSolver {
+
+  public DifferencePropagationSolver(
+      PropagationSystem system, PropagationCallGraphBuilder builder) {
+    super(system, builder);
+  }
+
+  @Override
+  public void solve(IProgressMonitor monitor) throws IllegalArgumentException, CancelException {
+    getSystem().enableDifferencePropagation();
+    super.solve(monitor);
+  }
+
+  @Override
+  protected void solveSystem(IProgressMonitor monitor) throws CancelException {
+    PropagationSystem system = getSystem();
+    do {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      // first flow pending deltas through the copy edges, then evaluate the remaining statements,
+      // which may in turn produce new deltas
+      system.propagateDeltas(monitor);
+      system.solve(monitor);
+    } while (!system.emptyWorkList());
+  }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.callgraph.propagation;
+
+import com.ibm.wala.fixedpoint.impl.AbstractFixedPointSolver;
+import com.ibm.wala.fixedpoint.impl.Worklist;
+import com.ibm.wala.fixpoint.AbstractStatement;
+import com.ibm.wala.fixpoint.UnaryOperator;
+import com.ibm.wala.fixpoint.UnaryStatement;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey.MultipleClassesFilter;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey.SingleClassFilter;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey.TypeFilter;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A pointer analysis solver that evaluates simple propagation statements on several threads.
+ *
+ * <p>The work list is drained in rounds. Each round takes a batch of statements from the work list
+ * whose operators cannot give rise to new constraints (assignments and class-based filters), and
+ * which do not conflict: no variable written by the batch is read by a statement of the batch that
+ * defines a different variable. The batch is partitioned by left-hand side, and each partition is
+ * evaluated by a single worker thread, so every {@link PointsToSetVariable} is written by at most
+ * one thread and only read by others when nobody writes it. Complex statements taken in the same
+ * round (field accesses, dispatch, ...) are evaluated afterwards, one at a time on the calling
+ * thread, exactly as in the {@link StandardSolver}.
+ *
+ * <p>Since the system is monotone, this chaotic iteration reaches the same least fixed point as the
+ * sequential solver, and the set of constraints and call graph nodes discovered is the same.
+ */
+public class ParallelSolver extends StandardSolver {
+
+  /** maximum number of statements evaluated in one parallel round */
+  private static final int MAX_BATCH_SIZE = 1 << 14;
+
+  /** rounds with fewer left-hand sides than this are evaluated on the calling thread */
+  private static final int MIN_PARALLEL_GROUPS = 16;
+
+  private final int nThreads;
+
+  private ForkJoinPool pool;
+
+  public ParallelSolver(
+      PropagationSystem system, PropagationCallGraphBuilder builder, int nThreads) {
+    super(system, builder);
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("invalid number of threads: " + nThreads);
+    }
+    this.nThreads = nThreads;
+  }
+
+  @Override
+  public void solve(IProgressMonitor monitor) throws IllegalArgumentException, CancelException {
+    pool = new ForkJoinPool(nThreads);
+    try {
+      super.solve(monitor);
+    } finally {
+      pool.shutdownNow();
+      pool = null;
+    }
+  }
+
+  @Override
+  protected void solveSystem(IProgressMonitor monitor) throws CancelException {
+    PropagationSystem system = getSystem();
+    if (system.isFirstSolve()) {
+      system.initForFirstSolve();
+    }
+    while (!system.emptyWorkList()) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      system.orderStatements();
+
+      List<AbstractStatement<?, ?>> batch = new ArrayList<>();
+      List<AbstractStatement<?, ?>> complex = new ArrayList<>();
+      takeBatch(system.getWorklist(), batch, complex);
+
+      Map<PointsToSetVariable, List<Integer>> groups = groupByLHS(batch);
+      byte[] codes = new byte[batch.size()];
+      if (groups.size() < MIN_PARALLEL_GROUPS) {
+        for (int i = 0; i < batch.size(); i++) {
+          codes[i] = batch.get(i).evaluate();
+        }
+      } else {
+        evaluateInParallel(batch, groups, codes);
+      }
+      // incorporate the results on this thread, in work list order
+      for (int i = 0; i < batch.size(); i++) {
+        incorporate(batch.get(i), codes[i]);
+      }
+
+      // complex statements may add new constraints, so they are evaluated one at a time
+      for (AbstractStatement<?, ?> s : complex) {
+        incorporate(s, s.evaluate());
+      }
+    }
+  }
+
+  /**
+   * Take the next round of statements from the work list. Statements that can be evaluated
+   * concurrently are added to {@code batch}, as long as they do not conflict with the statements
+   * already there; conflicting statements are put back on the work list. All other statements are
+   * added to {@code complex}.
+   */
+  private static void takeBatch(
+      Worklist workList,
+      List<AbstractStatement<?, ?>> batch,
+      List<AbstractStatement<?, ?>> complex) {
+    List<AbstractStatement<?, ?>> deferred = new ArrayList<>();
+    Set<PointsToSetVariable> defs = Collections.newSetFromMap(new IdentityHashMap<>());
+    Set<PointsToSetVariable> uses = Collections.newSetFromMap(new IdentityHashMap<>());
+    while (!workList.isEmpty() && batch.size() + complex.size() < MAX_BATCH_SIZE) {
+      AbstractStatement<?, ?> s = workList.takeStatement();
+      if (!isParallelizable(s)) {
+        complex.add(s);
+        continue;
+      }
+      UnaryStatement<?> u = (UnaryStatement<?>) s;
+      PointsToSetVariable lhs = (PointsToSetVariable) u.getLHS();
+      PointsToSetVariable rhs = (PointsToSetVariable) u.getRightHandSide();
+      boolean selfLoop = lhs == rhs;
+      if (uses.contains(lhs) || (!selfLoop && defs.contains(rhs))) {
+        deferred.add(s);
+        continue;
+      }
+      defs.add(lhs);
+      if (!selfLoop) {
+        uses.add(rhs);
+      }
+      batch.add(s);
+    }
+    for (AbstractStatement<?, ?> s : deferred) {
+      workList.insertStatement(s);
+    }
+  }
+
+  /**
+   * Can the statement be evaluated concurrently with other statements? This holds for statements
+   * that only read their right-hand side and write their left-hand side, without touching any other
+   * state of the system.
+   */
+  private static boolean isParallelizable(AbstractStatement<?, ?> s) {
+    if (!(s instanceof UnaryStatement) || s.getLHS() == null) {
+      return false;
+    }
+    UnaryOperator<?> op = (UnaryOperator<?>) s.getOperator();
+    if (op instanceof AssignOperator) {
+      return true;
+    }
+    if (op instanceof FilterOperator) {
+      PointsToSetVariable lhs = (PointsToSetVariable) s.getLHS();
+      if (lhs.getPointerKey() instanceof FilteredPointerKey) {
+        TypeFilter filter = ((FilteredPointerKey) lhs.getPointerKey()).getTypeFilter();
+        // other filters look up instance keys or resolve methods, which may mutate shared state
+        return filter instanceof SingleClassFilter || filter instanceof MultipleClassesFilter;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return a mapping from each left-hand side in the batch to the indices of the statements that
+   *     define it
+   */
+  private static Map<PointsToSetVariable, List<Integer>> groupByLHS(
+      List<AbstractStatement<?, ?>> batch) {
+    Map<PointsToSetVariable, List<Integer>> result = HashMapFactory.make();
+    for (int i = 0; i < batch.size(); i++) {
+      PointsToSetVariable lhs = (PointsToSetVariable) batch.get(i).getLHS();
+      result.computeIfAbsent(lhs, k -> new ArrayList<>()).add(i);
+    }
+    return result;
+  }
+
+  private void evaluateInParallel(
+      List<AbstractStatement<?, ?>> batch,
+      Map<PointsToSetVariable, List<Integer>> groups,
+      byte[] codes) {
+    // a few tasks per thread, to balance the load without paying per-group task overhead
+    int nTasks = Math.min(groups.size(), 4 * nThreads);
+    List<List<List<Integer>>> chunks = new ArrayList<>(nTasks);
+    for (int i = 0; i < nTasks; i++) {
+      chunks.add(new ArrayList<>());
+    }
+    int next = 0;
+    for (List<Integer> group : groups.values()) {
+      chunks.get(next).add(group);
+      next = (next + 1) % nTasks;
+    }
+    List<Callable<Void>> tasks = new ArrayList<>(nTasks);
+    for (List<List<Integer>> chunk : chunks) {
+      tasks.add(
+          () -> {
+            for (List<Integer> group : chunk) {
+              for (int i : group) {
+                codes[i] = batch.get(i).evaluate();
+              }
+            }
+            return null;
+          });
+    }
+    for (Future<Void> f : pool.invokeAll(tasks)) {
+      try {
+        f.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("interrupted while solving", e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        if (e.getCause() instanceof Error) {
+          throw (Error) e.getCause();
+        }
+        throw new IllegalStateException("failure while solving", e.getCause());
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private void incorporate(AbstractStatement<?, ?> s, byte code) {
+    PropagationSystem system = getSystem();
+    system.incNumberOfEvaluations();
+    if (AbstractFixedPointSolver.isChanged(code) && s.getLHS() != null) {
+      system.changedVariable((PointsToSetVariable) s.getLHS());
+    }
+    if (AbstractFixedPointSolver.isFixed(code)) {
+      system.removeStatement((AbstractStatement<PointsToSetVariable, ?>) s);
+    }
+  }
+}
@@ -19,8 +19,11 @@ import com.ibm.wala.ssa.IR;
 import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
 import com.ibm.wala.util.intset.MutableSparseIntSet;
+import org.jspecify.annotations.Nullable;
 
 /** Representation of a points-to set during an andersen-style analysis. */
 public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
@@ -46,6 +49,15 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
 
   private PointerKey pointerKey;
 
+  /**
+   * should this variable record the instance keys added to it, for difference propagation? see
+   * {@link DifferencePropagationSolver}
+   */
+  private boolean trackDelta = false;
+
+  /** instance keys added since the last call to {@link #takeDelta()}, if tracked */
+  private @Nullable MutableIntSet delta;
+
   public PointsToSetVariable(PointerKey key) {
     super();
     if (key == null) {
@@ -85,6 +97,12 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
       checkTypes(m);
     }
     final boolean result = super.add(b);
+    if (result && trackDelta) {
+      if (delta == null) {
+        delta = MutableSparseIntSet.makeEmpty();
+      }
+      delta.add(b);
+    }
     cryIfTooBig();
     return result;
   }
@@ -94,11 +112,76 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     if (PARANOID) {
       checkTypes(B);
     }
-    boolean v = super.addAll(B);
+    boolean v = trackDelta ? addAllAndRecordDelta(B) : super.addAll(B);
     cryIfTooBig();
     return v;
   }
 
+  /** add the elements of B that are not already in this set, and record them in the delta. */
+  private boolean addAllAndRecordDelta(IntSet B) {
+    IntSet fresh = B;
+    MutableIntSet V = getValue();
+    if (V != null) {
+      // only scan B, rather than diffing against the (possibly much larger) current value
+      MutableSparseIntSet s = MutableSparseIntSet.makeEmpty();
+      B.foreach(
+          x -> {
+            if (!V.contains(x)) {
+              s.add(x);
+            }
+          });
+      fresh = s;
+    }
+    if (fresh.isEmpty()) {
+      return false;
+    }
+    super.addAll(fresh);
+    if (delta == null) {
+      delta = IntSetUtil.getDefaultIntSetFactory().makeCopy(fresh);
+    } else {
+      delta.addAll(fresh);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean addAllInIntersection(PointsToSetVariable other, IntSet filter) {
+    if (trackDelta) {
+      return other.getValue() != null && addAllInIntersection(other.getValue(), filter);
+    }
+    return super.addAllInIntersection(other, filter);
+  }
+
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter) {
+    if (trackDelta) {
+      return addAll(other.intersection(filter));
+    }
+    return super.addAllInIntersection(other, filter);
+  }
+
+  /**
+   * Start recording the instance keys added to this variable. Only additions that happen after
+   * this call will be reported by {@link #takeDelta()}.
+   */
+  void trackDelta() {
+    trackDelta = true;
+  }
+
+  boolean isTrackingDelta() {
+    return trackDelta;
+  }
+
+  /**
+   * @return the instance keys added to this variable since the last call, or null if there are
+   *     none. The recorded delta is cleared.
+   */
+  @Nullable IntSet takeDelta() {
+    IntSet result = delta;
+    delta = null;
+    return result;
+  }
+
   /** check that the types of all instance keys are assignable to declared type of pointer key */
   private void checkTypes(IntSet b) {
     assert PARANOID;
@@ -137,8 +220,12 @@ public class PointsToSetVariable extends IntSetVariable<PointsToSetVariable> {
     if (PARANOID) {
       checkTypes(other.getValue());
     }
-    // TODO Auto-generated method stub
-    boolean v = super.addAll(other);
+    boolean v;
+    if (trackDelta) {
+      v = other.getValue() != null && addAll(other.getValue());
+    } else {
+      v = super.addAll(other);
+    }
     cryIfTooBig();
     return v;
   }
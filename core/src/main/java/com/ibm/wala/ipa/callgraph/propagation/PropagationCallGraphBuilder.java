@@ -140,6 +140,12 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
    */
   private final boolean rememberGetPutHistory = true;
 
+  /** Receives samples of the progress of call graph construction; null if nobody is listening */
+  private CallGraphBuilderListener listener;
+
+  /** The sampling interval of {@link #listener}, in milliseconds */
+  private long sampleInterval;
+
   /**
    * @param options governing call graph construction options
    * @param pointerKeyFactory factory which embodies pointer abstraction policy
@@ -212,6 +218,8 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     system.setMinEquationsForTopSort(options.getMinEquationsForTopSort());
     system.setTopologicalGrowthFactor(options.getTopologicalGrowthFactor());
     system.setMaxEvalBetweenTopo(options.getMaxEvalBetweenTopo());
+    system.setCycleElimination(options.getUseCycleElimination());
+    system.setOffHeapImplicitEquations(options.getUseOffHeapImplicitEquations());
 
     discoveredNodes = HashSetFactory.make();
     discoveredNodes.add(callGraph.getFakeRootNode());
@@ -246,6 +254,15 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     customInit();
 
     solver = makeSolver();
+    ContextSelector selector = contextSelector;
+    SSAContextInterpreter interpreter = contextInterpreter;
+    CallGraphBuilderMetricsCollector collector = null;
+    if (listener != null) {
+      collector = new CallGraphBuilderMetricsCollector(this, listener);
+      contextSelector = collector.time(selector);
+      setContextInterpreter(collector.time(interpreter));
+      system.setListener(collector, sampleInterval);
+    }
     try {
       solver.solve(monitor);
     } catch (CancelException | CancelRuntimeException e) {
@@ -253,11 +270,37 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
           CallGraphBuilderCancelException.createCallGraphBuilderCancelException(
               e, callGraph, system.extractPointerAnalysis(this));
       throw c;
+    } finally {
+      if (collector != null) {
+        system.setListener(null, 0);
+        contextSelector = selector;
+        setContextInterpreter(interpreter);
+        collector.finish();
+      }
     }
 
     return callGraph;
   }
 
+  /**
+   * Solve the constraint system again after some nodes were {@link #markChanged marked changed},
+   * starting from the solution computed so far, so that only the constraints added since are
+   * evaluated.
+   *
+   * @throws IllegalStateException if {@link #makeCallGraph} has not been called
+   */
+  protected void resumeSolving(IProgressMonitor monitor) throws CallGraphBuilderCancelException {
+    if (solver == null) {
+      throw new IllegalStateException("no call graph has been built");
+    }
+    try {
+      solver.solve(monitor);
+    } catch (CancelException | CancelRuntimeException e) {
+      throw CallGraphBuilderCancelException.createCallGraphBuilderCancelException(
+          e, callGraph, system.extractPointerAnalysis(this));
+    }
+  }
+
   protected PropagationSystem makeSystem(@SuppressWarnings("unused") AnalysisOptions options) {
     return new PropagationSystem(callGraph, pointerKeyFactory, instanceKeyFactory);
   }
@@ -706,6 +749,23 @@ public abstract class PropagationCallGraphBuilder implements CallGraphBuilder<In
     contextSelector = selector;
   }
 
+  /**
+   * Register a listener to be sampled periodically while the call graph is built, with metrics such
+   * as the size of the work list, the number of statements evaluated per second, and the time spent
+   * in the context selector and context interpreter. When no listener is registered, which is the
+   * default, no metrics are collected.
+   *
+   * @param listener the listener, or null to stop sampling
+   * @param intervalMillis the minimum time between two samples, in milliseconds
+   */
+  public void setListener(CallGraphBuilderListener listener, long intervalMillis) {
+    if (listener != null && intervalMillis <= 0) {
+      throw new IllegalArgumentException("invalid sampling interval: " + intervalMillis);
+    }
+    this.listener = listener;
+    this.sampleInterval = intervalMillis;
+  }
+
   public InstanceKeyFactory getInstanceKeys() {
     return instanceKeyFactory;
   }
@@ -36,12 +36,14 @@ import com.ibm.wala.util.intset.IBinaryNaturalRelation;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntPair;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OffHeapNaturalRelation;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import org.jspecify.annotations.Nullable;
 
 /** A dataflow graph implementation specialized for propagation-based pointer analysis */
 public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable> {
@@ -85,10 +87,31 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
   /** Number of implicit unary equations registered */
   private int implicitUnaryCount = 0;
 
+  /** If set, implicit equations are held in {@link OffHeapNaturalRelation}s */
+  private boolean offHeapImplicitEquations = false;
+
+  /**
+   * Should implicit unary equations be held outside the Java heap, in {@link
+   * OffHeapNaturalRelation}s? This suits very large systems, with many millions of assignments,
+   * whose relations would otherwise burden the garbage collector.
+   *
+   * @throws IllegalStateException if an implicit equation was already added
+   */
+  public void setOffHeapImplicitEquations(boolean offHeapImplicitEquations) {
+    if (!implicitUnaryMap.isEmpty()) {
+      throw new IllegalStateException("implicit equations already added");
+    }
+    this.offHeapImplicitEquations = offHeapImplicitEquations;
+  }
+
+  public boolean isOffHeapImplicitEquations() {
+    return offHeapImplicitEquations;
+  }
+
   /**
    * @return a relation in map m corresponding to a key
    */
-  private static IBinaryNaturalRelation findOrCreateRelation(
+  private IBinaryNaturalRelation findOrCreateRelation(
       Map<UnaryOperator<PointsToSetVariable>, IBinaryNaturalRelation> m,
       UnaryOperator<PointsToSetVariable> key) {
     IBinaryNaturalRelation result = m.get(key);
@@ -102,7 +125,10 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
   /**
    * @return a Relation object to track implicit equations using the operator
    */
-  private static IBinaryNaturalRelation makeRelation(AbstractOperator<PointsToSetVariable> op) {
+  private IBinaryNaturalRelation makeRelation(AbstractOperator<PointsToSetVariable> op) {
+    if (offHeapImplicitEquations) {
+      return new OffHeapNaturalRelation();
+    }
     final byte[] implementation;
     if (op instanceof AssignOperator) {
       // lots of assignments.
@@ -695,6 +721,33 @@ public class PropagationGraph implements IFixedPointSystem<PointsToSetVariable>
     return list.iterator();
   }
 
+  /**
+   * @return the graph node numbers of the variables defined by implicit assignment equations that
+   *     use v, or null if there are none
+   */
+  @Nullable IntSet getImplicitAssignmentSuccessors(PointsToSetVariable v) {
+    int number = v.getGraphNodeId();
+    if (number == -1) {
+      return null;
+    }
+    IBinaryNaturalRelation R = invImplicitUnaryMap.get(PropagationCallGraphBuilder.assignOperator);
+    return (R == null) ? null : R.getRelated(number);
+  }
+
+  /**
+   * @return the variable with the given graph node number
+   */
+  PointsToSetVariable getVariable(int number) {
+    return (PointsToSetVariable) delegateGraph.getNode(number);
+  }
+
+  /**
+   * @return the largest graph node number of a variable or statement
+   */
+  int getMaxNodeNumber() {
+    return delegateGraph.getMaxNumber();
+  }
+
   /**
    * Note that this implementation consults the implicit relation for each and every operator
    * cached. This will be inefficient if there are many implicit operators.
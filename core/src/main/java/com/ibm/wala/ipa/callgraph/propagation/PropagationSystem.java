@@ -24,9 +24,15 @@ import com.ibm.wala.fixpoint.UnaryStatement;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.PropagationCallGraphBuilder.FilterOperator;
 import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.EmptyIntIterator;
 import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.IntStack;
 import com.ibm.wala.util.collections.Iterator2Collection;
+import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.collections.MapUtil;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.VerboseAction;
@@ -35,6 +41,7 @@ import com.ibm.wala.util.graph.NumberedGraph;
 import com.ibm.wala.util.heapTrace.HeapTracer;
 import com.ibm.wala.util.intset.IntIterator;
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetInterner;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
 import com.ibm.wala.util.intset.MutableMapping;
@@ -44,6 +51,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -98,6 +106,31 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
 
   private int periodicMaintainInterval = DEFAULT_PERIODIC_MAINTENANCE_INTERVAL;
 
+  /**
+   * If set, changes flow along implicit assignment equations as deltas; see {@link
+   * DifferencePropagationSolver}
+   */
+  private boolean differencePropagation = false;
+
+  /** When doing difference propagation, the variables whose delta must still be propagated */
+  private final Set<PointsToSetVariable> dirtyVariables = new LinkedHashSet<>();
+
+  /**
+   * If set, cycles of assignments are collapsed as they are found; see {@link #collapseCycles()}
+   */
+  private boolean cycleElimination = false;
+
+  /**
+   * assignments, encoded as pairs of graph node numbers, that already triggered a search for cycles
+   */
+  private final Set<Long> checkedAssignments = HashSetFactory.make();
+
+  /** number of cycles collapsed by {@link #collapseCycles()} */
+  private int nCyclesCollapsed = 0;
+
+  /** number of variables merged into a representative by {@link #collapseCycles()} */
+  private int nVariablesMerged = 0;
+
   @SuppressWarnings("unused")
   public PropagationSystem(
       CallGraph cg, PointerKeyFactory pointerKeyFactory, InstanceKeyFactory instanceKeyFactory) {
@@ -355,8 +388,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + ' ' + op + ' ' + rhs);
     }
-    assert !pointsToMap.isUnified(lhs);
-    assert !pointsToMap.isUnified(rhs);
+    assert cycleElimination || !pointsToMap.isUnified(lhs);
+    assert cycleElimination || !pointsToMap.isUnified(rhs);
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     PointsToSetVariable R = findOrCreatePointsToSet(rhs);
     return newStatement(L, op, new PointsToSetVariable[] {R}, true, true);
@@ -379,9 +412,9 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("Add constraint A: " + lhs + ' ' + op + ' ' + rhs1 + ", " + rhs2);
     }
-    assert !pointsToMap.isUnified(lhs);
-    assert !pointsToMap.isUnified(rhs1);
-    assert !pointsToMap.isUnified(rhs2);
+    assert cycleElimination || !pointsToMap.isUnified(lhs);
+    assert cycleElimination || !pointsToMap.isUnified(rhs1);
+    assert cycleElimination || !pointsToMap.isUnified(rhs2);
     PointsToSetVariable L = findOrCreatePointsToSet(lhs);
     PointsToSetVariable R1 = findOrCreatePointsToSet(rhs1);
     PointsToSetVariable R2 = findOrCreatePointsToSet(rhs2);
@@ -548,7 +581,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + ' ' + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
+    assert cycleElimination || !pointsToMap.isUnified(arg0);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     newStatement(null, op, v1, true, true);
   }
@@ -562,7 +595,7 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     }
     PointsToSetVariable[] vs = new PointsToSetVariable[arg0.length];
     for (int i = 0; i < arg0.length; i++) {
-      assert !pointsToMap.isUnified(arg0[i]);
+      assert cycleElimination || !pointsToMap.isUnified(arg0[i]);
       vs[i] = findOrCreatePointsToSet(arg0[i]);
     }
     newStatement(null, op, vs, true, true);
@@ -573,8 +606,8 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     if (DEBUG) {
       System.err.println("add constraint D: " + op + ' ' + arg0);
     }
-    assert !pointsToMap.isUnified(arg0);
-    assert !pointsToMap.isUnified(arg1);
+    assert cycleElimination || !pointsToMap.isUnified(arg0);
+    assert cycleElimination || !pointsToMap.isUnified(arg1);
     PointsToSetVariable v1 = findOrCreatePointsToSet(arg0);
     PointsToSetVariable v2 = findOrCreatePointsToSet(arg1);
     newStatement(null, op, v1, v2, true, true);
@@ -735,6 +768,298 @@ public class PropagationSystem extends DefaultFixedPointSolver<PointsToSetVariab
     this.periodicMaintainInterval = periodicMaintainInteval;
   }
 
+  /**
+   * Switch this system to difference propagation: from now on, a change to a variable is pushed
+   * along the implicit assignment equations that use it by adding only the instance keys that were
+   * added to the variable since its last propagation, rather than its whole points-to set. Other
+   * statements are still evaluated from the work list as usual.
+   */
+  public void enableDifferencePropagation() {
+    if (differencePropagation) {
+      return;
+    }
+    differencePropagation = true;
+    // assignments that exist already have been evaluated or are on the work list, so these
+    // variables start with an empty delta
+    for (PointsToSetVariable v : Iterator2Iterable.make(flowGraph.getVariables())) {
+      if (flowGraph.getImplicitAssignmentSuccessors(v) != null) {
+        v.trackDelta();
+      }
+    }
+  }
+
+  public boolean isDifferencePropagation() {
+    return differencePropagation;
+  }
+
+  /**
+   * Make all variables whose points-to sets are equal share one set, taken from interner. Many
+   * points-to sets are duplicates of others, so this can save much of their space once the system
+   * is solved. A shared set is copied before the variable next changes, so the system may still be
+   * extended and solved again.
+   *
+   * @throws IllegalArgumentException if interner == null
+   */
+  public void internPointsToSets(IntSetInterner<MutableIntSet> interner) {
+    if (interner == null) {
+      throw new IllegalArgumentException("interner == null");
+    }
+    for (PointsToSetVariable v : Iterator2Iterable.make(flowGraph.getVariables())) {
+      v.intern(interner);
+    }
+  }
+
+  @Override
+  public boolean newStatement(
+      PointsToSetVariable lhs,
+      UnaryOperator<PointsToSetVariable> operator,
+      PointsToSetVariable rhs,
+      boolean toWorkList,
+      boolean eager) {
+    if (differencePropagation && operator instanceof AssignOperator && rhs != null) {
+      rhs.trackDelta();
+    }
+    return super.newStatement(lhs, operator, rhs, toWorkList, eager);
+  }
+
+  @Override
+  public void changedVariable(PointsToSetVariable v) {
+    if (!differencePropagation) {
+      super.changedVariable(v);
+      return;
+    }
+    for (AbstractStatement<?, ?> s : Iterator2Iterable.make(flowGraph.getStatementsThatUse(v))) {
+      // assignments receive the delta in propagateDeltas()
+      if (!(s instanceof AssignEquation)) {
+        addToWorkList(s);
+      }
+    }
+    if (v.isTrackingDelta()) {
+      dirtyVariables.add(v);
+    }
+  }
+
+  @Override
+  public boolean emptyWorkList() {
+    return super.emptyWorkList() && dirtyVariables.isEmpty();
+  }
+
+  /**
+   * Push the deltas of all dirty variables along implicit assignment equations, until no variable
+   * is dirty.
+   */
+  void propagateDeltas(IProgressMonitor monitor) throws CancelException {
+    while (!dirtyVariables.isEmpty()) {
+      MonitorUtil.throwExceptionIfCanceled(monitor);
+      Iterator<PointsToSetVariable> it = dirtyVariables.iterator();
+      PointsToSetVariable v = it.next();
+      it.remove();
+      IntSet delta = v.takeDelta();
+      IntSet succ = flowGraph.getImplicitAssignmentSuccessors(v);
+      if (delta == null || succ == null) {
+        continue;
+      }
+      for (IntIterator succs = succ.intIterator(); succs.hasNext(); ) {
+        PointsToSetVariable w = flowGraph.getVariable(succs.next());
+        incNumberOfEvaluations();
+        if (w.addAll(delta)) {
+          changedVariable(w);
+        }
+      }
+    }
+  }
+
+  /**
+   * Should cycles of assignments be collapsed into single variables? If set, pointer keys may be
+   * unified while the call graph is under construction, and constraints may be added for unified
+   * pointer keys.
+   */
+  public void setCycleElimination(boolean cycleElimination) {
+    this.cycleElimination = cycleElimination;
+  }
+
+  public boolean isCycleElimination() {
+    return cycleElimination;
+  }
+
+  /**
+   * Should implicit equations be held outside the Java heap? This must be set before any
+   * statement is added to the system.
+   *
+   * @see PropagationGraph#setOffHeapImplicitEquations(boolean)
+   */
+  public void setOffHeapImplicitEquations(boolean offHeapImplicitEquations) {
+    flowGraph.setOffHeapImplicitEquations(offHeapImplicitEquations);
+  }
+
+  public boolean isOffHeapImplicitEquations() {
+    return flowGraph.isOffHeapImplicitEquations();
+  }
+
+  /**
+   * @return the number of cycles of assignments collapsed so far
+   */
+  public int getNumberOfCyclesCollapsed() {
+    return nCyclesCollapsed;
+  }
+
+  /**
+   * @return the number of variables merged into a representative so far, when collapsing cycles
+   */
+  public int getNumberOfVariablesMerged() {
+    return nVariablesMerged;
+  }
+
+  /**
+   * Find cycles of implicit assignment equations between local pointer keys, and collapse each of
+   * them into a single variable with {@link #unify(IntSet)}.
+   *
+   * <p>Searching the whole graph on each call would be too expensive, so this does lazy cycle
+   * detection: once solved, all variables on a cycle have the same points-to set, so a search is
+   * only started from an assignment whose left- and right-hand sides have identical, non-empty
+   * points-to sets. Each assignment triggers at most one search.
+   *
+   * <p>PRECONDITION: the work list is empty, so every statement is satisfied.
+   *
+   * @return the number of variables merged by this call
+   */
+  public int collapseCycles() {
+    CycleFinder finder = new CycleFinder(flowGraph.getMaxNodeNumber());
+    for (PointsToSetVariable v : Iterator2Iterable.make(flowGraph.getVariables())) {
+      if (!isCollapsible(v) || v.size() == 0) {
+        continue;
+      }
+      IntSet succ = flowGraph.getImplicitAssignmentSuccessors(v);
+      if (succ == null) {
+        continue;
+      }
+      for (IntIterator it = succ.intIterator(); it.hasNext(); ) {
+        int w = it.next();
+        PointsToSetVariable lhs = flowGraph.getVariable(w);
+        // the lhs is a superset of the rhs, so the sets are equal iff they have the same size
+        if (lhs != v
+            && isCollapsible(lhs)
+            && lhs.size() == v.size()
+            && checkedAssignments.add(((long) v.getGraphNodeId() << 32) | w)) {
+          finder.search(w);
+        }
+      }
+    }
+
+    int merged = 0;
+    for (IntSet cycle : finder.cycles) {
+      MutableIntSet keys = IntSetUtil.make();
+      int size = 0;
+      for (IntIterator it = cycle.intIterator(); it.hasNext(); ) {
+        PointsToSetVariable v = flowGraph.getVariable(it.next());
+        size = Math.max(size, v.size());
+        keys.add(pointsToMap.getIndex(v.getPointerKey()));
+      }
+      unify(keys);
+      PointsToSetVariable rep = pointsToMap.getPointsToSet(keys.intIterator().next());
+      if (rep.size() > size) {
+        // not all members were up to date; the rewritten statements are not on the work list
+        changedVariable(rep);
+      }
+      nCyclesCollapsed++;
+      merged += keys.size() - 1;
+    }
+    nVariablesMerged += merged;
+    return merged;
+  }
+
+  /**
+   * Can the variable be merged with others on a cycle? We only merge unfiltered locals: the filter
+   * of a {@link FilteredPointerKey} applies to the statements that define it, so it cannot be
+   * shared by a set of variables.
+   */
+  private static boolean isCollapsible(PointsToSetVariable v) {
+    PointerKey k = v.getPointerKey();
+    return k instanceof LocalPointerKey && !(k instanceof FilteredPointerKey);
+  }
+
+  /**
+   * Tarjan's algorithm for strongly connected components, over the implicit assignment equations
+   * between collapsible variables. It is iterative, so that long chains of assignments do not
+   * overflow the stack.
+   */
+  private class CycleFinder {
+    /** DFS number of each graph node, starting at 1; 0 if not visited yet */
+    private final int[] dfsNumber;
+
+    private final int[] lowLink;
+
+    private final boolean[] onStack;
+
+    private final IntStack stack = new IntStack();
+
+    private int nextNumber = 1;
+
+    /** components with more than one variable, as sets of graph node numbers */
+    final List<IntSet> cycles = new ArrayList<>();
+
+    CycleFinder(int maxNumber) {
+      dfsNumber = new int[maxNumber + 1];
+      lowLink = new int[maxNumber + 1];
+      onStack = new boolean[maxNumber + 1];
+    }
+
+    void search(int root) {
+      if (dfsNumber[root] != 0) {
+        return;
+      }
+      IntStack path = new IntStack();
+      List<IntIterator> succs = new ArrayList<>();
+      visit(root, path, succs);
+      while (!path.isEmpty()) {
+        int n = path.peek();
+        IntIterator it = succs.get(succs.size() - 1);
+        if (it.hasNext()) {
+          int m = it.next();
+          if (dfsNumber[m] == 0) {
+            if (isCollapsible(flowGraph.getVariable(m))) {
+              visit(m, path, succs);
+            }
+          } else if (onStack[m]) {
+            lowLink[n] = Math.min(lowLink[n], dfsNumber[m]);
+          }
+        } else {
+          path.pop();
+          succs.remove(succs.size() - 1);
+          if (!path.isEmpty()) {
+            int parent = path.peek();
+            lowLink[parent] = Math.min(lowLink[parent], lowLink[n]);
+          }
+          if (lowLink[n] == dfsNumber[n]) {
+            popComponent(n);
+          }
+        }
+      }
+    }
+
+    private void visit(int n, IntStack path, List<IntIterator> succs) {
+      dfsNumber[n] = lowLink[n] = nextNumber++;
+      stack.push(n);
+      onStack[n] = true;
+      path.push(n);
+      IntSet s = flowGraph.getImplicitAssignmentSuccessors(flowGraph.getVariable(n));
+      succs.add(s == null ? EmptyIntIterator.instance() : s.intIterator());
+    }
+
+    private void popComponent(int root) {
+      MutableIntSet component = IntSetUtil.make();
+      int m;
+      do {
+        m = stack.pop();
+        onStack[m] = false;
+        component.add(m);
+      } while (m != root);
+      if (component.size() > 1) {
+        cycles.add(component);
+      }
+    }
+  }
+
   /**
    * Unify the points-to-sets for the variables identified by the set s
    *
@@ -27,17 +27,20 @@ import com.ibm.wala.fixpoint.AbstractOperator;
 import com.ibm.wala.fixpoint.IVariable;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
 import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilderCancelException;
 import com.ibm.wala.ipa.callgraph.ContextKey;
 import com.ibm.wala.ipa.callgraph.ContextSelector;
 import com.ibm.wala.ipa.callgraph.Entrypoint;
 import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
 import com.ibm.wala.ipa.callgraph.impl.AbstractRootMethod;
 import com.ibm.wala.ipa.callgraph.impl.DefaultEntrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 import com.ibm.wala.ipa.callgraph.impl.ExplicitCallGraph;
 import com.ibm.wala.ipa.cha.IClassHierarchy;
 import com.ibm.wala.shrike.shrikeBT.ConditionalBranchInstruction;
 import com.ibm.wala.shrike.shrikeBT.IInvokeInstruction;
 import com.ibm.wala.ssa.DefUse;
+import com.ibm.wala.ssa.IR;
 import com.ibm.wala.ssa.IRView;
 import com.ibm.wala.ssa.ISSABasicBlock;
 import com.ibm.wala.ssa.SSAAbstractInvokeInstruction;
@@ -49,6 +52,7 @@ import com.ibm.wala.ssa.SSACFG.BasicBlock;
 import com.ibm.wala.ssa.SSACFG.ExceptionHandlerBasicBlock;
 import com.ibm.wala.ssa.SSACheckCastInstruction;
 import com.ibm.wala.ssa.SSAConditionalBranchInstruction;
+import com.ibm.wala.ssa.SSAFieldAccessInstruction;
 import com.ibm.wala.ssa.SSAGetCaughtExceptionInstruction;
 import com.ibm.wala.ssa.SSAGetInstruction;
 import com.ibm.wala.ssa.SSAInstanceofInstruction;
@@ -69,6 +73,7 @@ import com.ibm.wala.types.TypeReference;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
 import com.ibm.wala.util.collections.Iterator2Iterable;
 import com.ibm.wala.util.debug.Assertions;
@@ -85,6 +90,7 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -191,6 +197,220 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
     return unconditionallyAddConstraintsFromNode(node, monitor);
   }
 
+  /**
+   * Update the call graph and pointer analysis built by {@link #makeCallGraph} after some classes
+   * changed, without building them again from scratch.
+   *
+   * <p>Changed classes replace the classes with the same references in the class hierarchy, and the
+   * nodes of their methods are made to represent the new methods, with new IRs. Added classes are
+   * added to the class hierarchy, and nodes whose IR mentions one of them are processed again,
+   * since some of their constraints may have been dropped because the class could not be found.
+   * When the new IR of a node has every instruction, constant and exceptional edge of the old one,
+   * the node is processed again as well, which adds the constraints of what is new. The constraint
+   * system is then solved again from the current solution, so that only the new constraints, and
+   * what they reach, are evaluated. The result is the same as that of a new builder.
+   *
+   * <p>Points-to facts cannot be retracted once derived. So if a class was removed, a changed class
+   * declares other methods or fields, or the new IR of a node lacks something the old one had, the
+   * update gives up and returns false; the call graph and pointer analysis of this builder should
+   * then be dropped, and built again with a new builder from the updated class hierarchy. The same
+   * holds if the class hierarchy does not support {@link IClassHierarchy#replaceClass}.
+   *
+   * @param changed new versions of classes in the class hierarchy, with the same superclass,
+   *     interfaces, methods and fields but possibly other method bodies, or classes of the class
+   *     hierarchy whose methods may now have other IRs
+   * @param added classes to add to the class hierarchy, unless they are already in it
+   * @param removed classes that have been removed
+   * @return true if the call graph and pointer analysis were updated, false if they must be built
+   *     again from scratch
+   * @throws IllegalArgumentException if an argument is null
+   * @throws IllegalStateException if {@link #makeCallGraph} has not been called
+   */
+  public boolean updateCallGraph(
+      Collection<? extends IClass> changed,
+      Collection<? extends IClass> added,
+      Collection<? extends IClass> removed,
+      IProgressMonitor monitor)
+      throws CallGraphBuilderCancelException {
+    if (changed == null) {
+      throw new IllegalArgumentException("changed is null");
+    }
+    if (added == null) {
+      throw new IllegalArgumentException("added is null");
+    }
+    if (removed == null) {
+      throw new IllegalArgumentException("removed is null");
+    }
+    if (system == null) {
+      throw new IllegalStateException("no call graph has been built");
+    }
+    if (!removed.isEmpty()) {
+      return false;
+    }
+    Map<TypeReference, IClass> replacements = HashMapFactory.make();
+    for (IClass klass : changed) {
+      IClass old = cha.lookupClass(klass.getReference());
+      if (old == null || !members(old).equals(members(klass))) {
+        return false;
+      }
+      replacements.put(klass.getReference(), klass);
+    }
+    for (IClass klass : replacements.values()) {
+      if (!cha.replaceClass(klass)) {
+        return false;
+      }
+    }
+    Set<TypeReference> addedTypes = HashSetFactory.make();
+    for (IClass klass : added) {
+      IClass old = cha.lookupClass(klass.getReference());
+      if (old != null ? old != klass : !cha.addClass(klass)) {
+        return false;
+      }
+      addedTypes.add(klass.getReference());
+    }
+    cha.clearCaches();
+
+    List<CGNode> affected = new ArrayList<>();
+    for (CGNode node : callGraph) {
+      IMethod method = node.getMethod();
+      IClass replacement = replacements.get(method.getDeclaringClass().getReference());
+      if (replacement != null && !method.isWalaSynthetic()) {
+        IMethod current = replacement.getMethod(method.getSelector());
+        if (!method.equals(current) || !(node instanceof ExplicitCallGraph.ExplicitNode)) {
+          return false;
+        }
+        Set<String> before = facts(getCFAContextInterpreter().getIR(node));
+        getAnalysisCache().invalidate(method, node.getContext());
+        getAnalysisCache().invalidate(method, Everywhere.EVERYWHERE);
+        ((ExplicitCallGraph.ExplicitNode) node).replaceMethod(current);
+        Set<String> after = facts(getCFAContextInterpreter().getIR(node));
+        if (!after.containsAll(before)) {
+          return false;
+        }
+        if (!after.equals(before)) {
+          affected.add(node);
+          continue;
+        }
+      }
+      if (!addedTypes.isEmpty()
+          && mentionsAny(getCFAContextInterpreter().getIR(node), addedTypes)) {
+        affected.add(node);
+      }
+    }
+    for (CGNode node : affected) {
+      markChanged(node);
+    }
+    if (!affected.isEmpty()) {
+      resumeSolving(monitor);
+    }
+    return true;
+  }
+
+  /**
+   * @return the declared methods and fields of klass, with what dispatch depends on
+   */
+  private static Set<String> members(IClass klass) {
+    Set<String> result = HashSetFactory.make();
+    for (IMethod m : klass.getDeclaredMethods()) {
+      result.add(m.getSelector() + " " + m.isStatic() + " " + m.isPrivate() + " " + m.isAbstract());
+    }
+    for (IField f : klass.getDeclaredInstanceFields()) {
+      result.add(f.getReference().toString());
+    }
+    for (IField f : klass.getDeclaredStaticFields()) {
+      result.add("static " + f.getReference());
+    }
+    return result;
+  }
+
+  /**
+   * @return what the constraints generated from ir depend on: its instructions, phis and pis, with
+   *     their value numbers and program counters, its constants, and the handlers each instruction
+   *     may throw to
+   */
+  private static Set<String> facts(IR ir) {
+    Set<String> result = HashSetFactory.make();
+    if (ir == null) {
+      return result;
+    }
+    SymbolTable symbols = ir.getSymbolTable();
+    for (int v = 1; v <= symbols.getMaxValueNumber(); v++) {
+      if (symbols.isConstant(v)) {
+        result.add("v" + v + " = #" + symbols.getConstantValue(v));
+      }
+    }
+    for (SSAInstruction s : ir.getInstructions()) {
+      if (s != null) {
+        result.add(s.toString(symbols));
+      }
+    }
+    ir.iteratePhis().forEachRemaining(s -> result.add(s.toString(symbols)));
+    ir.iteratePis().forEachRemaining(s -> result.add(s.toString(symbols)));
+    SSACFG cfg = ir.getControlFlowGraph();
+    for (ISSABasicBlock bb : cfg) {
+      int last = bb.getLastInstructionIndex();
+      SSAInstruction s = last < 0 ? null : ir.getInstructions()[last];
+      if (s != null) {
+        for (ISSABasicBlock handler : cfg.getExceptionalSuccessors(bb)) {
+          result.add(s.toString(symbols) + " throws to " + handler(handler, symbols));
+        }
+      }
+    }
+    return result;
+  }
+
+  private static String handler(ISSABasicBlock bb, SymbolTable symbols) {
+    if (!(bb instanceof ExceptionHandlerBasicBlock)) {
+      return bb.isExitBlock() ? "exit" : "block " + bb.getNumber();
+    }
+    List<TypeReference> caught = new ArrayList<>();
+    bb.getCaughtExceptionTypes().forEachRemaining(caught::add);
+    SSAGetCaughtExceptionInstruction s = ((ExceptionHandlerBasicBlock) bb).getCatchInstruction();
+    return caught + " " + (s == null ? "" : s.toString(symbols));
+  }
+
+  /**
+   * @return true iff an instruction or exception handler of ir refers to one of types, or to
+   *     arrays of them
+   */
+  private static boolean mentionsAny(IR ir, Set<TypeReference> types) {
+    if (ir == null) {
+      return false;
+    }
+    List<TypeReference> mentioned = new ArrayList<>();
+    for (SSAInstruction s : ir.getInstructions()) {
+      if (s instanceof SSANewInstruction) {
+        mentioned.add(((SSANewInstruction) s).getConcreteType());
+      } else if (s instanceof SSAAbstractInvokeInstruction) {
+        mentioned.add(((SSAAbstractInvokeInstruction) s).getDeclaredTarget().getDeclaringClass());
+      } else if (s instanceof SSAFieldAccessInstruction) {
+        FieldReference f = ((SSAFieldAccessInstruction) s).getDeclaredField();
+        mentioned.add(f.getDeclaringClass());
+        mentioned.add(f.getFieldType());
+      } else if (s instanceof SSACheckCastInstruction) {
+        mentioned.addAll(Arrays.asList(((SSACheckCastInstruction) s).getDeclaredResultTypes()));
+      } else if (s instanceof SSAInstanceofInstruction) {
+        mentioned.add(((SSAInstanceofInstruction) s).getCheckedType());
+      } else if (s instanceof SSALoadMetadataInstruction) {
+        Object token = ((SSALoadMetadataInstruction) s).getToken();
+        if (token instanceof TypeReference) {
+          mentioned.add((TypeReference) token);
+        }
+      }
+    }
+    for (ISSABasicBlock bb : ir.getControlFlowGraph()) {
+      if (bb.isCatchBlock()) {
+        bb.getCaughtExceptionTypes().forEachRemaining(mentioned::add);
+      }
+    }
+    for (TypeReference t : mentioned) {
+      if (t != null && types.contains(t.getInnermostElementType())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   @Override
   protected boolean unconditionallyAddConstraintsFromNode(CGNode node, IProgressMonitor monitor)
       throws CancelException {
@@ -750,8 +970,8 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
             }
           }
         } else {
-          assert !system.isUnified(result);
-          assert !system.isUnified(arrayRefPtrKey);
+          assert system.isCycleElimination() || !system.isUnified(result);
+          assert system.isCycleElimination() || !system.isUnified(arrayRefPtrKey);
           system.newSideEffect(
               getBuilder().new ArrayLoadOperator(system.findOrCreatePointsToSet(result)),
               arrayRefPtrKey);
@@ -808,7 +1028,7 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
           InstanceKey[] ik = getInvariantContents(value);
           for (InstanceKey element : ik) {
             system.findOrCreateIndexForInstanceKey(element);
-            assert !system.isUnified(arrayRefPtrKey);
+            assert system.isCycleElimination() || !system.isUnified(arrayRefPtrKey);
             system.newSideEffect(
                 getBuilder().new InstanceArrayStoreOperator(element), arrayRefPtrKey);
           }
@@ -2482,6 +2702,13 @@ public abstract class SSAPropagationCallGraphBuilder extends PropagationCallGrap
 
   @Override
   protected IPointsToSolver makeSolver() {
+    if (getOptions().getUseDifferencePropagation()) {
+      return new DifferencePropagationSolver(system, this);
+    }
+    int nThreads = getOptions().getNumberOfSolverThreads();
+    if (nThreads > 1) {
+      return new ParallelSolver(system, this, nThreads);
+    }
     return new StandardSolver(system, this);
     // return usePreTransitiveSolver ? (IPointsToSolver) new PreTransitiveSolver(system, this) : new
     // StandardSolver(system, this);
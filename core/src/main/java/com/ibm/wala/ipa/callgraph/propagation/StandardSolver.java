@@ -31,10 +31,16 @@ public class StandardSolver extends AbstractPointsToSolver {
       if (DEBUG_PHASES) {
         System.err.println("Iteration " + i);
       }
-      getSystem().solve(monitor);
+      solveSystem(monitor);
       if (DEBUG_PHASES) {
         System.err.println("Solved " + i);
       }
+      if (getSystem().isCycleElimination()) {
+        int merged = getSystem().collapseCycles();
+        if (DEBUG_PHASES) {
+          System.err.println("Merged " + merged + " variables on cycles");
+        }
+      }
 
       if (getBuilder().getOptions().getMaxNumberOfNodes() > -1) {
         if (getBuilder().getCallGraph().getNumberOfNodes()
@@ -73,4 +79,12 @@ public class StandardSolver extends AbstractPointsToSolver {
       // worklist; so,
     } while (!getSystem().emptyWorkList());
   }
+
+  /**
+   * Drain the work list of the propagation system. Subclasses may override to change how
+   * statements are evaluated; the outer loop that discovers new nodes stays the same.
+   */
+  protected void solveSystem(IProgressMonitor monitor) throws CancelException {
+    getSystem().solve(monitor);
+  }
 }
@@ -61,7 +61,7 @@ public class DelegatingExplicitCallGraph extends ExplicitCallGraph {
     public MutableSharedBitVectorIntSet getAllTargetNumbers() {
       MutableSharedBitVectorIntSet result =
           new MutableSharedBitVectorIntSet(super.getAllTargetNumbers());
-      for (Object n : targets) {
+      for (Object n : targets.values()) {
         if (n instanceof CallSite) {
           ExplicitNode delegate = (ExplicitNode) ((CallSite) n).getNode();
           IntSet s =
@@ -105,7 +105,7 @@ public class DelegatingExplicitCallGraph extends ExplicitCallGraph {
       if (super.getAllTargetNumbers().contains(y)) {
         return true;
       } else {
-        for (Object n : targets) {
+        for (Object n : targets.values()) {
           if (n instanceof CallSite) {
             ExplicitNode delegate = (ExplicitNode) ((CallSite) n).getNode();
             IntSet s =
@@ -136,7 +136,7 @@ public class DelegatingExplicitCallGraph extends ExplicitCallGraph {
     public void delegate(
         CallSiteReference site, CGNode delegateNode, CallSiteReference delegateSite) {
       CallSite d = new CallSite(delegateSite, delegateNode);
-      targets.set(site.getProgramCounter(), d);
+      targets.put(site.getProgramCounter(), d);
       int y = getCallGraph().getNumber(this);
       int x = getCallGraph().getNumber(delegateNode);
       delegateR.add(x, y);
@@ -50,6 +50,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
@@ -57,8 +58,9 @@ import java.util.function.Function;
 /**
  * Simple implementation of a class hierarchy.
  *
- * <p>Note that this class hierarchy implementation is mutable. You can add classes via addClass().
- * You can add a class even if c.getClassLoader() does not appear in getLoaders().
+ * <p>Note that this class hierarchy implementation is mutable. You can add classes via addClass(),
+ * and replace them via replaceClass(). You can add a class even if c.getClassLoader() does not
+ * appear in getLoaders().
  */
 public class ClassHierarchy implements IClassHierarchy {
 
@@ -105,6 +107,9 @@ public class ClassHierarchy implements IClassHierarchy {
   /** A mapping from IClass -&gt; Selector -&gt; Set of IMethod */
   private final HashMap<IClass, Object> targetCache = HashMapFactory.make();
 
+  /** Has a class been replaced, so that callers may hold older versions of it? */
+  private boolean replacedClasses = false;
+
   @Override
   public void clearCaches() {
     targetCache.clear();
@@ -443,6 +448,55 @@ public class ClassHierarchy implements IClassHierarchy {
     return true;
   }
 
+  /**
+   * @return true if the class with the same reference was replaced by klass; false if there is no
+   *     such class, or if klass has another superclass or implements other interfaces
+   * @throws IllegalArgumentException if klass is null
+   */
+  @Override
+  public boolean replaceClass(IClass klass) {
+    if (klass == null) {
+      throw new IllegalArgumentException("klass is null");
+    }
+    Node node = findNode(klass);
+    if (node == null) {
+      return false;
+    }
+    IClass old = node.klass;
+    if (old == klass) {
+      return true;
+    }
+    if (!Objects.equals(reference(old.getSuperclass()), reference(klass.getSuperclass()))
+        || !references(old.getDirectInterfaces()).equals(references(klass.getDirectInterfaces()))) {
+      return false;
+    }
+    node.klass = klass;
+    for (Set<IClass> impls : implementors.values()) {
+      if (impls.remove(old)) {
+        impls.add(klass);
+      }
+    }
+    Set<IClass> impls = implementors.remove(old);
+    if (impls != null) {
+      implementors.put(klass, impls);
+    }
+    replacedClasses = true;
+    clearCaches();
+    return true;
+  }
+
+  private static TypeReference reference(IClass klass) {
+    return klass == null ? null : klass.getReference();
+  }
+
+  private static Set<TypeReference> references(Collection<? extends IClass> classes) {
+    Set<TypeReference> result = HashSetFactory.make();
+    for (IClass klass : classes) {
+      result.add(klass.getReference());
+    }
+    return result;
+  }
+
   private IClass getPhantomSuperclass(BytecodeClass<?> klass) {
     ClassLoaderReference loader = klass.getReference().getClassLoader();
     TypeName superName = klass.getSuperName();
@@ -628,6 +682,13 @@ public class ClassHierarchy implements IClassHierarchy {
     if (receiverClass == null) {
       throw new IllegalArgumentException("receiverClass is null");
     }
+    if (replacedClasses) {
+      // receiverClass may be an older version of a replaced class, e.g., held by an instance key
+      Node n = findNode(receiverClass);
+      if (n != null) {
+        receiverClass = n.klass;
+      }
+    }
     IMethod result = findMethod(receiverClass, selector);
     if (result != null) {
       return result;
@@ -661,8 +722,16 @@ public class ClassHierarchy implements IClassHierarchy {
    * @param selector method selector
    * @return the method if found, else null
    */
-  private static IMethod findMethod(IClass clazz, Selector selector) {
-    return clazz.getMethod(selector);
+  private IMethod findMethod(IClass clazz, Selector selector) {
+    IMethod result = clazz.getMethod(selector);
+    if (result != null && replacedClasses) {
+      // clazz may still cache a method it inherited from an older version of a replaced class
+      Node n = findNode(result.getDeclaringClass());
+      if (n != null && n.klass != result.getDeclaringClass()) {
+        result = n.klass.getMethod(selector);
+      }
+    }
+    return result;
   }
 
   /**
@@ -736,7 +805,7 @@ public class ClassHierarchy implements IClassHierarchy {
   /** internal representation of a node in the class hiearachy, representing one java class. */
   static final class Node {
 
-    private final IClass klass;
+    private IClass klass;
 
     private final Set<Node> children = HashSetFactory.make(3);
 
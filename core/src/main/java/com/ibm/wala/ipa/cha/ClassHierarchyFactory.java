@@ -15,6 +15,8 @@ import com.ibm.wala.classLoader.ClassLoaderFactoryImpl;
 import com.ibm.wala.classLoader.Language;
 import com.ibm.wala.ipa.callgraph.AnalysisScope;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import java.io.File;
+import java.io.IOException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -30,6 +32,73 @@ public class ClassHierarchyFactory {
     return make(scope, new ClassLoaderFactoryImpl(scope.getExclusions()));
   }
 
+  /**
+   * Like {@link #make(AnalysisScope)}, but the class files of each class loader are parsed by
+   * several threads. The resulting class hierarchy is the same as with {@link
+   * SeqClassHierarchyFactory}: classes are added to their loaders, and linked to their superclasses
+   * and interfaces, in a single sequential pass in the usual order.
+   *
+   * @param nThreads number of threads used to parse class files
+   * @return a ClassHierarchy object representing the analysis scope
+   */
+  public static ClassHierarchy makeParallel(AnalysisScope scope, int nThreads)
+      throws ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    return make(scope, new ClassLoaderFactoryImpl(scope.getExclusions(), nThreads));
+  }
+
+  /**
+   * Like {@link #make(AnalysisScope)}, but reuse a {@link ClassHierarchySnapshot} of the same scope
+   * from the cache directory if there is one, and save a snapshot there otherwise. With a snapshot,
+   * classes are created without parsing their class files, and their fields and methods are only
+   * read when first asked for.
+   *
+   * <p>Snapshots are keyed by the contents of the scope's modules, so a stale snapshot is never
+   * used. Scopes whose modules cannot be digested, e.g. jar files read from streams, are built
+   * without a snapshot. The cache is only an optimization: failing to read or write a snapshot
+   * just means the class hierarchy is built from scratch.
+   *
+   * @param cacheDir directory holding snapshot files; it is created if needed
+   * @return a ClassHierarchy object representing the analysis scope
+   */
+  public static ClassHierarchy makeWithCache(AnalysisScope scope, File cacheDir)
+      throws ClassHierarchyException {
+    if (scope == null) {
+      throw new IllegalArgumentException("null scope");
+    }
+    if (cacheDir == null) {
+      throw new IllegalArgumentException("null cacheDir");
+    }
+    byte[] key;
+    try {
+      key = ClassHierarchySnapshot.computeKey(scope);
+    } catch (IOException e) {
+      key = null;
+    }
+    if (key == null) {
+      return make(scope);
+    }
+    File file = new File(cacheDir, ClassHierarchySnapshot.getFileName(key));
+    ClassHierarchySnapshot snapshot;
+    try {
+      snapshot = ClassHierarchySnapshot.read(file, key);
+    } catch (IOException e) {
+      snapshot = null;
+    }
+    if (snapshot != null) {
+      return make(scope, new ClassLoaderFactoryImpl(scope.getExclusions(), snapshot));
+    }
+    ClassHierarchy cha = make(scope);
+    try {
+      ClassHierarchySnapshot.write(cha, key, file);
+    } catch (IOException e) {
+      // the next run will try again
+    }
+    return cha;
+  }
+
   /**
    * NOTE: phantom classes are a work-in-progress and this functionality has <a
    * href="https://github.com/wala/WALA/pull/335">known bugs</a>. At this point, we recommend using
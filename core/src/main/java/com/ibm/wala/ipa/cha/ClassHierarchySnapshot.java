@@ -0,0 +1,462 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ipa.cha;
+
+import com.ibm.wala.classLoader.ClassLoaderImpl;
+import com.ibm.wala.classLoader.DirectoryTreeModule;
+import com.ibm.wala.classLoader.FileModule;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IClassLoader;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.classLoader.ModuleEntry;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.util.strings.ImmutableByteArray;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A binary snapshot of the structure of a class hierarchy: for each class loader, the name,
+ * modifiers, superclass and interfaces of each of its classes, and where its class file lives.
+ *
+ * <p>A snapshot is identified by a key, which is a digest of the analysis scope (loaders, modules
+ * and exclusions) and of the contents of all the files of its modules; see {@link
+ * #computeKey(AnalysisScope)}. A {@link ClassLoaderImpl} given the {@link ClassHeader}s of a
+ * snapshot creates its classes from them, without parsing class files; the fields and methods of
+ * each class are only read from its class file when first asked for.
+ *
+ * <p>The snapshot file is memory-mapped, and the classes of each loader are only decoded when the
+ * loader asks for them.
+ *
+ * @see ClassHierarchyFactory#makeWithCache(AnalysisScope, File)
+ */
+public final class ClassHierarchySnapshot {
+
+  private static final int MAGIC = 0x57434841;
+
+  /** bump this whenever the format of the snapshot, or of its key, changes */
+  private static final int VERSION = 1;
+
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  /** Header information for one class, enough to link it into a class hierarchy. */
+  public static final class ClassHeader {
+
+    private final int moduleIndex;
+
+    private final String entryKey;
+
+    private final ImmutableByteArray name;
+
+    private final int modifiers;
+
+    private final ImmutableByteArray superName;
+
+    private final ImmutableByteArray[] interfaceNames;
+
+    ClassHeader(
+        int moduleIndex,
+        String entryKey,
+        ImmutableByteArray name,
+        int modifiers,
+        ImmutableByteArray superName,
+        ImmutableByteArray[] interfaceNames) {
+      this.moduleIndex = moduleIndex;
+      this.entryKey = entryKey;
+      this.name = name;
+      this.modifiers = modifiers;
+      this.superName = superName;
+      this.interfaceNames = interfaceNames;
+    }
+
+    /**
+     * @return the index, in the list of modules of the class loader, of the module holding the
+     *     class file
+     */
+    public int getModuleIndex() {
+      return moduleIndex;
+    }
+
+    /**
+     * @return the key of the class file in its module
+     * @see ClassHierarchySnapshot#getEntryKey(ModuleEntry)
+     */
+    public String getEntryKey() {
+      return entryKey;
+    }
+
+    /**
+     * @return the name of the class, e.g. Ljava/lang/Object
+     */
+    public ImmutableByteArray getName() {
+      return name;
+    }
+
+    public int getModifiers() {
+      return modifiers;
+    }
+
+    /**
+     * @return the name of the superclass, or null if none
+     */
+    public ImmutableByteArray getSuperName() {
+      return superName;
+    }
+
+    public ImmutableByteArray[] getInterfaceNames() {
+      return interfaceNames.clone();
+    }
+  }
+
+  /** the mapped snapshot file */
+  private final ByteBuffer buffer;
+
+  /** for each loader in the snapshot, the offset of its classes in {@link #buffer} */
+  private final Map<String, Integer> loaderOffsets;
+
+  private ClassHierarchySnapshot(ByteBuffer buffer, Map<String, Integer> loaderOffsets) {
+    this.buffer = buffer;
+    this.loaderOffsets = loaderOffsets;
+  }
+
+  /**
+   * @return the headers of the classes of a loader, or null if the snapshot does not cover this
+   *     loader
+   */
+  public List<ClassHeader> getClasses(ClassLoaderReference loader) {
+    if (loader == null) {
+      throw new IllegalArgumentException("loader is null");
+    }
+    Integer offset = loaderOffsets.get(loader.getName().toString());
+    if (offset == null) {
+      return null;
+    }
+    ByteBuffer b = buffer.duplicate();
+    b.position(offset);
+    int nClasses = b.getInt();
+    List<ClassHeader> result = new ArrayList<>(nClasses);
+    for (int i = 0; i < nClasses; i++) {
+      int moduleIndex = b.getInt();
+      String entryKey = readString(b);
+      ImmutableByteArray name = ImmutableByteArray.make(readString(b));
+      int modifiers = b.getInt();
+      String superName = readString(b);
+      ImmutableByteArray[] interfaceNames = new ImmutableByteArray[b.getInt()];
+      for (int j = 0; j < interfaceNames.length; j++) {
+        interfaceNames[j] = ImmutableByteArray.make(readString(b));
+      }
+      result.add(
+          new ClassHeader(
+              moduleIndex,
+              entryKey,
+              name,
+              modifiers,
+              superName == null ? null : ImmutableByteArray.make(superName),
+              interfaceNames));
+    }
+    return result;
+  }
+
+  /**
+   * Compute the key identifying the snapshots of the class hierarchy of a scope. Any change to the
+   * loaders, modules, or exclusions of the scope, or to the contents of any file of its modules,
+   * changes the key.
+   *
+   * @return the key, or null if the scope holds a module whose contents cannot be digested, e.g. a
+   *     module read from a stream
+   * @throws IllegalArgumentException if scope is null
+   */
+  public static byte[] computeKey(AnalysisScope scope) throws IOException {
+    if (scope == null) {
+      throw new IllegalArgumentException("scope is null");
+    }
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      return null;
+    }
+    digest.update(toBytes(VERSION + "\n" + scope));
+    for (ClassLoaderReference loader : scope.getLoaders()) {
+      digest.update(toBytes(loader.getName() + " " + scope.getLoaderImpl(loader) + "\n"));
+      for (Module m : scope.getModules(loader)) {
+        if (!digestModule(digest, m)) {
+          return null;
+        }
+      }
+    }
+    return digest.digest();
+  }
+
+  /**
+   * Add the contents of the files of a module to a digest
+   *
+   * @return false if the kind of module is not supported
+   */
+  private static boolean digestModule(MessageDigest digest, Module m) throws IOException {
+    if (m instanceof JarFileModule) {
+      digestFile(digest, new File(((JarFileModule) m).getAbsolutePath()).toPath());
+    } else if (m instanceof FileModule) {
+      digestFile(digest, ((FileModule) m).getFile().toPath());
+    } else if (m instanceof DirectoryTreeModule) {
+      Path root = new File(((DirectoryTreeModule) m).getPath()).toPath();
+      List<Path> files;
+      try (Stream<Path> s = Files.walk(root)) {
+        files = s.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+      }
+      for (Path f : files) {
+        digest.update(toBytes(root.relativize(f).toString()));
+        digestFile(digest, f);
+      }
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private static void digestFile(MessageDigest digest, Path file) throws IOException {
+    byte[] buf = new byte[65536];
+    try (InputStream s = Files.newInputStream(file)) {
+      int n;
+      while ((n = s.read(buf)) != -1) {
+        digest.update(buf, 0, n);
+      }
+    }
+  }
+
+  /**
+   * @return the name of the snapshot file for a key
+   */
+  public static String getFileName(byte[] key) {
+    if (key == null) {
+      throw new IllegalArgumentException("key is null");
+    }
+    StringBuilder result = new StringBuilder("cha-");
+    for (byte b : key) {
+      result.append(Character.forDigit((b >> 4) & 0xf, 16));
+      result.append(Character.forDigit(b & 0xf, 16));
+    }
+    return result.append(".snapshot").toString();
+  }
+
+  /**
+   * Map a snapshot file into memory.
+   *
+   * @return the snapshot, or null if the file does not exist, or is not a snapshot with the given
+   *     key
+   * @throws IllegalArgumentException if file or key is null
+   */
+  public static ClassHierarchySnapshot read(File file, byte[] key) throws IOException {
+    if (file == null) {
+      throw new IllegalArgumentException("file is null");
+    }
+    if (key == null) {
+      throw new IllegalArgumentException("key is null");
+    }
+    if (!file.isFile()) {
+      return null;
+    }
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        return null;
+      }
+      byte[] fileKey = new byte[buffer.getInt()];
+      buffer.get(fileKey);
+      if (!MessageDigest.isEqual(key, fileKey)) {
+        return null;
+      }
+      Map<String, Integer> loaderOffsets = HashMapFactory.make();
+      int nLoaders = buffer.getInt();
+      for (int i = 0; i < nLoaders; i++) {
+        String loader = readString(buffer);
+        int length = buffer.getInt();
+        loaderOffsets.put(loader, buffer.position());
+        buffer.position(buffer.position() + length);
+      }
+      return new ClassHierarchySnapshot(buffer, loaderOffsets);
+    } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+      // a truncated file, e.g. from a crashed writer
+      return null;
+    }
+  }
+
+  /**
+   * Write a snapshot of a class hierarchy built from scratch by {@link ClassLoaderImpl}s. The file
+   * is written atomically, so concurrent readers see either no file or a complete one.
+   *
+   * @param key the key of the scope of the class hierarchy
+   * @return true if the snapshot was written, or false if the class hierarchy has classes or
+   *     loaders that a snapshot cannot describe
+   * @throws IllegalArgumentException if any argument is null
+   */
+  public static boolean write(IClassHierarchy cha, byte[] key, File file) throws IOException {
+    if (cha == null) {
+      throw new IllegalArgumentException("cha is null");
+    }
+    if (key == null) {
+      throw new IllegalArgumentException("key is null");
+    }
+    if (file == null) {
+      throw new IllegalArgumentException("file is null");
+    }
+    AnalysisScope scope = cha.getScope();
+    List<String> loaderNames = new ArrayList<>();
+    List<byte[]> loaderData = new ArrayList<>();
+    for (ClassLoaderReference ref : scope.getLoaders()) {
+      IClassLoader loader = cha.getLoader(ref);
+      List<Module> modules = scope.getModules(ref);
+      if (loader == null || loader.getClass() != ClassLoaderImpl.class) {
+        if (modules.isEmpty()) {
+          // nothing to snapshot; the loader is created as usual
+          continue;
+        }
+        return false;
+      }
+      byte[] data = writeClasses(loader, modules);
+      if (data == null) {
+        return false;
+      }
+      loaderNames.add(ref.getName().toString());
+      loaderData.add(data);
+    }
+
+    File dir = file.getAbsoluteFile().getParentFile();
+    Files.createDirectories(dir.toPath());
+    Path tmp = Files.createTempFile(dir.toPath(), file.getName(), ".tmp");
+    try {
+      try (OutputStream os = Files.newOutputStream(tmp);
+          DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(key.length);
+        out.write(key);
+        out.writeInt(loaderNames.size());
+        for (int i = 0; i < loaderNames.size(); i++) {
+          writeString(out, loaderNames.get(i));
+          out.writeInt(loaderData.get(i).length);
+          out.write(loaderData.get(i));
+        }
+      }
+      Files.move(
+          tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+    return true;
+  }
+
+  /**
+   * @return the encoded headers of the classes of a loader, or null if some class cannot be
+   *     described
+   */
+  private static byte[] writeClasses(IClassLoader loader, List<Module> modules)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(loader.getNumberOfClasses());
+    for (IClass klass : Iterator2Iterable.make(loader.iterateAllClasses())) {
+      if (!(klass instanceof ShrikeClass)) {
+        return null;
+      }
+      ModuleEntry entry = ((ShrikeClass) klass).getModuleEntry();
+      int moduleIndex = -1;
+      for (int i = 0; i < modules.size(); i++) {
+        if (modules.get(i) == entry || modules.get(i) == entry.getContainer()) {
+          moduleIndex = i;
+          break;
+        }
+      }
+      if (moduleIndex == -1) {
+        // e.g. a class file in a nested jar file
+        return null;
+      }
+      out.writeInt(moduleIndex);
+      writeString(out, getEntryKey(entry));
+      writeString(out, klass.getName().toString());
+      out.writeInt(klass.getModifiers());
+      IClass superclass = klass.getSuperclass();
+      writeString(out, superclass == null ? null : superclass.getName().toString());
+      Collection<? extends IClass> interfaces = klass.getDirectInterfaces();
+      out.writeInt(interfaces.size());
+      for (IClass i : interfaces) {
+        writeString(out, i.getName().toString());
+      }
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * @return a key identifying a class file among the entries of its module
+   */
+  public static String getEntryKey(ModuleEntry entry) {
+    if (entry == null) {
+      throw new IllegalArgumentException("entry is null");
+    }
+    // the name of a file module is only its simple file name
+    return entry instanceof FileModule ? ((FileModule) entry).getAbsolutePath() : entry.getName();
+  }
+
+  private static byte[] toBytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** write a string, which may be null, as its length followed by its UTF-8 bytes */
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    if (s == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] b = toBytes(s);
+      out.writeInt(b.length);
+      out.write(b);
+    }
+  }
+
+  private static String readString(ByteBuffer b) {
+    int length = b.getInt();
+    if (length == -1) {
+      return null;
+    }
+    byte[] result = new byte[length];
+    b.get(result);
+    return new String(result, StandardCharsets.UTF_8);
+  }
+}
@@ -41,6 +41,22 @@ public interface IClassHierarchy extends Iterable<IClass> {
    */
   boolean addClass(IClass klass);
 
+  /**
+   * Replace the class with the same reference as klass by klass, e.g., a new version of it whose
+   * methods have other bodies. The superclass and interfaces of klass must be those of the class it
+   * replaces. The class loader of klass is not updated.
+   *
+   * @return true if the replacement succeeded; false if it failed for some reason, e.g., because
+   *     this hierarchy does not support replacing classes
+   * @throws IllegalArgumentException if klass is null
+   */
+  default boolean replaceClass(IClass klass) {
+    if (klass == null) {
+      throw new IllegalArgumentException("klass is null");
+    }
+    return false;
+  }
+
   /**
    * @return The number of classes present in the class hierarchy.
    */
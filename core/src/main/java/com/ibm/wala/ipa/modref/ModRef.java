@@ -49,6 +49,32 @@ public class ModRef<T extends InstanceKey> {
 
   public ModRef() {}
 
+  /** number of threads used to scan the call graph nodes and compute the transitive closure */
+  private int nThreads = 1;
+
+  /**
+   * Set the number of threads used by {@link #computeMod} and {@link #computeRef}. With more than
+   * one thread, the transitive closure is computed bottom-up over the strongly connected components
+   * of the call graph, several components at a time; this is where most of the speedup comes from.
+   * The nodes of the call graph are scanned concurrently too, but the mod and ref visitors of a
+   * node run while holding the lock of the pointer analysis, since pointer analyses and heap models
+   * fill caches lazily, so the scans themselves are serialized. Only building IRs that are not
+   * cached yet overlaps, so the call graph must allow its IRs to be built on several threads at
+   * once.
+   *
+   * @throws IllegalArgumentException if nThreads &lt; 1
+   */
+  public void setNumberOfThreads(int nThreads) {
+    if (nThreads < 1) {
+      throw new IllegalArgumentException("invalid nThreads: " + nThreads);
+    }
+    this.nThreads = nThreads;
+  }
+
+  public int getNumberOfThreads() {
+    return nThreads;
+  }
+
   /**
    * For each call graph node, what heap locations (as determined by a heap model) may it write,
    * including its callees transitively
@@ -61,7 +87,7 @@ public class ModRef<T extends InstanceKey> {
       throw new IllegalArgumentException("cg is null");
     }
     Map<CGNode, Collection<PointerKey>> scan = scanForMod(cg, pa, heapExclude);
-    return CallGraphTransitiveClosure.transitiveClosure(cg, scan);
+    return transitiveClosure(cg, scan);
   }
 
   /**
@@ -76,6 +102,14 @@ public class ModRef<T extends InstanceKey> {
       throw new IllegalArgumentException("cg is null");
     }
     Map<CGNode, Collection<PointerKey>> scan = scanForRef(cg, pa, heapExclude);
+    return transitiveClosure(cg, scan);
+  }
+
+  private Map<CGNode, OrdinalSet<PointerKey>> transitiveClosure(
+      CallGraph cg, Map<CGNode, Collection<PointerKey>> scan) {
+    if (nThreads > 1) {
+      return CallGraphTransitiveClosure.transitiveClosure(cg, scan, nThreads);
+    }
     return CallGraphTransitiveClosure.transitiveClosure(cg, scan);
   }
 
@@ -101,9 +135,19 @@ public class ModRef<T extends InstanceKey> {
    */
   private Map<CGNode, Collection<PointerKey>> scanForMod(
       CallGraph cg, final PointerAnalysis<T> pa, final HeapExclusions heapExclude) {
-
+    if (nThreads > 1) {
+      return CallGraphTransitiveClosure.collectNodeResults(
+          cg,
+          n -> {
+            IR ir = n.getIR();
+            synchronized (pa) {
+              return scanNodeForMod(n, ir, pa, heapExclude);
+            }
+          },
+          nThreads);
+    }
     return CallGraphTransitiveClosure.collectNodeResults(
-        cg, n -> scanNodeForMod(n, pa, heapExclude));
+        cg, n -> scanNodeForMod(n, n.getIR(), pa, heapExclude));
   }
 
   /**
@@ -112,8 +156,19 @@ public class ModRef<T extends InstanceKey> {
    */
   private Map<CGNode, Collection<PointerKey>> scanForRef(
       CallGraph cg, final PointerAnalysis<T> pa, final HeapExclusions heapExclude) {
+    if (nThreads > 1) {
+      return CallGraphTransitiveClosure.collectNodeResults(
+          cg,
+          n -> {
+            IR ir = n.getIR();
+            synchronized (pa) {
+              return scanNodeForRef(n, ir, pa, heapExclude);
+            }
+          },
+          nThreads);
+    }
     return CallGraphTransitiveClosure.collectNodeResults(
-        cg, n -> scanNodeForRef(n, pa, heapExclude));
+        cg, n -> scanNodeForRef(n, n.getIR(), pa, heapExclude));
   }
 
   public ExtendedHeapModel makeHeapModel(PointerAnalysis<T> pa) {
@@ -130,11 +185,10 @@ public class ModRef<T extends InstanceKey> {
    * NOT </b> including it's callees transitively
    */
   private Collection<PointerKey> scanNodeForMod(
-      final CGNode n, final PointerAnalysis<T> pa, HeapExclusions heapExclude) {
+      final CGNode n, IR ir, final PointerAnalysis<T> pa, HeapExclusions heapExclude) {
     Collection<PointerKey> result = HashSetFactory.make();
     final ExtendedHeapModel h = makeHeapModel(pa);
     SSAInstruction.Visitor v = makeModVisitor(n, result, pa, h);
-    IR ir = n.getIR();
     if (ir != null) {
       for (SSAInstruction inst : Iterator2Iterable.make(ir.iterateNormalInstructions())) {
         inst.visit(v);
@@ -152,11 +206,10 @@ public class ModRef<T extends InstanceKey> {
    * </b> including it's callees transitively
    */
   private Collection<PointerKey> scanNodeForRef(
-      final CGNode n, final PointerAnalysis<T> pa, HeapExclusions heapExclude) {
+      final CGNode n, IR ir, final PointerAnalysis<T> pa, HeapExclusions heapExclude) {
     Collection<PointerKey> result = HashSetFactory.make();
     final ExtendedHeapModel h = makeHeapModel(pa);
     SSAInstruction.Visitor v = makeRefVisitor(n, result, pa, h);
-    IR ir = n.getIR();
     if (ir != null) {
       for (SSAInstruction x : Iterator2Iterable.make(ir.iterateNormalInstructions())) {
         x.visit(v);
@@ -11,14 +11,20 @@
 package com.ibm.wala.ipa.slicer;
 
 import com.ibm.wala.dataflow.IFDS.BackwardsSupergraph;
+import com.ibm.wala.dataflow.IFDS.IFlowFunction;
 import com.ibm.wala.dataflow.IFDS.IMergeFunction;
 import com.ibm.wala.dataflow.IFDS.IPartiallyBalancedFlowFunctions;
 import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IdentityFlowFunction;
+import com.ibm.wala.dataflow.IFDS.PackedLocalPathEdges;
 import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationProblem;
 import com.ibm.wala.dataflow.IFDS.PartiallyBalancedTabulationSolver;
 import com.ibm.wala.dataflow.IFDS.PathEdge;
+import com.ibm.wala.dataflow.IFDS.SummaryCache;
 import com.ibm.wala.dataflow.IFDS.TabulationDomain;
 import com.ibm.wala.dataflow.IFDS.TabulationResult;
+import com.ibm.wala.dataflow.IFDS.TabulationSolver;
 import com.ibm.wala.dataflow.IFDS.UnorderedDomain;
 import com.ibm.wala.ipa.callgraph.CallGraph;
 import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
@@ -26,9 +32,13 @@ import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
 import com.ibm.wala.ipa.modref.ModRef;
 import com.ibm.wala.util.CancelException;
 import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 
 /**
  * A demand-driven context-sensitive slicer.
@@ -45,6 +55,73 @@ public class Slicer {
 
   public static final boolean VERBOSE = false;
 
+  /**
+   * summaries computed by earlier backward and forward slices of {@link #cachedSDG}, or null if
+   * this slicer does not keep them
+   */
+  private final SummaryCache<Statement, PDG<?>> backwardSummaries;
+
+  private final SummaryCache<Statement, PDG<?>> forwardSummaries;
+
+  /** the SDG sliced last, if summaries are kept */
+  private ISDG cachedSDG;
+
+  /** Should the solvers represent path edges by {@link PackedLocalPathEdges}? */
+  private boolean packedPathEdges = false;
+
+  /** path edge statistics of the last slice computed, or null if none was */
+  private TabulationSolver.PathEdgeStats pathEdgeStats;
+
+  /** A slicer that computes each slice from scratch. */
+  public Slicer() {
+    this.backwardSummaries = null;
+    this.forwardSummaries = null;
+  }
+
+  /**
+   * A slicer that reuses the summaries of procedures computed by earlier slices of the same SDG, in
+   * the same direction. This pays off when computing many slices of one SDG. Slicing another SDG
+   * drops the summaries. Such a slicer may not be used by several threads at once.
+   *
+   * @param maxCachedPathEdges the maximum number of path edges to keep, for each direction
+   * @throws IllegalArgumentException if maxCachedPathEdges &lt;= 0
+   */
+  public Slicer(long maxCachedPathEdges) {
+    this.backwardSummaries = new SummaryCache<>(maxCachedPathEdges);
+    this.forwardSummaries = new SummaryCache<>(maxCachedPathEdges);
+  }
+
+  /**
+   * @param backward the summaries of backward slices?
+   * @return the summaries kept for slices in the given direction, for statistics or to {@link
+   *     SummaryCache#invalidate} those of a changed procedure; null if this slicer keeps none
+   */
+  public SummaryCache<Statement, PDG<?>> getSummaryCache(boolean backward) {
+    return backward ? backwardSummaries : forwardSummaries;
+  }
+
+  /**
+   * Choose how the solvers of the slices computed from now on represent their path edges, as with
+   * {@link TabulationSolver#setPackedPathEdges}.
+   *
+   * @param packed if true, use {@link PackedLocalPathEdges}
+   */
+  public void setPackedPathEdges(boolean packed) {
+    this.packedPathEdges = packed;
+  }
+
+  public boolean isPackedPathEdges() {
+    return packedPathEdges;
+  }
+
+  /**
+   * @return the number of path edges of the last slice computed by this slicer, and an estimate of
+   *     the memory they took; null if it has computed none
+   */
+  public TabulationSolver.PathEdgeStats getPathEdgeStats() {
+    return pathEdgeStats;
+  }
+
   /** options to control data dependence edges in the SDG */
   public enum DataDependenceOptions {
     FULL("full", false, false, false, false),
@@ -217,6 +294,32 @@ public class Slicer {
     return computeSlice(sdg, ss, true);
   }
 
+  /**
+   * Use the passed-in SDG
+   *
+   * @return the backward slice of each statement in ss
+   */
+  public static Map<Statement, Collection<Statement>> computeBackwardSlices(
+      SDG<?> sdg, Collection<Statement> ss) throws IllegalArgumentException, CancelException {
+    if (sdg == null) {
+      throw new IllegalArgumentException("sdg cannot be null");
+    }
+    return new Slicer().sliceEach(sdg, ss, true, null);
+  }
+
+  /**
+   * Use the passed-in SDG
+   *
+   * @return the forward slice of each statement in ss
+   */
+  public static Map<Statement, Collection<Statement>> computeForwardSlices(
+      SDG<?> sdg, Collection<Statement> ss) throws IllegalArgumentException, CancelException {
+    if (sdg == null) {
+      throw new IllegalArgumentException("sdg cannot be null");
+    }
+    return new Slicer().sliceEach(sdg, ss, false, null);
+  }
+
   /**
    * @param ss a collection of statements of interest
    */
@@ -261,7 +364,17 @@ public class Slicer {
 
     PartiallyBalancedTabulationSolver<Statement, PDG<?>, Object> solver =
         PartiallyBalancedTabulationSolver.createPartiallyBalancedTabulationSolver(p, monitor);
+    solver.setPackedPathEdges(packedPathEdges);
+    if (backwardSummaries != null) {
+      if (sdg != cachedSDG) {
+        backwardSummaries.clear();
+        forwardSummaries.clear();
+        cachedSDG = sdg;
+      }
+      solver.setSummaryCache(getSummaryCache(backward));
+    }
     TabulationResult<Statement, PDG<?>, Object> tr = solver.solve();
+    pathEdgeStats = solver.getPathEdgeStats();
 
     Collection<Statement> slice = tr.getSupergraphNodesReached();
 
@@ -272,6 +385,50 @@ public class Slicer {
     return slice;
   }
 
+  /**
+   * Compute a separate slice for each of several criteria, in one tabulation: each dataflow fact
+   * names the criterion whose slice the statement is in. Since each criterion is a separate fact,
+   * there are as many path edges as in all the slices from each criterion in turn; {@link
+   * #setPackedPathEdges packed path edges} usually keep them smaller. The summaries this slicer
+   * keeps are neither used nor added to, since their facts are numbered for slices from one set of
+   * roots.
+   *
+   * @param sdg governing system dependence graph
+   * @param criteria the statements to slice from
+   * @param backward do backwards slices?
+   * @param monitor to cancel analysis if needed
+   * @return for each statement in criteria, the {@link Statement}s in its slice
+   */
+  public Map<Statement, Collection<Statement>> sliceEach(
+      SDG<?> sdg, Collection<Statement> criteria, boolean backward, IProgressMonitor monitor)
+      throws CancelException {
+    if (sdg == null) {
+      throw new IllegalArgumentException("sdg cannot be null");
+    }
+    if (criteria == null) {
+      throw new IllegalArgumentException("criteria cannot be null");
+    }
+    MultiSliceProblem p =
+        new MultiSliceProblem(makeSliceProblem(criteria, sdg, backward), criteria);
+    PartiallyBalancedTabulationSolver<Statement, PDG<?>, Statement> solver =
+        PartiallyBalancedTabulationSolver.createPartiallyBalancedTabulationSolver(p, monitor);
+    solver.setPackedPathEdges(packedPathEdges);
+    TabulationResult<Statement, PDG<?>, Statement> tr = solver.solve();
+    pathEdgeStats = solver.getPathEdgeStats();
+
+    Map<Statement, Collection<Statement>> result = HashMapFactory.make();
+    for (Statement st : criteria) {
+      result.put(st, HashSetFactory.make());
+    }
+    for (Statement st : tr.getSupergraphNodesReached()) {
+      IntSet reached = tr.getResult(st);
+      for (IntIterator it = reached.intIterator(); it.hasNext(); ) {
+        result.get(p.getDomain().getMappedObject(it.next())).add(st);
+      }
+    }
+    return result;
+  }
+
   /**
    * Return an object which encapsulates the tabulation logic for the slice problem. Subclasses can
    * override this method to implement special semantics.
@@ -373,4 +530,111 @@ public class Slicer {
           : new MethodEntryStatement(node.getNode());
     }
   }
+
+  /**
+   * Tabulation problem representing several slices at once: fact i means "in the slice of the i-th
+   * criterion". It uses the supergraph of a {@link SliceProblem}, and its flow functions, except
+   * that where those generate the reachability fact 0, these pass the criterion along.
+   */
+  public static class MultiSliceProblem
+      implements PartiallyBalancedTabulationProblem<Statement, PDG<?>, Statement> {
+
+    private final SliceProblem delegate;
+
+    /** maps each criterion to its fact */
+    private final UnorderedDomain<Statement, Statement> domain = new UnorderedDomain<>();
+
+    private final IPartiallyBalancedFlowFunctions<Statement> f;
+
+    public MultiSliceProblem(SliceProblem delegate, Collection<Statement> criteria) {
+      this.delegate = delegate;
+      for (Statement st : criteria) {
+        domain.add(st);
+      }
+      this.f = new MultiSliceFunctions(delegate.getFunctionMap());
+    }
+
+    @Override
+    public TabulationDomain<Statement, Statement> getDomain() {
+      return domain;
+    }
+
+    @Override
+    public IPartiallyBalancedFlowFunctions<Statement> getFunctionMap() {
+      return f;
+    }
+
+    @Override
+    public IMergeFunction getMergeFunction() {
+      return null;
+    }
+
+    @Override
+    public ISupergraph<Statement, PDG<?>> getSupergraph() {
+      return delegate.getSupergraph();
+    }
+
+    @Override
+    public Collection<PathEdge<Statement>> initialSeeds() {
+      Collection<PathEdge<Statement>> result = HashSetFactory.make();
+      for (Statement st : domain) {
+        int i = domain.getMappedIndex(st);
+        result.add(PathEdge.createPathEdge(getFakeEntry(st), i, st, i));
+      }
+      return result;
+    }
+
+    @Override
+    public Statement getFakeEntry(Statement node) {
+      return delegate.getFakeEntry(node);
+    }
+  }
+
+  /** Flow functions which pass facts along where the delegate generates the fact 0. */
+  private static class MultiSliceFunctions implements IPartiallyBalancedFlowFunctions<Statement> {
+
+    private final IPartiallyBalancedFlowFunctions<Statement> delegate;
+
+    MultiSliceFunctions(IPartiallyBalancedFlowFunctions<Statement> delegate) {
+      this.delegate = delegate;
+    }
+
+    private static IUnaryFlowFunction tag(IUnaryFlowFunction f) {
+      return f == ReachabilityFunctions.FLOW_REACHES ? IdentityFlowFunction.identity() : f;
+    }
+
+    private static IFlowFunction tag(IFlowFunction f) {
+      return f == ReachabilityFunctions.FLOW_REACHES ? IdentityFlowFunction.identity() : f;
+    }
+
+    @Override
+    public IUnaryFlowFunction getNormalFlowFunction(Statement src, Statement dest) {
+      return tag(delegate.getNormalFlowFunction(src, dest));
+    }
+
+    @Override
+    public IUnaryFlowFunction getCallFlowFunction(Statement src, Statement dest, Statement ret) {
+      return tag(delegate.getCallFlowFunction(src, dest, ret));
+    }
+
+    @Override
+    public IFlowFunction getReturnFlowFunction(Statement call, Statement src, Statement dest) {
+      return tag(delegate.getReturnFlowFunction(call, src, dest));
+    }
+
+    @Override
+    public IUnaryFlowFunction getCallToReturnFlowFunction(Statement src, Statement dest) {
+      return tag(delegate.getCallToReturnFlowFunction(src, dest));
+    }
+
+    @Override
+    public IUnaryFlowFunction getCallNoneToReturnFlowFunction(Statement src, Statement dest) {
+      return tag(delegate.getCallNoneToReturnFlowFunction(src, dest));
+    }
+
+    @Override
+    public IFlowFunction getUnbalancedReturnFlowFunction(Statement src, Statement dest) {
+      return tag(delegate.getUnbalancedReturnFlowFunction(src, dest));
+    }
+  }
 }
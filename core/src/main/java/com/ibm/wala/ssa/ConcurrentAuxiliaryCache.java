@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.ssa;
+
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.util.ref.CacheReference;
+import com.ibm.wala.ipa.callgraph.Context;
+import com.ibm.wala.util.collections.Pair;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A cache for auxiliary information based on an SSA representation, which may be used by several
+ * threads at once.
+ *
+ * <p>Unlike {@link AuxiliaryCache}, there is no lock on the whole cache. Each &lt;method, context,
+ * options&gt; triple has its own slot, and {@link #findOrCreate(IMethod, Context, SSAOptions,
+ * Supplier)} only locks that slot while creating its value, so threads can create values for
+ * different triples concurrently, while threads asking for the same triple wait for a single value
+ * to be created.
+ */
+public class ConcurrentAuxiliaryCache implements IAuxiliaryCache {
+
+  /**
+   * Help out the garbage collector: drop the slots whose values have been collected each time this
+   * many items have been cached
+   */
+  private static final int RESET_THRESHOLD = 2000;
+
+  /** A mapping from (IMethod,Context) -&gt; SSAOptions -&gt; slot holding a CacheReference */
+  private final ConcurrentHashMap<Pair<IMethod, Context>, ConcurrentHashMap<SSAOptions, Slot>>
+      dictionary = new ConcurrentHashMap<>();
+
+  /** number of items cached since the last reset */
+  private final AtomicInteger nItems = new AtomicInteger();
+
+  /** holds the cached value for one &lt;method, context, options&gt; triple */
+  private static final class Slot {
+    /** a CacheReference to the value, or null if none has been created yet */
+    private volatile Object ref;
+
+    Object get() {
+      return CacheReference.get(ref);
+    }
+
+    void set(Object value) {
+      ref = CacheReference.make(value);
+    }
+
+    /** has the value been created and then reclaimed by the garbage collector? */
+    boolean isCleared() {
+      Object r = ref;
+      return r != null && CacheReference.get(r) == null;
+    }
+  }
+
+  @Override
+  public void wipe() {
+    dictionary.clear();
+    nItems.set(0);
+  }
+
+  /**
+   * drop the slots whose values have been reclaimed. Each map is emptied and dropped while holding
+   * its key in {@link #dictionary}, so no other thread can add a slot to it meanwhile; see {@link
+   * #findOrCreateSlot(IMethod, Context, SSAOptions)}.
+   */
+  private void reset() {
+    for (Pair<IMethod, Context> key : dictionary.keySet()) {
+      dictionary.computeIfPresent(
+          key,
+          (k, methodMap) -> {
+            methodMap.values().removeIf(Slot::isCleared);
+            return methodMap.isEmpty() ? null : methodMap;
+          });
+    }
+  }
+
+  @Override
+  public Object find(IMethod m, Context c, SSAOptions options) {
+    Map<SSAOptions, Slot> methodMap = dictionary.get(Pair.make(m, c));
+    if (methodMap == null) {
+      return null;
+    }
+    Slot slot = methodMap.get(options);
+    return slot == null ? null : slot.get();
+  }
+
+  @Override
+  public void cache(IMethod m, Context c, SSAOptions options, Object aux) {
+    findOrCreateSlot(m, c, options).set(aux);
+    itemCached();
+  }
+
+  @Override
+  public Object findOrCreate(IMethod m, Context c, SSAOptions options, Supplier<?> factory) {
+    Object result = find(m, c, options);
+    if (result != null) {
+      return result;
+    }
+    Slot slot = findOrCreateSlot(m, c, options);
+    result = slot.get();
+    if (result == null) {
+      synchronized (slot) {
+        // another thread may have created the value while we were waiting
+        result = slot.get();
+        if (result == null) {
+          result = factory.get();
+          slot.set(result);
+          itemCached();
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Find the slot for a triple, creating it if needed. The slot is looked up and added while
+   * holding the key of its map in {@link #dictionary}, so {@link #reset()} cannot drop the map
+   * meanwhile. A slot whose value has been reclaimed is replaced by an empty one, which {@link
+   * #reset()} does not drop, so the value about to be created cannot be lost.
+   */
+  private Slot findOrCreateSlot(IMethod m, Context c, SSAOptions options) {
+    Slot[] result = new Slot[1];
+    dictionary.compute(
+        Pair.make(m, c),
+        (k, methodMap) -> {
+          if (methodMap == null) {
+            methodMap = new ConcurrentHashMap<>();
+          }
+          result[0] =
+              methodMap.compute(
+                  options, (o, slot) -> slot == null || slot.isCleared() ? new Slot() : slot);
+          return methodMap;
+        });
+    return result[0];
+  }
+
+  private void itemCached() {
+    if (nItems.incrementAndGet() > RESET_THRESHOLD) {
+      nItems.set(0);
+      reset();
+    }
+  }
+
+  @Override
+  public void invalidate(IMethod method, Context c) {
+    dictionary.remove(Pair.make(method, c));
+  }
+}
@@ -12,6 +12,7 @@ package com.ibm.wala.ssa;
 
 import com.ibm.wala.classLoader.IMethod;
 import com.ibm.wala.ipa.callgraph.Context;
+import java.util.function.Supplier;
 
 interface IAuxiliaryCache {
 
@@ -33,6 +34,20 @@ interface IAuxiliaryCache {
    */
   void cache(IMethod m, Context c, SSAOptions options, Object aux);
 
+  /**
+   * Find the object cached for an &lt;m,c,options&gt; triple, or create and cache it if none is
+   * found. An implementation that may be used by several threads must call the factory at most once
+   * for each triple at a time, so that concurrent requests for the same triple wait for a single
+   * result.
+   *
+   * @param m a method
+   * @param c the context in which m is analyzed
+   * @param options options governing ssa construction
+   * @param factory creates the object when none is cached
+   * @return the object cached for m
+   */
+  Object findOrCreate(IMethod m, Context c, SSAOptions options, Supplier<?> factory);
+
   /** invalidate all cached information about a method */
   void invalidate(IMethod method, Context c);
 }
@@ -17,6 +17,11 @@ import com.ibm.wala.ipa.callgraph.impl.Everywhere;
 /**
  * A mapping from IMethod -&gt; SSAOptions -&gt; SoftReference -&gt; Something
  *
+ * <p>This class does no locking of its own; it is as thread-safe as the {@link IAuxiliaryCache}s it
+ * is built on. With {@link AuxiliaryCache}s, construction of IRs is serialized; with {@link
+ * ConcurrentAuxiliaryCache}s, IRs for different methods and contexts may be built by several
+ * threads at once.
+ *
  * <p>This doesn't work very well ... GCs don't do such a great job with SoftReferences ... revamp
  * it.
  */
@@ -49,7 +54,7 @@ public class SSACache {
    * @return an IR for m, built according to the specified options. null if m is abstract or native.
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
+  public IR findOrCreateIR(final IMethod m, Context c, final SSAOptions options) {
 
     if (m == null) {
       throw new IllegalArgumentException("m is null");
@@ -66,12 +71,8 @@ public class SSACache {
       return factory.makeIR(m, c, options);
     }
 
-    IR ir = (IR) irCache.find(m, c, options);
-    if (ir == null) {
-      ir = factory.makeIR(m, c, options);
-      irCache.cache(m, c, options, ir);
-    }
-    return ir;
+    final Context context = c;
+    return (IR) irCache.findOrCreate(m, c, options, () -> factory.makeIR(m, context, options));
   }
 
   /**
@@ -80,7 +81,7 @@ public class SSACache {
    * @return DefUse information for m, built according to the specified options. null if unavailable
    * @throws IllegalArgumentException if m is null
    */
-  public synchronized DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
+  public DefUse findOrCreateDU(IMethod m, Context c, SSAOptions options) {
     if (m == null) {
       throw new IllegalArgumentException("m is null");
     }
@@ -91,13 +92,9 @@ public class SSACache {
       c = Everywhere.EVERYWHERE;
     }
 
-    DefUse du = (DefUse) duCache.find(m, c, options);
-    if (du == null) {
-      IR ir = findOrCreateIR(m, c, options);
-      du = new DefUse(ir);
-      duCache.cache(m, c, options, du);
-    }
-    return du;
+    final Context context = c;
+    return (DefUse)
+        duCache.findOrCreate(m, c, options, () -> new DefUse(findOrCreateIR(m, context, options)));
   }
 
   /**
@@ -105,16 +102,11 @@ public class SSACache {
    *     unavailable
    * @throws IllegalArgumentException if ir is null
    */
-  public synchronized DefUse findOrCreateDU(IR ir, Context C) {
+  public DefUse findOrCreateDU(IR ir, Context C) {
     if (ir == null) {
       throw new IllegalArgumentException("ir is null");
     }
-    DefUse du = (DefUse) duCache.find(ir.getMethod(), C, ir.getOptions());
-    if (du == null) {
-      du = new DefUse(ir);
-      duCache.cache(ir.getMethod(), C, ir.getOptions(), du);
-    }
-    return du;
+    return (DefUse) duCache.findOrCreate(ir.getMethod(), C, ir.getOptions(), () -> new DefUse(ir));
   }
 
   /** The existence of this is unfortunate. */
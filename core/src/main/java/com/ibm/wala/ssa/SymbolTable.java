@@ -10,10 +10,9 @@
  */
 package com.ibm.wala.ssa;
 
-import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.ObjectIntMap;
 import com.ibm.wala.util.debug.Assertions;
 import java.util.Arrays;
-import java.util.HashMap;
 
 /**
  * A symbol table which associates information with each variable (value number) in an SSA IR.
@@ -31,7 +30,7 @@ public class SymbolTable implements Cloneable {
   private final int[] parameters;
 
   /** Mapping from Constant -&gt; value number */
-  private HashMap<ConstantValue, Integer> constants = HashMapFactory.make(10);
+  private ObjectIntMap<ConstantValue> constants = new ObjectIntMap<>();
 
   private boolean copy = false;
 
@@ -77,14 +76,13 @@ public class SymbolTable implements Cloneable {
    */
   int findOrCreateConstant(Object o, boolean isDefault) {
     ConstantValue v = new ConstantValue(o);
-    Integer result = constants.get(v);
-    if (result == null) {
+    int result = constants.getOrDefault(v, -1);
+    if (result == -1) {
       assert !(copy && !isDefault) : "making value for " + o;
-      int r = getNewValueNumber();
-      result = r;
+      result = getNewValueNumber();
       constants.put(v, result);
-      assert r < nextFreeValueNumber;
-      values[r] = v;
+      assert result < nextFreeValueNumber;
+      values[result] = v;
     } else {
       assert values[result] instanceof ConstantValue;
     }
@@ -454,7 +452,7 @@ public class SymbolTable implements Cloneable {
       if (this.defaultValues != null) {
         nt.defaultValues = this.defaultValues.clone();
       }
-      nt.constants = HashMapFactory.make(this.constants);
+      nt.constants = new ObjectIntMap<>(this.constants);
       nt.copy = true;
       return nt;
     } catch (CloneNotSupportedException e) {
@@ -11,11 +11,10 @@
 package com.ibm.wala.types;
 
 import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.util.ref.CanonicalTable;
 import com.ibm.wala.core.util.strings.ImmutableByteArray;
 import com.ibm.wala.core.util.strings.StringStuff;
 import com.ibm.wala.core.util.strings.UTF8Convert;
-import com.ibm.wala.util.collections.HashMapFactory;
-import java.util.Map;
 
 /**
  * A method descriptor; something like: (Ljava/langString;)Ljava/lang/Class;
@@ -24,8 +23,16 @@ import java.util.Map;
  */
 public final class Descriptor {
 
-  /** A mapping from Key -&gt; Descriptor */
-  private static final Map<Key, Descriptor> map = HashMapFactory.make();
+  /** A mapping from Key -&gt; Descriptor; lookups take no lock */
+  private static final CanonicalTable<Key, Descriptor> map = new CanonicalTable<>();
+
+  private static Descriptor findOrCreate(Key k) {
+    Descriptor val = map.get(k);
+    if (val != null) {
+      return val;
+    }
+    return map.putIfAbsent(k, new Descriptor(k));
+  }
 
   /** key holds the logical value of this descriptor */
   private final Key key;
@@ -43,12 +50,7 @@ public final class Descriptor {
       parameters = null;
     }
     Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return findOrCreate(k);
   }
 
   /**
@@ -60,12 +62,7 @@ public final class Descriptor {
     TypeName returnType = StringStuff.parseForReturnTypeName(l, b);
     TypeName[] parameters = StringStuff.parseForParameterNames(l, b);
     Key k = new Key(returnType, parameters);
-    Descriptor result = map.get(k);
-    if (result == null) {
-      result = new Descriptor(k);
-      map.put(k, result);
-    }
-    return result;
+    return findOrCreate(k);
   }
 
   public static Descriptor findOrCreate(ImmutableByteArray b) throws IllegalArgumentException {
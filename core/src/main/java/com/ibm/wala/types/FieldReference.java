@@ -10,19 +10,18 @@
  */
 package com.ibm.wala.types;
 
+import com.ibm.wala.core.util.ref.CanonicalTable;
 import com.ibm.wala.core.util.shrike.ShrikeUtil;
 import com.ibm.wala.core.util.strings.Atom;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
-import java.util.HashMap;
 
 /** A class to represent the reference in a class file to a field. */
 public final class FieldReference extends MemberReference {
   private static final boolean DEBUG = false;
 
   /** Used to canonicalize MemberReferences a mapping from Key -&gt; MemberReference */
-  private static final HashMap<Key, FieldReference> dictionary = HashMapFactory.make();
+  private static final CanonicalTable<Key, FieldReference> dictionary = new CanonicalTable<>();
 
   private final TypeReference fieldType;
 
@@ -36,8 +35,7 @@ public final class FieldReference extends MemberReference {
    *
    * @param mn the name of the member
    */
-  public static synchronized FieldReference findOrCreate(
-      TypeReference tref, Atom mn, TypeReference fieldType) {
+  public static FieldReference findOrCreate(TypeReference tref, Atom mn, TypeReference fieldType) {
     if (tref == null) {
       throw new IllegalArgumentException("null tref");
     }
@@ -47,11 +45,7 @@ public final class FieldReference extends MemberReference {
     if (val != null) {
       return val;
     }
-
-    val = new FieldReference(key, fieldType);
-
-    dictionary.put(key, val);
-    return val;
+    return dictionary.putIfAbsent(key, new FieldReference(key, fieldType));
   }
 
   /** Find or create the canonical MemberReference instance for the given tuple. */
@@ -10,14 +10,13 @@
  */
 package com.ibm.wala.types;
 
+import com.ibm.wala.core.util.ref.CanonicalTable;
 import com.ibm.wala.core.util.strings.Atom;
 import com.ibm.wala.core.util.strings.ImmutableByteArray;
 import com.ibm.wala.core.util.strings.StringStuff;
-import com.ibm.wala.util.collections.HashMapFactory;
 import com.ibm.wala.util.debug.Assertions;
 import java.io.Serializable;
 import java.io.UTFDataFormatException;
-import java.util.Map;
 
 /**
  * We've introduced this class to canonicalize Atoms that represent package names.
@@ -37,16 +36,15 @@ public final class TypeName implements Serializable {
   /* Serial version */
   private static final long serialVersionUID = -3256390509887654326L;
 
-  /** canonical mapping from TypeNameKey -&gt; TypeName */
-  private static final Map<TypeNameKey, TypeName> map = HashMapFactory.make();
+  /** canonical mapping from TypeNameKey -&gt; TypeName; lookups take no lock */
+  private static final CanonicalTable<TypeNameKey, TypeName> map = new CanonicalTable<>();
 
-  private static synchronized TypeName findOrCreate(TypeNameKey t) {
-    TypeName result = map.get(t);
-    if (result == null) {
-      result = new TypeName(t);
-      map.put(t, result);
+  private static TypeName findOrCreate(TypeNameKey t) {
+    TypeName val = map.get(t);
+    if (val != null) {
+      return val;
     }
-    return result;
+    return map.putIfAbsent(t, new TypeName(t));
   }
 
   /** The key object holds all the information about a type name */
@@ -14,9 +14,10 @@ import static com.ibm.wala.types.TypeName.ArrayMask;
 import static com.ibm.wala.types.TypeName.ElementBits;
 import static com.ibm.wala.types.TypeName.PrimitiveMask;
 
-import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.core.util.ref.CanonicalTable;
 import java.io.Serializable;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A class to represent the reference in a class file to some type (class, primitive or array). A
@@ -42,10 +43,10 @@ public final class TypeReference implements Serializable {
    */
 
   /** Used for fast access to primitives. Primitives appear in the main dictionary also. */
-  private static final Map<TypeName, TypeReference> primitiveMap = HashMapFactory.make();
+  private static final Map<TypeName, TypeReference> primitiveMap = new ConcurrentHashMap<>();
 
-  /** Used to canonicalize TypeReferences. */
-  private static final Map<Key, TypeReference> dictionary = HashMapFactory.make();
+  /** Used to canonicalize TypeReferences. Lookups take no lock. */
+  private static final CanonicalTable<Key, TypeReference> dictionary = new CanonicalTable<>();
 
   /*
    * Primitive Dispatch *
@@ -434,8 +435,7 @@ public final class TypeReference implements Serializable {
    *
    * @param cl the classloader (defining/initiating depending on usage)
    */
-  public static synchronized TypeReference findOrCreate(
-      ClassLoaderReference cl, TypeName typeName) {
+  public static TypeReference findOrCreate(ClassLoaderReference cl, TypeName typeName) {
 
     if (cl == null) {
       throw new IllegalArgumentException("null cl");
@@ -456,11 +456,10 @@ public final class TypeReference implements Serializable {
 
     Key key = new Key(cl, typeName);
     TypeReference val = dictionary.get(key);
-    if (val == null) {
-      val = new TypeReference(cl, typeName);
-      dictionary.put(key, val);
+    if (val != null) {
+      return val;
     }
-    return val;
+    return dictionary.putIfAbsent(key, new TypeReference(cl, typeName));
   }
 
   /**
@@ -469,11 +468,11 @@ public final class TypeReference implements Serializable {
    * @param cl the classloader (defining/initiating depending on usage)
    * @param typeName something like "Ljava/util/Arrays"
    */
-  public static synchronized TypeReference findOrCreate(ClassLoaderReference cl, String typeName) {
+  public static TypeReference findOrCreate(ClassLoaderReference cl, String typeName) {
     return findOrCreate(cl, TypeName.string2TypeName(typeName));
   }
 
-  public static synchronized TypeReference find(ClassLoaderReference cl, String typeName) {
+  public static TypeReference find(ClassLoaderReference cl, String typeName) {
     return find(cl, TypeName.string2TypeName(typeName));
   }
 
@@ -482,7 +481,7 @@ public final class TypeReference implements Serializable {
    *
    * @param cl the classloader (defining/initiating depending on usage)
    */
-  public static synchronized TypeReference find(ClassLoaderReference cl, TypeName typeName) {
+  public static TypeReference find(ClassLoaderReference cl, TypeName typeName) {
     if (cl == null) {
       throw new IllegalArgumentException("null cl");
     }
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.FieldReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeName;
+import com.ibm.wala.types.TypeReference;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Check that {@link Atom}s, {@link TypeName}s and member references created by several threads at
+ * once are canonical, and that atoms in compact storage behave like any others.
+ */
+public class ConcurrentInterningTest extends WalaTestCase {
+
+  private static final int THREADS = 8;
+
+  private static final int NAMES = 2000;
+
+  /** intern the same names as every other thread, in a different order */
+  private static List<Object> internAll(int seed) {
+    List<Object> result = new ArrayList<>();
+    for (int j = 0; j < NAMES; j++) {
+      int i = (j * 7 + seed * 31) % NAMES;
+      String name = "Lconcurrent/Interning" + i;
+      TypeReference t = TypeReference.findOrCreate(ClassLoaderReference.Application, name);
+      result.add(Atom.findOrCreateUnicodeAtom("atom" + i));
+      result.add(TypeName.string2TypeName(name));
+      result.add(t);
+      result.add(MethodReference.findOrCreate(t, "m" + i, "(I)" + name + ';'));
+      result.add(FieldReference.findOrCreate(t, Atom.findOrCreateUnicodeAtom("f" + i), t));
+    }
+    // put them back in a common order
+    List<Object> sorted = new ArrayList<>(result);
+    for (int j = 0; j < NAMES; j++) {
+      int i = (j * 7 + seed * 31) % NAMES;
+      for (int k = 0; k < 5; k++) {
+        sorted.set(5 * i + k, result.get(5 * j + k));
+      }
+    }
+    return sorted;
+  }
+
+  @Test
+  public void testConcurrentFindOrCreate() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      CyclicBarrier start = new CyclicBarrier(THREADS);
+      List<Future<List<Object>>> futures = new ArrayList<>();
+      for (int t = 0; t < THREADS; t++) {
+        int seed = t;
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return internAll(seed);
+                }));
+      }
+      List<Object> first = futures.get(0).get();
+      assertEquals(5 * NAMES, first.size());
+      for (Future<List<Object>> f : futures) {
+        List<Object> other = f.get();
+        for (int i = 0; i < first.size(); i++) {
+          assertSame(first.get(i), other.get(i));
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+    // and they are the same objects a sequential lookup finds
+    assertSame(
+        TypeReference.findOrCreate(ClassLoaderReference.Application, "Lconcurrent/Interning17"),
+        TypeReference.find(ClassLoaderReference.Application, "Lconcurrent/Interning17"));
+  }
+
+  @Test
+  public void testCompactStorage() throws IOException, ClassNotFoundException {
+    boolean old = Atom.isCompactStorage();
+    Atom.setCompactStorage(true);
+    try {
+      List<Atom> atoms = new ArrayList<>();
+      for (int i = 0; i < 10000; i++) {
+        atoms.add(Atom.findOrCreateAsciiAtom("[[Lcompact/Storage" + i + ';'));
+      }
+      for (int i = 0; i < atoms.size(); i++) {
+        String s = "[[Lcompact/Storage" + i + ';';
+        Atom a = atoms.get(i);
+        assertSame(a, Atom.findOrCreateAsciiAtom(s));
+        assertEquals(s, a.toString());
+        assertEquals(s.length(), a.length());
+        assertArrayEquals(s.getBytes(), a.getValArray());
+        assertEquals((byte) ';', a.getVal(s.length() - 1));
+        assertTrue(a.isArrayDescriptor());
+        assertFalse(a.isClassDescriptor());
+        assertEquals(2, a.parseForArrayDimensionality());
+        assertSame(
+            Atom.findOrCreateAsciiAtom(s.substring(1)), a.parseForArrayElementDescriptor());
+        assertSame(
+            Atom.findOrCreateAsciiAtom(s.substring(2)),
+            a.parseForInnermostArrayElementDescriptor());
+        assertSame(Atom.findOrCreateAsciiAtom("[[L"), a.left(3));
+        assertSame(Atom.findOrCreateAsciiAtom(s.substring(3)), a.right(s.length() - 3));
+        assertTrue(a.startsWith(Atom.findOrCreateAsciiAtom("[[Lcompact")));
+        assertEquals(1, a.rIndex((byte) ';'));
+        assertTrue(a.contains((byte) '/'));
+        assertFalse(a.contains((byte) '$'));
+        assertSame(a, Atom.concat(Atom.findOrCreateAsciiAtom("[[L"), a.right(s.length() - 3)));
+      }
+      Atom a = atoms.get(42);
+      assertThrows(IllegalArgumentException.class, () -> a.getVal(a.length()));
+      assertThrows(IllegalArgumentException.class, () -> a.left(a.length() + 1));
+      assertThrows(
+          IllegalStateException.class,
+          () -> Atom.findOrCreateAsciiAtom("[[").parseForArrayDimensionality());
+
+      // a deserialized atom is the canonical one
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(a);
+      }
+      try (ObjectInputStream in =
+          new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+        assertSame(a, in.readObject());
+      }
+    } finally {
+      Atom.setCompactStorage(old);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.basic;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.ref.InterningSession;
+import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.TypeReference;
+import java.lang.ref.WeakReference;
+import org.junit.jupiter.api.Test;
+
+/** Check that objects interned during an {@link InterningSession} are released after it. */
+public class InterningSessionTest extends WalaTestCase {
+
+  /**
+   * collect garbage until r is cleared, or give up. The dictionaries are touched in between, so
+   * that they drop the keys of reclaimed entries, which may be what keeps r alive.
+   */
+  private static void awaitCleared(WeakReference<?> r) throws InterruptedException {
+    for (int i = 0; i < 50 && r.get() != null; i++) {
+      System.gc();
+      Thread.sleep(20);
+      TypeReference.find(ClassLoaderReference.Application, "Lsession/Unused");
+    }
+  }
+
+  private static MethodReference makeMethod(String klass) {
+    TypeReference t = TypeReference.findOrCreate(ClassLoaderReference.Application, klass);
+    return MethodReference.findOrCreate(t, "sessionMethod", "(Ljava/lang/Object;)V");
+  }
+
+  @Test
+  public void testRelease() throws InterruptedException {
+    WeakReference<MethodReference> method;
+    WeakReference<TypeReference> type;
+    WeakReference<Atom> atom;
+    try (InterningSession session = InterningSession.open()) {
+      assertSame(session, InterningSession.getActive());
+      MethodReference m = makeMethod("Lsession/Released");
+      // identity within the session
+      assertSame(m, makeMethod("Lsession/Released"));
+      assertTrue(session.size() > 0);
+      method = new WeakReference<>(m);
+      type = new WeakReference<>(m.getDeclaringClass());
+      atom = new WeakReference<>(Atom.findOrCreateUnicodeAtom("sessionMethod"));
+      // still held by the session
+      m = null;
+      System.gc();
+      assertNotNull(method.get());
+      assertNotNull(type.get());
+    }
+    assertNull(InterningSession.getActive());
+    awaitCleared(method);
+    awaitCleared(type);
+    awaitCleared(atom);
+    assertNull(method.get());
+    assertNull(type.get());
+    assertNull(atom.get());
+    assertNull(TypeReference.find(ClassLoaderReference.Application, "Lsession/Released"));
+
+    // and may be created again
+    MethodReference m = makeMethod("Lsession/Released");
+    assertSame(m, makeMethod("Lsession/Released"));
+    assertEquals("sessionMethod", m.getName().toString());
+  }
+
+  @Test
+  public void testReachableObjectsStayCanonical() {
+    MethodReference kept;
+    try (InterningSession session = InterningSession.open()) {
+      kept = makeMethod("Lsession/Kept");
+      assertTrue(session.size() > 0);
+    }
+    WeakReference<MethodReference> r = new WeakReference<>(kept);
+    System.gc();
+    assertSame(kept, makeMethod("Lsession/Kept"));
+    assertSame(r.get(), kept);
+  }
+
+  @Test
+  public void testNoSession() throws InterruptedException {
+    WeakReference<TypeReference> type =
+        new WeakReference<>(
+            TypeReference.findOrCreate(ClassLoaderReference.Application, "Lsession/Outside"));
+    awaitCleared(type);
+    assertNotNull(type.get());
+  }
+
+  @Test
+  public void testNesting() {
+    InterningSession outer = InterningSession.open();
+    InterningSession inner = InterningSession.open();
+    assertSame(inner, InterningSession.getActive());
+    inner.close();
+    assertTrue(inner.isClosed());
+    assertEquals(0, inner.size());
+    assertSame(outer, InterningSession.getActive());
+    outer.close();
+    assertNull(InterningSession.getActive());
+
+    // out of order
+    outer = InterningSession.open();
+    inner = InterningSession.open();
+    outer.close();
+    assertSame(inner, InterningSession.getActive());
+    inner.close();
+    assertNull(InterningSession.getActive());
+  }
+
+  @Test
+  public void testConcurrentSessions() throws InterruptedException {
+    InterningSession[] seen = new InterningSession[3];
+    try (InterningSession session = InterningSession.open()) {
+      Thread other =
+          new Thread(
+              () -> {
+                // a thread created in a session starts out in it
+                seen[0] = InterningSession.getActive();
+                // but may analyze another program in a session of its own
+                try (InterningSession mine = InterningSession.open()) {
+                  seen[1] = mine;
+                  makeMethod("Lsession/OtherThread");
+                }
+                seen[2] = InterningSession.getActive();
+              });
+      other.start();
+      other.join();
+      assertSame(session, seen[0]);
+      assertTrue(seen[1].isClosed());
+      assertSame(session, seen[2]);
+      // closing the other thread's session did not affect this one
+      assertSame(session, InterningSession.getActive());
+      assertFalse(session.isClosed());
+    }
+    assertNull(InterningSession.getActive());
+  }
+}
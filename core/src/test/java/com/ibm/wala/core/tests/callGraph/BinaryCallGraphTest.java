@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.NewSiteReference;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.binary.CallGraphReader;
+import com.ibm.wala.ipa.callgraph.binary.CallGraphWriter;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.FilteredPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.LocalPointerKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for writing call graphs with {@link CallGraphWriter} and reading them back. */
+public class BinaryCallGraphTest extends WalaTestCase {
+
+  @Test
+  public void testRoundTrip(@TempDir Path tmpDir)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.SLICE2_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    Path file = tmpDir.resolve("cg.bin");
+    CallGraphWriter.write(cg, pa, file);
+    CallGraphReader reader = CallGraphReader.open(file, cha, new AnalysisCacheImpl());
+    CallGraph read = reader.getCallGraph();
+    PointerAnalysis<InstanceKey> readPa = reader.getPointerAnalysis();
+
+    assertEquals(cg.getNumberOfNodes(), read.getNumberOfNodes());
+    assertEquals(cg.getMaxNumber(), read.getMaxNumber());
+    assertEquals(cg.getNumber(cg.getFakeRootNode()), read.getNumber(read.getFakeRootNode()));
+    assertEquals(cg.getEntrypointNodes().size(), read.getEntrypointNodes().size());
+    int nArrays = 0;
+    for (CGNode n : cg) {
+      CGNode r = read.getNode(cg.getNumber(n));
+      assertEquals(n.getMethod().getReference(), r.getMethod().getReference());
+      assertEquals(n.getContext().toString(), r.getContext().toString());
+      assertTrue(read.getNodes(n.getMethod().getReference()).contains(r));
+      assertEquals(numbers(cg, cg.getSuccNodes(n)), numbers(read, read.getSuccNodes(r)));
+      assertEquals(numbers(cg, cg.getPredNodes(n)), numbers(read, read.getPredNodes(r)));
+      for (CallSiteReference site : Iterator2Iterable.make(n.iterateCallSites())) {
+        assertEquals(
+            numbers(cg, cg.getPossibleTargets(n, site).iterator()),
+            numbers(read, read.getPossibleTargets(r, site).iterator()));
+      }
+      Set<Object> newSites = HashSetFactory.make();
+      n.iterateNewSites().forEachRemaining(newSites::add);
+      Set<Object> readNewSites = HashSetFactory.make();
+      r.iterateNewSites().forEachRemaining(readNewSites::add);
+      assertEquals(newSites, readNewSites);
+      for (NewSiteReference site : Iterator2Iterable.make(n.iterateNewSites())) {
+        InstanceKey ik = pa.getHeapModel().getInstanceKeyForAllocation(n, site);
+        if (ik != null && pa.getInstanceKeyMapping().getMappedIndex(ik) >= 0) {
+          InstanceKey readIk = readPa.getHeapModel().getInstanceKeyForAllocation(r, site);
+          assertNotNull(readIk);
+          assertTrue(creationSites(read, readIk).contains(Pair.make(r, site)));
+          assertEquals(
+              pa.getInstanceKeyMapping().getMappedIndex(ik),
+              readPa.getInstanceKeyMapping().getMappedIndex(readIk));
+        }
+        TypeReference type = site.getDeclaredType();
+        int dims = type.isArrayType() ? type.getDimensionality() : 0;
+        for (int dim = 0; dim < dims - 1; dim++) {
+          ik = pa.getHeapModel().getInstanceKeyForMultiNewArray(n, site, dim);
+          if (ik != null && pa.getInstanceKeyMapping().getMappedIndex(ik) >= 0) {
+            InstanceKey readIk = readPa.getHeapModel().getInstanceKeyForMultiNewArray(r, site, dim);
+            assertNotNull(readIk);
+            assertEquals(
+                pa.getInstanceKeyMapping().getMappedIndex(ik),
+                readPa.getInstanceKeyMapping().getMappedIndex(readIk));
+            nArrays++;
+          }
+        }
+      }
+      if (n.getMethod()
+          .getDeclaringClass()
+          .getClassLoader()
+          .getReference()
+          .equals(scope.getApplicationLoader())) {
+        assertNotNull(r.getIR());
+      }
+    }
+
+    assertEquals(
+        pa.getInstanceKeyMapping().getMaximumIndex(),
+        readPa.getInstanceKeyMapping().getMaximumIndex());
+    for (int i = 0; i <= pa.getInstanceKeyMapping().getMaximumIndex(); i++) {
+      InstanceKey ik = pa.getInstanceKeyMapping().getMappedObject(i);
+      InstanceKey readIk = readPa.getInstanceKeyMapping().getMappedObject(i);
+      assertEquals(ik.toString(), readIk.toString());
+      assertEquals(ik.getConcreteType(), readIk.getConcreteType());
+    }
+    assertTrue(nArrays > 0);
+    int nLocals = 0;
+    int nFiltered = 0;
+    for (PointerKey key : pa.getPointerKeys()) {
+      if (key instanceof LocalPointerKey) {
+        LocalPointerKey l = (LocalPointerKey) key;
+        CGNode r = read.getNode(cg.getNumber(l.getNode()));
+        PointerKey readKey = readPa.getHeapModel().getPointerKeyForLocal(r, l.getValueNumber());
+        if (key instanceof FilteredPointerKey) {
+          readKey =
+              readPa
+                  .getHeapModel()
+                  .getFilteredPointerKeyForLocal(
+                      r, l.getValueNumber(), ((FilteredPointerKey) key).getTypeFilter());
+          nFiltered++;
+        }
+        assertEquals(
+            indices(pa, pa.getPointsToSet(key)), indices(readPa, readPa.getPointsToSet(readKey)));
+        nLocals++;
+      }
+    }
+    assertTrue(nLocals > 0);
+    assertTrue(nFiltered > 0);
+    assertNull(readPa.getHeapModel().getInstanceKeyForConstant(TypeReference.JavaLangString, ""));
+    assertNull(
+        readPa
+            .getHeapModel()
+            .getInstanceKeyForMetadataObject(
+                TypeReference.JavaLangString, TypeReference.JavaLangClass));
+  }
+
+  private static Set<Integer> numbers(CallGraph cg, Iterator<CGNode> nodes) {
+    Set<Integer> result = HashSetFactory.make();
+    nodes.forEachRemaining(n -> result.add(cg.getNumber(n)));
+    return result;
+  }
+
+  private static Set<Pair<CGNode, NewSiteReference>> creationSites(CallGraph cg, InstanceKey ik) {
+    Set<Pair<CGNode, NewSiteReference>> result = HashSetFactory.make();
+    ik.getCreationSites(cg).forEachRemaining(result::add);
+    return result;
+  }
+
+  private static Set<Integer> indices(PointerAnalysis<InstanceKey> pa, OrdinalSet<InstanceKey> s) {
+    Set<Integer> result = HashSetFactory.make();
+    for (InstanceKey ik : s) {
+      result.add(pa.getInstanceKeyMapping().getMappedIndex(ik));
+    }
+    return result;
+  }
+}
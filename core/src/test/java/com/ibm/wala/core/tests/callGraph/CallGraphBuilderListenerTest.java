@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.ContextSelector;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.CallGraphBuilderMetrics;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.propagation.rta.RTAContextInterpreter;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Check the metrics reported to a listener during call graph construction. */
+public class CallGraphBuilderListenerTest extends WalaTestCase {
+
+  @Test
+  public void testSamples()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.SLICE1_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder =
+        Util.makeZeroCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    ContextSelector selector = builder.getContextSelector();
+    RTAContextInterpreter interpreter = builder.getContextInterpreter();
+
+    List<CallGraphBuilderMetrics> samples = new ArrayList<>();
+    List<int[]> histograms = new ArrayList<>();
+    builder.setListener(
+        m -> {
+          samples.add(m);
+          if (m.isFinished()) {
+            histograms.add(m.getPointsToSetSizeHistogram());
+          }
+        },
+        1);
+    CallGraph cg = builder.makeCallGraph(options, null);
+
+    // samples are taken while solving, and once more at the end
+    assertTrue(samples.size() > 1);
+    CallGraphBuilderMetrics last = samples.get(samples.size() - 1);
+    assertTrue(last.isFinished());
+    for (CallGraphBuilderMetrics m : samples.subList(0, samples.size() - 1)) {
+      assertFalse(m.isFinished());
+      assertTrue(m.getNumberOfEvaluations() <= last.getNumberOfEvaluations());
+    }
+    assertEquals(cg.getNumberOfNodes(), last.getNumberOfNodes());
+    assertEquals(0, last.getWorkListSize());
+    assertTrue(last.getNumberOfEvaluations() > 0);
+    assertTrue(last.getNumberOfStatements() > 0);
+    assertTrue(last.getContextSelectorNanos() > 0);
+    assertTrue(last.getContextInterpreterNanos() > 0);
+    assertFalse(last.getIRConstructionNanos().isEmpty());
+
+    assertEquals(1, histograms.size());
+    int[] histogram = histograms.get(0);
+    int nVariables = 0;
+    for (int count : histogram) {
+      nVariables += count;
+    }
+    assertTrue(nVariables > 0);
+    assertTrue(histogram[histogram.length - 1] > 0);
+
+    // the timing wrappers do not outlive call graph construction
+    assertSame(selector, builder.getContextSelector());
+    assertSame(interpreter, builder.getContextInterpreter());
+  }
+}
@@ -20,6 +20,7 @@ import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSetFactory;
 import com.ibm.wala.util.intset.MutableSharedBitVectorIntSetFactory;
 import com.ibm.wala.util.intset.MutableSparseIntSetFactory;
+import com.ibm.wala.util.intset.RoaringMutableIntSetFactory;
 import com.ibm.wala.util.intset.SemiSparseMutableIntSetFactory;
 import java.io.IOException;
 import org.junit.jupiter.api.Tag;
@@ -79,4 +80,10 @@ public class DebuggingBitsetCallGraphTest extends WalaTestCase {
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
     runBitsetTest(new SemiSparseMutableIntSetFactory(), new MutableSharedBitVectorIntSetFactory());
   }
+
+  @Test
+  public void testRoaringSparse()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    runBitsetTest(new RoaringMutableIntSetFactory(), new MutableSparseIntSetFactory());
+  }
 }
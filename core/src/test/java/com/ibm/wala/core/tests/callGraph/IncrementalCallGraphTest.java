@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.CallSiteReference;
+import com.ibm.wala.classLoader.ClassFileModule;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.classLoader.ShrikeClass;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.core.util.shrike.ShrikeClassReaderHandle;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.util.CallGraphSearchUtil;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.shrike.shrikeBT.ConstantInstruction;
+import com.ibm.wala.shrike.shrikeBT.Constants;
+import com.ibm.wala.shrike.shrikeBT.IInstruction;
+import com.ibm.wala.shrike.shrikeBT.LoadInstruction;
+import com.ibm.wala.shrike.shrikeBT.MethodData;
+import com.ibm.wala.shrike.shrikeBT.MethodEditor;
+import com.ibm.wala.shrike.shrikeBT.PopInstruction;
+import com.ibm.wala.shrike.shrikeBT.PutInstruction;
+import com.ibm.wala.shrike.shrikeBT.ReturnInstruction;
+import com.ibm.wala.shrike.shrikeBT.shrikeCT.ClassInstrumenter;
+import com.ibm.wala.shrike.shrikeCT.InvalidClassFileException;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.types.MethodReference;
+import com.ibm.wala.types.Selector;
+import com.ibm.wala.types.TypeReference;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Tests for {@link SSAPropagationCallGraphBuilder#updateCallGraph}. */
+public class IncrementalCallGraphTest extends WalaTestCase {
+
+  private static final TypeReference A =
+      TypeReference.findOrCreate(ClassLoaderReference.Application, "Lslice/A");
+
+  private static final TypeReference B =
+      TypeReference.findOrCreate(ClassLoaderReference.Application, "Lslice/B");
+
+  /** Runs this.f = this. */
+  private static final MethodEditor.Patch SET_F =
+      new MethodEditor.Patch() {
+        @Override
+        public void emitTo(MethodEditor.Output w) {
+          w.emit(LoadInstruction.make(Constants.TYPE_Object, 0));
+          w.emit(LoadInstruction.make(Constants.TYPE_Object, 0));
+          w.emit(PutInstruction.make(Constants.TYPE_Object, "Lslice/A;", "f", false));
+        }
+      };
+
+  private static IClassHierarchy makeCHA(boolean excludeB)
+      throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    if (excludeB) {
+      scope.getExclusions().add("slice/B");
+    }
+    return ClassHierarchyFactory.make(scope);
+  }
+
+  private static SSAPropagationCallGraphBuilder makeBuilder(IClassHierarchy cha) {
+    Iterable<Entrypoint> entrypoints =
+        Util.makeMainEntrypoints(cha, TestConstants.SLICE_TESTMULTITARGET);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(cha.getScope(), entrypoints);
+    return Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+  }
+
+  @Test
+  public void testNothingChanged()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = makeCHA(false);
+    SSAPropagationCallGraphBuilder builder = makeBuilder(cha);
+    CallGraph cg = builder.makeCallGraph(builder.getOptions(), null);
+    Set<String> before = signatures(cg);
+
+    List<IClass> changed = List.of(cha.lookupClass(A), cha.lookupClass(B));
+    assertTrue(
+        builder.updateCallGraph(changed, Collections.emptySet(), Collections.emptySet(), null));
+    assertEquals(before, signatures(cg));
+  }
+
+  @Test
+  public void testClassRemoved()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = makeCHA(false);
+    SSAPropagationCallGraphBuilder builder = makeBuilder(cha);
+    builder.makeCallGraph(builder.getOptions(), null);
+
+    assertFalse(
+        builder.updateCallGraph(
+            Collections.emptySet(), Collections.emptySet(), List.of(cha.lookupClass(B)), null));
+  }
+
+  @Test
+  public void testClassAdded()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    IClassHierarchy cha = makeCHA(true);
+    assertNull(cha.lookupClass(B));
+    SSAPropagationCallGraphBuilder builder = makeBuilder(cha);
+    CallGraph cg = builder.makeCallGraph(builder.getOptions(), null);
+    assertEquals(1, fooTargets(cg));
+
+    IClassHierarchy full = makeCHA(false);
+    IClass b = full.lookupClass(B);
+    assertNotNull(b);
+    assertTrue(
+        builder.updateCallGraph(Collections.emptySet(), List.of(b), Collections.emptySet(), null));
+    assertEquals(b, cha.lookupClass(B));
+    assertEquals(2, fooTargets(cg));
+
+    SSAPropagationCallGraphBuilder fresh = makeBuilder(full);
+    CallGraph expected = fresh.makeCallGraph(fresh.getOptions(), null);
+    assertEquals(signatures(expected), signatures(cg));
+  }
+
+  @Test
+  public void testMethodBodyChanged(@TempDir Path tmpDir)
+      throws ClassHierarchyException,
+          IllegalArgumentException,
+          CancelException,
+          IOException,
+          InvalidClassFileException {
+    IClassHierarchy cha = makeCHA(false);
+    SSAPropagationCallGraphBuilder builder = makeBuilder(cha);
+    CallGraph cg = builder.makeCallGraph(builder.getOptions(), null);
+    Set<String> before = signatures(cg);
+
+    // foo() now also runs this.f = this
+    IClass a = patchA(cha, tmpDir, "foo", SET_F);
+    assertTrue(
+        builder.updateCallGraph(List.of(a), Collections.emptySet(), Collections.emptySet(), null));
+    assertSame(a, cha.lookupClass(A));
+    assertEquals(before, signatures(cg));
+
+    IClassHierarchy full = makeCHA(false);
+    assertTrue(full.replaceClass(patchA(full, tmpDir, "foo", SET_F)));
+    SSAPropagationCallGraphBuilder fresh = makeBuilder(full);
+    CallGraph expected = fresh.makeCallGraph(fresh.getOptions(), null);
+    Map<String, List<Set<String>>> pointsTo =
+        CallGraphTestUtil.pointsToSets(fresh.getPointerAnalysis());
+    assertNotEquals(pointsTo, CallGraphTestUtil.pointsToSets(makePointerAnalysis(makeCHA(false))));
+    assertEquals(signatures(expected), signatures(cg));
+    assertEquals(pointsTo, CallGraphTestUtil.pointsToSets(builder.getPointerAnalysis()));
+  }
+
+  @Test
+  public void testInheritedMethodBodyChanged(@TempDir Path tmpDir)
+      throws ClassHierarchyException,
+          IllegalArgumentException,
+          CancelException,
+          IOException,
+          InvalidClassFileException {
+    IClassHierarchy cha = makeCHA(false);
+    SSAPropagationCallGraphBuilder builder = makeBuilder(cha);
+    builder.makeCallGraph(builder.getOptions(), null);
+    // B inherits getF() from A; resolving it makes B cache the old method
+    Selector getF = Selector.make("getF()Ljava/lang/Object;");
+    IClass b = cha.lookupClass(B);
+    assertSame(cha.lookupClass(A).getMethod(getF), cha.resolveMethod(b, getF));
+
+    IClass a = patchA(cha, tmpDir, "getF", SET_F);
+    assertTrue(
+        builder.updateCallGraph(List.of(a), Collections.emptySet(), Collections.emptySet(), null));
+    assertSame(a.getMethod(getF), cha.resolveMethod(b, getF));
+    assertSame(a.getMethod(getF), cha.resolveMethod(MethodReference.findOrCreate(B, getF)));
+  }
+
+  @Test
+  public void testMethodBodyShrunk(@TempDir Path tmpDir)
+      throws ClassHierarchyException,
+          IllegalArgumentException,
+          CancelException,
+          IOException,
+          InvalidClassFileException {
+    // foo() now returns null instead of the Integer it allocates
+    MethodEditor.Patch returnNull =
+        new MethodEditor.Patch() {
+          @Override
+          public void emitTo(MethodEditor.Output w) {
+            w.emit(PopInstruction.make(1));
+            w.emit(ConstantInstruction.make(Constants.TYPE_null, null));
+          }
+        };
+    IClassHierarchy cha = makeCHA(false);
+    SSAPropagationCallGraphBuilder builder = makeBuilder(cha);
+    builder.makeCallGraph(builder.getOptions(), null);
+
+    IClass a = patchA(cha, tmpDir, "foo", returnNull);
+    assertFalse(
+        builder.updateCallGraph(List.of(a), Collections.emptySet(), Collections.emptySet(), null));
+    assertSame(a, cha.lookupClass(A));
+  }
+
+  /**
+   * @return a new version of class A of cha, whose method with the given name runs patch before
+   *     returning
+   */
+  private static IClass patchA(
+      IClassHierarchy cha, Path dir, String method, MethodEditor.Patch patch)
+      throws InvalidClassFileException, IOException {
+    ShrikeClass a = (ShrikeClass) cha.lookupClass(A);
+    ClassInstrumenter ci = new ClassInstrumenter(a.getName().toString(), a.getReader(), null);
+    for (int i = 0; i < ci.getReader().getMethodCount(); i++) {
+      MethodData data = ci.visitMethod(i);
+      if (data != null && data.getName().equals(method)) {
+        MethodEditor me = new MethodEditor(data);
+        me.beginPass();
+        IInstruction[] instructions = data.getInstructions();
+        for (int j = 0; j < instructions.length; j++) {
+          if (instructions[j] instanceof ReturnInstruction) {
+            me.insertBefore(j, patch);
+          }
+        }
+        me.applyPatches();
+        me.endPass();
+      }
+    }
+    Path file = Files.createTempFile(dir, "A", ".class");
+    Files.write(file, ci.emitClass().makeBytes());
+    ShrikeClassReaderHandle reader =
+        new ShrikeClassReaderHandle(new ClassFileModule(file.toFile(), null));
+    return new ShrikeClass(reader, a.getClassLoader(), cha);
+  }
+
+  private static PointerAnalysis<InstanceKey> makePointerAnalysis(IClassHierarchy cha)
+      throws IllegalArgumentException, CancelException {
+    SSAPropagationCallGraphBuilder builder = makeBuilder(cha);
+    builder.makeCallGraph(builder.getOptions(), null);
+    return builder.getPointerAnalysis();
+  }
+
+  private static Set<String> signatures(CallGraph cg) {
+    Set<String> result = HashSetFactory.make();
+    for (CGNode n : cg) {
+      result.add(n.getMethod().getSignature() + " " + n.getContext());
+    }
+    return result;
+  }
+
+  /**
+   * @return the number of targets of the call to foo() in main
+   */
+  private static int fooTargets(CallGraph cg) {
+    CGNode main = CallGraphSearchUtil.findMainMethod(cg);
+    for (CallSiteReference site : Iterator2Iterable.make(main.iterateCallSites())) {
+      if (site.getDeclaredTarget().getName().toString().equals("foo")) {
+        return cg.getPossibleTargets(main, site).size();
+      }
+    }
+    throw new AssertionError("no call to foo() in " + main);
+  }
+}
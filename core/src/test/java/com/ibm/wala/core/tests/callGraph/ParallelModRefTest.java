@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.callGraph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerAnalysis;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ipa.modref.ModRef;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.OrdinalSet;
+import java.io.IOException;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Check that {@link ModRef} computes the same sets on several threads as on one. */
+public class ParallelModRefTest extends WalaTestCase {
+
+  @Test
+  public void testParallelMatchesSequential()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.SLICE1_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    AnalysisCacheImpl cache =
+        new AnalysisCacheImpl(new DefaultIRFactory(), options.getSSAOptions(), true);
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, cache, cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    PointerAnalysis<InstanceKey> pa = builder.getPointerAnalysis();
+
+    ModRef<InstanceKey> sequential = ModRef.make();
+    ModRef<InstanceKey> parallel = ModRef.make();
+    parallel.setNumberOfThreads(4);
+
+    // run the parallel computations first on a cold cache, so that IRs are built concurrently
+    cache.clear();
+    assertSameSets(parallel.computeMod(cg, pa), sequential.computeMod(cg, pa));
+    cache.clear();
+    assertSameSets(parallel.computeRef(cg, pa), sequential.computeRef(cg, pa));
+  }
+
+  /** Compares node by node, so that only one pair of sets is expanded at a time. */
+  private static void assertSameSets(
+      Map<CGNode, OrdinalSet<PointerKey>> actual, Map<CGNode, OrdinalSet<PointerKey>> expected) {
+    assertEquals(expected.keySet(), actual.keySet());
+    expected.forEach(
+        (n, s) ->
+            assertEquals(
+                HashSetFactory.make(OrdinalSet.toCollection(s)),
+                HashSetFactory.make(OrdinalSet.toCollection(actual.get(n))),
+                n::toString));
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.ClassLoaderImpl;
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.ClassHierarchySnapshot;
+import com.ibm.wala.types.ClassLoaderReference;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** Check that a class hierarchy restored from a snapshot is the same as one built from scratch. */
+public class ClassHierarchySnapshotTest extends WalaTestCase {
+
+  @TempDir File cacheDir;
+
+  @Test
+  public void testSameHierarchy() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    byte[] key = ClassHierarchySnapshot.computeKey(scope);
+    assertNotNull(key);
+    File file = new File(cacheDir, ClassHierarchySnapshot.getFileName(key));
+    assertNull(ClassHierarchySnapshot.read(file, key));
+
+    // the first run builds the class hierarchy and saves a snapshot
+    ClassHierarchy built = ClassHierarchyFactory.makeWithCache(scope, cacheDir);
+    assertFalse(isFromSnapshot(built));
+    assertTrue(file.isFile());
+    assertNotNull(ClassHierarchySnapshot.read(file, key));
+
+    // the second run restores it
+    ClassHierarchy restored = ClassHierarchyFactory.makeWithCache(scope, cacheDir);
+    assertTrue(isFromSnapshot(restored));
+    assertEquals(built.getNumberOfClasses(), restored.getNumberOfClasses());
+    assertEquals(describe(built), describe(restored));
+
+    // a corrupted snapshot is detected, and replaced by a new one
+    Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+    assertNull(ClassHierarchySnapshot.read(file, key));
+    ClassHierarchy rebuilt = ClassHierarchyFactory.makeWithCache(scope, cacheDir);
+    assertFalse(isFromSnapshot(rebuilt));
+    assertEquals(describe(built), describe(rebuilt));
+    assertNotNull(ClassHierarchySnapshot.read(file, key));
+
+    // a snapshot is never used for another key
+    byte[] otherKey = key.clone();
+    otherKey[0]++;
+    assertNull(ClassHierarchySnapshot.read(file, otherKey));
+  }
+
+  /**
+   * @return true if the application classes of cha were created from a snapshot
+   */
+  private static boolean isFromSnapshot(ClassHierarchy cha) {
+    return ((ClassLoaderImpl) cha.getLoader(ClassLoaderReference.Application))
+        .isInitializedFromSnapshot();
+  }
+
+  /**
+   * @return for each class, its modifiers, superclass, interfaces, immediate subclasses and members
+   */
+  private static Map<String, String> describe(ClassHierarchy cha) {
+    Map<String, String> result = new TreeMap<>();
+    for (IClass c : cha) {
+      Set<String> interfaces = new TreeSet<>();
+      for (IClass i : c.getDirectInterfaces()) {
+        interfaces.add(i.toString());
+      }
+      Set<String> subclasses = new TreeSet<>();
+      for (IClass s : cha.getImmediateSubclasses(c)) {
+        subclasses.add(s.toString());
+      }
+      Set<String> members = new TreeSet<>();
+      for (IMethod m : c.getDeclaredMethods()) {
+        members.add(m.getSelector().toString());
+      }
+      for (IField f : c.getAllFields()) {
+        members.add(f.getReference().toString());
+      }
+      result.put(
+          c.toString(),
+          c.getModifiers()
+              + " "
+              + c.getSuperclass()
+              + " "
+              + interfaces
+              + " "
+              + subclasses
+              + " "
+              + members);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.classLoader.JarFileModule;
+import com.ibm.wala.classLoader.MappedJarFileModule;
+import com.ibm.wala.classLoader.Module;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.IAnalysisCacheView;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.ClassLoaderReference;
+import com.ibm.wala.util.io.FileUtil;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Check that a {@link MappedJarFileModule} reads the same class files as a {@link JarFileModule}.
+ */
+public class MappedJarFileModuleTest extends WalaTestCase {
+
+  @Test
+  public void testSameContents() throws IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    JarFile jar =
+        ((JarFileModule) scope.getModules(ClassLoaderReference.Application).get(0)).getJarFile();
+    MappedJarFileModule mapped = new MappedJarFileModule(jar);
+    int nClasses = 0;
+    for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements(); ) {
+      JarEntry entry = e.nextElement();
+      ByteBuffer b = mapped.getByteBuffer(entry.getName());
+      if (!entry.getName().endsWith(".class")) {
+        assertNull(b);
+        continue;
+      }
+      assertNotNull(b);
+      assertTrue(b.isReadOnly());
+      byte[] actual = new byte[b.remaining()];
+      b.get(actual);
+      try (InputStream s = jar.getInputStream(entry)) {
+        assertArrayEquals(FileUtil.readBytes(s), actual);
+      }
+      nClasses++;
+    }
+    assertTrue(nClasses > 0);
+  }
+
+  @Test
+  public void testSameHierarchy() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy plain = ClassHierarchyFactory.make(scope);
+
+    List<Module> modules = scope.getModules(ClassLoaderReference.Application);
+    for (int i = 0; i < modules.size(); i++) {
+      if (modules.get(i) instanceof JarFileModule) {
+        modules.set(i, new MappedJarFileModule(((JarFileModule) modules.get(i)).getJarFile()));
+      }
+    }
+    ClassHierarchy mapped = ClassHierarchyFactory.make(scope);
+
+    assertEquals(plain.getNumberOfClasses(), mapped.getNumberOfClasses());
+    assertEquals(describe(plain), describe(mapped));
+  }
+
+  /**
+   * @return for each method of an application class, its IR, which is built from the bytecode read
+   *     by the class file reader
+   */
+  private static Map<String, String> describe(ClassHierarchy cha) {
+    Map<String, String> result = new TreeMap<>();
+    IAnalysisCacheView cache = new AnalysisCacheImpl();
+    for (IClass c : cha) {
+      if (c.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        for (IMethod m : c.getDeclaredMethods()) {
+          IR ir = m.isAbstract() || m.isNative() ? null : cache.getIR(m);
+          result.put(m.getSignature(), String.valueOf(ir));
+        }
+      }
+    }
+    return result;
+  }
+}
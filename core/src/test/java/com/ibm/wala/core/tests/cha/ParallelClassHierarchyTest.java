@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.cha;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.SeqClassHierarchyFactory;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/** Check that parsing class files on several threads yields the same class hierarchy. */
+public class ParallelClassHierarchyTest extends WalaTestCase {
+
+  @Test
+  public void testSameHierarchy() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy seq = SeqClassHierarchyFactory.make(scope);
+    ClassHierarchy par = ClassHierarchyFactory.makeParallel(scope, 4);
+
+    assertEquals(seq.getNumberOfClasses(), par.getNumberOfClasses());
+    assertEquals(describe(seq), describe(par));
+  }
+
+  /**
+   * @return for each class, its superclass, interfaces, immediate subclasses and members
+   */
+  private static Map<String, String> describe(ClassHierarchy cha) {
+    Map<String, String> result = new TreeMap<>();
+    for (IClass c : cha) {
+      Set<String> interfaces = new TreeSet<>();
+      for (IClass i : c.getDirectInterfaces()) {
+        interfaces.add(i.toString());
+      }
+      Set<String> subclasses = new TreeSet<>();
+      for (IClass s : cha.getImmediateSubclasses(c)) {
+        subclasses.add(s.toString());
+      }
+      Set<String> members = new TreeSet<>();
+      for (IMethod m : c.getDeclaredMethods()) {
+        members.add(m.getSelector().toString());
+      }
+      for (IField f : c.getAllFields()) {
+        members.add(f.getReference().toString());
+      }
+      result.put(
+          c.toString(), c.getSuperclass() + " " + interfaces + " " + subclasses + " " + members);
+    }
+    return result;
+  }
+}
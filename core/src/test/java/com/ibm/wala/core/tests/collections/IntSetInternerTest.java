@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetInterner;
+import com.ibm.wala.util.intset.MutableSharedBitVectorIntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.SparseIntSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/** Tests {@link IntSetInterner}. */
+public final class IntSetInternerTest extends WalaTestCase {
+
+  public static void main(final String[] args) {
+    justThisTest(IntSetInternerTest.class);
+  }
+
+  @Test
+  public void testIntern() {
+    IntSetInterner<IntSet> interner = new IntSetInterner<>();
+    SparseIntSet a = SparseIntSet.pair(3, 700);
+    SparseIntSet b = SparseIntSet.pair(3, 700);
+    BitVectorIntSet c = new BitVectorIntSet(a);
+
+    assertNull(interner.find(a));
+    assertSame(a, interner.intern(a));
+    assertSame(a, interner.intern(b));
+    assertSame(a, interner.find(b));
+    // equal values of another class are kept apart
+    assertSame(c, interner.intern(c));
+    assertNotSame(a, interner.intern(SparseIntSet.singleton(3)));
+
+    assertEquals(IntSetInterner.hash(a), IntSetInterner.hash(c));
+    assertEquals(3, interner.size());
+    assertEquals(6, interner.getNumberOfRequests());
+    assertEquals(2, interner.getNumberOfHits());
+    assertEquals(2.0 / 6, interner.getDedupRatio(), 1e-9);
+  }
+
+  @Test
+  public void testHashIgnoresOrder() {
+    BitVectorIntSet bits = new BitVectorIntSet();
+    for (int i = 100; i < 130; i++) {
+      bits.add(i);
+    }
+    // a shared part 100..129 and a private part {500}, which is iterated over first
+    MutableSharedBitVectorIntSet shared = new MutableSharedBitVectorIntSet(bits);
+    shared.add(500);
+    MutableSparseIntSet sorted = MutableSparseIntSet.make(bits);
+    sorted.add(500);
+    assertEquals(IntSetInterner.hash(sorted), IntSetInterner.hash(shared));
+
+    IntSetInterner<IntSet> interner = new IntSetInterner<>();
+    MutableSharedBitVectorIntSet copy = new MutableSharedBitVectorIntSet(sorted);
+    assertSame(copy, interner.intern(copy));
+    assertSame(copy, interner.intern(shared));
+  }
+
+  @Test
+  public void testConcurrentIntern() throws InterruptedException, ExecutionException {
+    IntSetInterner<MutableSparseIntSet> interner = new IntSetInterner<>();
+    int nThreads = 4;
+    int nSets = 1000;
+    ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+    try {
+      List<Future<MutableSparseIntSet[]>> results = new ArrayList<>();
+      for (int t = 0; t < nThreads; t++) {
+        results.add(
+            pool.submit(
+                () -> {
+                  MutableSparseIntSet[] canonical = new MutableSparseIntSet[nSets];
+                  for (int i = 0; i < nSets; i++) {
+                    MutableSparseIntSet s = MutableSparseIntSet.makeEmpty();
+                    s.add(i % 100);
+                    s.add(i);
+                    canonical[i] = interner.intern(s);
+                  }
+                  return canonical;
+                }));
+      }
+      MutableSparseIntSet[] first = results.get(0).get();
+      for (Future<MutableSparseIntSet[]> f : results) {
+        MutableSparseIntSet[] canonical = f.get();
+        for (int i = 0; i < nSets; i++) {
+          assertSame(first[i], canonical[i]);
+        }
+      }
+      assertEquals(nSets, interner.size());
+      assertEquals(nThreads * nSets, interner.getNumberOfRequests());
+      assertEquals((nThreads - 1) * nSets, interner.getNumberOfHits());
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
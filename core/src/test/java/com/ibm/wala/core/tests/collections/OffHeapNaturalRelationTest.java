@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.intset.BasicNaturalRelation;
+import com.ibm.wala.util.intset.IBinaryNaturalRelation;
+import com.ibm.wala.util.intset.IntPair;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.OffHeapNaturalRelation;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link OffHeapNaturalRelation}, by comparing it with a {@link BasicNaturalRelation} holding
+ * the same pairs.
+ */
+public final class OffHeapNaturalRelationTest extends WalaTestCase {
+
+  public static void main(final String[] args) {
+    justThisTest(OffHeapNaturalRelationTest.class);
+  }
+
+  private static void assertSameRelation(
+      IBinaryNaturalRelation expected, IBinaryNaturalRelation actual) {
+    assertEquals(expected.maxKeyValue(), actual.maxKeyValue());
+    for (int x = 0; x <= expected.maxKeyValue() + 1; x++) {
+      assertEquals(expected.anyRelated(x), actual.anyRelated(x));
+      assertEquals(expected.getRelatedCount(x), actual.getRelatedCount(x));
+      IntSet e = expected.getRelated(x);
+      IntSet a = actual.getRelated(x);
+      if (e == null) {
+        assertNull(a);
+      } else {
+        assertTrue(e.sameValue(a));
+      }
+    }
+    Set<IntPair> e = HashSetFactory.make();
+    expected.forEach(e::add);
+    Set<IntPair> a = HashSetFactory.make();
+    actual.forEach(a::add);
+    assertEquals(e, a);
+  }
+
+  private static void exercise(OffHeapNaturalRelation actual) {
+    Random r = new Random(7);
+    BasicNaturalRelation expected = new BasicNaturalRelation();
+    for (int i = 0; i < 200000; i++) {
+      // a few large rows, and many small ones spread over several row segments
+      int x = r.nextInt(10) == 0 ? r.nextInt(4) : r.nextInt(50000);
+      int y = x < 4 ? r.nextInt(20000) : r.nextInt(8);
+      switch (r.nextInt(8)) {
+        case 0:
+          expected.remove(x, y);
+          actual.remove(x, y);
+          break;
+        case 1:
+          if (r.nextInt(50) == 0) {
+            expected.removeAll(x);
+            actual.removeAll(x);
+          }
+          break;
+        default:
+          assertEquals(expected.add(x, y), actual.add(x, y));
+      }
+      assertEquals(expected.contains(x, y), actual.contains(x, y));
+    }
+    assertSameRelation(expected, actual);
+  }
+
+  @Test
+  public void testAgainstBasicNaturalRelation() {
+    exercise(new OffHeapNaturalRelation());
+  }
+
+  @Test
+  public void testMapped() {
+    exercise(OffHeapNaturalRelation.makeMapped(null));
+  }
+
+  @Test
+  public void testIllegalPairs() {
+    OffHeapNaturalRelation r = new OffHeapNaturalRelation();
+    assertThrows(IllegalArgumentException.class, () -> r.add(-1, 0));
+    assertThrows(IllegalArgumentException.class, () -> r.add(0, -1));
+    assertFalse(r.anyRelated(1 << 30));
+    assertFalse(r.iterator().hasNext());
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.IntIntMap;
+import com.ibm.wala.util.collections.IntObjectMap;
+import com.ibm.wala.util.collections.IntOpenHashSet;
+import com.ibm.wala.util.collections.LongIntMap;
+import com.ibm.wala.util.collections.LongOpenHashSet;
+import com.ibm.wala.util.collections.ObjectIntMap;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.LongIterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the open-addressing tables of primitives, by comparing each with the {@code java.util}
+ * collection it replaces, under a random mix of operations. Keys are drawn from a small range, so
+ * that removals often hit, and include 0 and negative numbers.
+ */
+public final class PrimitiveHashTablesTest extends WalaTestCase {
+
+  public static void main(final String[] args) {
+    justThisTest(PrimitiveHashTablesTest.class);
+  }
+
+  private static final int OPERATIONS = 100000;
+
+  private static int randomKey(Random r) {
+    return r.nextInt(2000) - 100;
+  }
+
+  @Test
+  public void testIntObjectMap() {
+    Random r = new Random(1);
+    IntObjectMap<String> actual = new IntObjectMap<>();
+    Map<Integer, String> expected = HashMapFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      int key = randomKey(r);
+      if (r.nextInt(3) == 0) {
+        assertEquals(expected.remove(key), actual.remove(key));
+      } else {
+        String value = "v" + i;
+        assertEquals(expected.put(key, value), actual.put(key, value));
+      }
+      assertEquals(expected.get(key), actual.get(key));
+      assertEquals(expected.size(), actual.size());
+    }
+    Set<Integer> keys = HashSetFactory.make();
+    for (int key : actual.keys()) {
+      keys.add(key);
+      assertEquals(expected.get(key), actual.get(key));
+    }
+    assertEquals(expected.keySet(), keys);
+    keys.clear();
+    for (IntIterator it = actual.keyIterator(); it.hasNext(); ) {
+      keys.add(it.next());
+    }
+    assertEquals(expected.keySet(), keys);
+    Set<String> values = HashSetFactory.make();
+    actual.values().forEach(values::add);
+    assertEquals(HashSetFactory.make(expected.values()), values);
+
+    actual.clear();
+    assertTrue(actual.isEmpty());
+    assertNull(actual.get(0));
+    assertFalse(actual.keyIterator().hasNext());
+    assertThrows(IllegalArgumentException.class, () -> actual.put(1, null));
+  }
+
+  @Test
+  public void testObjectIntMap() {
+    Random r = new Random(2);
+    ObjectIntMap<String> actual = new ObjectIntMap<>();
+    Map<String, Integer> expected = HashMapFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      String key = "k" + randomKey(r);
+      if (r.nextInt(3) == 0) {
+        assertEquals(expected.remove(key) != null, actual.remove(key));
+      } else {
+        expected.put(key, i);
+        actual.put(key, i);
+      }
+      assertEquals(expected.getOrDefault(key, -1).intValue(), actual.getOrDefault(key, -1));
+      assertEquals(expected.containsKey(key), actual.containsKey(key));
+      assertEquals(expected.size(), actual.size());
+    }
+    ObjectIntMap<String> copy = new ObjectIntMap<>(actual);
+    Map<String, Integer> entries = HashMapFactory.make();
+    copy.forEach(entries::put);
+    assertEquals(expected, entries);
+    // the copy is independent of the original
+    actual.clear();
+    assertEquals(expected.size(), copy.size());
+  }
+
+  @Test
+  public void testIntIntMap() {
+    Random r = new Random(3);
+    IntIntMap actual = new IntIntMap();
+    Map<Integer, Integer> expected = HashMapFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      int key = randomKey(r);
+      if (r.nextInt(3) == 0) {
+        assertEquals(expected.remove(key) != null, actual.remove(key));
+      } else {
+        expected.put(key, i);
+        actual.put(key, i);
+      }
+      assertEquals(expected.getOrDefault(key, -1).intValue(), actual.getOrDefault(key, -1));
+      assertEquals(expected.containsKey(key), actual.containsKey(key));
+      assertEquals(expected.size(), actual.size());
+    }
+    Set<Integer> keys = HashSetFactory.make();
+    for (int key : actual.keys()) {
+      keys.add(key);
+    }
+    assertEquals(expected.keySet(), keys);
+  }
+
+  @Test
+  public void testLongIntMap() {
+    Random r = new Random(4);
+    LongIntMap actual = new LongIntMap(10);
+    Map<Long, Integer> expected = HashMapFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      // keys that differ only in their high bits
+      long key = ((long) randomKey(r) << 32) | (r.nextInt(2) * 7L);
+      if (r.nextInt(3) == 0) {
+        assertEquals(expected.remove(key) != null, actual.remove(key));
+      } else {
+        expected.put(key, i);
+        actual.put(key, i);
+      }
+      assertEquals(expected.getOrDefault(key, -1).intValue(), actual.getOrDefault(key, -1));
+      assertEquals(expected.size(), actual.size());
+    }
+    Set<Long> keys = HashSetFactory.make();
+    for (long key : actual.keys()) {
+      keys.add(key);
+    }
+    assertEquals(expected.keySet(), keys);
+  }
+
+  @Test
+  public void testIntOpenHashSet() {
+    Random r = new Random(5);
+    IntOpenHashSet actual = new IntOpenHashSet();
+    Set<Integer> expected = HashSetFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      int x = randomKey(r);
+      if (r.nextInt(3) == 0) {
+        assertEquals(expected.remove(x), actual.remove(x));
+      } else {
+        assertEquals(expected.add(x), actual.add(x));
+      }
+      assertEquals(expected.contains(x), actual.contains(x));
+      assertEquals(expected.size(), actual.size());
+    }
+    Set<Integer> members = HashSetFactory.make();
+    for (IntIterator it = actual.intIterator(); it.hasNext(); ) {
+      assertTrue(members.add(it.next()));
+    }
+    assertEquals(expected, members);
+
+    IntOpenHashSet zero = new IntOpenHashSet();
+    zero.add(0);
+    IntIterator it = zero.intIterator();
+    assertTrue(it.hasNext());
+    assertEquals(0, it.next());
+    assertFalse(it.hasNext());
+  }
+
+  @Test
+  public void testLongOpenHashSet() {
+    Random r = new Random(6);
+    LongOpenHashSet actual = new LongOpenHashSet();
+    Set<Long> expected = HashSetFactory.make();
+    for (int i = 0; i < OPERATIONS; i++) {
+      long x = ((long) randomKey(r) << 40) | randomKey(r);
+      if (r.nextInt(3) == 0) {
+        assertEquals(expected.remove(x), actual.remove(x));
+      } else {
+        assertEquals(expected.add(x), actual.add(x));
+      }
+      assertEquals(expected.contains(x), actual.contains(x));
+      assertEquals(expected.size(), actual.size());
+    }
+    Set<Long> members = HashSetFactory.make();
+    for (LongIterator it = actual.longIterator(); it.hasNext(); ) {
+      assertTrue(members.add(it.next()));
+    }
+    assertEquals(expected, members);
+    assertEquals(expected.size(), actual.toArray().length);
+    assertTrue(actual.capacity() > actual.size());
+
+    LongOpenHashSet zero = new LongOpenHashSet();
+    zero.add(0);
+    LongIterator it = zero.longIterator();
+    assertTrue(it.hasNext());
+    assertEquals(0, it.next());
+    assertFalse(it.hasNext());
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.util.intset.BimodalMutableIntSet;
+import com.ibm.wala.util.intset.IntIterator;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetUtil;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import com.ibm.wala.util.intset.RoaringMutableIntSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests {@link RoaringMutableIntSet}, by comparing it with a {@link MutableSparseIntSet} holding
+ * the same values, on sets whose chunks need each kind of container.
+ */
+public final class RoaringMutableIntSetTest extends WalaTestCase {
+
+  public static void main(final String[] args) {
+    justThisTest(RoaringMutableIntSetTest.class);
+  }
+
+  /** a few random sets, with sparse, dense and contiguous chunks */
+  private static List<MutableSparseIntSet> makeSets(Random r) {
+    List<MutableSparseIntSet> result = new ArrayList<>();
+    for (int n = 0; n < 12; n++) {
+      MutableSparseIntSet s = MutableSparseIntSet.makeEmpty();
+      int chunks = 1 + r.nextInt(3);
+      for (int c = 0; c < chunks; c++) {
+        int base = r.nextInt(4) << 16;
+        switch (r.nextInt(3)) {
+          case 0:
+            // sparse
+            for (int i = r.nextInt(100); i > 0; i--) {
+              s.add(base + r.nextInt(1 << 16));
+            }
+            break;
+          case 1:
+            // dense
+            for (int i = 5000 + r.nextInt(20000); i > 0; i--) {
+              s.add(base + r.nextInt(1 << 16));
+            }
+            break;
+          default:
+            // a few long runs
+            for (int i = 1 + r.nextInt(3); i > 0; i--) {
+              int start = r.nextInt(1 << 16);
+              int end = Math.min((1 << 16) - 1, start + r.nextInt(10000));
+              for (int x = start; x <= end; x++) {
+                s.add(base + x);
+              }
+            }
+        }
+      }
+      result.add(s);
+    }
+    result.add(MutableSparseIntSet.makeEmpty());
+    return result;
+  }
+
+  private static void assertSameElements(IntSet expected, IntSet actual) {
+    assertEquals(expected.size(), actual.size());
+    IntIterator e = expected.intIterator();
+    IntIterator a = actual.intIterator();
+    while (e.hasNext()) {
+      assertTrue(a.hasNext());
+      assertEquals(e.next(), a.next());
+    }
+    assertFalse(a.hasNext());
+    if (!expected.isEmpty()) {
+      assertEquals(expected.max(), actual.max());
+    }
+    assertTrue(actual.sameValue(expected));
+  }
+
+  @Test
+  public void testAgainstSparseIntSet() {
+    Random r = new Random(17);
+    List<MutableSparseIntSet> sparse = makeSets(r);
+    List<RoaringMutableIntSet> roaring = new ArrayList<>();
+    for (MutableSparseIntSet s : sparse) {
+      RoaringMutableIntSet x = RoaringMutableIntSet.make(s);
+      assertSameElements(s, x);
+      roaring.add(x);
+    }
+    for (int i = 0; i < sparse.size(); i++) {
+      for (int j = 0; j < sparse.size(); j++) {
+        MutableSparseIntSet a = sparse.get(i);
+        MutableSparseIntSet b = sparse.get(j);
+        RoaringMutableIntSet x = roaring.get(i);
+        RoaringMutableIntSet y = roaring.get(j);
+
+        MutableSparseIntSet union = MutableSparseIntSet.make(a);
+        union.addAll(b);
+        RoaringMutableIntSet u = new RoaringMutableIntSet(x);
+        assertEquals(union.size() != a.size(), u.addAll(y));
+        assertSameElements(union, u);
+
+        IntSet intersection = a.intersection(b);
+        assertSameElements(intersection, x.intersection(y));
+        RoaringMutableIntSet in = new RoaringMutableIntSet(x);
+        in.intersectWith(y);
+        assertSameElements(intersection, in);
+        assertEquals(!intersection.isEmpty(), x.containsAny(y));
+
+        IntSet diff = IntSetUtil.diff(a, b);
+        assertSameElements(diff, IntSetUtil.diff(x, y));
+        assertSameElements(diff, new RoaringMutableIntSet(x).removeAll(y));
+        MutableSparseIntSet excluded = MutableSparseIntSet.makeEmpty();
+        x.foreachExcluding(y, excluded::add);
+        assertSameElements(diff, excluded);
+
+        assertEquals(a.isSubset(b), x.isSubset(y));
+        assertEquals(a.sameValue(b), x.sameValue(y));
+
+        // operations with sets of other kinds
+        assertEquals(!intersection.isEmpty(), x.containsAny(b));
+        assertSameElements(intersection, x.intersection(b));
+        assertEquals(a.isSubset(b), x.isSubset(b));
+        RoaringMutableIntSet u2 = new RoaringMutableIntSet(x);
+        u2.addAll(b);
+        assertSameElements(union, u2);
+        BimodalMutableIntSet bimodal = BimodalMutableIntSet.makeCopy(a);
+        assertSameElements(intersection, bimodal.intersection(y));
+        assertEquals(!intersection.isEmpty(), bimodal.containsAny(y));
+      }
+    }
+  }
+
+  @Test
+  public void testAddAndRemove() {
+    Random r = new Random(42);
+    MutableSparseIntSet expected = MutableSparseIntSet.makeEmpty();
+    RoaringMutableIntSet actual = new RoaringMutableIntSet();
+    // enough adds to fill a chunk past an array container, and runs to merge
+    for (int i = 0; i < 100000; i++) {
+      int x = r.nextBoolean() ? r.nextInt(20000) : 3 << 16 | r.nextInt(8000);
+      if (r.nextInt(4) == 0) {
+        assertEquals(expected.remove(x), actual.remove(x));
+      } else {
+        assertEquals(expected.add(x), actual.add(x));
+      }
+      assertEquals(expected.contains(x), actual.contains(x));
+    }
+    assertSameElements(expected, actual);
+    actual.runOptimize();
+    assertSameElements(expected, actual);
+    for (IntIterator it = expected.intIterator(); it.hasNext(); ) {
+      assertTrue(actual.remove(it.next()));
+    }
+    assertTrue(actual.isEmpty());
+    assertEquals(-1, actual.max());
+  }
+
+  @Test
+  public void testRuns() {
+    RoaringMutableIntSet s = new RoaringMutableIntSet();
+    for (int x = 1 << 20; x < (1 << 20) + 70000; x++) {
+      s.add(x);
+    }
+    assertEquals(70000, s.size());
+    assertTrue(s.contains(1 << 20));
+    assertFalse(s.contains((1 << 20) - 1));
+    assertFalse(s.contains((1 << 20) + 70000));
+    assertEquals((1 << 20) + 69999, s.max());
+    // split a run, and join it back
+    assertTrue(s.remove((1 << 20) + 100));
+    assertFalse(s.contains((1 << 20) + 100));
+    assertEquals(69999, s.size());
+    assertTrue(s.add((1 << 20) + 100));
+    assertEquals(70000, s.size());
+    // the largest value there is
+    assertTrue(s.add(Integer.MAX_VALUE));
+    assertEquals(Integer.MAX_VALUE, s.max());
+  }
+
+  @Test
+  public void testNegativeValue() {
+    RoaringMutableIntSet s = new RoaringMutableIntSet();
+    assertFalse(s.contains(-1));
+    assertThrows(IllegalArgumentException.class, () -> s.add(-1));
+  }
+}
@@ -180,7 +180,7 @@ public abstract class AbstractPtrTest {
   }
 
   /** returns the instance key corresponding to the single allocation site of type FlowsToType */
-  private InstanceKey getFlowsToInstanceKey(CGNode mainMethod, HeapModel heapModel) {
+  protected InstanceKey getFlowsToInstanceKey(CGNode mainMethod, HeapModel heapModel) {
     // TODO Auto-generated method stub
     TypeReference flowsToTypeRef =
         TypeReference.findOrCreate(
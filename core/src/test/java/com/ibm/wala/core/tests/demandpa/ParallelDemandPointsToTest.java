@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.demandpa;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.ibm.wala.demandpa.alg.DemandRefinementPointsTo;
+import com.ibm.wala.demandpa.alg.ParallelDemandPointsTo;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.propagation.HeapModel;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAInvokeInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.HashSetFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+/** Check that batch queries answered in parallel give the same points-to sets as single queries. */
+public class ParallelDemandPointsToTest extends AbstractPtrTest {
+
+  public ParallelDemandPointsToTest() {
+    super(TestInfo.SCOPE_FILE);
+  }
+
+  @Test
+  public void testHashSet()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doBatchTest(TestInfo.TEST_HASH_SET);
+  }
+
+  @Test
+  public void testFieldsHarder()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    doBatchTest(TestInfo.TEST_FIELDS_HARDER);
+  }
+
+  private void doBatchTest(String mainClass)
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    DemandRefinementPointsTo dmp = makeDemandPointerAnalysis(mainClass);
+    CGNode mainMethod = AbstractPtrTest.findMainMethod(dmp.getBaseCallGraph());
+    Set<PointerKey> queries = getQueries(mainMethod, dmp.getHeapModel());
+
+    Map<PointerKey, Collection<InstanceKey>> expected = HashMapFactory.make();
+    for (PointerKey pk : queries) {
+      expected.put(pk, HashSetFactory.make(dmp.getPointsTo(pk)));
+    }
+
+    ParallelDemandPointsTo parallel = new ParallelDemandPointsTo(dmp, 4);
+    // ask for every key twice, so that some queries are answered from the memo table
+    List<PointerKey> batch = new ArrayList<>(queries);
+    batch.addAll(queries);
+    assertEquals(expected, asSets(parallel.getPointsTo(batch)));
+    assertEquals(queries.size(), parallel.getNumberOfMemoizedQueries());
+
+    // a later batch reuses the results of the first one
+    assertEquals(expected, asSets(parallel.getPointsTo(queries)));
+    assertEquals(queries.size(), parallel.getNumberOfMemoizedQueries());
+  }
+
+  /** the variables of main defined by allocations and by calls returning references */
+  private static Set<PointerKey> getQueries(CGNode mainMethod, HeapModel heapModel) {
+    Set<PointerKey> result = HashSetFactory.make();
+    for (SSAInstruction s : Iterator2Iterable.make(mainMethod.getIR().iterateAllInstructions())) {
+      if (s instanceof SSANewInstruction
+          || (s instanceof SSAInvokeInstruction
+              && ((SSAInvokeInstruction) s).getDeclaredResultType().isReferenceType())) {
+        result.add(heapModel.getPointerKeyForLocal(mainMethod, s.getDef()));
+      }
+    }
+    result.add(AbstractPtrTest.getParam(mainMethod, "testThisVar", heapModel));
+    return result;
+  }
+
+  private static Map<PointerKey, Collection<InstanceKey>> asSets(
+      Map<PointerKey, Collection<InstanceKey>> p2sets) {
+    Map<PointerKey, Collection<InstanceKey>> result = HashMapFactory.make();
+    p2sets.forEach((pk, p2set) -> result.put(pk, HashSetFactory.make(p2set)));
+    return result;
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2007 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.demandpa;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.ibm.wala.demandpa.alg.DemandRefinementPointsTo;
+import com.ibm.wala.demandpa.alg.QueryResultCache;
+import com.ibm.wala.demandpa.alg.refinepolicy.NeverRefineCGPolicy;
+import com.ibm.wala.demandpa.alg.refinepolicy.OnlyArraysPolicy;
+import com.ibm.wala.demandpa.alg.refinepolicy.SinglePassRefinementPolicy;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.PointerKey;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSANewInstruction;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashSetFactory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Check that repeated demand queries are answered from a {@link QueryResultCache}. */
+public class QueryResultCacheTest extends AbstractPtrTest {
+
+  public QueryResultCacheTest() {
+    super(TestInfo.SCOPE_FILE);
+  }
+
+  @Test
+  public void testRepeatedPointsTo()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    DemandRefinementPointsTo dmp = makeDemandPointerAnalysis(TestInfo.TEST_HASH_SET);
+    CGNode mainMethod = AbstractPtrTest.findMainMethod(dmp.getBaseCallGraph());
+    PointerKey pk = AbstractPtrTest.getParam(mainMethod, "testThisVar", dmp.getHeapModel());
+    Collection<InstanceKey> expected = HashSetFactory.make(dmp.getPointsTo(pk));
+
+    QueryResultCache cache = new QueryResultCache(1000);
+    dmp.setQueryResultCache(cache);
+    assertEquals(expected, HashSetFactory.make(dmp.getPointsTo(pk)));
+    assertEquals(0, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(expected, HashSetFactory.make(dmp.getPointsTo(pk)));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(0.5, cache.getHitRate());
+
+    // another refinement policy configuration must not see the cached result
+    dmp.setRefinementPolicyFactory(
+        new SinglePassRefinementPolicy.Factory(new OnlyArraysPolicy(), new NeverRefineCGPolicy()));
+    assertEquals(expected, HashSetFactory.make(dmp.getPointsTo(pk)));
+    assertEquals(2, cache.getMisses());
+    assertEquals(2, cache.size());
+  }
+
+  @Test
+  public void testEviction()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    DemandRefinementPointsTo dmp = makeDemandPointerAnalysis(TestInfo.TEST_HASH_SET);
+    CGNode mainMethod = AbstractPtrTest.findMainMethod(dmp.getBaseCallGraph());
+    PointerKey pk = AbstractPtrTest.getParam(mainMethod, "testThisVar", dmp.getHeapModel());
+    // the points-to set has two elements, so a result has size 3
+    QueryResultCache cache = new QueryResultCache(3);
+    dmp.setQueryResultCache(cache);
+    Collection<InstanceKey> expected = HashSetFactory.make(dmp.getPointsTo(pk));
+    assertEquals(1, cache.size());
+    dmp.setRefinementPolicyFactory(
+        new SinglePassRefinementPolicy.Factory(new OnlyArraysPolicy(), new NeverRefineCGPolicy()));
+    assertEquals(expected, HashSetFactory.make(dmp.getPointsTo(pk)));
+    assertEquals(1, cache.size());
+    assertEquals(1, cache.getEvictions());
+    assertEquals(3, cache.getTotalSize());
+  }
+
+  @Test
+  public void testCostWeightedEviction()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    DemandRefinementPointsTo dmp = makeDemandPointerAnalysis(TestInfo.TEST_HASH_SET);
+    CGNode mainMethod = AbstractPtrTest.findMainMethod(dmp.getBaseCallGraph());
+    // the points-to set of the parameter is found through the hash set, which is expensive
+    PointerKey expensive = AbstractPtrTest.getParam(mainMethod, "testThisVar", dmp.getHeapModel());
+    // the locals holding the hash sets point only to their allocations, which is cheap
+    List<PointerKey> cheap = new ArrayList<>();
+    for (SSAInstruction s : mainMethod.getIR().getInstructions()) {
+      if (s instanceof SSANewInstruction) {
+        cheap.add(dmp.getHeapModel().getPointerKeyForLocal(mainMethod, s.getDef()));
+      }
+    }
+    // room for the expensive result and one cheap result
+    QueryResultCache cache = new QueryResultCache(5);
+    dmp.setQueryResultCache(cache);
+    Collection<InstanceKey> expected = HashSetFactory.make(dmp.getPointsTo(expensive));
+    assertEquals(3, cache.getTotalSize());
+    dmp.getPointsTo(cheap.get(0));
+    assertEquals(5, cache.getTotalSize());
+    dmp.getPointsTo(cheap.get(1));
+    assertEquals(1, cache.getEvictions());
+    assertEquals(0, cache.getHits());
+
+    // the older but more expensive result survives, unlike the newer, cheaper one
+    assertEquals(expected, HashSetFactory.make(dmp.getPointsTo(expensive)));
+    assertEquals(1, cache.getHits());
+    dmp.getPointsTo(cheap.get(0));
+    assertEquals(1, cache.getHits());
+  }
+
+  @Test
+  public void testRepeatedFlowsTo()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    DemandRefinementPointsTo dmp = makeDemandPointerAnalysis(TestInfo.FLOWSTO_TEST_LOCALS);
+    CGNode mainMethod = AbstractPtrTest.findMainMethod(dmp.getBaseCallGraph());
+    InstanceKey ik = getFlowsToInstanceKey(mainMethod, dmp.getHeapModel());
+    Collection<PointerKey> expected = HashSetFactory.make(dmp.getFlowsTo(ik).snd);
+
+    QueryResultCache cache = new QueryResultCache(1000);
+    dmp.setQueryResultCache(cache);
+    assertEquals(expected, HashSetFactory.make(dmp.getFlowsTo(ik).snd));
+    assertEquals(0, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(expected, HashSetFactory.make(dmp.getFlowsTo(ik).snd));
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.size());
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.IMethod;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.DefaultIRFactory;
+import com.ibm.wala.ssa.IR;
+import com.ibm.wala.types.ClassLoaderReference;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+
+/** Check that IRs built concurrently by a concurrent {@link AnalysisCacheImpl} are correct. */
+public class ConcurrentIRCacheTest extends WalaTestCase {
+
+  @Test
+  public void testPrewarm() throws ClassHierarchyException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    List<IMethod> methods = new ArrayList<>();
+    for (IClass klass : cha) {
+      if (klass.getClassLoader().getReference().equals(ClassLoaderReference.Application)) {
+        methods.addAll(klass.getDeclaredMethods());
+      }
+    }
+    assertFalse(methods.isEmpty());
+
+    AnalysisOptions options = new AnalysisOptions();
+    AnalysisCacheImpl concurrent =
+        new AnalysisCacheImpl(new DefaultIRFactory(), options.getSSAOptions(), true);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      concurrent.prewarm(methods, executor);
+    } finally {
+      executor.shutdown();
+    }
+
+    AnalysisCacheImpl sequential =
+        new AnalysisCacheImpl(new DefaultIRFactory(), options.getSSAOptions());
+    for (IMethod m : methods) {
+      IR ir = concurrent.getIR(m);
+      if (ir == null) {
+        continue;
+      }
+      // asking again must hit the cache
+      assertSame(ir, concurrent.getIR(m));
+      assertEquals(sequential.getIR(m).toString(), ir.toString());
+    }
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.IClass;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Check that collapsing cycles of assignments does not change the result of pointer analysis. */
+public class CycleEliminationTest extends WalaTestCase {
+
+  @Test
+  public void testJLexZeroOneCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.JLEX, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.JLEX_MAIN);
+
+    AnalysisOptions standard = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraphBuilder<InstanceKey> stdBuilder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, standard, new AnalysisCacheImpl(), cha);
+    CallGraph stdCG = stdBuilder.makeCallGraph(standard, null);
+
+    AnalysisOptions collapse = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    collapse.setUseCycleElimination(true);
+    SSAPropagationCallGraphBuilder cycleBuilder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, collapse, new AnalysisCacheImpl(), cha);
+    CallGraph cycleCG = cycleBuilder.makeCallGraph(collapse, null);
+
+    // copy cycles through the library code are common enough that some must be found
+    assertTrue(cycleBuilder.getPropagationSystem().getNumberOfVariablesMerged() > 0);
+    assertEquals(CallGraphTestUtil.nodeNames(stdCG), CallGraphTestUtil.nodeNames(cycleCG));
+    assertEquals(
+        CallGraphTestUtil.pointsToSets(stdBuilder.getPointerAnalysis()),
+        CallGraphTestUtil.pointsToSets(cycleBuilder.getPointerAnalysis()));
+
+    // processing the nodes again, whose locals may have been merged by now, must not change the
+    // result either; "adding" classes already in the hierarchy processes the nodes using them again
+    List<IClass> classes = new ArrayList<>();
+    cha.forEach(classes::add);
+    assertTrue(
+        cycleBuilder.updateCallGraph(
+            Collections.emptySet(), classes, Collections.emptySet(), null));
+    assertEquals(CallGraphTestUtil.nodeNames(stdCG), CallGraphTestUtil.nodeNames(cycleCG));
+    assertEquals(
+        CallGraphTestUtil.pointsToSets(stdBuilder.getPointerAnalysis()),
+        CallGraphTestUtil.pointsToSets(cycleBuilder.getPointerAnalysis()));
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.util.CancelException;
+import java.io.IOException;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Check that the difference propagation solver computes the same result as the standard solver.
+ */
+public class DifferencePropagationSolverTest extends WalaTestCase {
+
+  @Test
+  public void testJLexZeroOneCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.JLEX, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.JLEX_MAIN);
+
+    AnalysisOptions standard = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraphBuilder<InstanceKey> stdBuilder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, standard, new AnalysisCacheImpl(), cha);
+    CallGraph stdCG = stdBuilder.makeCallGraph(standard, null);
+
+    AnalysisOptions difference = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    difference.setUseDifferencePropagation(true);
+    CallGraphBuilder<InstanceKey> diffBuilder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, difference, new AnalysisCacheImpl(), cha);
+    CallGraph diffCG = diffBuilder.makeCallGraph(difference, null);
+
+    assertEquals(CallGraphTestUtil.nodeNames(stdCG), CallGraphTestUtil.nodeNames(diffCG));
+    assertEquals(
+        CallGraphTestUtil.pointsToSets(stdBuilder.getPointerAnalysis()),
+        CallGraphTestUtil.pointsToSets(diffBuilder.getPointerAnalysis()));
+  }
+}
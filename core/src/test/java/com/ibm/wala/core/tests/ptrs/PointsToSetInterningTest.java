@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.core.tests.ptrs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.PointsToSetVariable;
+import com.ibm.wala.ipa.callgraph.propagation.PropagationSystem;
+import com.ibm.wala.ipa.callgraph.propagation.SSAPropagationCallGraphBuilder;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.collections.HashMapFactory;
+import com.ibm.wala.util.collections.Iterator2Iterable;
+import com.ibm.wala.util.graph.INodeWithNumber;
+import com.ibm.wala.util.intset.BitVectorIntSet;
+import com.ibm.wala.util.intset.IntSetInterner;
+import com.ibm.wala.util.intset.MutableIntSet;
+import java.io.IOException;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Check that sharing equal points-to sets between variables does not change their values. */
+public class PointsToSetInterningTest extends WalaTestCase {
+
+  @Test
+  public void testSlice1ZeroCFA()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, TestConstants.SLICE1_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    SSAPropagationCallGraphBuilder builder =
+        Util.makeZeroCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    builder.makeCallGraph(options, null);
+    PropagationSystem system = builder.getPropagationSystem();
+
+    Map<PointsToSetVariable, BitVectorIntSet> before = HashMapFactory.make();
+    for (INodeWithNumber n : Iterator2Iterable.make(system.getFixedPointSystem().getVariables())) {
+      PointsToSetVariable v = (PointsToSetVariable) n;
+      before.put(v, v.getValue() == null ? null : new BitVectorIntSet(v.getValue()));
+    }
+
+    IntSetInterner<MutableIntSet> interner = new IntSetInterner<>();
+    system.internPointsToSets(interner);
+    assertTrue(interner.getNumberOfHits() > 0);
+    assertTrue(interner.size() < interner.getNumberOfRequests());
+
+    PointsToSetVariable changed = null;
+    for (Map.Entry<PointsToSetVariable, BitVectorIntSet> e : before.entrySet()) {
+      PointsToSetVariable v = e.getKey();
+      BitVectorIntSet expected = e.getValue();
+      if (expected == null) {
+        assertEquals(0, v.size());
+      } else {
+        assertTrue(expected.sameValue(v.getValue()));
+        if (changed == null && interner.find(v.getValue()) == v.getValue()) {
+          changed = v;
+        }
+      }
+    }
+
+    // changing a shared set leaves the other variables alone
+    assertNotNull(changed);
+    MutableIntSet shared = changed.getValue();
+    int fresh = shared.max() + 1;
+    assertTrue(changed.add(fresh));
+    assertTrue(changed.getValue().contains(fresh));
+    assertFalse(shared.contains(fresh));
+  }
+}
@@ -19,6 +19,7 @@ import com.ibm.wala.core.tests.util.TestConstants;
 import com.ibm.wala.core.util.config.AnalysisScopeReader;
 import com.ibm.wala.core.util.io.FileProvider;
 import com.ibm.wala.core.util.strings.Atom;
+import com.ibm.wala.dataflow.IFDS.TabulationSolver;
 import com.ibm.wala.examples.drivers.PDFSlice;
 import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
 import com.ibm.wala.ipa.callgraph.AnalysisOptions;
@@ -47,6 +48,7 @@ import com.ibm.wala.ipa.slicer.HeapStatement.HeapReturnCaller;
 import com.ibm.wala.ipa.slicer.MethodEntryStatement;
 import com.ibm.wala.ipa.slicer.NormalReturnCaller;
 import com.ibm.wala.ipa.slicer.NormalStatement;
+import com.ibm.wala.ipa.slicer.PDG;
 import com.ibm.wala.ipa.slicer.SDG;
 import com.ibm.wala.ipa.slicer.Slicer;
 import com.ibm.wala.ipa.slicer.Slicer.ControlDependenceOptions;
@@ -54,6 +56,7 @@ import com.ibm.wala.ipa.slicer.Slicer.DataDependenceOptions;
 import com.ibm.wala.ipa.slicer.SlicerUtil;
 import com.ibm.wala.ipa.slicer.Statement;
 import com.ibm.wala.ipa.slicer.thin.ThinSlicer;
+import com.ibm.wala.ssa.SSAInstruction;
 import com.ibm.wala.types.ClassLoaderReference;
 import com.ibm.wala.types.Descriptor;
 import com.ibm.wala.util.CancelException;
@@ -64,9 +67,11 @@ import com.ibm.wala.util.io.FileUtil;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
@@ -121,6 +126,29 @@ public class SlicerTest {
     return SlicerUtil.findCallTo(n, "doNothing");
   }
 
+  /**
+   * @return a statement for each instruction of the application code in cg
+   */
+  private static List<Statement> applicationStatements(CallGraph cg) {
+    List<Statement> result = new ArrayList<>();
+    for (CGNode n : cg) {
+      if (n.getMethod()
+              .getDeclaringClass()
+              .getClassLoader()
+              .getReference()
+              .equals(ClassLoaderReference.Application)
+          && n.getIR() != null) {
+        SSAInstruction[] instructions = n.getIR().getInstructions();
+        for (int i = 0; i < instructions.length; i++) {
+          if (instructions[i] != null) {
+            result.add(new NormalStatement(n, i));
+          }
+        }
+      }
+    }
+    return result;
+  }
+
   @Test
   public void testSlice1()
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
@@ -966,6 +994,130 @@ public class SlicerTest {
     GraphIntegrity.check(sdg);
   }
 
+  @Test
+  public void testPackedPathEdges()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(cha, TestConstants.SLICE1_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    SDG<?> sdg =
+        new SDG<>(
+            cg,
+            builder.getPointerAnalysis(),
+            DataDependenceOptions.FULL,
+            ControlDependenceOptions.NONE);
+    Statement s = SlicerUtil.findCallTo(CallGraphSearchUtil.findMainMethod(cg), "println");
+
+    Slicer slicer = new Slicer();
+    Collection<Statement> expected = slicer.slice(sdg, Collections.singleton(s), true);
+    TabulationSolver.PathEdgeStats stats = slicer.getPathEdgeStats();
+    slicer.setPackedPathEdges(true);
+    assertEquals(expected, slicer.slice(sdg, Collections.singleton(s), true));
+    TabulationSolver.PathEdgeStats packedStats = slicer.getPathEdgeStats();
+    System.err.println(stats);
+    System.err.println(packedStats);
+    assertEquals(stats.getNPathEdges(), packedStats.getNPathEdges());
+    // the slice reaches few statements of each PDG, so bit vectors over them are mostly empty
+    assertTrue(packedStats.getEstimatedBytes() < stats.getEstimatedBytes());
+  }
+
+  @Test
+  public void testSummaryCache()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(cha, TestConstants.SLICE2_MAIN);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    SDG<?> sdg =
+        new SDG<>(
+            cg,
+            builder.getPointerAnalysis(),
+            DataDependenceOptions.NO_BASE_NO_HEAP,
+            ControlDependenceOptions.NONE);
+
+    // slice from each statement in the application
+    List<Statement> roots = applicationStatements(cg);
+    assertTrue(roots.size() > 1);
+
+    Slicer slicer = new Slicer(1_000_000);
+    Slicer small = new Slicer(50);
+    for (boolean backward : new boolean[] {true, false}) {
+      for (Statement s : roots) {
+        Collection<Statement> expected =
+            new Slicer().slice(sdg, Collections.singleton(s), backward);
+        assertEquals(expected, slicer.slice(sdg, Collections.singleton(s), backward));
+        assertEquals(expected, small.slice(sdg, Collections.singleton(s), backward));
+      }
+      System.err.println(slicer.getSummaryCache(backward));
+      assertTrue(slicer.getSummaryCache(backward).getHits() > 0);
+      assertTrue(small.getSummaryCache(backward).getNumberOfPathEdges() <= 50);
+    }
+
+    // after a procedure changes, its summaries and those of its callers are computed again
+    CGNode baz =
+        CallGraphSearchUtil.findMethod(
+            cg, Descriptor.findOrCreateUTF8("(I)V"), Atom.findOrCreateUnicodeAtom("baz"));
+    PDG<?> pdg = sdg.getPDG(baz);
+    int size = slicer.getSummaryCache(false).size();
+    slicer.getSummaryCache(false).invalidate(pdg);
+    assertTrue(slicer.getSummaryCache(false).size() < size);
+    for (Statement s : roots) {
+      assertEquals(
+          new Slicer().slice(sdg, Collections.singleton(s), false),
+          slicer.slice(sdg, Collections.singleton(s), false));
+    }
+  }
+
+  @Test
+  public void testSliceEach()
+      throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
+    AnalysisScope scope = findOrCreateAnalysisScope();
+
+    IClassHierarchy cha = findOrCreateCHA(scope);
+    Iterable<Entrypoint> entrypoints =
+        com.ibm.wala.ipa.callgraph.impl.Util.makeMainEntrypoints(
+            cha, TestConstants.SLICE_TESTRECURSION);
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    CallGraph cg = builder.makeCallGraph(options, null);
+    SDG<?> sdg =
+        new SDG<>(
+            cg,
+            builder.getPointerAnalysis(),
+            DataDependenceOptions.NO_BASE_PTRS,
+            ControlDependenceOptions.FULL);
+
+    List<Statement> criteria = applicationStatements(cg);
+    assertTrue(criteria.size() > 1);
+
+    Map<Statement, Collection<Statement>> backward = Slicer.computeBackwardSlices(sdg, criteria);
+    Map<Statement, Collection<Statement>> forward = Slicer.computeForwardSlices(sdg, criteria);
+    assertEquals(criteria.size(), backward.size());
+    for (Statement s : criteria) {
+      assertEquals(Slicer.computeBackwardSlice(sdg, s), backward.get(s), s::toString);
+      assertEquals(Slicer.computeForwardSlice(sdg, s), forward.get(s), s::toString);
+    }
+
+    Slicer packed = new Slicer();
+    packed.setPackedPathEdges(true);
+    assertEquals(backward, packed.sliceEach(sdg, criteria, true, null));
+    assertEquals(forward, packed.sliceEach(sdg, criteria, false, null));
+  }
+
   @Test
   public void testJustThrow()
       throws ClassHierarchyException, IllegalArgumentException, CancelException, IOException {
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.examples.analysis;
+
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.CallGraphBuilder;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.callgraph.propagation.DifferencePropagationSolver;
+import com.ibm.wala.ipa.callgraph.propagation.InstanceKey;
+import com.ibm.wala.ipa.callgraph.propagation.StandardSolver;
+import com.ibm.wala.ipa.cha.ClassHierarchy;
+import com.ibm.wala.ipa.cha.ClassHierarchyException;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.perf.Stopwatch;
+import java.io.IOException;
+
+/**
+ * Times 0-1-CFA call graph construction with the {@link StandardSolver} and with the {@link
+ * DifferencePropagationSolver}, on the test programs used by the core call graph tests.
+ *
+ * <p>Usage: {@code CompareSolvers [scopeFile mainClass]}. With no arguments, the JLex, java_cup and
+ * BCEL verifier scopes are measured in turn.
+ */
+public class CompareSolvers {
+
+  /** number of untimed runs of each solver before measuring, to warm up the JIT */
+  private static final int WARMUP_RUNS = 1;
+
+  /** number of timed runs of each solver */
+  private static final int TIMED_RUNS = 3;
+
+  public static void main(String[] args)
+      throws IOException, ClassHierarchyException, IllegalArgumentException, CancelException {
+    if (args.length == 2) {
+      compare(args[0], args[1]);
+    } else {
+      compare(TestConstants.JLEX, TestConstants.JLEX_MAIN);
+      compare(TestConstants.JAVA_CUP, TestConstants.JAVA_CUP_MAIN);
+      compare(TestConstants.BCEL, TestConstants.BCEL_VERIFIER_MAIN);
+    }
+  }
+
+  private static void compare(String scopeFile, String mainClass)
+      throws IOException, ClassHierarchyException, IllegalArgumentException, CancelException {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(scopeFile, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    ClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, mainClass);
+
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      run(scope, cha, entrypoints, false);
+      run(scope, cha, entrypoints, true);
+    }
+    long standard = 0;
+    long difference = 0;
+    for (int i = 0; i < TIMED_RUNS; i++) {
+      standard += run(scope, cha, entrypoints, false);
+      difference += run(scope, cha, entrypoints, true);
+    }
+    System.out.println(
+        scopeFile
+            + ": standard "
+            + (standard / TIMED_RUNS)
+            + "ms, difference propagation "
+            + (difference / TIMED_RUNS)
+            + "ms");
+  }
+
+  /**
+   * @return the time in milliseconds taken to construct the call graph
+   */
+  private static long run(
+      AnalysisScope scope,
+      ClassHierarchy cha,
+      Iterable<Entrypoint> entrypoints,
+      boolean differencePropagation)
+      throws IllegalArgumentException, CancelException {
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    options.setUseDifferencePropagation(differencePropagation);
+    CallGraphBuilder<InstanceKey> builder =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha);
+    Stopwatch s = new Stopwatch();
+    s.start();
+    CallGraph cg = builder.makeCallGraph(options, null);
+    s.stop();
+    System.out.println(
+        "  "
+            + (differencePropagation ? "difference" : "standard")
+            + ": "
+            + cg.getNumberOfNodes()
+            + " nodes, "
+            + s.getElapsedMillis()
+            + "ms");
+    return s.getElapsedMillis();
+  }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.examples.analysis.dataflow;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.ibm.wala.classLoader.IField;
+import com.ibm.wala.classLoader.Language;
+import com.ibm.wala.core.tests.callGraph.CallGraphTestUtil;
+import com.ibm.wala.core.tests.util.TestConstants;
+import com.ibm.wala.core.tests.util.WalaTestCase;
+import com.ibm.wala.dataflow.IFDS.ICFGSupergraph;
+import com.ibm.wala.dataflow.IFDS.IFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IFlowFunctionMap;
+import com.ibm.wala.dataflow.IFDS.IMergeFunction;
+import com.ibm.wala.dataflow.IFDS.ISupergraph;
+import com.ibm.wala.dataflow.IFDS.IUnaryFlowFunction;
+import com.ibm.wala.dataflow.IFDS.IdentityFlowFunction;
+import com.ibm.wala.dataflow.IFDS.KillEverything;
+import com.ibm.wala.dataflow.IFDS.ParallelTabulationSolver;
+import com.ibm.wala.dataflow.IFDS.PathEdge;
+import com.ibm.wala.dataflow.IFDS.SummaryCache;
+import com.ibm.wala.dataflow.IFDS.TabulationCancelException;
+import com.ibm.wala.dataflow.IFDS.TabulationDomain;
+import com.ibm.wala.dataflow.IFDS.TabulationProblem;
+import com.ibm.wala.dataflow.IFDS.TabulationResult;
+import com.ibm.wala.dataflow.IFDS.TabulationSolver;
+import com.ibm.wala.dataflow.IFDS.UnorderedDomain;
+import com.ibm.wala.ipa.callgraph.AnalysisCacheImpl;
+import com.ibm.wala.ipa.callgraph.AnalysisOptions;
+import com.ibm.wala.ipa.callgraph.AnalysisScope;
+import com.ibm.wala.ipa.callgraph.CGNode;
+import com.ibm.wala.ipa.callgraph.CallGraph;
+import com.ibm.wala.ipa.callgraph.Entrypoint;
+import com.ibm.wala.ipa.callgraph.impl.Util;
+import com.ibm.wala.ipa.cfg.BasicBlockInContext;
+import com.ibm.wala.ipa.cha.ClassHierarchyFactory;
+import com.ibm.wala.ipa.cha.IClassHierarchy;
+import com.ibm.wala.ssa.SSAInstruction;
+import com.ibm.wala.ssa.SSAPutInstruction;
+import com.ibm.wala.ssa.analysis.IExplodedBasicBlock;
+import com.ibm.wala.util.CancelException;
+import com.ibm.wala.util.MonitorUtil.IProgressMonitor;
+import com.ibm.wala.util.NullProgressMonitor;
+import com.ibm.wala.util.collections.Pair;
+import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.MutableSparseIntSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Check that a {@link ParallelTabulationSolver} computes the same result as a {@link
+ * TabulationSolver}.
+ */
+public class ParallelTabulationSolverTest extends WalaTestCase {
+
+  private static final int THREADS = 4;
+
+  /**
+   * Reaching definitions of static fields, like {@link ContextSensitiveReachingDefs}, but with
+   * balanced parentheses only, and with flow functions that only read state computed up front, so
+   * that several threads may use them at once.
+   */
+  private static class StaticDefsProblem
+      implements TabulationProblem<
+          BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>> {
+
+    private final ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> supergraph;
+
+    private final UnorderedDomain<Pair<CGNode, Integer>, BasicBlockInContext<IExplodedBasicBlock>>
+        domain = new UnorderedDomain<>();
+
+    /** the field written by the definition for each fact */
+    private final List<IField> fields = new ArrayList<>();
+
+    private final Collection<PathEdge<BasicBlockInContext<IExplodedBasicBlock>>> seeds =
+        new ArrayList<>();
+
+    StaticDefsProblem(CallGraph cg) {
+      IClassHierarchy cha = cg.getClassHierarchy();
+      supergraph = ICFGSupergraph.make(cg);
+      for (BasicBlockInContext<IExplodedBasicBlock> bb : supergraph) {
+        SSAInstruction instruction = bb.getDelegate().getInstruction();
+        if (instruction instanceof SSAPutInstruction
+            && ((SSAPutInstruction) instruction).isStatic()) {
+          int fact =
+              domain.add(Pair.make(bb.getNode(), bb.getDelegate().getFirstInstructionIndex()));
+          fields.add(cha.resolveField(((SSAPutInstruction) instruction).getDeclaredField()));
+          assert fields.size() == fact + 1;
+          BasicBlockInContext<IExplodedBasicBlock> entry =
+              supergraph.getEntriesForProcedure(bb.getNode())[0];
+          seeds.add(PathEdge.createPathEdge(entry, fact, bb, fact));
+        }
+      }
+    }
+
+    private final IFlowFunctionMap<BasicBlockInContext<IExplodedBasicBlock>> functions =
+        new IFlowFunctionMap<>() {
+
+          @Override
+          public IUnaryFlowFunction getNormalFlowFunction(
+              BasicBlockInContext<IExplodedBasicBlock> src,
+              BasicBlockInContext<IExplodedBasicBlock> dest) {
+            int fact =
+                domain.getMappedIndex(
+                    Pair.make(src.getNode(), src.getDelegate().getFirstInstructionIndex()));
+            if (fact == -1) {
+              return IdentityFlowFunction.identity();
+            }
+            IField field = fields.get(fact);
+            return d1 -> {
+              MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+              result.add(fact);
+              if (d1 != fact && !field.equals(fields.get(d1))) {
+                result.add(d1);
+              }
+              return result;
+            };
+          }
+
+          @Override
+          public IUnaryFlowFunction getCallFlowFunction(
+              BasicBlockInContext<IExplodedBasicBlock> src,
+              BasicBlockInContext<IExplodedBasicBlock> dest,
+              BasicBlockInContext<IExplodedBasicBlock> ret) {
+            return IdentityFlowFunction.identity();
+          }
+
+          @Override
+          public IFlowFunction getReturnFlowFunction(
+              BasicBlockInContext<IExplodedBasicBlock> call,
+              BasicBlockInContext<IExplodedBasicBlock> src,
+              BasicBlockInContext<IExplodedBasicBlock> dest) {
+            return IdentityFlowFunction.identity();
+          }
+
+          @Override
+          public IUnaryFlowFunction getCallToReturnFlowFunction(
+              BasicBlockInContext<IExplodedBasicBlock> src,
+              BasicBlockInContext<IExplodedBasicBlock> dest) {
+            return KillEverything.singleton();
+          }
+
+          @Override
+          public IUnaryFlowFunction getCallNoneToReturnFlowFunction(
+              BasicBlockInContext<IExplodedBasicBlock> src,
+              BasicBlockInContext<IExplodedBasicBlock> dest) {
+            return IdentityFlowFunction.identity();
+          }
+        };
+
+    @Override
+    public ISupergraph<BasicBlockInContext<IExplodedBasicBlock>, CGNode> getSupergraph() {
+      return supergraph;
+    }
+
+    @Override
+    public TabulationDomain<Pair<CGNode, Integer>, BasicBlockInContext<IExplodedBasicBlock>>
+        getDomain() {
+      return domain;
+    }
+
+    @Override
+    public IFlowFunctionMap<BasicBlockInContext<IExplodedBasicBlock>> getFunctionMap() {
+      return functions;
+    }
+
+    @Override
+    public Collection<PathEdge<BasicBlockInContext<IExplodedBasicBlock>>> initialSeeds() {
+      return seeds;
+    }
+
+    @Override
+    public IMergeFunction getMergeFunction() {
+      return null;
+    }
+  }
+
+  private static StaticDefsProblem problem;
+
+  @BeforeAll
+  public static void beforeClass() throws Exception {
+    AnalysisScope scope =
+        CallGraphTestUtil.makeJ2SEAnalysisScope(
+            TestConstants.WALA_TESTDATA, CallGraphTestUtil.REGRESSION_EXCLUSIONS);
+    IClassHierarchy cha = ClassHierarchyFactory.make(scope);
+    Iterable<Entrypoint> entrypoints = Util.makeMainEntrypoints(cha, "Ldataflow/StaticDataflow");
+    AnalysisOptions options = CallGraphTestUtil.makeAnalysisOptions(scope, entrypoints);
+    CallGraph cg =
+        Util.makeZeroOneCFABuilder(Language.JAVA, options, new AnalysisCacheImpl(), cha)
+            .makeCallGraph(options, null);
+    problem = new StaticDefsProblem(cg);
+  }
+
+  @AfterAll
+  public static void afterClass() {
+    problem = null;
+  }
+
+  @Test
+  public void testSameResult() throws CancelException {
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        expected = TabulationSolver.make(problem).solve();
+    for (int round = 0; round < 20; round++) {
+      TabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+          solver = ParallelTabulationSolver.make(problem, THREADS);
+      // a summary cache is ignored, not rejected
+      solver.setSummaryCache(new SummaryCache<>(Long.MAX_VALUE));
+      assertNull(solver.getSummaryCache());
+      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+          actual = solver.solve();
+      assertEquals(expected.getSupergraphNodesReached(), actual.getSupergraphNodesReached());
+      int facts = 0;
+      for (BasicBlockInContext<IExplodedBasicBlock> bb : problem.getSupergraph()) {
+        IntSet e = expected.getResult(bb);
+        IntSet a = actual.getResult(bb);
+        assertTrue(e.sameValue(a), () -> bb + ": expected " + e + " but was " + a);
+        facts += e.size();
+      }
+      assertTrue(facts > 0);
+    }
+  }
+
+  @Test
+  public void testPackedPathEdges() throws CancelException {
+    TabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        solver = TabulationSolver.make(problem);
+    TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        expected = solver.solve();
+    TabulationSolver.PathEdgeStats stats = solver.getPathEdgeStats();
+    assertTrue(stats.getNPathEdges() > 0);
+    for (int nThreads = 1; nThreads <= THREADS; nThreads += THREADS - 1) {
+      TabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+          packed =
+              nThreads == 1
+                  ? TabulationSolver.make(problem)
+                  : ParallelTabulationSolver.make(problem, nThreads);
+      packed.setPackedPathEdges(true);
+      TabulationResult<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+          actual = packed.solve();
+      assertEquals(expected.getSupergraphNodesReached(), actual.getSupergraphNodesReached());
+      for (BasicBlockInContext<IExplodedBasicBlock> bb : problem.getSupergraph()) {
+        IntSet e = expected.getResult(bb);
+        IntSet a = actual.getResult(bb);
+        assertTrue(e.sameValue(a), () -> bb + ": expected " + e + " but was " + a);
+      }
+      TabulationSolver.PathEdgeStats packedStats = packed.getPathEdgeStats();
+      assertEquals(stats.getNEntries(), packedStats.getNEntries());
+      assertEquals(stats.getNPathEdges(), packedStats.getNPathEdges());
+      assertTrue(packedStats.getEstimatedBytes() > 0);
+    }
+  }
+
+  @Test
+  public void testCancel() {
+    IProgressMonitor monitor =
+        new NullProgressMonitor() {
+          @Override
+          public boolean isCanceled() {
+            return true;
+          }
+
+          @Override
+          public String getCancelMessage() {
+            return "canceled";
+          }
+        };
+    TabulationSolver<BasicBlockInContext<IExplodedBasicBlock>, CGNode, Pair<CGNode, Integer>>
+        solver = new ParallelTabulationSolver<>(problem, monitor, THREADS) {};
+    assertThrows(TabulationCancelException.class, solver::solve);
+  }
+
+  @Test
+  public void testInvalidArguments() {
+    assertThrows(IllegalArgumentException.class, () -> ParallelTabulationSolver.make(problem, 0));
+  }
+}
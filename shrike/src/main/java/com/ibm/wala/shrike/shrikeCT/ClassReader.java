@@ -10,6 +10,8 @@
  */
 package com.ibm.wala.shrike.shrikeCT;
 
+import java.nio.ByteBuffer;
+
 /**
  * This is the core class for reading class file data.
  *
@@ -17,7 +19,17 @@ package com.ibm.wala.shrike.shrikeCT;
  * InvalidClassFileException.
  */
 public final class ClassReader implements ClassConstants {
-  private final byte[] bytes;
+  /** the class file data, or null if it is only held in {@link #buffer} */
+  private byte[] bytes;
+
+  /**
+   * the class file data, starting at index 0, if the reader was built from a buffer that is not
+   * backed by an array holding exactly that data; otherwise null
+   */
+  private final ByteBuffer buffer;
+
+  /** the size of the class file data */
+  private final int length;
 
   private int[] methodOffsets;
 
@@ -43,14 +55,44 @@ public final class ClassReader implements ClassConstants {
    */
   public ClassReader(byte[] bytes) throws InvalidClassFileException {
     this.bytes = bytes;
+    this.buffer = null;
+    this.length = bytes.length;
+    parse();
+  }
+
+  /**
+   * Build a reader for class file data held in a buffer, e.g. a memory-mapped file, without copying
+   * the data. The data runs from the position to the limit of the buffer; the position, limit and
+   * mark of the buffer are not changed, and its contents must not change while the reader is in
+   * use.
+   *
+   * @param buffer the class file data
+   * @throws InvalidClassFileException the class file data is corrupt
+   * @throws IllegalArgumentException if buffer is null
+   * @see #ClassReader(byte[])
+   */
+  public ClassReader(ByteBuffer buffer) throws InvalidClassFileException {
+    if (buffer == null) {
+      throw new IllegalArgumentException("buffer is null");
+    }
+    if (buffer.hasArray()
+        && buffer.arrayOffset() + buffer.position() == 0
+        && buffer.remaining() == buffer.array().length) {
+      // no need to go through the buffer
+      this.bytes = buffer.array();
+      this.buffer = null;
+    } else {
+      this.bytes = null;
+      this.buffer = buffer.slice();
+    }
+    this.length = buffer.remaining();
     parse();
   }
 
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (length < offset + required) {
       throw new InvalidClassFileException(
-          offset,
-          "file truncated, expected " + required + " bytes, saw only " + (bytes.length - offset));
+          offset, "file truncated, expected " + required + " bytes, saw only " + (length - offset));
     }
   }
 
@@ -73,7 +115,10 @@ public final class ClassReader implements ClassConstants {
           offset, "unknown class file version: " + majorVersion + '.' + minorVersion);
     }
 
-    cpParser = new ConstantPoolParser(bytes, offset, constantPoolCount);
+    cpParser =
+        bytes != null
+            ? new ConstantPoolParser(bytes, offset, constantPoolCount)
+            : new ConstantPoolParser(buffer, offset, constantPoolCount);
     offset += cpParser.getRawSize();
 
     classInfoOffset = offset;
@@ -108,7 +153,7 @@ public final class ClassReader implements ClassConstants {
     int attrCount = getUShort(offset);
     offset = skipAttributes(offset + 2, attrCount);
 
-    if (offset != bytes.length) {
+    if (offset != length) {
       throw new InvalidClassFileException(offset, "extra data in class file");
     }
   }
@@ -154,12 +199,50 @@ public final class ClassReader implements ClassConstants {
   }
 
   /**
+   * For a reader built from a {@link ByteBuffer}, this copies the class data into an array the
+   * first time it is called; use {@link #getByteBuffer()} or {@link #getBytes(int, byte[], int,
+   * int)} to avoid that.
+   *
    * @return the raw class data bytes
    */
   public byte[] getBytes() {
+    if (bytes == null) {
+      byte[] result = new byte[length];
+      getBytes(0, result, 0, length);
+      bytes = result;
+    }
     return bytes;
   }
 
+  /**
+   * @return a read-only view of the raw class data, from index 0 to its size
+   */
+  public ByteBuffer getByteBuffer() {
+    return buffer != null ? buffer.asReadOnlyBuffer() : ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+  }
+
+  /**
+   * @return the size of the raw class data, in bytes
+   */
+  public int getLength() {
+    return length;
+  }
+
+  /**
+   * Copy len bytes of the raw class data, starting at offset i, into dest.
+   *
+   * @throws IndexOutOfBoundsException if the bytes fall outside the class data or dest
+   */
+  public void getBytes(int i, byte[] dest, int destOffset, int len) {
+    if (buffer != null) {
+      ByteBuffer b = buffer.duplicate();
+      b.position(i);
+      b.get(dest, destOffset, len);
+    } else {
+      System.arraycopy(bytes, i, dest, destOffset, len);
+    }
+  }
+
   /**
    * @return the magic number at the start of the class file.
    */
@@ -310,6 +393,9 @@ public final class ClassReader implements ClassConstants {
    * @return the signed 32-bit value at offset i in the class data
    */
   public int getInt(int i) {
+    if (buffer != null) {
+      return buffer.getInt(i);
+    }
     return (bytes[i] << 24)
         + ((bytes[i + 1] & 0xFF) << 16)
         + ((bytes[i + 2] & 0xFF) << 8)
@@ -320,6 +406,9 @@ public final class ClassReader implements ClassConstants {
    * @return the unsigned 16-bit value at offset i in the class data
    */
   public int getUShort(int i) {
+    if (buffer != null) {
+      return buffer.getShort(i) & 0xFFFF;
+    }
     return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
   }
 
@@ -327,6 +416,9 @@ public final class ClassReader implements ClassConstants {
    * @return the signed 16-bit value at offset i in the class data
    */
   public int getShort(int i) {
+    if (buffer != null) {
+      return buffer.getShort(i);
+    }
     return (bytes[i] << 8) + (bytes[i + 1] & 0xFF);
   }
 
@@ -334,6 +426,9 @@ public final class ClassReader implements ClassConstants {
    * @return the signed 8-bit value at offset i in the class data
    */
   public byte getByte(int i) {
+    if (buffer != null) {
+      return buffer.get(i);
+    }
     return bytes[i];
   }
 
@@ -341,7 +436,7 @@ public final class ClassReader implements ClassConstants {
    * @return the unsigned 8-bit value at offset i in the class data
    */
   public int getUnsignedByte(int i) {
-    return bytes[i] & 0xff;
+    return getByte(i) & 0xff;
   }
 
   /**
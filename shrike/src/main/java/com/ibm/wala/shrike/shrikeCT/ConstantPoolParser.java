@@ -12,6 +12,7 @@ package com.ibm.wala.shrike.shrikeCT;
 
 import com.ibm.wala.shrike.shrikeCT.BootstrapMethodsReader.BootstrapMethod;
 import com.ibm.wala.shrike.shrikeCT.ClassReader.AttrIterator;
+import java.nio.ByteBuffer;
 
 /** A ConstantPoolParser provides read-only access to the constant pool of a class file. */
 public final class ConstantPoolParser implements ClassConstants {
@@ -76,8 +77,15 @@ public final class ConstantPoolParser implements ClassConstants {
     }
   }
 
+  /** the raw class file data, or null if it is held in {@link #buffer} */
   private final byte[] bytes;
 
+  /** the raw class file data, starting at index 0, if it is not held in {@link #bytes} */
+  private final ByteBuffer buffer;
+
+  /** the size of the raw class file data */
+  private final int length;
+
   private int[] cpOffsets;
 
   private String[] cpItems;
@@ -89,7 +97,7 @@ public final class ConstantPoolParser implements ClassConstants {
 
   private BootstrapMethodsReader getBootstrapReader() throws InvalidClassFileException {
     if (invokeDynamicBootstraps == null) {
-      ClassReader thisClass = new ClassReader(bytes);
+      ClassReader thisClass = bytes != null ? new ClassReader(bytes) : new ClassReader(buffer);
       AttrIterator attrs = new AttrIterator();
       thisClass.initClassAttributeIterator(attrs);
       for (; attrs.isValid(); attrs.advance()) {
@@ -111,7 +119,24 @@ public final class ConstantPoolParser implements ClassConstants {
    */
   public ConstantPoolParser(byte[] bytes, int offset, int itemCount)
       throws InvalidClassFileException {
+    this(bytes, null, bytes.length, offset, itemCount);
+  }
+
+  /**
+   * @param buffer the raw class file data, from index 0 to the limit of the buffer
+   * @param offset the start of the constant pool data
+   * @param itemCount the number of items in the pool
+   */
+  public ConstantPoolParser(ByteBuffer buffer, int offset, int itemCount)
+      throws InvalidClassFileException {
+    this(null, buffer, buffer.limit(), offset, itemCount);
+  }
+
+  private ConstantPoolParser(byte[] bytes, ByteBuffer buffer, int length, int offset, int itemCount)
+      throws InvalidClassFileException {
     this.bytes = bytes;
+    this.buffer = buffer;
+    this.length = length;
     if (offset < 0) {
       throw new IllegalArgumentException("invalid offset: " + offset);
     }
@@ -122,10 +147,19 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   /**
+   * For a parser built from a {@link ByteBuffer}, this returns a copy of the raw class file data.
+   *
    * @return the buffer holding the raw class file data
    */
   public byte[] getRawBytes() {
-    return bytes;
+    if (bytes != null) {
+      return bytes;
+    }
+    byte[] result = new byte[length];
+    ByteBuffer b = buffer.duplicate();
+    b.position(0);
+    b.get(result);
+    return result;
   }
 
   /**
@@ -156,10 +190,9 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private void checkLength(int offset, int required) throws InvalidClassFileException {
-    if (bytes.length < offset + required) {
+    if (length < offset + required) {
       throw new InvalidClassFileException(
-          offset,
-          "file truncated, expected " + required + " bytes, saw only " + (bytes.length - offset));
+          offset, "file truncated, expected " + required + " bytes, saw only " + (length - offset));
     }
   }
 
@@ -663,10 +696,16 @@ public final class ConstantPoolParser implements ClassConstants {
   }
 
   private byte getByte(int i) {
+    if (buffer != null) {
+      return buffer.get(i);
+    }
     return bytes[i];
   }
 
   private int getUShort(int i) {
+    if (buffer != null) {
+      return buffer.getShort(i) & 0xFFFF;
+    }
     return ((bytes[i] & 0xFF) << 8) + (bytes[i + 1] & 0xFF);
   }
 
@@ -675,6 +714,9 @@ public final class ConstantPoolParser implements ClassConstants {
   // }
 
   private int getInt(int i) {
+    if (buffer != null) {
+      return buffer.getInt(i);
+    }
     return (bytes[i] << 24)
         + ((bytes[i + 1] & 0xFF) << 16)
         + ((bytes[i + 2] & 0xFF) << 8)
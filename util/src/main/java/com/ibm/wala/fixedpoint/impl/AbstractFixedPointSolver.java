@@ -27,6 +27,7 @@ import com.ibm.wala.util.graph.INodeWithNumber;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Represents a set of {@link IFixedPointStatement}s to be solved by a {@link IFixedPointSolver}
@@ -53,6 +54,9 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
 
   public static final int DEFAULT_PERIODIC_MAINTENANCE_INTERVAL = 100000;
 
+  /** When a listener is registered, the clock is read once every this many evaluations */
+  private static final int SAMPLE_CHECK_INTERVAL = 1024;
+
   /**
    * A tuning parameter; how may new IStatementDefinitionss must be added before doing a new
    * topological sort? TODO: Tune this empirically.
@@ -94,6 +98,15 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
   /** A boolean which is initially true, but set to false after the first call to solve(); */
   private boolean firstSolve = true;
 
+  /** Receives samples of the progress of the solver; null if nobody is listening */
+  private SolverListener listener;
+
+  /** The sampling interval of {@link #listener}, in nanoseconds */
+  private long sampleInterval;
+
+  /** When the next sample is due, in terms of {@link System#nanoTime()} */
+  private long nextSample;
+
   protected abstract T[] makeStmtRHS(int size);
 
   /** Some setup which occurs only before the first solve */
@@ -104,6 +117,13 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
     firstSolve = false;
   }
 
+  /**
+   * @return true iff the setup performed by {@link #initForFirstSolve()} has not happened yet
+   */
+  public boolean isFirstSolve() {
+    return firstSolve;
+  }
+
   /**
    * @return true iff work list is empty
    */
@@ -140,6 +160,9 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
       }
       byte code = s.evaluate();
       nEvaluated++;
+      if (listener != null) {
+        sampleIfDue();
+      }
       if (verbose) {
         if (nEvaluated % getVerboseInterval() == 0) {
           performVerboseAction();
@@ -548,6 +571,50 @@ public abstract class AbstractFixedPointSolver<T extends IVariable<T>>
 
   public void incNumberOfEvaluations() {
     nEvaluated++;
+    if (listener != null) {
+      sampleIfDue();
+    }
+  }
+
+  /**
+   * @return the number of statements on the work list
+   */
+  public int getWorkListSize() {
+    return workList.size();
+  }
+
+  /**
+   * @return the number of statements added to the system so far
+   */
+  public int getNumberOfStatementsCreated() {
+    return nCreated;
+  }
+
+  /**
+   * Register a listener to be sampled periodically while solving. Checking whether a sample is due
+   * costs a field read per evaluation when no listener is registered, and reading the clock once
+   * every 1024 evaluations when one is.
+   *
+   * @param listener the listener, or null to stop sampling
+   * @param intervalMillis the minimum time between two samples, in milliseconds
+   */
+  public void setListener(SolverListener listener, long intervalMillis) {
+    if (listener != null && intervalMillis <= 0) {
+      throw new IllegalArgumentException("invalid sampling interval: " + intervalMillis);
+    }
+    this.listener = listener;
+    this.sampleInterval = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+    this.nextSample = System.nanoTime() + sampleInterval;
+  }
+
+  private void sampleIfDue() {
+    if (nEvaluated % SAMPLE_CHECK_INTERVAL == 0) {
+      long now = System.nanoTime();
+      if (now - nextSample >= 0) {
+        nextSample = now + sampleInterval;
+        listener.sample(this);
+      }
+    }
   }
 
   /** a method that will be called every N evaluations. subclasses should override as desired. */
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.fixedpoint.impl;
+
+/**
+ * Receives periodic samples of the progress of an {@link AbstractFixedPointSolver}.
+ *
+ * @see AbstractFixedPointSolver#setListener(SolverListener, long)
+ */
+public interface SolverListener {
+
+  /**
+   * Called on the solving thread, between two evaluations, at most once per sampling interval. The
+   * solver may be queried, e.g. with {@link AbstractFixedPointSolver#getNumberOfEvaluations()} and
+   * {@link AbstractFixedPointSolver#getWorkListSize()}, but not modified.
+   */
+  void sample(AbstractFixedPointSolver<?> solver);
+}
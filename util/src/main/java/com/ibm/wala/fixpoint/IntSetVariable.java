@@ -11,6 +11,7 @@
 package com.ibm.wala.fixpoint;
 
 import com.ibm.wala.util.intset.IntSet;
+import com.ibm.wala.util.intset.IntSetInterner;
 import com.ibm.wala.util.intset.IntSetUtil;
 import com.ibm.wala.util.intset.MutableIntSet;
 import org.jspecify.annotations.NullUnmarked;
@@ -26,6 +27,34 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
 
   @Nullable MutableIntSet V;
 
+  /** true iff V is shared with other variables, and so must be copied before it is changed */
+  private boolean shared = false;
+
+  /**
+   * Replace the value of this variable with the canonical set of the same value, which may be
+   * shared with other variables. The value is copied again before it is next changed.
+   *
+   * @throws IllegalArgumentException if interner == null
+   */
+  public void intern(IntSetInterner<MutableIntSet> interner) {
+    if (interner == null) {
+      throw new IllegalArgumentException("interner == null");
+    }
+    if (V != null) {
+      V = interner.intern(V);
+      shared = true;
+    }
+  }
+
+  /** make sure V is not shared, before changing it */
+  @NullUnmarked
+  private void unshare() {
+    if (shared) {
+      V = IntSetUtil.getDefaultIntSetFactory().makeCopy(V);
+      shared = false;
+    }
+  }
+
   @Override
   public void copyState(T other) {
     if (V == null) {
@@ -35,6 +64,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
       return;
     } else {
       if (other.V != null) {
+        unshare();
         V.copySet(other.V);
       }
     }
@@ -50,6 +80,12 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
       V = IntSetUtil.getDefaultIntSetFactory().makeCopy(B);
       return !B.isEmpty();
     } else {
+      if (shared) {
+        if (B.isSubset(V)) {
+          return false;
+        }
+        unshare();
+      }
       boolean result = V.addAll(B);
       return result;
     }
@@ -102,6 +138,11 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
   public boolean add(int b) {
     if (V == null) {
       V = IntSetUtil.getDefaultIntSetFactory().make();
+    } else if (shared) {
+      if (V.contains(b)) {
+        return false;
+      }
+      unshare();
     }
     return V.add(b);
   }
@@ -129,6 +170,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
 
   public void remove(int i) {
     if (V != null) {
+      unshare();
       V.remove(i);
     }
   }
@@ -173,6 +215,7 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
       }
       return (V != null);
     } else {
+      unshare();
       boolean result = V.addAllInIntersection(other, filter);
       return result;
     }
@@ -180,5 +223,6 @@ public abstract class IntSetVariable<T extends IntSetVariable<T>> extends Abstra
 
   public void removeAll() {
     V = null;
+    shared = false;
   }
 }
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.collections;
+
+import com.ibm.wala.util.intset.IntIterator;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A map from ints to non-null objects, in an open-addressing hash table, so that keys are neither
+ * boxed nor searched for in a sorted array.
+ *
+ * <p>An empty map holds no table at all, which makes the class suitable for the many small maps of,
+ * say, a large call graph. Iteration order is unspecified.
+ */
+public class IntObjectMap<V> {
+
+  private static final int[] NO_KEYS = new int[0];
+
+  private static final @Nullable Object[] NO_VALUES = new Object[0];
+
+  private int[] keys = NO_KEYS;
+
+  /** values[i] == null iff slot i is free */
+  private @Nullable Object[] values = NO_VALUES;
+
+  private int size = 0;
+
+  public IntObjectMap() {}
+
+  /**
+   * @param expectedSize the number of entries the map should hold without growing
+   */
+  public IntObjectMap(int expectedSize) {
+    if (expectedSize > 0) {
+      allocate(OpenHashing.capacityFor(expectedSize));
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new int[capacity];
+    values = new Object[capacity];
+  }
+
+  /**
+   * @return the slot holding key, or -(the free slot where it would go) - 1
+   */
+  private int find(int key) {
+    int[] keys = this.keys;
+    @Nullable Object[] values = this.values;
+    int mask = keys.length - 1;
+    int pos = OpenHashing.mix(key) & mask;
+    while (values[pos] != null) {
+      if (keys[pos] == key) {
+        return pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    return -pos - 1;
+  }
+
+  /**
+   * @return the value for key, or null if there is none
+   */
+  @SuppressWarnings("unchecked")
+  public @Nullable V get(int key) {
+    if (size == 0) {
+      return null;
+    }
+    int pos = find(key);
+    return pos < 0 ? null : (V) values[pos];
+  }
+
+  public boolean containsKey(int key) {
+    return size > 0 && find(key) >= 0;
+  }
+
+  /**
+   * Map key to value.
+   *
+   * @return the previous value for key, or null if there was none
+   * @throws IllegalArgumentException if value == null
+   */
+  @SuppressWarnings("unchecked")
+  public @Nullable V put(int key, V value) {
+    if (value == null) {
+      throw new IllegalArgumentException("value == null");
+    }
+    if (keys.length == 0) {
+      allocate(OpenHashing.MIN_CAPACITY);
+    } else if (OpenHashing.isFull(size, keys.length)) {
+      rehash(2 * keys.length);
+    }
+    int pos = find(key);
+    int[] keys = this.keys;
+    @Nullable Object[] values = this.values;
+    if (pos >= 0) {
+      V old = (V) values[pos];
+      values[pos] = value;
+      return old;
+    }
+    pos = -pos - 1;
+    keys[pos] = key;
+    values[pos] = value;
+    size++;
+    return null;
+  }
+
+  private void rehash(int capacity) {
+    int[] oldKeys = keys;
+    @Nullable Object[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldValues.length; i++) {
+      if (oldValues[i] != null) {
+        int pos = -find(oldKeys[i]) - 1;
+        keys[pos] = oldKeys[i];
+        values[pos] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * Remove the entry for key, if any.
+   *
+   * @return the value that was removed, or null if there was none
+   */
+  @SuppressWarnings("unchecked")
+  public @Nullable V remove(int key) {
+    if (size == 0) {
+      return null;
+    }
+    int pos = find(key);
+    if (pos < 0) {
+      return null;
+    }
+    int[] keys = this.keys;
+    @Nullable Object[] values = this.values;
+    V old = (V) values[pos];
+    int mask = keys.length - 1;
+    // shift back entries of the same probe sequence
+    int last = pos;
+    pos = (pos + 1) & mask;
+    while (values[pos] != null) {
+      if (OpenHashing.shouldShift(last, OpenHashing.mix(keys[pos]) & mask, pos)) {
+        keys[last] = keys[pos];
+        values[last] = values[pos];
+        last = pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    values[last] = null;
+    size--;
+    return old;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Remove all entries, and release the table. */
+  public void clear() {
+    keys = NO_KEYS;
+    values = NO_VALUES;
+    size = 0;
+  }
+
+  /**
+   * @return a new array of the keys of this map; the map may be changed while walking it
+   */
+  public int[] keys() {
+    int[] result = new int[size];
+    int j = 0;
+    for (int i = 0; i < values.length; i++) {
+      if (values[i] != null) {
+        result[j++] = keys[i];
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return an iterator over the keys of this map, which must not be changed while it is in use
+   */
+  public IntIterator keyIterator() {
+    return new IntIterator() {
+      private int next = advance(0);
+
+      @Override
+      public boolean hasNext() {
+        return next >= 0;
+      }
+
+      @Override
+      public int next() {
+        if (next < 0) {
+          throw new NoSuchElementException();
+        }
+        int result = keys[next];
+        next = advance(next + 1);
+        return result;
+      }
+    };
+  }
+
+  /**
+   * @return the first occupied slot at or after i, or -1
+   */
+  private int advance(int i) {
+    for (; i < values.length; i++) {
+      if (values[i] != null) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the values of this map, which must not be changed while they are walked
+   */
+  public Iterable<V> values() {
+    return () ->
+        new Iterator<>() {
+          private int next = advance(0);
+
+          @Override
+          public boolean hasNext() {
+            return next >= 0;
+          }
+
+          @SuppressWarnings("unchecked")
+          @Override
+          public V next() {
+            if (next < 0) {
+              throw new NoSuchElementException();
+            }
+            V result = (V) values[next];
+            next = advance(next + 1);
+            return result;
+          }
+        };
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    int[] sorted = keys();
+    Arrays.sort(sorted);
+    for (int key : sorted) {
+      if (result.length() > 1) {
+        result.append(", ");
+      }
+      result.append(key).append('=').append(get(key));
+    }
+    return result.append('}').toString();
+  }
+}
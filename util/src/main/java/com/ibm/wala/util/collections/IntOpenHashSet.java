@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.collections;
+
+import com.ibm.wala.util.intset.IntIterator;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of ints, in an open-addressing hash table, so that members are not boxed.
+ *
+ * <p>Unlike the {@link com.ibm.wala.util.intset.IntSet}s, which are ordered and support set
+ * algebra, this is only a cheap replacement for a {@code Set<Integer>}: iteration order is
+ * unspecified.
+ */
+public class IntOpenHashSet {
+
+  private static final int[] NO_MEMBERS = new int[0];
+
+  /** table[i] == 0 iff slot i is free; 0 itself is held apart */
+  private int[] table = NO_MEMBERS;
+
+  private boolean hasZero = false;
+
+  /** number of members, including 0 */
+  private int size = 0;
+
+  public IntOpenHashSet() {}
+
+  /**
+   * @param expectedSize the number of members the set should hold without growing
+   */
+  public IntOpenHashSet(int expectedSize) {
+    if (expectedSize > 0) {
+      table = new int[OpenHashing.capacityFor(expectedSize)];
+    }
+  }
+
+  /**
+   * @param x a value other than 0
+   * @return the slot holding x, or -(the free slot where it would go) - 1
+   */
+  private int find(int x) {
+    int[] table = this.table;
+    int mask = table.length - 1;
+    int pos = OpenHashing.mix(x) & mask;
+    while (table[pos] != 0) {
+      if (table[pos] == x) {
+        return pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    return -pos - 1;
+  }
+
+  public boolean contains(int x) {
+    if (x == 0) {
+      return hasZero;
+    }
+    return table.length > 0 && find(x) >= 0;
+  }
+
+  /**
+   * Add x to this set.
+   *
+   * @return true iff the set changes as a result of this call
+   */
+  public boolean add(int x) {
+    if (x == 0) {
+      if (hasZero) {
+        return false;
+      }
+      hasZero = true;
+      size++;
+      return true;
+    }
+    if (table.length == 0) {
+      table = new int[OpenHashing.MIN_CAPACITY];
+    } else if (OpenHashing.isFull(hasZero ? size - 1 : size, table.length)) {
+      rehash(2 * table.length);
+    }
+    int pos = find(x);
+    if (pos >= 0) {
+      return false;
+    }
+    table[-pos - 1] = x;
+    size++;
+    return true;
+  }
+
+  private void rehash(int capacity) {
+    int[] old = table;
+    table = new int[capacity];
+    for (int x : old) {
+      if (x != 0) {
+        table[-find(x) - 1] = x;
+      }
+    }
+  }
+
+  /**
+   * Remove x from this set.
+   *
+   * @return true iff the set changes as a result of this call
+   */
+  public boolean remove(int x) {
+    if (x == 0) {
+      if (hasZero) {
+        hasZero = false;
+        size--;
+        return true;
+      }
+      return false;
+    }
+    if (table.length == 0) {
+      return false;
+    }
+    int pos = find(x);
+    if (pos < 0) {
+      return false;
+    }
+    int[] table = this.table;
+    int mask = table.length - 1;
+    // shift back members of the same probe sequence
+    int last = pos;
+    pos = (pos + 1) & mask;
+    while (table[pos] != 0) {
+      if (OpenHashing.shouldShift(last, OpenHashing.mix(table[pos]) & mask, pos)) {
+        table[last] = table[pos];
+        last = pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    table[last] = 0;
+    size--;
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Remove all members, and release the table. */
+  public void clear() {
+    table = NO_MEMBERS;
+    hasZero = false;
+    size = 0;
+  }
+
+  /**
+   * @return a new array of the members of this set
+   */
+  public int[] toArray() {
+    int[] result = new int[size];
+    int j = 0;
+    if (hasZero) {
+      result[j++] = 0;
+    }
+    for (int x : table) {
+      if (x != 0) {
+        result[j++] = x;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return an iterator over the members of this set, which must not be changed while it is in use
+   */
+  public IntIterator intIterator() {
+    return new IntIterator() {
+      private boolean zeroPending = hasZero;
+
+      private int next = advance(0);
+
+      private int advance(int i) {
+        while (i < table.length && table[i] == 0) {
+          i++;
+        }
+        return i;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return zeroPending || next < table.length;
+      }
+
+      @Override
+      public int next() {
+        if (zeroPending) {
+          zeroPending = false;
+          return 0;
+        }
+        if (next >= table.length) {
+          throw new NoSuchElementException();
+        }
+        int result = table[next];
+        next = advance(next + 1);
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    int[] sorted = toArray();
+    Arrays.sort(sorted);
+    return Arrays.toString(sorted);
+  }
+}
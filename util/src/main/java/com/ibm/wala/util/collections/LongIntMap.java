@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.collections;
+
+import java.util.Arrays;
+
+/**
+ * A map from longs to ints, in an open-addressing hash table, so that neither keys nor values are
+ * boxed. Iteration order is unspecified.
+ */
+public class LongIntMap {
+
+  private static final long[] NO_KEYS = new long[0];
+
+  private static final int[] NO_VALUES = new int[0];
+
+  /** keys[i] == 0 iff slot i is free; the key 0 is held apart */
+  private long[] keys = NO_KEYS;
+
+  private int[] values = NO_VALUES;
+
+  private boolean hasZeroKey = false;
+
+  private int zeroValue;
+
+  /** number of entries, including the one for the key 0 */
+  private int size = 0;
+
+  public LongIntMap() {}
+
+  /**
+   * @param expectedSize the number of entries the map should hold without growing
+   */
+  public LongIntMap(int expectedSize) {
+    if (expectedSize > 0) {
+      allocate(OpenHashing.capacityFor(expectedSize));
+    }
+  }
+
+  private void allocate(int capacity) {
+    keys = new long[capacity];
+    values = new int[capacity];
+  }
+
+  /**
+   * @param key a key other than 0
+   * @return the slot holding key, or -(the free slot where it would go) - 1
+   */
+  private int find(long key) {
+    long[] keys = this.keys;
+    int mask = keys.length - 1;
+    int pos = OpenHashing.mix(key) & mask;
+    while (keys[pos] != 0) {
+      if (keys[pos] == key) {
+        return pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    return -pos - 1;
+  }
+
+  /**
+   * @return the value for key, or defaultValue if there is none
+   */
+  public int getOrDefault(long key, int defaultValue) {
+    if (key == 0) {
+      return hasZeroKey ? zeroValue : defaultValue;
+    }
+    if (keys.length == 0) {
+      return defaultValue;
+    }
+    int pos = find(key);
+    return pos < 0 ? defaultValue : values[pos];
+  }
+
+  public boolean containsKey(long key) {
+    if (key == 0) {
+      return hasZeroKey;
+    }
+    return keys.length > 0 && find(key) >= 0;
+  }
+
+  /** Map key to value. */
+  public void put(long key, int value) {
+    if (key == 0) {
+      if (!hasZeroKey) {
+        hasZeroKey = true;
+        size++;
+      }
+      zeroValue = value;
+      return;
+    }
+    if (keys.length == 0) {
+      allocate(OpenHashing.MIN_CAPACITY);
+    } else if (OpenHashing.isFull(tableSize(), keys.length)) {
+      rehash(2 * keys.length);
+    }
+    int pos = find(key);
+    if (pos >= 0) {
+      values[pos] = value;
+    } else {
+      pos = -pos - 1;
+      keys[pos] = key;
+      values[pos] = value;
+      size++;
+    }
+  }
+
+  /**
+   * @return the number of entries in the table, which does not hold the key 0
+   */
+  private int tableSize() {
+    return hasZeroKey ? size - 1 : size;
+  }
+
+  private void rehash(int capacity) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      if (oldKeys[i] != 0) {
+        int pos = -find(oldKeys[i]) - 1;
+        keys[pos] = oldKeys[i];
+        values[pos] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * Remove the entry for key, if any.
+   *
+   * @return true iff there was an entry for key
+   */
+  public boolean remove(long key) {
+    if (key == 0) {
+      if (hasZeroKey) {
+        hasZeroKey = false;
+        size--;
+        return true;
+      }
+      return false;
+    }
+    if (keys.length == 0) {
+      return false;
+    }
+    int pos = find(key);
+    if (pos < 0) {
+      return false;
+    }
+    long[] keys = this.keys;
+    int mask = keys.length - 1;
+    // shift back entries of the same probe sequence
+    int last = pos;
+    pos = (pos + 1) & mask;
+    while (keys[pos] != 0) {
+      if (OpenHashing.shouldShift(last, OpenHashing.mix(keys[pos]) & mask, pos)) {
+        keys[last] = keys[pos];
+        values[last] = values[pos];
+        last = pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    keys[last] = 0;
+    size--;
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Remove all entries, and release the table. */
+  public void clear() {
+    keys = NO_KEYS;
+    values = NO_VALUES;
+    hasZeroKey = false;
+    size = 0;
+  }
+
+  /**
+   * @return a new array of the keys of this map; the map may be changed while walking it
+   */
+  public long[] keys() {
+    long[] result = new long[size];
+    int j = 0;
+    if (hasZeroKey) {
+      result[j++] = 0;
+    }
+    for (long key : keys) {
+      if (key != 0) {
+        result[j++] = key;
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    long[] sorted = keys();
+    Arrays.sort(sorted);
+    StringBuilder result = new StringBuilder("{");
+    for (long key : sorted) {
+      if (result.length() > 1) {
+        result.append(", ");
+      }
+      result.append(key).append('=').append(getOrDefault(key, 0));
+    }
+    return result.append('}').toString();
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.collections;
+
+import com.ibm.wala.util.intset.LongIterator;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of longs, in an open-addressing hash table, so that members are not boxed.
+ *
+ * <p>Like {@link IntOpenHashSet}, this is only a cheap replacement for a {@code Set<Long>}:
+ * iteration order is unspecified. Each slot of the table takes 8 bytes, and the table is at most
+ * three quarters full.
+ */
+public class LongOpenHashSet {
+
+  private static final long[] NO_MEMBERS = new long[0];
+
+  /** table[i] == 0 iff slot i is free; 0 itself is held apart */
+  private long[] table = NO_MEMBERS;
+
+  private boolean hasZero = false;
+
+  /** number of members, including 0 */
+  private int size = 0;
+
+  public LongOpenHashSet() {}
+
+  /**
+   * @param expectedSize the number of members the set should hold without growing
+   */
+  public LongOpenHashSet(int expectedSize) {
+    if (expectedSize > 0) {
+      table = new long[OpenHashing.capacityFor(expectedSize)];
+    }
+  }
+
+  /**
+   * @param x a value other than 0
+   * @return the slot holding x, or -(the free slot where it would go) - 1
+   */
+  private int find(long x) {
+    long[] table = this.table;
+    int mask = table.length - 1;
+    int pos = OpenHashing.mix(x) & mask;
+    while (table[pos] != 0) {
+      if (table[pos] == x) {
+        return pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    return -pos - 1;
+  }
+
+  public boolean contains(long x) {
+    if (x == 0) {
+      return hasZero;
+    }
+    return table.length > 0 && find(x) >= 0;
+  }
+
+  /**
+   * Add x to this set.
+   *
+   * @return true iff the set changes as a result of this call
+   */
+  public boolean add(long x) {
+    if (x == 0) {
+      if (hasZero) {
+        return false;
+      }
+      hasZero = true;
+      size++;
+      return true;
+    }
+    if (table.length == 0) {
+      table = new long[OpenHashing.MIN_CAPACITY];
+    } else if (OpenHashing.isFull(hasZero ? size - 1 : size, table.length)) {
+      rehash(2 * table.length);
+    }
+    int pos = find(x);
+    if (pos >= 0) {
+      return false;
+    }
+    table[-pos - 1] = x;
+    size++;
+    return true;
+  }
+
+  private void rehash(int capacity) {
+    long[] old = table;
+    table = new long[capacity];
+    for (long x : old) {
+      if (x != 0) {
+        table[-find(x) - 1] = x;
+      }
+    }
+  }
+
+  /**
+   * Remove x from this set.
+   *
+   * @return true iff the set changes as a result of this call
+   */
+  public boolean remove(long x) {
+    if (x == 0) {
+      if (hasZero) {
+        hasZero = false;
+        size--;
+        return true;
+      }
+      return false;
+    }
+    if (table.length == 0) {
+      return false;
+    }
+    int pos = find(x);
+    if (pos < 0) {
+      return false;
+    }
+    long[] table = this.table;
+    int mask = table.length - 1;
+    // shift back members of the same probe sequence
+    int last = pos;
+    pos = (pos + 1) & mask;
+    while (table[pos] != 0) {
+      if (OpenHashing.shouldShift(last, OpenHashing.mix(table[pos]) & mask, pos)) {
+        table[last] = table[pos];
+        last = pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    table[last] = 0;
+    size--;
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * @return the number of slots in the hash table
+   */
+  public int capacity() {
+    return table.length;
+  }
+
+  /** Remove all members, and release the table. */
+  public void clear() {
+    table = NO_MEMBERS;
+    hasZero = false;
+    size = 0;
+  }
+
+  /**
+   * @return a new array of the members of this set
+   */
+  public long[] toArray() {
+    long[] result = new long[size];
+    int j = 0;
+    if (hasZero) {
+      result[j++] = 0;
+    }
+    for (long x : table) {
+      if (x != 0) {
+        result[j++] = x;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return an iterator over the members of this set, which must not be changed while it is in use
+   */
+  public LongIterator longIterator() {
+    return new LongIterator() {
+      private boolean zeroPending = hasZero;
+
+      private int next = advance(0);
+
+      private int advance(int i) {
+        while (i < table.length && table[i] == 0) {
+          i++;
+        }
+        return i;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return zeroPending || next < table.length;
+      }
+
+      @Override
+      public long next() {
+        if (zeroPending) {
+          zeroPending = false;
+          return 0;
+        }
+        if (next >= table.length) {
+          throw new NoSuchElementException();
+        }
+        long result = table[next];
+        next = advance(next + 1);
+        return result;
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    long[] sorted = toArray();
+    Arrays.sort(sorted);
+    return Arrays.toString(sorted);
+  }
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.collections;
+
+import java.util.function.ObjIntConsumer;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A map from non-null objects to ints, in an open-addressing hash table, so that values are not
+ * boxed. Iteration order is unspecified.
+ */
+public class ObjectIntMap<K> {
+
+  private static final @Nullable Object[] NO_KEYS = new Object[0];
+
+  private static final int[] NO_VALUES = new int[0];
+
+  /** keys[i] == null iff slot i is free */
+  private @Nullable Object[] keys = NO_KEYS;
+
+  private int[] values = NO_VALUES;
+
+  private int size = 0;
+
+  public ObjectIntMap() {}
+
+  /**
+   * @param expectedSize the number of entries the map should hold without growing
+   */
+  public ObjectIntMap(int expectedSize) {
+    if (expectedSize > 0) {
+      allocate(OpenHashing.capacityFor(expectedSize));
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if other is null
+   */
+  public ObjectIntMap(ObjectIntMap<? extends K> other) {
+    if (other == null) {
+      throw new IllegalArgumentException("other is null");
+    }
+    keys = other.keys.clone();
+    values = other.values.clone();
+    size = other.size;
+  }
+
+  private void allocate(int capacity) {
+    keys = new Object[capacity];
+    values = new int[capacity];
+  }
+
+  /**
+   * @return the slot holding key, or -(the free slot where it would go) - 1
+   */
+  private int find(Object key) {
+    @Nullable Object[] keys = this.keys;
+    int mask = keys.length - 1;
+    int pos = OpenHashing.mix(key.hashCode()) & mask;
+    for (Object k = keys[pos]; k != null; k = keys[pos]) {
+      if (k.equals(key)) {
+        return pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    return -pos - 1;
+  }
+
+  /**
+   * @return the value for key, or defaultValue if there is none
+   * @throws IllegalArgumentException if key == null
+   */
+  public int getOrDefault(Object key, int defaultValue) {
+    if (key == null) {
+      throw new IllegalArgumentException("key == null");
+    }
+    if (size == 0) {
+      return defaultValue;
+    }
+    int pos = find(key);
+    return pos < 0 ? defaultValue : values[pos];
+  }
+
+  /**
+   * @throws IllegalArgumentException if key == null
+   */
+  public boolean containsKey(Object key) {
+    if (key == null) {
+      throw new IllegalArgumentException("key == null");
+    }
+    return size > 0 && find(key) >= 0;
+  }
+
+  /**
+   * Map key to value.
+   *
+   * @throws IllegalArgumentException if key == null
+   */
+  public void put(K key, int value) {
+    if (key == null) {
+      throw new IllegalArgumentException("key == null");
+    }
+    if (keys.length == 0) {
+      allocate(OpenHashing.MIN_CAPACITY);
+    } else if (OpenHashing.isFull(size, keys.length)) {
+      rehash(2 * keys.length);
+    }
+    int pos = find(key);
+    if (pos >= 0) {
+      values[pos] = value;
+    } else {
+      pos = -pos - 1;
+      keys[pos] = key;
+      values[pos] = value;
+      size++;
+    }
+  }
+
+  private void rehash(int capacity) {
+    @Nullable Object[] oldKeys = keys;
+    int[] oldValues = values;
+    allocate(capacity);
+    for (int i = 0; i < oldKeys.length; i++) {
+      Object k = oldKeys[i];
+      if (k != null) {
+        int pos = -find(k) - 1;
+        keys[pos] = k;
+        values[pos] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * Remove the entry for key, if any.
+   *
+   * @return true iff there was an entry for key
+   * @throws IllegalArgumentException if key == null
+   */
+  public boolean remove(Object key) {
+    if (key == null) {
+      throw new IllegalArgumentException("key == null");
+    }
+    if (size == 0) {
+      return false;
+    }
+    int pos = find(key);
+    if (pos < 0) {
+      return false;
+    }
+    @Nullable Object[] keys = this.keys;
+    int mask = keys.length - 1;
+    // shift back entries of the same probe sequence
+    int last = pos;
+    pos = (pos + 1) & mask;
+    for (Object k = keys[pos]; k != null; k = keys[pos]) {
+      if (OpenHashing.shouldShift(last, OpenHashing.mix(k.hashCode()) & mask, pos)) {
+        keys[last] = k;
+        values[last] = values[pos];
+        last = pos;
+      }
+      pos = (pos + 1) & mask;
+    }
+    keys[last] = null;
+    size--;
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Remove all entries, and release the table. */
+  public void clear() {
+    keys = NO_KEYS;
+    values = NO_VALUES;
+    size = 0;
+  }
+
+  /** Apply action to each entry of this map, which must not be changed meanwhile. */
+  @SuppressWarnings("unchecked")
+  public void forEach(ObjIntConsumer<? super K> action) {
+    for (int i = 0; i < keys.length; i++) {
+      Object k = keys[i];
+      if (k != null) {
+        action.accept((K) k, values[i]);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder("{");
+    forEach(
+        (k, v) -> {
+          if (result.length() > 1) {
+            result.append(", ");
+          }
+          result.append(k).append('=').append(v);
+        });
+    return result.append('}').toString();
+  }
+}
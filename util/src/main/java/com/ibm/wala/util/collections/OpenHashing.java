@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.collections;
+
+/**
+ * Helpers shared by the open-addressing tables of primitives: {@link IntObjectMap}, {@link
+ * ObjectIntMap}, {@link IntIntMap}, {@link LongIntMap}, {@link IntOpenHashSet} and {@link
+ * LongOpenHashSet}.
+ *
+ * <p>All of them use linear probing in a power-of-two table at most three quarters full, and remove
+ * entries by shifting later entries of the same probe sequence back, so they need no tombstones.
+ */
+final class OpenHashing {
+
+  private OpenHashing() {}
+
+  static final int MIN_CAPACITY = 4;
+
+  /** 2<sup>32</sup> divided by the golden ratio */
+  private static final int INT_PHI = 0x9E3779B9;
+
+  private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+  /**
+   * @return a hash of x whose low bits depend on all bits of x
+   */
+  static int mix(int x) {
+    int h = x * INT_PHI;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * @return a hash of x whose low bits depend on all bits of x
+   */
+  static int mix(long x) {
+    long h = x * LONG_PHI;
+    h ^= h >>> 32;
+    return (int) (h ^ (h >>> 16));
+  }
+
+  /**
+   * @return the capacity of a table that holds n entries without growing
+   * @throws IllegalArgumentException if n &lt; 0
+   */
+  static int capacityFor(int n) {
+    if (n < 0) {
+      throw new IllegalArgumentException("illegal size: " + n);
+    }
+    long needed = (4L * n + 2) / 3;
+    if (needed > 1 << 30) {
+      throw new IllegalArgumentException("too large: " + n);
+    }
+    return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) Math.max(1, needed - 1)) << 1);
+  }
+
+  /**
+   * @return true iff a table of the given capacity holding size entries must grow before it takes
+   *     one more
+   */
+  static boolean isFull(int size, int capacity) {
+    return 4 * (size + 1) > 3 * capacity;
+  }
+
+  /**
+   * When the entry at last is removed, should the entry at pos, whose home slot is home, move back
+   * into last? It should unless home lies cyclically in (last, pos].
+   */
+  static boolean shouldShift(int last, int home, int pos) {
+    return last <= pos ? last >= home || home > pos : last >= home && home > pos;
+  }
+}
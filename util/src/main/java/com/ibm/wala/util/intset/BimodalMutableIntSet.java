@@ -12,8 +12,6 @@ package com.ibm.wala.util.intset;
 
 import com.ibm.wala.util.debug.Assertions;
 import com.ibm.wala.util.debug.UnimplementedError;
-import org.jspecify.annotations.NullUnmarked;
-import org.jspecify.annotations.Nullable;
 
 /**
  * An implementation of {@link MutableIntSet} that delegates to either a {@link MutableSparseIntSet}
@@ -39,6 +37,8 @@ public class BimodalMutableIntSet implements MutableIntSet {
       impl = IntSetUtil.makeMutableCopy(set);
     } else if (set instanceof MutableSharedBitVectorIntSet) {
       impl = IntSetUtil.makeMutableCopy(((MutableSharedBitVectorIntSet) set).makeSparseCopy());
+    } else if (set instanceof RoaringMutableIntSet) {
+      impl = MutableSparseIntSet.make(set);
     } else {
       Assertions.UNREACHABLE("Unexpected type " + set.getClass());
     }
@@ -155,17 +155,26 @@ public class BimodalMutableIntSet implements MutableIntSet {
   /**
    * @see com.ibm.wala.util.intset.IntSet#intersection(com.ibm.wala.util.intset.IntSet)
    */
-  @NullUnmarked
   @Override
-  public @Nullable IntSet intersection(IntSet that) throws UnimplementedError {
+  public IntSet intersection(IntSet that) {
+    if (that == null) {
+      throw new IllegalArgumentException("null that");
+    }
     if (that instanceof BimodalMutableIntSet) {
       BimodalMutableIntSet b = (BimodalMutableIntSet) that;
       return impl.intersection(b.impl);
     } else if (that instanceof BitVectorIntSet) {
       return impl.intersection(that);
     } else {
-      Assertions.UNREACHABLE("Unexpected: " + that);
-      return null;
+      // e.g. a RoaringMutableIntSet; impl is visited in increasing order, so this appends
+      MutableSparseIntSet result = MutableSparseIntSet.makeEmpty();
+      impl.foreach(
+          x -> {
+            if (that.contains(x)) {
+              result.add(x);
+            }
+          });
+      return result;
     }
   }
 
@@ -330,6 +339,8 @@ public class BimodalMutableIntSet implements MutableIntSet {
       return impl.containsAny(that);
     } else if (that instanceof BitVectorIntSet) {
       return impl.containsAny(that);
+    } else if (that instanceof RoaringMutableIntSet) {
+      return that.containsAny(impl);
     } else {
       Assertions.UNREACHABLE("unsupported " + that.getClass());
       return false;
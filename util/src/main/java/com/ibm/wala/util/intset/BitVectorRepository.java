@@ -16,7 +16,12 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
 
-/** A repository for shared bit vectors as described by Heintze */
+/**
+ * A repository for shared bit vectors as described by Heintze.
+ *
+ * <p>A vector with exactly the requested bits is looked up in an {@link IntSetInterner}, without
+ * locking; only requests it cannot answer search for a shared subset.
+ */
 @SuppressWarnings("Java8MapApi")
 public class BitVectorRepository {
 
@@ -33,16 +38,28 @@ public class BitVectorRepository {
   private static final Map<Integer, LinkedList<WeakReference<BitVectorIntSet>>> buckets =
       HashMapFactory.make();
 
+  /** all the shared bit vectors, by value */
+  private static final IntSetInterner<BitVectorIntSet> interner = new IntSetInterner<>();
+
   /**
    * @return the BitVector in this repository which is the canonical shared subset representative of
    *     value; the result will have the same bits as value, except it may exclude up to
    *     SUBSET_DELTA bits.
    * @throws IllegalArgumentException if value is null
    */
-  public static synchronized BitVectorIntSet findOrCreateSharedSubset(BitVectorIntSet value) {
+  public static BitVectorIntSet findOrCreateSharedSubset(BitVectorIntSet value) {
     if (value == null) {
       throw new IllegalArgumentException("value is null");
     }
+    BitVectorIntSet exact = interner.find(value);
+    if (exact != null) {
+      return exact;
+    }
+    return findOrCreateSharedSubsetInternal(value);
+  }
+
+  private static synchronized BitVectorIntSet findOrCreateSharedSubsetInternal(
+      BitVectorIntSet value) {
     if (STATS) {
       queries++;
       if (queries % STATS_WINDOW == 0) {
@@ -81,11 +98,18 @@ public class BitVectorRepository {
       m = tmp;
       buckets.put(size, m);
     }
-    BitVectorIntSet bv = new BitVectorIntSet(value);
+    BitVectorIntSet bv = interner.add(new BitVectorIntSet(value));
     m.add(new WeakReference<>(bv));
     return bv;
   }
 
+  /**
+   * @return the table of shared bit vectors, e.g. for its statistics
+   */
+  public static IntSetInterner<BitVectorIntSet> getInterner() {
+    return interner;
+  }
+
   /** */
   private static void reportStats() {
     double percent = 100.0 * hits / queries;
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A hash-consing table for {@link IntSet}s: {@link #intern(IntSet)} maps each set to a canonical
+ * set of the same class and value, so that equal sets are stored once.
+ *
+ * <p>Sets are hashed by content, and compared with {@link IntSet#sameValue(IntSet)}. The table only
+ * holds weak references to its sets, so a canonical set that is no longer used elsewhere is
+ * reclaimed. The table may be used by several threads at once.
+ *
+ * <p>A set handed to the table is shared from then on, and must never be modified.
+ */
+public class IntSetInterner<T extends IntSet> {
+
+  private final ConcurrentHashMap<Key<T>, Key<T>> table = new ConcurrentHashMap<>();
+
+  /** weak references to canonical sets that have been reclaimed */
+  private final ReferenceQueue<T> queue = new ReferenceQueue<>();
+
+  private final LongAdder requests = new LongAdder();
+
+  private final LongAdder hits = new LongAdder();
+
+  /**
+   * @return the canonical set with the same class and value as set; set itself, if there was none
+   * @throws IllegalArgumentException if set == null
+   */
+  public T intern(T set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    requests.increment();
+    return intern(set, true);
+  }
+
+  private T intern(T set, boolean countHit) {
+    expungeStaleEntries();
+    Key<T> key = new Key<>(set, hash(set), queue);
+    while (true) {
+      Key<T> existing = table.putIfAbsent(key, key);
+      if (existing == null) {
+        return set;
+      }
+      T canonical = existing.get();
+      if (canonical != null) {
+        if (countHit) {
+          hits.increment();
+        }
+        return canonical;
+      }
+      // reclaimed, but not yet expunged
+      table.remove(existing, existing);
+    }
+  }
+
+  /**
+   * @return the canonical set with the same class and value as set, or null if there is none
+   * @throws IllegalArgumentException if set == null
+   */
+  public @Nullable T find(T set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    requests.increment();
+    Key<T> existing = table.get(new Key<>(set, hash(set), null));
+    T canonical = existing == null ? null : existing.get();
+    if (canonical != null) {
+      hits.increment();
+    }
+    return canonical;
+  }
+
+  /**
+   * Make set canonical, without counting a request; for use after {@link #find(IntSet)} failed.
+   *
+   * @return the canonical set with the same class and value as set
+   */
+  T add(T set) {
+    return intern(set, false);
+  }
+
+  private void expungeStaleEntries() {
+    for (Reference<? extends T> r = queue.poll(); r != null; r = queue.poll()) {
+      table.remove(r, r);
+    }
+  }
+
+  /**
+   * @return a hash of the value of set, which does not depend on its representation. Elements are
+   *     combined by a sum, since some sets, e.g. {@link MutableSharedBitVectorIntSet}s, do not
+   *     iterate over them in increasing order.
+   */
+  public static int hash(IntSet set) {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    int result = 0;
+    for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+      result += mix(it.next());
+    }
+    return result;
+  }
+
+  /** spread the bits of an element, so that sums of small elements do not collide too often */
+  private static int mix(int x) {
+    x *= 0x9e3779b9;
+    x ^= x >>> 16;
+    x *= 0x85ebca6b;
+    return x ^ (x >>> 13);
+  }
+
+  /**
+   * @return the number of canonical sets in the table
+   */
+  public int size() {
+    expungeStaleEntries();
+    return table.size();
+  }
+
+  /**
+   * @return the number of calls to {@link #intern(IntSet)} and {@link #find(IntSet)}
+   */
+  public long getNumberOfRequests() {
+    return requests.sum();
+  }
+
+  /**
+   * @return the number of requests answered with a set that was already in the table
+   */
+  public long getNumberOfHits() {
+    return hits.sum();
+  }
+
+  /**
+   * @return the fraction of requests answered with a set that was already in the table, i.e. the
+   *     fraction of sets that did not need to be stored again
+   */
+  public double getDedupRatio() {
+    long r = requests.sum();
+    return r == 0 ? 0.0 : (double) hits.sum() / r;
+  }
+
+  @Override
+  public String toString() {
+    return "IntSetInterner: requests "
+        + getNumberOfRequests()
+        + " hits "
+        + getNumberOfHits()
+        + " entries "
+        + size();
+  }
+
+  /**
+   * A weak reference to a set, which hashes and compares by the value of the set. A reference whose
+   * set has been reclaimed is only equal to itself.
+   */
+  private static final class Key<T extends IntSet> extends WeakReference<T> {
+
+    private final int hash;
+
+    Key(T set, int hash, @Nullable ReferenceQueue<? super T> queue) {
+      super(set, queue);
+      this.hash = hash;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj == this) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key<?> other = (Key<?>) obj;
+      if (hash != other.hash) {
+        return false;
+      }
+      IntSet a = get();
+      IntSet b = other.get();
+      return a != null
+          && b != null
+          && a.getClass() == b.getClass()
+          && a.size() == b.size()
+          && a.sameValue(b);
+    }
+  }
+}
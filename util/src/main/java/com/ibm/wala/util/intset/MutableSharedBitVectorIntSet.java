@@ -341,7 +341,7 @@ public class MutableSharedBitVectorIntSet implements MutableIntSet {
       return that.sameValue(makeSparseCopy());
     } else if (that instanceof BitVectorIntSet) {
       return sameValue((BitVectorIntSet) that);
-    } else if (that instanceof SemiSparseMutableIntSet) {
+    } else if (that instanceof SemiSparseMutableIntSet || that instanceof RoaringMutableIntSet) {
       return that.sameValue(this);
     } else {
       Assertions.UNREACHABLE("unexpected class " + that.getClass());
@@ -0,0 +1,585 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import static com.ibm.wala.util.nullability.NullabilityUtil.castToNonNull;
+
+import com.ibm.wala.util.WalaRuntimeException;
+import com.ibm.wala.util.debug.Assertions;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.IntFunction;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A relation between non-negative integers, held outside the Java heap.
+ *
+ * <p>Each x has a row of four ints in a row table: the number of y's, the capacity of its chunk,
+ * and either the y's themselves, if there are at most two, or the address of a chunk holding them.
+ * The y's of a row are kept sorted. Chunks have a power-of-two capacity; a full chunk is replaced
+ * by one twice its size, and freed chunks are kept on a free list for each capacity.
+ *
+ * <p>Both the row table and the chunks live in segments, which are direct buffers by default, or
+ * memory-mapped files (see {@link #makeMapped(File)}). The garbage collector only sees the
+ * segments, so a relation with many millions of pairs does not make collections slower. Segments
+ * are released when the relation is garbage collected.
+ *
+ * <p>This class is not thread-safe, though any number of threads may read a relation that is not
+ * being changed.
+ */
+public final class OffHeapNaturalRelation implements IBinaryNaturalRelation {
+
+  private static final boolean VERBOSE = false;
+
+  /** ints per row: size, capacity, and two ints holding the y's or the address of the chunk */
+  private static final int ROW_INTS = 4;
+
+  private static final int SIZE = 0;
+
+  private static final int CAPACITY = 1;
+
+  private static final int FIRST = 2;
+
+  private static final int SECOND = 3;
+
+  /** the most y's held in the row itself */
+  private static final int INLINE = 2;
+
+  /** log of the number of rows in a segment of the row table */
+  private static final int LOG_ROWS_PER_SEGMENT = 14;
+
+  private static final int ROW_MASK = (1 << LOG_ROWS_PER_SEGMENT) - 1;
+
+  /** number of ints in a segment of chunks; a larger chunk gets a segment of its own */
+  private static final int CHUNK_SEGMENT_INTS = 1 << 20;
+
+  private static final int MIN_CHUNK = 4;
+
+  private static final long NO_CHUNK = -1;
+
+  /** makes a zeroed buffer of the given number of bytes */
+  private final IntFunction<ByteBuffer> allocator;
+
+  private @Nullable IntBuffer[] rows = new IntBuffer[0];
+
+  private IntBuffer[] chunks = new IntBuffer[0];
+
+  private int nChunkSegments = 0;
+
+  /** the segment new chunks are carved from, or -1 */
+  private int currentSegment = -1;
+
+  /** the first free int in the current segment */
+  private int chunkTop = CHUNK_SEGMENT_INTS;
+
+  /** freeLists[i] is the address of a free chunk of capacity 2<sup>i</sup>, or NO_CHUNK */
+  private final long[] freeLists = new long[Integer.SIZE];
+
+  /** maximum x for any pair in this relation. */
+  private int maxX = -1;
+
+  /** a relation held in direct buffers */
+  public OffHeapNaturalRelation() {
+    this(ByteBuffer::allocateDirect);
+  }
+
+  /**
+   * @param allocator makes a zeroed buffer of the given number of bytes, for each new segment
+   * @throws IllegalArgumentException if allocator is null
+   */
+  public OffHeapNaturalRelation(IntFunction<ByteBuffer> allocator) {
+    if (allocator == null) {
+      throw new IllegalArgumentException("allocator is null");
+    }
+    this.allocator = allocator;
+    Arrays.fill(freeLists, NO_CHUNK);
+  }
+
+  /**
+   * Make a relation held in memory-mapped files, so that it may grow past the memory of the
+   * machine. Each segment is mapped from its own temporary file in directory, which is deleted
+   * right away where the platform allows it, and otherwise when the virtual machine exits.
+   *
+   * @param directory where to create the files, or null for the default temporary directory
+   */
+  public static OffHeapNaturalRelation makeMapped(@Nullable File directory) {
+    return new OffHeapNaturalRelation(bytes -> map(directory, bytes));
+  }
+
+  private static ByteBuffer map(@Nullable File directory, int bytes) {
+    try {
+      File f = File.createTempFile("wala-relation", ".bin", directory);
+      try (RandomAccessFile file = new RandomAccessFile(f, "rw")) {
+        return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+      } finally {
+        if (!f.delete()) {
+          f.deleteOnExit();
+        }
+      }
+    } catch (IOException e) {
+      throw new WalaRuntimeException("could not map a segment of " + bytes + " bytes", e);
+    }
+  }
+
+  private IntBuffer allocate(int ints) {
+    return allocator.apply(ints * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+  }
+
+  /**
+   * @return the segment of the row table holding x, or null if it has not been allocated
+   */
+  private @Nullable IntBuffer rowSegment(int x) {
+    int s = x >>> LOG_ROWS_PER_SEGMENT;
+    return s < rows.length ? rows[s] : null;
+  }
+
+  private IntBuffer findOrCreateRowSegment(int x) {
+    int s = x >>> LOG_ROWS_PER_SEGMENT;
+    if (s >= rows.length) {
+      rows = Arrays.copyOf(rows, Math.max(s + 1, rows.length + (rows.length >> 1)));
+    }
+    IntBuffer result = rows[s];
+    if (result == null) {
+      result = allocate(ROW_INTS << LOG_ROWS_PER_SEGMENT);
+      rows[s] = result;
+    }
+    return result;
+  }
+
+  private static int rowBase(int x) {
+    return (x & ROW_MASK) * ROW_INTS;
+  }
+
+  private static long address(int segment, int offset) {
+    return ((long) segment << Integer.SIZE) | offset;
+  }
+
+  private static long chunkAddress(IntBuffer row, int base) {
+    return address(row.get(base + FIRST), row.get(base + SECOND));
+  }
+
+  private static void setChunkAddress(IntBuffer row, int base, long address) {
+    row.put(base + FIRST, (int) (address >>> Integer.SIZE));
+    row.put(base + SECOND, (int) address);
+  }
+
+  private IntBuffer chunkSegment(long address) {
+    return chunks[(int) (address >>> Integer.SIZE)];
+  }
+
+  private static int chunkOffset(long address) {
+    return (int) address;
+  }
+
+  /**
+   * @param capacity a power of two, at least MIN_CHUNK
+   * @return the address of a chunk of the given capacity
+   */
+  private long allocateChunk(int capacity) {
+    int sizeClass = Integer.numberOfTrailingZeros(capacity);
+    long result = freeLists[sizeClass];
+    if (result != NO_CHUNK) {
+      IntBuffer segment = chunkSegment(result);
+      int offset = chunkOffset(result);
+      freeLists[sizeClass] = address(segment.get(offset), segment.get(offset + 1));
+      return result;
+    }
+    if (capacity > CHUNK_SEGMENT_INTS) {
+      return address(addChunkSegment(capacity), 0);
+    }
+    if (chunkTop + capacity > CHUNK_SEGMENT_INTS) {
+      // put what is left of the current segment on the free lists
+      while (CHUNK_SEGMENT_INTS - chunkTop >= MIN_CHUNK) {
+        int piece = Integer.highestOneBit(CHUNK_SEGMENT_INTS - chunkTop);
+        freeChunk(address(currentSegment, chunkTop), piece);
+        chunkTop += piece;
+      }
+      currentSegment = addChunkSegment(CHUNK_SEGMENT_INTS);
+      chunkTop = 0;
+    }
+    result = address(currentSegment, chunkTop);
+    chunkTop += capacity;
+    return result;
+  }
+
+  /**
+   * @return the index of a new segment of chunks
+   */
+  private int addChunkSegment(int ints) {
+    if (nChunkSegments == chunks.length) {
+      chunks = Arrays.copyOf(chunks, 2 * chunks.length + 1);
+    }
+    chunks[nChunkSegments] = allocate(ints);
+    return nChunkSegments++;
+  }
+
+  private void freeChunk(long address, int capacity) {
+    int sizeClass = Integer.numberOfTrailingZeros(capacity);
+    IntBuffer segment = chunkSegment(address);
+    int offset = chunkOffset(address);
+    long next = freeLists[sizeClass];
+    segment.put(offset, (int) (next >>> Integer.SIZE));
+    segment.put(offset + 1, (int) next);
+    freeLists[sizeClass] = address;
+  }
+
+  /**
+   * @return the index of y among the size sorted ints from segment[offset], if it is there;
+   *     otherwise -(insertion point) - 1
+   */
+  private static int search(IntBuffer segment, int offset, int size, int y) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int v = segment.get(offset + mid);
+      if (v < y) {
+        low = mid + 1;
+      } else if (v > y) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * Add (x,y) to the relation.
+   *
+   * @return true iff the relation changes as a result of this call.
+   */
+  @Override
+  public boolean add(int x, int y) throws IllegalArgumentException {
+    if (x < 0) {
+      throw new IllegalArgumentException("illegal x: " + x);
+    }
+    if (y < 0) {
+      throw new IllegalArgumentException("illegal y: " + y);
+    }
+    IntBuffer row = findOrCreateRowSegment(x);
+    int base = rowBase(x);
+    int size = row.get(base + SIZE);
+    maxX = Math.max(maxX, x);
+    switch (size) {
+      case 0:
+        row.put(base + FIRST, y);
+        row.put(base + SIZE, 1);
+        return true;
+      case 1:
+        {
+          int first = row.get(base + FIRST);
+          if (first == y) {
+            return false;
+          }
+          row.put(base + FIRST, Math.min(first, y));
+          row.put(base + SECOND, Math.max(first, y));
+          row.put(base + SIZE, 2);
+          return true;
+        }
+      case INLINE:
+        {
+          int first = row.get(base + FIRST);
+          int second = row.get(base + SECOND);
+          if (first == y || second == y) {
+            return false;
+          }
+          long address = allocateChunk(MIN_CHUNK);
+          IntBuffer segment = chunkSegment(address);
+          int offset = chunkOffset(address);
+          if (y < first) {
+            segment.put(offset, y).put(offset + 1, first).put(offset + 2, second);
+          } else if (y < second) {
+            segment.put(offset, first).put(offset + 1, y).put(offset + 2, second);
+          } else {
+            segment.put(offset, first).put(offset + 1, second).put(offset + 2, y);
+          }
+          setChunkAddress(row, base, address);
+          row.put(base + CAPACITY, MIN_CHUNK);
+          row.put(base + SIZE, INLINE + 1);
+          return true;
+        }
+      default:
+        {
+          long address = chunkAddress(row, base);
+          IntBuffer segment = chunkSegment(address);
+          int offset = chunkOffset(address);
+          int index = search(segment, offset, size, y);
+          if (index >= 0) {
+            return false;
+          }
+          index = -index - 1;
+          int capacity = row.get(base + CAPACITY);
+          if (size == capacity) {
+            long newAddress = allocateChunk(2 * capacity);
+            IntBuffer newSegment = chunkSegment(newAddress);
+            int newOffset = chunkOffset(newAddress);
+            for (int i = 0; i < index; i++) {
+              newSegment.put(newOffset + i, segment.get(offset + i));
+            }
+            newSegment.put(newOffset + index, y);
+            for (int i = index; i < size; i++) {
+              newSegment.put(newOffset + i + 1, segment.get(offset + i));
+            }
+            freeChunk(address, capacity);
+            setChunkAddress(row, base, newAddress);
+            row.put(base + CAPACITY, 2 * capacity);
+          } else {
+            for (int i = size; i > index; i--) {
+              segment.put(offset + i, segment.get(offset + i - 1));
+            }
+            segment.put(offset + index, y);
+          }
+          row.put(base + SIZE, size + 1);
+          return true;
+        }
+    }
+  }
+
+  @Override
+  public @Nullable IntSet getRelated(int x) {
+    if (x < 0) {
+      throw new IllegalArgumentException("illegal x: " + x);
+    }
+    IntBuffer row = rowSegment(x);
+    if (row == null) {
+      return null;
+    }
+    int base = rowBase(x);
+    switch (row.get(base + SIZE)) {
+      case 0:
+        return null;
+      case 1:
+        return SparseIntSet.singleton(row.get(base + FIRST));
+      case INLINE:
+        return SparseIntSet.pair(row.get(base + FIRST), row.get(base + SECOND));
+      default:
+        {
+          int size = row.get(base + SIZE);
+          long address = chunkAddress(row, base);
+          IntBuffer segment = chunkSegment(address);
+          int offset = chunkOffset(address);
+          MutableSparseIntSet result = MutableSparseIntSet.createMutableSparseIntSet(size);
+          for (int i = 0; i < size; i++) {
+            // the ys are sorted, so each add appends
+            result.add(segment.get(offset + i));
+          }
+          return result;
+        }
+    }
+  }
+
+  @Override
+  public int getRelatedCount(int x) throws IllegalArgumentException {
+    if (x < 0) {
+      throw new IllegalArgumentException("x must be greater than zero");
+    }
+    IntBuffer row = rowSegment(x);
+    return row == null ? 0 : row.get(rowBase(x) + SIZE);
+  }
+
+  @Override
+  public boolean anyRelated(int x) {
+    return getRelatedCount(x) > 0;
+  }
+
+  @Override
+  public boolean contains(int x, int y) {
+    if (x < 0) {
+      throw new IllegalArgumentException("invalid x: " + x);
+    }
+    IntBuffer row = rowSegment(x);
+    if (row == null) {
+      return false;
+    }
+    int base = rowBase(x);
+    int size = row.get(base + SIZE);
+    switch (size) {
+      case 0:
+        return false;
+      case 1:
+        return row.get(base + FIRST) == y;
+      case INLINE:
+        return row.get(base + FIRST) == y || row.get(base + SECOND) == y;
+      default:
+        {
+          long address = chunkAddress(row, base);
+          return search(chunkSegment(address), chunkOffset(address), size, y) >= 0;
+        }
+    }
+  }
+
+  @Override
+  public void remove(int x, int y) {
+    if (x < 0) {
+      throw new IllegalArgumentException("illegal x: " + x);
+    }
+    if (y < 0) {
+      throw new IllegalArgumentException("illegal y: " + y);
+    }
+    IntBuffer row = rowSegment(x);
+    if (row == null) {
+      return;
+    }
+    int base = rowBase(x);
+    int size = row.get(base + SIZE);
+    switch (size) {
+      case 0:
+        return;
+      case 1:
+        if (row.get(base + FIRST) == y) {
+          row.put(base + SIZE, 0);
+        }
+        return;
+      case INLINE:
+        if (row.get(base + FIRST) == y) {
+          row.put(base + FIRST, row.get(base + SECOND));
+          row.put(base + SIZE, 1);
+        } else if (row.get(base + SECOND) == y) {
+          row.put(base + SIZE, 1);
+        }
+        return;
+      default:
+        {
+          long address = chunkAddress(row, base);
+          IntBuffer segment = chunkSegment(address);
+          int offset = chunkOffset(address);
+          int index = search(segment, offset, size, y);
+          if (index < 0) {
+            return;
+          }
+          for (int i = index; i < size - 1; i++) {
+            segment.put(offset + i, segment.get(offset + i + 1));
+          }
+          if (size - 1 == INLINE) {
+            // move the two remaining ys back into the row
+            int first = segment.get(offset);
+            int second = segment.get(offset + 1);
+            freeChunk(address, row.get(base + CAPACITY));
+            row.put(base + FIRST, first);
+            row.put(base + SECOND, second);
+            row.put(base + CAPACITY, 0);
+          }
+          row.put(base + SIZE, size - 1);
+        }
+    }
+  }
+
+  @Override
+  public void removeAll(int x) {
+    if (x < 0) {
+      throw new IllegalArgumentException("illegal x: " + x);
+    }
+    IntBuffer row = rowSegment(x);
+    if (row == null) {
+      return;
+    }
+    int base = rowBase(x);
+    if (row.get(base + SIZE) > INLINE) {
+      freeChunk(chunkAddress(row, base), row.get(base + CAPACITY));
+    }
+    for (int i = 0; i < ROW_INTS; i++) {
+      row.put(base + i, 0);
+    }
+  }
+
+  @Override
+  public int maxKeyValue() {
+    return maxX;
+  }
+
+  @Override
+  public Iterator<IntPair> iterator() {
+    return new Iterator<>() {
+      private int x = -1;
+
+      private int index = 0;
+
+      private int size = 0;
+
+      {
+        advanceX();
+      }
+
+      private void advanceX() {
+        index = 0;
+        size = 0;
+        while (size == 0 && x < maxX) {
+          x++;
+          size = getRelatedCount(x);
+        }
+      }
+
+      @Override
+      public boolean hasNext() {
+        return index < size;
+      }
+
+      @Override
+      public IntPair next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        IntBuffer row = castToNonNull(rowSegment(x));
+        int base = rowBase(x);
+        int y;
+        if (size <= INLINE) {
+          y = row.get(base + FIRST + index);
+        } else {
+          long address = chunkAddress(row, base);
+          y = chunkSegment(address).get(chunkOffset(address) + index);
+        }
+        IntPair result = new IntPair(x, y);
+        if (++index == size) {
+          advanceX();
+        }
+        return result;
+      }
+
+      @Override
+      public void remove() {
+        Assertions.UNREACHABLE();
+      }
+    };
+  }
+
+  /**
+   * @see com.ibm.wala.util.debug.VerboseAction#performVerboseAction()
+   */
+  @Override
+  public void performVerboseAction() {
+    if (VERBOSE) {
+      System.err.println((getClass() + " stats:"));
+      System.err.println(("row segments: " + rows.length));
+      System.err.println(("chunk segments: " + nChunkSegments));
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder result = new StringBuilder();
+    for (int x = 0; x <= maxX; x++) {
+      IntSet related = getRelated(x);
+      if (related != null) {
+        result.append(x).append(" -> ").append(related).append('\n');
+      }
+    }
+    return result.toString();
+  }
+}
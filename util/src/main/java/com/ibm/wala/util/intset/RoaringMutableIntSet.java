@@ -0,0 +1,1504 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+import com.ibm.wala.util.collections.EmptyIntIterator;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A compressed bitmap, in the style of Roaring bitmaps (Chambi et al., "Better bitmap performance
+ * with Roaring bitmaps", 2016).
+ *
+ * <p>The non-negative integers are split into chunks of 2<sup>16</sup> values, keyed by their high
+ * 16 bits. The low 16 bits of the elements of each non-empty chunk are held in one of three
+ * containers:
+ *
+ * <ul>
+ *   <li>a sorted array, for chunks of at most {@link #ARRAY_MAX} elements;
+ *   <li>a bitmap of 2<sup>16</sup> bits, for denser chunks;
+ *   <li>a list of runs of consecutive values, when that is smaller than the other two.
+ * </ul>
+ *
+ * <p>Unlike a {@link BitVectorIntSet}, a sparse set of high-numbered values costs a few bytes per
+ * element, and unlike a {@link MutableSparseIntSet}, an insertion moves at most {@link #ARRAY_MAX}
+ * elements. Operations between two sets of this kind work chunk by chunk, a word at a time where
+ * both containers are bitmaps.
+ *
+ * <p>This set only holds non-negative integers.
+ */
+public class RoaringMutableIntSet implements MutableIntSet {
+
+  private static final long serialVersionUID = -3197432118273559212L;
+
+  /** the largest number of elements held in an array container */
+  static final int ARRAY_MAX = 4096;
+
+  private static final int BITMAP_WORDS = 1 << 10;
+
+  /** the size of a bitmap container, in bytes */
+  private static final int BITMAP_BYTES = 8 * BITMAP_WORDS;
+
+  private static final int[] NO_KEYS = new int[0];
+
+  private static final Container[] NO_CONTAINERS = new Container[0];
+
+  /** the high 16 bits of the elements of each chunk, in increasing order */
+  private int[] keys = NO_KEYS;
+
+  /** the low 16 bits of the elements of each chunk */
+  private Container[] containers = NO_CONTAINERS;
+
+  /** the number of non-empty chunks */
+  private int nChunks = 0;
+
+  public RoaringMutableIntSet() {}
+
+  public RoaringMutableIntSet(RoaringMutableIntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    copySet(set);
+  }
+
+  /**
+   * @return a new set with the same value as set
+   * @throws IllegalArgumentException if set == null
+   */
+  public static RoaringMutableIntSet make(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    RoaringMutableIntSet result = new RoaringMutableIntSet();
+    result.copySet(set);
+    return result;
+  }
+
+  private static int key(int i) {
+    return i >>> 16;
+  }
+
+  private static int low(int i) {
+    return i & 0xFFFF;
+  }
+
+  /**
+   * @return the index of the chunk with the given key, or (-(insertion point) - 1) if there is none
+   */
+  private int findChunk(int key) {
+    // elements are often added in increasing order; try the last chunk first.
+    if (nChunks > 0 && keys[nChunks - 1] <= key) {
+      return keys[nChunks - 1] == key ? nChunks - 1 : -nChunks - 1;
+    }
+    return Arrays.binarySearch(keys, 0, nChunks, key);
+  }
+
+  private void insertChunk(int index, int key, Container c) {
+    if (nChunks == keys.length) {
+      int newLength = nChunks + (nChunks >> 1) + 1;
+      keys = Arrays.copyOf(keys, newLength);
+      containers = Arrays.copyOf(containers, newLength);
+    }
+    System.arraycopy(keys, index, keys, index + 1, nChunks - index);
+    System.arraycopy(containers, index, containers, index + 1, nChunks - index);
+    keys[index] = key;
+    containers[index] = c;
+    nChunks++;
+  }
+
+  private void removeChunk(int index) {
+    System.arraycopy(keys, index + 1, keys, index, nChunks - index - 1);
+    System.arraycopy(containers, index + 1, containers, index, nChunks - index - 1);
+    nChunks--;
+    containers[nChunks] = null;
+  }
+
+  @Override
+  public boolean contains(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int index = findChunk(key(i));
+    return index >= 0 && containers[index].contains(low(i));
+  }
+
+  /**
+   * @throws IllegalArgumentException if i &lt; 0
+   */
+  @Override
+  public boolean add(int i) throws IllegalArgumentException {
+    if (i < 0) {
+      throw new IllegalArgumentException("illegal value: " + i);
+    }
+    int index = findChunk(key(i));
+    if (index < 0) {
+      insertChunk(-index - 1, key(i), new ArrayContainer(low(i)));
+      return true;
+    }
+    Container c = containers[index];
+    int oldCardinality = c.cardinality;
+    containers[index] = c.add(low(i));
+    return containers[index].cardinality != oldCardinality;
+  }
+
+  @Override
+  public boolean remove(int i) {
+    if (i < 0) {
+      return false;
+    }
+    int index = findChunk(key(i));
+    if (index < 0) {
+      return false;
+    }
+    Container c = containers[index];
+    int oldCardinality = c.cardinality;
+    Container result = c.remove(low(i));
+    if (result.cardinality == 0) {
+      removeChunk(index);
+    } else {
+      containers[index] = result;
+    }
+    return result.cardinality != oldCardinality;
+  }
+
+  @Override
+  public void clear() {
+    keys = NO_KEYS;
+    containers = NO_CONTAINERS;
+    nChunks = 0;
+  }
+
+  /**
+   * @throws IllegalArgumentException if set == null
+   */
+  @Override
+  public void copySet(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    if (set instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet that = (RoaringMutableIntSet) set;
+      keys = Arrays.copyOf(that.keys, that.nChunks);
+      containers = new Container[that.nChunks];
+      for (int i = 0; i < that.nChunks; i++) {
+        containers[i] = that.containers[i].copy();
+      }
+      nChunks = that.nChunks;
+    } else {
+      clear();
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        add(it.next());
+      }
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if set == null
+   */
+  @Override
+  public boolean addAll(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof RoaringMutableIntSet) {
+      return addAllInternal((RoaringMutableIntSet) set);
+    } else {
+      boolean change = false;
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        change |= add(it.next());
+      }
+      return change;
+    }
+  }
+
+  private boolean addAllInternal(RoaringMutableIntSet that) {
+    if (that == this) {
+      return false;
+    }
+    boolean change = false;
+    int i = 0;
+    for (int j = 0; j < that.nChunks; j++, i++) {
+      int key = that.keys[j];
+      while (i < nChunks && keys[i] < key) {
+        i++;
+      }
+      if (i < nChunks && keys[i] == key) {
+        Container c = containers[i];
+        int oldCardinality = c.cardinality;
+        containers[i] = or(c, that.containers[j]);
+        change |= containers[i].cardinality != oldCardinality;
+      } else {
+        insertChunk(i, key, that.containers[j].copy());
+        change = true;
+      }
+    }
+    return change;
+  }
+
+  /**
+   * @throws IllegalArgumentException if other or filter is null
+   */
+  @Override
+  public boolean addAllInIntersection(IntSet other, IntSet filter)
+      throws IllegalArgumentException {
+    if (other == null) {
+      throw new IllegalArgumentException("other is null");
+    }
+    if (filter == null) {
+      throw new IllegalArgumentException("null filter");
+    }
+    if (other instanceof RoaringMutableIntSet && filter instanceof RoaringMutableIntSet) {
+      return addAllInternal(and((RoaringMutableIntSet) other, (RoaringMutableIntSet) filter));
+    } else {
+      boolean change = false;
+      for (IntIterator it = other.intIterator(); it.hasNext(); ) {
+        int x = it.next();
+        if (filter.contains(x)) {
+          change |= add(x);
+        }
+      }
+      return change;
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if set == null
+   */
+  @Override
+  public void intersectWith(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set == this) {
+      return;
+    }
+    RoaringMutableIntSet result;
+    if (set instanceof RoaringMutableIntSet) {
+      result = and(this, (RoaringMutableIntSet) set);
+    } else {
+      result = new RoaringMutableIntSet();
+      for (IntIterator it = intIterator(); it.hasNext(); ) {
+        int x = it.next();
+        if (set.contains(x)) {
+          result.add(x);
+        }
+      }
+    }
+    keys = result.keys;
+    containers = result.containers;
+    nChunks = result.nChunks;
+  }
+
+  /**
+   * @throws IllegalArgumentException if that == null
+   */
+  @Override
+  public IntSet intersection(IntSet that) throws IllegalArgumentException {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof RoaringMutableIntSet) {
+      return and(this, (RoaringMutableIntSet) that);
+    } else {
+      RoaringMutableIntSet result = new RoaringMutableIntSet();
+      for (IntIterator it = that.intIterator(); it.hasNext(); ) {
+        int x = it.next();
+        if (contains(x)) {
+          result.add(x);
+        }
+      }
+      return result;
+    }
+  }
+
+  /**
+   * @return a new set holding the intersection of a and b
+   */
+  private static RoaringMutableIntSet and(RoaringMutableIntSet a, RoaringMutableIntSet b) {
+    RoaringMutableIntSet result = new RoaringMutableIntSet();
+    int j = 0;
+    for (int i = 0; i < a.nChunks && j < b.nChunks; i++) {
+      int key = a.keys[i];
+      while (j < b.nChunks && b.keys[j] < key) {
+        j++;
+      }
+      if (j < b.nChunks && b.keys[j] == key) {
+        Container c = and(a.containers[i], b.containers[j]);
+        if (c != null) {
+          result.insertChunk(result.nChunks, key, c);
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Remove the elements of B from this set.
+   *
+   * @return this
+   * @throws IllegalArgumentException if B == null
+   */
+  public RoaringMutableIntSet removeAll(RoaringMutableIntSet B) throws IllegalArgumentException {
+    if (B == null) {
+      throw new IllegalArgumentException("B == null");
+    }
+    if (B == this) {
+      clear();
+      return this;
+    }
+    int n = 0;
+    int j = 0;
+    for (int i = 0; i < nChunks; i++) {
+      int key = keys[i];
+      while (j < B.nChunks && B.keys[j] < key) {
+        j++;
+      }
+      Container c = containers[i];
+      if (j < B.nChunks && B.keys[j] == key) {
+        c = andNot(c, B.containers[j]);
+      }
+      if (c != null) {
+        keys[n] = key;
+        containers[n++] = c;
+      }
+    }
+    Arrays.fill(containers, n, nChunks, null);
+    nChunks = n;
+    return this;
+  }
+
+  /**
+   * @return a new set holding A \ B
+   * @throws IllegalArgumentException if A or B is null
+   */
+  public static RoaringMutableIntSet diff(RoaringMutableIntSet A, RoaringMutableIntSet B)
+      throws IllegalArgumentException {
+    if (A == null) {
+      throw new IllegalArgumentException("A == null");
+    }
+    if (B == null) {
+      throw new IllegalArgumentException("B == null");
+    }
+    RoaringMutableIntSet result = new RoaringMutableIntSet();
+    int j = 0;
+    for (int i = 0; i < A.nChunks; i++) {
+      int key = A.keys[i];
+      while (j < B.nChunks && B.keys[j] < key) {
+        j++;
+      }
+      Container c =
+          j < B.nChunks && B.keys[j] == key
+              ? andNot(A.containers[i], B.containers[j])
+              : A.containers[i].copy();
+      if (c != null) {
+        result.insertChunk(result.nChunks, key, c);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @throws IllegalArgumentException if that == null
+   */
+  @Override
+  public IntSet union(IntSet that) throws IllegalArgumentException {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    RoaringMutableIntSet result = new RoaringMutableIntSet(this);
+    result.addAll(that);
+    return result;
+  }
+
+  /**
+   * @throws IllegalArgumentException if set == null
+   */
+  @Override
+  public boolean containsAny(IntSet set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    if (set instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet that = (RoaringMutableIntSet) set;
+      int j = 0;
+      for (int i = 0; i < nChunks && j < that.nChunks; i++) {
+        int key = keys[i];
+        while (j < that.nChunks && that.keys[j] < key) {
+          j++;
+        }
+        if (j < that.nChunks
+            && that.keys[j] == key
+            && intersects(containers[i], that.containers[j])) {
+          return true;
+        }
+      }
+      return false;
+    } else {
+      for (IntIterator it = set.intIterator(); it.hasNext(); ) {
+        if (contains(it.next())) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if that == null
+   */
+  @Override
+  public boolean isSubset(IntSet that) throws IllegalArgumentException {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet set = (RoaringMutableIntSet) that;
+      int j = 0;
+      for (int i = 0; i < nChunks; i++) {
+        int key = keys[i];
+        while (j < set.nChunks && set.keys[j] < key) {
+          j++;
+        }
+        if (j == set.nChunks
+            || set.keys[j] != key
+            || !isSubset(containers[i], set.containers[j])) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      for (IntIterator it = intIterator(); it.hasNext(); ) {
+        if (!that.contains(it.next())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if that == null
+   */
+  @Override
+  public boolean sameValue(IntSet that) throws IllegalArgumentException {
+    if (that == null) {
+      throw new IllegalArgumentException("that == null");
+    }
+    if (that instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet set = (RoaringMutableIntSet) that;
+      if (nChunks != set.nChunks) {
+        return false;
+      }
+      for (int i = 0; i < nChunks; i++) {
+        if (keys[i] != set.keys[i]
+            || containers[i].cardinality != set.containers[i].cardinality
+            || !isSubset(containers[i], set.containers[i])) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      return size() == that.size() && isSubset(that);
+    }
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return nChunks == 0;
+  }
+
+  @Override
+  public int size() {
+    int result = 0;
+    for (int i = 0; i < nChunks; i++) {
+      result += containers[i].cardinality;
+    }
+    return result;
+  }
+
+  /**
+   * @return the largest element in the set, or -1 if the set is empty
+   */
+  @Override
+  public int max() {
+    return nChunks == 0 ? -1 : (keys[nChunks - 1] << 16) | containers[nChunks - 1].last();
+  }
+
+  @Override
+  public void foreach(IntSetAction action) {
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    for (int i = 0; i < nChunks; i++) {
+      containers[i].foreach(keys[i] << 16, action);
+    }
+  }
+
+  @Override
+  public void foreachExcluding(IntSet X, IntSetAction action) {
+    if (X == null) {
+      throw new IllegalArgumentException("null X");
+    }
+    if (action == null) {
+      throw new IllegalArgumentException("null action");
+    }
+    if (X instanceof RoaringMutableIntSet) {
+      RoaringMutableIntSet that = (RoaringMutableIntSet) X;
+      int j = 0;
+      for (int i = 0; i < nChunks; i++) {
+        int key = keys[i];
+        while (j < that.nChunks && that.keys[j] < key) {
+          j++;
+        }
+        if (j < that.nChunks && that.keys[j] == key) {
+          Container excluded = that.containers[j];
+          containers[i].foreach(
+              key << 16,
+              x -> {
+                if (!excluded.contains(low(x))) {
+                  action.act(x);
+                }
+              });
+        } else {
+          containers[i].foreach(key << 16, action);
+        }
+      }
+    } else {
+      foreach(
+          x -> {
+            if (!X.contains(x)) {
+              action.act(x);
+            }
+          });
+    }
+  }
+
+  @Override
+  public IntIterator intIterator() {
+    if (nChunks == 0) {
+      return EmptyIntIterator.instance();
+    }
+    return new IntIterator() {
+      private int chunk = 0;
+
+      private IntIterator current = containers[0].intIterator(keys[0] << 16);
+
+      @Override
+      public boolean hasNext() {
+        while (!current.hasNext()) {
+          if (++chunk >= nChunks) {
+            return false;
+          }
+          current = containers[chunk].intIterator(keys[chunk] << 16);
+        }
+        return true;
+      }
+
+      @Override
+      public int next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+        return current.next();
+      }
+    };
+  }
+
+  /**
+   * Convert each chunk to its smallest representation. Chunks are converted as they grow and
+   * shrink, but not every operation checks whether a run container would be smaller; call this
+   * when a set will not change for a while.
+   */
+  public void runOptimize() {
+    for (int i = 0; i < nChunks; i++) {
+      if (!(containers[i] instanceof RunContainer)) {
+        containers[i] = best(containers[i].toBitmap());
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{ ");
+    foreach(x -> sb.append(x).append(' '));
+    sb.append('}');
+    return sb.toString();
+  }
+
+  /**
+   * @return the container holding a union b; may update a in place
+   */
+  private static Container or(Container a, Container b) {
+    if (a instanceof ArrayContainer && b instanceof ArrayContainer) {
+      return ((ArrayContainer) a).or((ArrayContainer) b);
+    } else if (a instanceof RunContainer && b instanceof RunContainer) {
+      return ((RunContainer) a).or((RunContainer) b);
+    } else if (a instanceof BitmapContainer) {
+      return ((BitmapContainer) a).or(b);
+    } else {
+      return best(a.toBitmap().or(b));
+    }
+  }
+
+  /**
+   * @return a new container holding a intersect b, or null if it is empty
+   */
+  private static @Nullable Container and(Container a, Container b) {
+    if (a instanceof ArrayContainer) {
+      return ((ArrayContainer) a).filter(b);
+    } else if (b instanceof ArrayContainer) {
+      return ((ArrayContainer) b).filter(a);
+    } else {
+      long[] words =
+          a instanceof BitmapContainer ? ((BitmapContainer) a).words.clone() : a.toBitmap().words;
+      long[] other =
+          b instanceof BitmapContainer ? ((BitmapContainer) b).words : b.toBitmap().words;
+      int cardinality = 0;
+      for (int k = 0; k < BITMAP_WORDS; k++) {
+        words[k] &= other[k];
+        cardinality += Long.bitCount(words[k]);
+      }
+      if (cardinality == 0) {
+        return null;
+      }
+      BitmapContainer result = new BitmapContainer(words, cardinality);
+      return cardinality <= ARRAY_MAX ? result.toArray() : result;
+    }
+  }
+
+  /**
+   * @return a new container holding a \ b, or null if it is empty
+   */
+  private static @Nullable Container andNot(Container a, Container b) {
+    if (a instanceof ArrayContainer) {
+      ArrayContainer array = (ArrayContainer) a;
+      char[] result = new char[array.cardinality];
+      int n = 0;
+      for (int k = 0; k < array.cardinality; k++) {
+        if (!b.contains(array.content[k])) {
+          result[n++] = array.content[k];
+        }
+      }
+      return n == 0 ? null : new ArrayContainer(result, n);
+    } else {
+      long[] words =
+          a instanceof BitmapContainer ? ((BitmapContainer) a).words.clone() : a.toBitmap().words;
+      long[] other =
+          b instanceof BitmapContainer ? ((BitmapContainer) b).words : b.toBitmap().words;
+      int cardinality = 0;
+      for (int k = 0; k < BITMAP_WORDS; k++) {
+        words[k] &= ~other[k];
+        cardinality += Long.bitCount(words[k]);
+      }
+      return cardinality == 0 ? null : best(new BitmapContainer(words, cardinality));
+    }
+  }
+
+  /**
+   * @return true iff a intersect b is not empty
+   */
+  private static boolean intersects(Container a, Container b) {
+    if (a instanceof ArrayContainer) {
+      return ((ArrayContainer) a).intersects(b);
+    } else if (b instanceof ArrayContainer) {
+      return ((ArrayContainer) b).intersects(a);
+    } else if (a instanceof RunContainer) {
+      return ((RunContainer) a).intersects(b);
+    } else if (b instanceof RunContainer) {
+      return ((RunContainer) b).intersects(a);
+    } else {
+      long[] x = ((BitmapContainer) a).words;
+      long[] y = ((BitmapContainer) b).words;
+      for (int k = 0; k < BITMAP_WORDS; k++) {
+        if ((x[k] & y[k]) != 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * @return true iff a subset of b
+   */
+  private static boolean isSubset(Container a, Container b) {
+    if (a.cardinality > b.cardinality) {
+      return false;
+    } else if (a instanceof BitmapContainer && b instanceof BitmapContainer) {
+      long[] x = ((BitmapContainer) a).words;
+      long[] y = ((BitmapContainer) b).words;
+      for (int k = 0; k < BITMAP_WORDS; k++) {
+        if ((x[k] & ~y[k]) != 0) {
+          return false;
+        }
+      }
+      return true;
+    } else if (a instanceof RunContainer) {
+      RunContainer r = (RunContainer) a;
+      for (int k = 0; k < r.nRuns; k++) {
+        if (!b.containsRange(r.start(k), r.end(k))) {
+          return false;
+        }
+      }
+      return true;
+    } else {
+      for (IntIterator it = a.intIterator(0); it.hasNext(); ) {
+        if (!b.contains(it.next())) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * @return the smallest container with the same value as b
+   */
+  private static Container best(BitmapContainer b) {
+    int nRuns = b.numberOfRuns();
+    if (RunContainer.BYTES_PER_RUN * nRuns
+        < Math.min(ArrayContainer.BYTES_PER_ELEMENT * b.cardinality, BITMAP_BYTES)) {
+      return b.toRuns(nRuns);
+    } else if (b.cardinality <= ARRAY_MAX) {
+      return b.toArray();
+    } else {
+      return b;
+    }
+  }
+
+  /** set the bits start through end, inclusive */
+  private static void setRange(long[] words, int start, int end) {
+    int first = start >>> 6;
+    int last = end >>> 6;
+    if (first == last) {
+      words[first] |= (-1L << start) & (-1L >>> (63 - (end & 63)));
+    } else {
+      words[first] |= -1L << start;
+      for (int k = first + 1; k < last; k++) {
+        words[k] = -1L;
+      }
+      words[last] |= -1L >>> (63 - (end & 63));
+    }
+  }
+
+  /** The low 16 bits of the elements of one chunk. */
+  private abstract static class Container implements Serializable {
+
+    private static final long serialVersionUID = 2917264409337262716L;
+
+    int cardinality;
+
+    abstract boolean contains(int low);
+
+    /**
+     * @return the container holding this union {low}; may be this, updated in place
+     */
+    abstract Container add(int low);
+
+    /**
+     * @return the container holding this \ {low}; may be this, updated in place
+     */
+    abstract Container remove(int low);
+
+    abstract Container copy();
+
+    abstract int last();
+
+    /**
+     * @return true iff this contains every value from start through end, inclusive
+     */
+    abstract boolean containsRange(int start, int end);
+
+    /**
+     * @return true iff this contains some value from start through end, inclusive
+     */
+    abstract boolean intersectsRange(int start, int end);
+
+    /** set the bits for the values of this container */
+    abstract void setBits(long[] words);
+
+    abstract void foreach(int base, IntSetAction action);
+
+    abstract IntIterator intIterator(int base);
+
+    BitmapContainer toBitmap() {
+      long[] words = new long[BITMAP_WORDS];
+      setBits(words);
+      return new BitmapContainer(words, cardinality);
+    }
+  }
+
+  /** A sorted array of at most {@link #ARRAY_MAX} values. */
+  private static final class ArrayContainer extends Container {
+
+    private static final long serialVersionUID = -5824706470717233394L;
+
+    static final int BYTES_PER_ELEMENT = 2;
+
+    char[] content;
+
+    ArrayContainer(int low) {
+      content = new char[4];
+      content[0] = (char) low;
+      cardinality = 1;
+    }
+
+    ArrayContainer(char[] content, int cardinality) {
+      this.content = content;
+      this.cardinality = cardinality;
+    }
+
+    private int find(int low) {
+      return Arrays.binarySearch(content, 0, cardinality, (char) low);
+    }
+
+    private static int grow(int length, int minLength) {
+      return Math.min(ARRAY_MAX, Math.max(minLength, length + (length >> 1)));
+    }
+
+    @Override
+    boolean contains(int low) {
+      return find(low) >= 0;
+    }
+
+    @Override
+    Container add(int low) {
+      int index = find(low);
+      if (index >= 0) {
+        return this;
+      }
+      if (cardinality == ARRAY_MAX) {
+        BitmapContainer b = toBitmap();
+        b.add(low);
+        return best(b);
+      }
+      index = -index - 1;
+      if (cardinality == content.length) {
+        content = Arrays.copyOf(content, grow(content.length, cardinality + 1));
+      }
+      System.arraycopy(content, index, content, index + 1, cardinality - index);
+      content[index] = (char) low;
+      cardinality++;
+      return this;
+    }
+
+    @Override
+    Container remove(int low) {
+      int index = find(low);
+      if (index >= 0) {
+        System.arraycopy(content, index + 1, content, index, cardinality - index - 1);
+        cardinality--;
+      }
+      return this;
+    }
+
+    @Override
+    Container copy() {
+      return new ArrayContainer(Arrays.copyOf(content, cardinality), cardinality);
+    }
+
+    @Override
+    int last() {
+      return content[cardinality - 1];
+    }
+
+    @Override
+    boolean containsRange(int start, int end) {
+      int index = find(start);
+      int last = index + end - start;
+      return index >= 0 && last < cardinality && content[last] == end;
+    }
+
+    @Override
+    boolean intersectsRange(int start, int end) {
+      int index = find(start);
+      if (index >= 0) {
+        return true;
+      }
+      index = -index - 1;
+      return index < cardinality && content[index] <= end;
+    }
+
+    @Override
+    void setBits(long[] words) {
+      for (int k = 0; k < cardinality; k++) {
+        words[content[k] >>> 6] |= 1L << content[k];
+      }
+    }
+
+    @Override
+    void foreach(int base, IntSetAction action) {
+      for (int k = 0; k < cardinality; k++) {
+        action.act(base | content[k]);
+      }
+    }
+
+    @Override
+    IntIterator intIterator(int base) {
+      return new IntIterator() {
+        private int k = 0;
+
+        @Override
+        public boolean hasNext() {
+          return k < cardinality;
+        }
+
+        @Override
+        public int next() {
+          if (k >= cardinality) {
+            throw new NoSuchElementException();
+          }
+          return base | content[k++];
+        }
+      };
+    }
+
+    /**
+     * @return the container holding this union that; may be this, updated in place
+     */
+    Container or(ArrayContainer that) {
+      // count the new values first; usually there are none, and nothing needs to move.
+      int added = 0;
+      for (int i = 0, j = 0; j < that.cardinality; ) {
+        if (i == cardinality || that.content[j] < content[i]) {
+          added++;
+          j++;
+        } else if (that.content[j] == content[i]) {
+          i++;
+          j++;
+        } else {
+          i++;
+        }
+      }
+      if (added == 0) {
+        return this;
+      }
+      int total = cardinality + added;
+      if (total > ARRAY_MAX) {
+        BitmapContainer b = toBitmap();
+        that.setBits(b.words);
+        b.cardinality = total;
+        return best(b);
+      }
+      if (total > content.length) {
+        content = Arrays.copyOf(content, grow(content.length, total));
+      }
+      // merge from the back, so that no value is overwritten before it is moved.
+      int i = cardinality - 1;
+      int j = that.cardinality - 1;
+      for (int k = total - 1; j >= 0; k--) {
+        if (i >= 0 && content[i] > that.content[j]) {
+          content[k] = content[i--];
+        } else {
+          if (i >= 0 && content[i] == that.content[j]) {
+            i--;
+          }
+          content[k] = that.content[j--];
+        }
+      }
+      cardinality = total;
+      return this;
+    }
+
+    /**
+     * @return a new container holding the values of this that are in c, or null if none are
+     */
+    @Nullable ArrayContainer filter(Container c) {
+      char[] result = new char[Math.min(cardinality, c.cardinality)];
+      int n = 0;
+      for (int k = 0; k < cardinality && n < result.length; k++) {
+        if (c.contains(content[k])) {
+          result[n++] = content[k];
+        }
+      }
+      return n == 0 ? null : new ArrayContainer(result, n);
+    }
+
+    boolean intersects(Container c) {
+      for (int k = 0; k < cardinality; k++) {
+        if (c.contains(content[k])) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  /** A bitmap of 2<sup>16</sup> bits, holding more than {@link #ARRAY_MAX} values. */
+  private static final class BitmapContainer extends Container {
+
+    private static final long serialVersionUID = 6243951846710347717L;
+
+    final long[] words;
+
+    BitmapContainer(long[] words, int cardinality) {
+      this.words = words;
+      this.cardinality = cardinality;
+    }
+
+    @Override
+    boolean contains(int low) {
+      return (words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    @Override
+    Container add(int low) {
+      long word = words[low >>> 6];
+      long newWord = word | (1L << low);
+      if (word != newWord) {
+        words[low >>> 6] = newWord;
+        cardinality++;
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(int low) {
+      long word = words[low >>> 6];
+      long newWord = word & ~(1L << low);
+      if (word != newWord) {
+        words[low >>> 6] = newWord;
+        cardinality--;
+        if (cardinality <= ARRAY_MAX) {
+          return toArray();
+        }
+      }
+      return this;
+    }
+
+    @Override
+    Container copy() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    @Override
+    int last() {
+      for (int k = BITMAP_WORDS - 1; ; k--) {
+        if (words[k] != 0) {
+          return (k << 6) + 63 - Long.numberOfLeadingZeros(words[k]);
+        }
+      }
+    }
+
+    @Override
+    boolean containsRange(int start, int end) {
+      int first = start >>> 6;
+      int last = end >>> 6;
+      long firstMask = -1L << start;
+      long lastMask = -1L >>> (63 - (end & 63));
+      if (first == last) {
+        long mask = firstMask & lastMask;
+        return (words[first] & mask) == mask;
+      }
+      if ((words[first] & firstMask) != firstMask || (words[last] & lastMask) != lastMask) {
+        return false;
+      }
+      for (int k = first + 1; k < last; k++) {
+        if (words[k] != -1L) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    boolean intersectsRange(int start, int end) {
+      int first = start >>> 6;
+      int last = end >>> 6;
+      long firstMask = -1L << start;
+      long lastMask = -1L >>> (63 - (end & 63));
+      if (first == last) {
+        return (words[first] & firstMask & lastMask) != 0;
+      }
+      if ((words[first] & firstMask) != 0 || (words[last] & lastMask) != 0) {
+        return true;
+      }
+      for (int k = first + 1; k < last; k++) {
+        if (words[k] != 0) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    void setBits(long[] w) {
+      for (int k = 0; k < BITMAP_WORDS; k++) {
+        w[k] |= words[k];
+      }
+    }
+
+    @Override
+    void foreach(int base, IntSetAction action) {
+      for (int k = 0; k < BITMAP_WORDS; k++) {
+        for (long word = words[k]; word != 0; word &= word - 1) {
+          action.act(base | (k << 6) | Long.numberOfTrailingZeros(word));
+        }
+      }
+    }
+
+    @Override
+    IntIterator intIterator(int base) {
+      return new IntIterator() {
+        private int k = 0;
+
+        private long word = words[0];
+
+        @Override
+        public boolean hasNext() {
+          while (word == 0) {
+            if (++k == BITMAP_WORDS) {
+              return false;
+            }
+            word = words[k];
+          }
+          return true;
+        }
+
+        @Override
+        public int next() {
+          if (!hasNext()) {
+            throw new NoSuchElementException();
+          }
+          int result = base | (k << 6) | Long.numberOfTrailingZeros(word);
+          word &= word - 1;
+          return result;
+        }
+      };
+    }
+
+    @Override
+    BitmapContainer toBitmap() {
+      return new BitmapContainer(words.clone(), cardinality);
+    }
+
+    /** add the values of c to this, in place */
+    BitmapContainer or(Container c) {
+      if (c instanceof BitmapContainer) {
+        long[] other = ((BitmapContainer) c).words;
+        int n = 0;
+        for (int k = 0; k < BITMAP_WORDS; k++) {
+          words[k] |= other[k];
+          n += Long.bitCount(words[k]);
+        }
+        cardinality = n;
+      } else if (c instanceof ArrayContainer) {
+        ArrayContainer a = (ArrayContainer) c;
+        for (int k = 0; k < a.cardinality; k++) {
+          add(a.content[k]);
+        }
+      } else {
+        c.setBits(words);
+        int n = 0;
+        for (long word : words) {
+          n += Long.bitCount(word);
+        }
+        cardinality = n;
+      }
+      return this;
+    }
+
+    int numberOfRuns() {
+      int result = 0;
+      long carry = 0;
+      for (long word : words) {
+        // a run starts at each set bit whose predecessor is clear
+        result += Long.bitCount(word & ~((word << 1) | carry));
+        carry = word >>> 63;
+      }
+      return result;
+    }
+
+    ArrayContainer toArray() {
+      char[] content = new char[cardinality];
+      int n = 0;
+      for (int k = 0; k < BITMAP_WORDS; k++) {
+        for (long word = words[k]; word != 0; word &= word - 1) {
+          content[n++] = (char) ((k << 6) | Long.numberOfTrailingZeros(word));
+        }
+      }
+      return new ArrayContainer(content, cardinality);
+    }
+
+    RunContainer toRuns(int nRuns) {
+      char[] runs = new char[2 * nRuns];
+      int n = 0;
+      int k = 0;
+      long word = words[0];
+      while (true) {
+        while (word == 0 && k < BITMAP_WORDS - 1) {
+          word = words[++k];
+        }
+        if (word == 0) {
+          break;
+        }
+        int start = (k << 6) | Long.numberOfTrailingZeros(word);
+        // fill the bits below the run, and find its first clear bit
+        word |= word - 1;
+        while (word == -1L && k < BITMAP_WORDS - 1) {
+          word = words[++k];
+        }
+        int end =
+            word == -1L ? BITMAP_WORDS * 64 - 1 : (k << 6) + Long.numberOfTrailingZeros(~word) - 1;
+        runs[n++] = (char) start;
+        runs[n++] = (char) end;
+        // clear the run
+        word &= word + 1;
+      }
+      return new RunContainer(runs, nRuns, cardinality);
+    }
+  }
+
+  /** A sorted list of disjoint, non-adjacent runs of consecutive values. */
+  private static final class RunContainer extends Container {
+
+    private static final long serialVersionUID = -1066487224617617183L;
+
+    static final int BYTES_PER_RUN = 4;
+
+    /** the first and last value of each run */
+    char[] runs;
+
+    int nRuns;
+
+    RunContainer(char[] runs, int nRuns, int cardinality) {
+      this.runs = runs;
+      this.nRuns = nRuns;
+      this.cardinality = cardinality;
+    }
+
+    int start(int run) {
+      return runs[2 * run];
+    }
+
+    int end(int run) {
+      return runs[2 * run + 1];
+    }
+
+    /**
+     * @return the index of the last run that starts at or before low, or -1 if there is none
+     */
+    private int find(int low) {
+      int lo = 0;
+      int hi = nRuns - 1;
+      while (lo <= hi) {
+        int mid = (lo + hi) >>> 1;
+        if (start(mid) <= low) {
+          lo = mid + 1;
+        } else {
+          hi = mid - 1;
+        }
+      }
+      return hi;
+    }
+
+    private void insertRun(int index, int start, int end) {
+      if (2 * nRuns == runs.length) {
+        runs = Arrays.copyOf(runs, 2 * (nRuns + (nRuns >> 1) + 1));
+      }
+      System.arraycopy(runs, 2 * index, runs, 2 * index + 2, 2 * (nRuns - index));
+      runs[2 * index] = (char) start;
+      runs[2 * index + 1] = (char) end;
+      nRuns++;
+    }
+
+    private void removeRun(int index) {
+      System.arraycopy(runs, 2 * index + 2, runs, 2 * index, 2 * (nRuns - index - 1));
+      nRuns--;
+    }
+
+    /**
+     * @return this, or a smaller container with the same value
+     */
+    private Container shrinkIfNeeded() {
+      if (BYTES_PER_RUN * nRuns
+          < Math.min(ArrayContainer.BYTES_PER_ELEMENT * cardinality, BITMAP_BYTES)) {
+        return this;
+      }
+      return best(toBitmap());
+    }
+
+    @Override
+    boolean contains(int low) {
+      int run = find(low);
+      return run >= 0 && low <= end(run);
+    }
+
+    @Override
+    Container add(int low) {
+      int run = find(low);
+      if (run >= 0 && low <= end(run)) {
+        return this;
+      }
+      cardinality++;
+      boolean extendsPrevious = run >= 0 && end(run) + 1 == low;
+      boolean extendsNext = run + 1 < nRuns && start(run + 1) == low + 1;
+      if (extendsPrevious && extendsNext) {
+        runs[2 * run + 1] = runs[2 * run + 3];
+        removeRun(run + 1);
+      } else if (extendsPrevious) {
+        runs[2 * run + 1] = (char) low;
+      } else if (extendsNext) {
+        runs[2 * run + 2] = (char) low;
+      } else {
+        insertRun(run + 1, low, low);
+        return shrinkIfNeeded();
+      }
+      return this;
+    }
+
+    @Override
+    Container remove(int low) {
+      int run = find(low);
+      if (run < 0 || low > end(run)) {
+        return this;
+      }
+      cardinality--;
+      int start = start(run);
+      int end = end(run);
+      if (start == end) {
+        removeRun(run);
+      } else if (low == start) {
+        runs[2 * run] = (char) (low + 1);
+      } else if (low == end) {
+        runs[2 * run + 1] = (char) (low - 1);
+      } else {
+        runs[2 * run + 1] = (char) (low - 1);
+        insertRun(run + 1, low + 1, end);
+      }
+      return cardinality == 0 ? this : shrinkIfNeeded();
+    }
+
+    @Override
+    Container copy() {
+      return new RunContainer(Arrays.copyOf(runs, 2 * nRuns), nRuns, cardinality);
+    }
+
+    @Override
+    int last() {
+      return end(nRuns - 1);
+    }
+
+    @Override
+    boolean containsRange(int start, int end) {
+      int run = find(start);
+      return run >= 0 && end <= end(run);
+    }
+
+    @Override
+    boolean intersectsRange(int start, int end) {
+      int run = find(end);
+      return run >= 0 && end(run) >= start;
+    }
+
+    @Override
+    void setBits(long[] words) {
+      for (int k = 0; k < nRuns; k++) {
+        setRange(words, start(k), end(k));
+      }
+    }
+
+    @Override
+    void foreach(int base, IntSetAction action) {
+      for (int k = 0; k < nRuns; k++) {
+        for (int x = start(k), end = end(k); x <= end; x++) {
+          action.act(base | x);
+        }
+      }
+    }
+
+    @Override
+    IntIterator intIterator(int base) {
+      return new IntIterator() {
+        private int run = 0;
+
+        private int next = nRuns == 0 ? 0 : start(0);
+
+        @Override
+        public boolean hasNext() {
+          return run < nRuns;
+        }
+
+        @Override
+        public int next() {
+          if (run >= nRuns) {
+            throw new NoSuchElementException();
+          }
+          int result = base | next;
+          if (next == end(run)) {
+            if (++run < nRuns) {
+              next = start(run);
+            }
+          } else {
+            next++;
+          }
+          return result;
+        }
+      };
+    }
+
+    /**
+     * @return the container holding this union that
+     */
+    Container or(RunContainer that) {
+      char[] result = new char[2 * (nRuns + that.nRuns)];
+      int n = 0;
+      int total = 0;
+      int i = 0;
+      int j = 0;
+      int start = -1;
+      int end = -2;
+      while (i < nRuns || j < that.nRuns) {
+        int s;
+        int e;
+        if (j == that.nRuns || (i < nRuns && start(i) <= that.start(j))) {
+          s = start(i);
+          e = end(i++);
+        } else {
+          s = that.start(j);
+          e = that.end(j++);
+        }
+        if (s <= end + 1) {
+          end = Math.max(end, e);
+        } else {
+          if (end >= 0) {
+            result[n++] = (char) start;
+            result[n++] = (char) end;
+            total += end - start + 1;
+          }
+          start = s;
+          end = e;
+        }
+      }
+      result[n++] = (char) start;
+      result[n++] = (char) end;
+      total += end - start + 1;
+      if (total == cardinality) {
+        return this;
+      }
+      return new RunContainer(result, n / 2, total).shrinkIfNeeded();
+    }
+
+    boolean intersects(Container c) {
+      for (int k = 0; k < nRuns; k++) {
+        if (c.intersectsRange(start(k), end(k))) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2002 - 2006 IBM Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     IBM Corporation - initial API and implementation
+ */
+package com.ibm.wala.util.intset;
+
+/**
+ * An object that creates {@link RoaringMutableIntSet}s.
+ *
+ * <p>To use these sets for points-to sets, pass an instance to {@link
+ * IntSetUtil#setDefaultIntSetFactory(MutableIntSetFactory)} before building a call graph, or set
+ * the system property {@value IntSetUtil#INT_SET_FACTORY_CONFIG_PROPERTY_NAME} to the name of this
+ * class.
+ */
+public class RoaringMutableIntSetFactory implements MutableIntSetFactory<RoaringMutableIntSet> {
+
+  /**
+   * @throws IllegalArgumentException if set is null or holds a negative value
+   */
+  @Override
+  public RoaringMutableIntSet make(int[] set) throws IllegalArgumentException {
+    if (set == null) {
+      throw new IllegalArgumentException("set == null");
+    }
+    RoaringMutableIntSet result = new RoaringMutableIntSet();
+    for (int x : set) {
+      result.add(x);
+    }
+    return result;
+  }
+
+  @Override
+  public RoaringMutableIntSet parse(String string) throws NumberFormatException {
+    return make(SparseIntSet.parseIntArray(string));
+  }
+
+  /**
+   * @throws IllegalArgumentException if x == null
+   */
+  @Override
+  public RoaringMutableIntSet makeCopy(IntSet x) throws IllegalArgumentException {
+    if (x == null) {
+      throw new IllegalArgumentException("x == null");
+    }
+    return RoaringMutableIntSet.make(x);
+  }
+
+  @Override
+  public RoaringMutableIntSet make() {
+    return new RoaringMutableIntSet();
+  }
+}